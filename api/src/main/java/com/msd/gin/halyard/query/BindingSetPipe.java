@@ -16,6 +16,7 @@
  */
 package com.msd.gin.halyard.query;
 
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.rdf4j.query.BindingSet;
@@ -78,6 +79,43 @@ public abstract class BindingSetPipe {
     	}
     }
 
+    /**
+     * Pushes a batch of BindingSets up the pipe.
+     * Equivalent to calling push() for each BindingSet in turn,
+     * but allows pipes to process the whole batch at once.
+     * The list must not be modified by the caller once pushed.
+     *
+     * @param bss BindingSets
+     * @return boolean indicating if more data is expected from the caller
+     */
+    public final boolean pushBatch(List<? extends BindingSet> bss) {
+    	if (state.get() == ACCEPT_STATE) {
+    		boolean pushMore = nextBatch(bss);
+    		if (!pushMore) {
+    			state.set(REJECT_STATE);
+    		}
+    		return pushMore;
+    	} else {
+    		return false;
+    	}
+    }
+
+    /**
+     * Must be thread-safe.
+     * Defaults to calling next() for each BindingSet.
+     * 
+     * @param bss BindingSets
+     * @return boolean indicating if more data is expected from the caller
+     */
+    protected boolean nextBatch(List<? extends BindingSet> bss) {
+    	for (BindingSet bs : bss) {
+    		if (!next(bs)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
     public final void close() {
     	if (state.updateAndGet(current -> {
     		if (current < CLOSED_ONCE_STATE) {
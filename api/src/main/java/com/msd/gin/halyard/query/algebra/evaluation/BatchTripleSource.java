@@ -0,0 +1,114 @@
+package com.msd.gin.halyard.query.algebra.evaluation;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.QueryEvaluationException;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+
+/**
+ * A triple source that can look up the statements for several patterns in one go (e.g. for bind-joins).
+ */
+public interface BatchTripleSource extends TripleSource {
+	/**
+	 * Looks up the statements matching each of the given patterns.
+	 * Statements are returned in no particular order, each tagged with the index of the pattern it matched.
+	 * A statement that matches more than one pattern is returned once for each pattern.
+	 * @param lookups patterns to look up
+	 * @return matching statements
+	 */
+	default CloseableIteration<Match> getStatements(List<Lookup> lookups) throws QueryEvaluationException {
+		Iterator<Lookup> lookupIter = lookups.iterator();
+		return new LookAheadIteration<Match>() {
+			int index = -1;
+			CloseableIteration<? extends Statement> iter;
+
+			@Override
+			protected Match getNextElement() {
+				while (true) {
+					if (iter == null) {
+						if (!lookupIter.hasNext()) {
+							return null;
+						}
+						Lookup lookup = lookupIter.next();
+						index++;
+						iter = BatchTripleSource.this.getStatements(lookup.subj, lookup.pred, lookup.obj, lookup.ctxs);
+					}
+					if (iter.hasNext()) {
+						return new Match(index, iter.next());
+					}
+					iter.close();
+					iter = null;
+				}
+			}
+
+			@Override
+			protected void handleClose() {
+				if (iter != null) {
+					iter.close();
+					iter = null;
+				}
+			}
+		};
+	}
+
+	final class Lookup {
+		private final Resource subj;
+		private final IRI pred;
+		private final Value obj;
+		private final Resource[] ctxs;
+
+		public Lookup(@Nullable Resource subj, @Nullable IRI pred, @Nullable Value obj, Resource... ctxs) {
+			this.subj = subj;
+			this.pred = pred;
+			this.obj = obj;
+			this.ctxs = Objects.requireNonNull(ctxs);
+		}
+
+		public Resource getSubject() {
+			return subj;
+		}
+
+		public IRI getPredicate() {
+			return pred;
+		}
+
+		public Value getObject() {
+			return obj;
+		}
+
+		public Resource[] getContexts() {
+			return ctxs;
+		}
+	}
+
+	final class Match {
+		private final int index;
+		private final Statement stmt;
+
+		public Match(int index, Statement stmt) {
+			this.index = index;
+			this.stmt = stmt;
+		}
+
+		/**
+		 * @return the index of the matched lookup.
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		public Statement getStatement() {
+			return stmt;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.msd.gin.halyard.query.algebra.evaluation;
+
+import javax.annotation.Nullable;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
+
+/**
+ * A triple source that returns the statements for some patterns in a known order (e.g. index key order),
+ * so that two statement streams can be merge-joined.
+ */
+public interface OrderedTripleSource extends TripleSource {
+	/**
+	 * Returns the order of the statements returned by {@link #getStatements(Resource, IRI, Value, Resource...)} for the given pattern.
+	 * @return the statement ordering, or null if the statements are not returned in any particular order.
+	 */
+	@Nullable
+	StatementOrdering getStatementOrdering(@Nullable Resource subj, @Nullable IRI pred, @Nullable Value obj, Resource... contexts);
+}
@@ -0,0 +1,29 @@
+package com.msd.gin.halyard.query.algebra.evaluation;
+
+import com.msd.gin.halyard.model.TermRole;
+
+import org.eclipse.rdf4j.model.Value;
+
+/**
+ * The order in which a triple source returns statements, i.e. ascending by a sort key of the value in one of the statement positions.
+ * Statements from orderings that are equal are ordered by the same sort keys, so they can be merged.
+ * NB: different values can have the same sort key.
+ */
+public interface StatementOrdering {
+	/**
+	 * @return the statement position the statements are ordered by.
+	 */
+	TermRole getRole();
+
+	/**
+	 * @return the index that provides the ordering.
+	 */
+	IndexOrdering getIndexOrdering();
+
+	/**
+	 * Returns the sort key of a value. Sort keys are compared as unsigned bytes.
+	 * @param v value to get the sort key for.
+	 * @return sort key.
+	 */
+	byte[] getSortKey(Value v);
+}
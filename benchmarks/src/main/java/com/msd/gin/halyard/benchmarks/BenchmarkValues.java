@@ -0,0 +1,54 @@
+package com.msd.gin.halyard.benchmarks;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Date;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.GEO;
+
+/**
+ * Sample values of each type with a representative encoding.
+ */
+final class BenchmarkValues {
+	static final String TYPES = "iri,bnode,string,langString,boolean,int,long,integer,decimal,double,dateTime,wkt";
+
+	private BenchmarkValues() {
+	}
+
+	/**
+	 * Creates a different value of the given type for each seed, so values aren't shared between iterations.
+	 */
+	static Value create(String type, int seed, ValueFactory vf) {
+		switch (type) {
+			case "iri":
+				return vf.createIRI("http://example.org/resource/", "item" + seed);
+			case "bnode":
+				return vf.createBNode("node" + seed);
+			case "string":
+				return vf.createLiteral("The quick brown fox jumps over the lazy dog " + seed);
+			case "langString":
+				return vf.createLiteral("Le renard brun rapide saute par-dessus le chien paresseux " + seed, "fr");
+			case "boolean":
+				return vf.createLiteral(seed % 2 == 0);
+			case "int":
+				return vf.createLiteral(seed);
+			case "long":
+				return vf.createLiteral(Long.MAX_VALUE - seed);
+			case "integer":
+				return vf.createLiteral(BigInteger.valueOf(seed).shiftLeft(80));
+			case "decimal":
+				return vf.createLiteral(BigDecimal.valueOf(seed, 3));
+			case "double":
+				return vf.createLiteral(seed / 7.0);
+			case "dateTime":
+				return vf.createLiteral(Date.from(Instant.ofEpochSecond(1_600_000_000L + seed)));
+			case "wkt":
+				return vf.createLiteral("POINT (" + (seed % 180) + " 51.5)", GEO.WKT_LITERAL);
+			default:
+				throw new IllegalArgumentException("Unknown value type: " + type);
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.StatementIndices;
+import com.msd.gin.halyard.common.ValueIdentifier;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Value identifier hashing by {@link RDFFactory#id(Value)}.
+ * Values are created by a plain value factory so that identifiers are never cached on the values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RDFFactoryBenchmark {
+	@Param({BenchmarkValues.TYPES})
+	public String valueType;
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+	private RDFFactory rdfFactory;
+	private Value value;
+	private Resource subj;
+	private IRI pred;
+
+	@Setup
+	public void setUp() {
+		rdfFactory = StatementIndices.create().getRDFFactory();
+		value = BenchmarkValues.create(valueType, 42, vf);
+		subj = vf.createIRI("http://example.org/resource/subject");
+		pred = vf.createIRI("http://example.org/ontology/predicate");
+	}
+
+	@Benchmark
+	public ValueIdentifier id() {
+		return rdfFactory.id(value);
+	}
+
+	@Benchmark
+	public byte[] statementId() {
+		return rdfFactory.statementId(subj, pred, value);
+	}
+}
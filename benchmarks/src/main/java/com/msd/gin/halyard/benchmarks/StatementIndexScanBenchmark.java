@@ -0,0 +1,62 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.common.RDFContext;
+import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.RDFObject;
+import com.msd.gin.halyard.common.RDFPredicate;
+import com.msd.gin.halyard.common.RDFSubject;
+import com.msd.gin.halyard.common.StatementIndices;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Construction of the HBase scan for a statement pattern.
+ * The pattern parameter lists the bound positions (s, p, o, c), with '_' for an unbound position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementIndexScanBenchmark {
+	@Param({"____", "s___", "_p__", "__o_", "sp__", "_po_", "s_o_", "___c", "s__c", "_p_c", "spoc"})
+	public String pattern;
+
+	private StatementIndices stmtIndices;
+	private RDFSubject subj;
+	private RDFPredicate pred;
+	private RDFObject obj;
+	private RDFContext ctx;
+
+	@Setup
+	public void setUp() {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		stmtIndices = StatementIndices.create();
+		RDFFactory rdfFactory = stmtIndices.getRDFFactory();
+		subj = pattern.charAt(0) != '_' ? rdfFactory.createSubject(vf.createIRI("http://example.org/resource/subject")) : null;
+		pred = pattern.charAt(1) != '_' ? rdfFactory.createPredicate(vf.createIRI("http://example.org/ontology/predicate")) : null;
+		obj = pattern.charAt(2) != '_' ? rdfFactory.createObject(vf.createLiteral("The quick brown fox jumps over the lazy dog")) : null;
+		ctx = pattern.charAt(3) != '_' ? rdfFactory.createContext(vf.createIRI("http://example.org/graph")) : null;
+	}
+
+	@Benchmark
+	public Scan scan() {
+		return stmtIndices.scan(subj, pred, obj, ctx);
+	}
+}
@@ -0,0 +1,90 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.common.IdValueFactory;
+import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.StatementIndices;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion between statements and HBase cells by {@link StatementIndices}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatementIndicesBenchmark {
+	@Param({"iri", "string", "int", "dateTime"})
+	public String objectType;
+
+	@Param({"false", "true"})
+	public boolean quad;
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+	private StatementIndices stmtIndices;
+	private ValueFactory idValueFactory;
+	private Resource subj;
+	private IRI pred;
+	private Value obj;
+	private Resource ctx;
+	private Result[] results;
+
+	@Setup
+	public void setUp() {
+		stmtIndices = StatementIndices.create();
+		RDFFactory rdfFactory = stmtIndices.getRDFFactory();
+		idValueFactory = new IdValueFactory(rdfFactory);
+		subj = vf.createIRI("http://example.org/resource/subject");
+		pred = vf.createIRI("http://example.org/ontology/predicate");
+		obj = BenchmarkValues.create(objectType, 42, vf);
+		ctx = quad ? vf.createIRI("http://example.org/graph") : null;
+		List<? extends KeyValue> kvs = stmtIndices.insertKeyValues(subj, pred, obj, ctx, 0L);
+		results = new Result[kvs.size()];
+		for (int i=0; i<kvs.size(); i++) {
+			results[i] = Result.create(Collections.<Cell>singletonList(kvs.get(i)));
+		}
+	}
+
+	@Benchmark
+	public List<? extends KeyValue> insertKeyValues() {
+		return stmtIndices.insertKeyValues(subj, pred, obj, ctx, 0L);
+	}
+
+	/**
+	 * Parses a row from each index with nothing known about the statement (full table scan).
+	 */
+	@Benchmark
+	public int parseStatements() {
+		int n = 0;
+		for (Result res : results) {
+			Statement[] stmts = stmtIndices.parseStatements(null, null, null, null, res, idValueFactory);
+			n += stmts.length;
+		}
+		return n;
+	}
+}
@@ -0,0 +1,71 @@
+package com.msd.gin.halyard.benchmarks;
+
+import com.msd.gin.halyard.common.ValueIO;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serialization and deserialization of values by {@link ValueIO}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValueIOBenchmark {
+	@Param({BenchmarkValues.TYPES})
+	public String valueType;
+
+	private final ValueFactory vf = SimpleValueFactory.getInstance();
+	private ValueIO.Writer writer;
+	private ValueIO.Reader reader;
+	private Value value;
+	private byte[] ser;
+	private ByteBuffer buf;
+
+	@Setup
+	public void setUp() {
+		writer = ValueIO.getDefaultWriter();
+		reader = ValueIO.getDefaultReader();
+		value = BenchmarkValues.create(valueType, 42, vf);
+		ser = writer.toBytes(value);
+		buf = ByteBuffer.allocate(256);
+	}
+
+	@Benchmark
+	public ByteBuffer write() {
+		buf.clear();
+		buf = writer.writeTo(value, buf);
+		return buf;
+	}
+
+	@Benchmark
+	public Value read() {
+		return reader.readValue(ByteBuffer.wrap(ser), vf);
+	}
+
+	@Benchmark
+	public Value roundTrip() {
+		buf.clear();
+		buf = writer.writeTo(value, buf);
+		buf.flip();
+		return reader.readValue(buf, vf);
+	}
+}
@@ -20,7 +20,9 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.function.Function;
@@ -48,6 +50,7 @@ import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
 import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.eclipse.rdf4j.model.IRI;
 
@@ -248,6 +251,12 @@ public final class HalyardTableUtils {
 			splitKeys.add(new byte[] { cpos.prefix });
 			splitKeys.add(new byte[] { cosp.prefix });
 		}
+		if (rdfFactory.literalRangeIndex) {
+			splitKeys.add(new byte[] { StatementIndices.LITERAL_RANGE_PREFIX });
+		}
+		if (rdfFactory.hasValueDictionary()) {
+			splitKeys.add(new byte[] { ValueDictionary.PREFIX });
+		}
         //common presplits
 		addSplits(splitKeys, spo.prefix, splitBits, null, indices);
 		addSplits(splitKeys, pos.prefix, splitBits, transformKeys(predicateRatios, iri -> rdfFactory.createPredicate(iri)), indices);
@@ -427,6 +436,34 @@ public final class HalyardTableUtils {
         return scan;
     }
 
+	/**
+	 * Combines the row ranges of several scans into a single scan.
+	 * Any filters on the given scans are ignored.
+	 * @param scans scans to combine
+	 * @return HBase Scan instance
+	 */
+	public static Scan scanRanges(List<Scan> scans) {
+		List<MultiRowRangeFilter.RowRange> ranges = new ArrayList<>(scans.size());
+		int rowBatchSize = 1;
+		boolean cacheBlocks = true;
+		for (Scan scan : scans) {
+			ranges.add(new MultiRowRangeFilter.RowRange(scan.getStartRow(), scan.includeStartRow(), scan.getStopRow(), scan.includeStopRow()));
+			rowBatchSize = Math.max(scan.getCaching(), rowBatchSize);
+			cacheBlocks &= scan.getCacheBlocks();
+		}
+		MultiRowRangeFilter filter = new MultiRowRangeFilter(ranges);
+		// ranges are now sorted and merged
+		List<MultiRowRangeFilter.RowRange> sortedRanges = filter.getRowRanges();
+		MultiRowRangeFilter.RowRange firstRange = sortedRanges.get(0);
+		MultiRowRangeFilter.RowRange lastRange = sortedRanges.get(sortedRanges.size() - 1);
+		Scan scan = scan(firstRange.getStartRow(), null, rowBatchSize, !cacheBlocks);
+		if (lastRange.getStopRow().length > 0) {
+			scan.withStopRow(lastRange.getStopRow(), lastRange.isStopRowInclusive());
+		}
+		scan.setFilter(filter);
+		return scan;
+	}
+
 	static int rowBatchSize(int cardinality, int maxCachingLimit) {
 		return Math.min(cardinality, maxCachingLimit);
 	}
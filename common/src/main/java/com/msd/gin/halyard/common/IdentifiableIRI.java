@@ -9,6 +9,10 @@ public final class IdentifiableIRI extends IdentifiableValue implements IRI {
 		super(id, ser, rdfFactory);
 	}
 
+	IdentifiableIRI(ValueIdentifier id, ValueDictionary dictionary, RDFFactory rdfFactory) {
+		super(id, dictionary, rdfFactory);
+	}
+
 	IdentifiableIRI(String iri) {
 		super(MATERIALIZED_VALUE_FACTORY.createIRI(Objects.requireNonNull(iri)));
 	}
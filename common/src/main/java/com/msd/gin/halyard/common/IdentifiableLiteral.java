@@ -33,6 +33,10 @@ public final class IdentifiableLiteral extends IdentifiableValue implements Lite
 		super(id, ser, rdfFactory);
 	}
 
+	IdentifiableLiteral(ValueIdentifier id, ValueDictionary dictionary, RDFFactory rdfFactory) {
+		super(id, dictionary, rdfFactory);
+	}
+
 	IdentifiableLiteral(Literal l) {
 		super(l);
 	}
@@ -10,6 +10,10 @@ public final class IdentifiableTriple extends IdentifiableValue implements Tripl
 		super(id, ser, rdfFactory);
 	}
 
+	IdentifiableTriple(ValueIdentifier id, ValueDictionary dictionary, RDFFactory rdfFactory) {
+		super(id, dictionary, rdfFactory);
+	}
+
 	IdentifiableTriple(Resource subject, IRI predicate, Value object) {
 		super(MATERIALIZED_VALUE_FACTORY.createTriple(subject, predicate, object));
 	}
@@ -28,6 +28,13 @@ public abstract class IdentifiableValue implements Value, Cloneable {
 		cachedIV = new IdSer(id, ser, rdfFactory);
 	}
 
+	/**
+	 * ID-only value, the serialized form is looked up in the dictionary on first use.
+	 */
+	protected IdentifiableValue(ValueIdentifier id, ValueDictionary dictionary, RDFFactory rdfFactory) {
+		cachedIV = new IdSer(id, dictionary, rdfFactory);
+	}
+
 	@Override
 	public final String stringValue() {
 		return getValue().stringValue();
@@ -106,7 +113,11 @@ public abstract class IdentifiableValue implements Value, Cloneable {
 			current = createIdSer(null, false, null, rdfFactory);
 			cachedIV = current;
 		} else if (current.ser == null) {
-			current = createIdSer(current.id, false, null, rdfFactory);
+			if (current.dictionary != null) {
+				current = new IdSer(current.id, current.dictionary.get(current.id), rdfFactory);
+			} else {
+				current = createIdSer(current.id, false, null, rdfFactory);
+			}
 			cachedIV = current;
 		}
 		return current.ser;
@@ -115,7 +126,7 @@ public abstract class IdentifiableValue implements Value, Cloneable {
 	public final void setId(@Nonnull ValueIdentifier id, @Nonnull RDFFactory rdfFactory) {
 		IdSer current = cachedIV;
 		if (current.rdfFactory != rdfFactory) {
-			cachedIV = new IdSer(id, null, rdfFactory);
+			cachedIV = new IdSer(id, (ByteArray) null, rdfFactory);
 		} else if (current.id == null) {
 			cachedIV = new IdSer(id, current.ser, rdfFactory);
 		}
@@ -125,14 +136,16 @@ public abstract class IdentifiableValue implements Value, Cloneable {
 		Value mv = materializedValue;
 		if (mv == null) {
 			IdSer current = cachedIV;
-			mv = current.rdfFactory.valueReader.readValue(ByteBuffer.wrap(current.ser.copyBytes()), MATERIALIZED_VALUE_FACTORY);
+			ByteArray ser = (current.ser != null) ? current.ser : getSerializedForm(current.rdfFactory);
+			mv = current.rdfFactory.valueReader.readValue(ByteBuffer.wrap(ser.copyBytes()), MATERIALIZED_VALUE_FACTORY);
 			materializedValue = mv;
 		}
 		return mv;
 	}
 
 	protected final int getEncodingType() {
-		ByteArray ser = cachedIV.ser;
+		IdSer current = cachedIV;
+		ByteArray ser = (current.ser == null && current.dictionary != null) ? getSerializedForm(current.rdfFactory) : current.ser;
 		return (ser != null) ? ser.get(0) : HeaderBytes.RESERVED_TYPE;
 	}
 
@@ -158,17 +171,27 @@ public abstract class IdentifiableValue implements Value, Cloneable {
 		final ValueIdentifier id;
 		final ByteArray ser;
 		final RDFFactory rdfFactory;
+		final ValueDictionary dictionary;
 
 		private IdSer() {
 			this.id = null;
 			this.ser = null;
 			this.rdfFactory = null;
+			this.dictionary = null;
 		}
 
 		IdSer(@Nullable ValueIdentifier id, @Nullable ByteArray ser, @Nonnull RDFFactory rdfFactory) {
 			this.id = id;
 			this.ser = ser;
 			this.rdfFactory = Objects.requireNonNull(rdfFactory);
+			this.dictionary = null;
+		}
+
+		IdSer(@Nonnull ValueIdentifier id, @Nonnull ValueDictionary dictionary, @Nonnull RDFFactory rdfFactory) {
+			this.id = Objects.requireNonNull(id);
+			this.ser = null;
+			this.rdfFactory = Objects.requireNonNull(rdfFactory);
+			this.dictionary = Objects.requireNonNull(dictionary);
 		}
 	}
 }
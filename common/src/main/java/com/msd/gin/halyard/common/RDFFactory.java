@@ -44,6 +44,8 @@ public final class RDFFactory {
 	private final IndexKeySizes cspoKeySizes;
 	private final IndexKeySizes cposKeySizes;
 	private final IndexKeySizes cospKeySizes;
+	final boolean literalRangeIndex;
+	final int valueDictionaryThreshold;
 
 	final ValueIO valueIO;
 
@@ -171,6 +173,9 @@ public final class RDFFactory {
 		cospKeySizes = new IndexKeySizes(subjectKeySize, predicateEndKeySize, objectKeySize, contextKeySize);
 		cospKeySizes.readFrom(halyardConfig, "halyard.key.cosp");
 
+		literalRangeIndex = halyardConfig.getBoolean(TableConfig.LITERAL_RANGE_INDEX);
+		valueDictionaryThreshold = greaterThanOrEqual(halyardConfig.getInt(TableConfig.VALUE_DICTIONARY_THRESHOLD), 0);
+
 		valueWriter = valueIO.createWriter();
 		valueReader = valueIO.createReader();
 
@@ -209,6 +214,21 @@ public final class RDFFactory {
 		return idFormat.algorithm;
 	}
 
+	public boolean hasLiteralRangeIndex() {
+		return literalRangeIndex;
+	}
+
+	public boolean hasValueDictionary() {
+		return valueDictionaryThreshold > 0;
+	}
+
+	/**
+	 * Values with a serialized size above the threshold are stored in the value dictionary instead of in the index cells.
+	 */
+	boolean isDictionaryValue(RDFValue<?,?> v) {
+		return valueDictionaryThreshold > 0 && !v.isWellKnownIRI() && v.getSerializedForm().size() > valueDictionaryThreshold;
+	}
+
 	ByteSequence writeSaltAndType(final int salt, ValueType type, CoreDatatype datatype, ByteSequence seq) {
 		if (salt >= typeSaltSize) {
 			throw new IllegalArgumentException(String.format("Salt must be between 0 (inclusive) and %d (exclusive): %d", typeSaltSize, salt));
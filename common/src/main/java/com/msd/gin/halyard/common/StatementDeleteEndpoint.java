@@ -0,0 +1,254 @@
+package com.msd.gin.halyard.common;
+
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import com.google.protobuf.RpcCallback;
+import com.google.protobuf.RpcController;
+import com.google.protobuf.Service;
+import com.msd.gin.halyard.model.vocabulary.HALYARD;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CoprocessorEnvironment;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.coprocessor.CoprocessorException;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessor;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.ipc.CoprocessorRpcUtils;
+import org.apache.hadoop.hbase.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.protobuf.generated.ClientProtos;
+import org.apache.hadoop.hbase.protobuf.generated.HBaseProtos;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Triple;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+
+/**
+ * Region coprocessor endpoint that deletes all statements matching a pattern scan.
+ * Matching statements are read region-locally and the deletes for all their index permutations are issued from the region server,
+ * so the statements never have to be shipped to the client.
+ * Load it on a Halyard table (or via hbase.coprocessor.region.classes) and call {@link #deleteStatements(Table, Scan, long)}.
+ */
+public final class StatementDeleteEndpoint implements RegionCoprocessor, Service {
+	static final String TIMESTAMP_ATTRIBUTE = "halyard.delete.timestamp";
+	private static final Descriptors.ServiceDescriptor SERVICE_DESCRIPTOR = createServiceDescriptor();
+	static final Descriptors.MethodDescriptor DELETE_STATEMENTS_METHOD = SERVICE_DESCRIPTOR.findMethodByName("deleteStatements");
+
+	/**
+	 * Builds the service descriptor from the existing HBase Scan and LongMsg messages, so no generated protobuf code is needed.
+	 */
+	private static Descriptors.ServiceDescriptor createServiceDescriptor() {
+		DescriptorProtos.FileDescriptorProto fileProto = DescriptorProtos.FileDescriptorProto.newBuilder()
+			.setName("HalyardStatementDelete.proto")
+			.setPackage("halyard.pb")
+			.addDependency(ClientProtos.getDescriptor().getName())
+			.addDependency(HBaseProtos.getDescriptor().getName())
+			.addService(DescriptorProtos.ServiceDescriptorProto.newBuilder()
+				.setName("StatementDeleteService")
+				.addMethod(DescriptorProtos.MethodDescriptorProto.newBuilder()
+					.setName("deleteStatements")
+					.setInputType("." + ClientProtos.Scan.getDescriptor().getFullName())
+					.setOutputType("." + HBaseProtos.LongMsg.getDescriptor().getFullName())))
+			.build();
+		try {
+			Descriptors.FileDescriptor fd = Descriptors.FileDescriptor.buildFrom(fileProto, new Descriptors.FileDescriptor[] {ClientProtos.getDescriptor(), HBaseProtos.getDescriptor()});
+			return fd.findServiceByName("StatementDeleteService");
+		} catch (Descriptors.DescriptorValidationException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+	/**
+	 * Deletes all statements matching the given scan, server-side.
+	 * @param table Halyard table with this endpoint loaded.
+	 * @param scan statement pattern scan, e.g. from {@link StatementIndices#scan(RDFSubject, RDFPredicate, RDFObject, RDFContext)}.
+	 * @param timestamp delete timestamp.
+	 * @return number of statements deleted.
+	 * @throws IOException if the endpoint is not available or fails.
+	 */
+	public static long deleteStatements(Table table, Scan scan, long timestamp) throws IOException {
+		scan.setAttribute(TIMESTAMP_ATTRIBUTE, Bytes.toBytes(timestamp));
+		Map<byte[], HBaseProtos.LongMsg> results;
+		try {
+			results = table.batchCoprocessorService(DELETE_STATEMENTS_METHOD, ProtobufUtil.toScan(scan), scan.getStartRow(), scan.getStopRow(), HBaseProtos.LongMsg.getDefaultInstance());
+		} catch (IOException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IOException(e);
+		}
+		long count = 0L;
+		for (HBaseProtos.LongMsg result : results.values()) {
+			count += result.getLongMsg();
+		}
+		return count;
+	}
+
+	private RegionCoprocessorEnvironment env;
+	private volatile StatementIndices stmtIndices;
+	private volatile ValueFactory vf;
+	private KeyspaceConnection keyspaceConn;
+
+	@Override
+	public void start(CoprocessorEnvironment env) throws IOException {
+		if (env instanceof RegionCoprocessorEnvironment) {
+			this.env = (RegionCoprocessorEnvironment) env;
+		} else {
+			throw new CoprocessorException("Must be loaded on a table region");
+		}
+	}
+
+	@Override
+	public synchronized void stop(CoprocessorEnvironment env) throws IOException {
+		if (keyspaceConn != null) {
+			keyspaceConn.close();
+			keyspaceConn = null;
+		}
+	}
+
+	@Override
+	public Iterable<Service> getServices() {
+		return Collections.singleton(this);
+	}
+
+	@Override
+	public Descriptors.ServiceDescriptor getDescriptorForType() {
+		return SERVICE_DESCRIPTOR;
+	}
+
+	@Override
+	public Message getRequestPrototype(Descriptors.MethodDescriptor method) {
+		checkMethod(method);
+		return ClientProtos.Scan.getDefaultInstance();
+	}
+
+	@Override
+	public Message getResponsePrototype(Descriptors.MethodDescriptor method) {
+		checkMethod(method);
+		return HBaseProtos.LongMsg.getDefaultInstance();
+	}
+
+	@Override
+	public void callMethod(Descriptors.MethodDescriptor method, RpcController controller, Message request, RpcCallback<Message> done) {
+		checkMethod(method);
+		HBaseProtos.LongMsg response = null;
+		try {
+			long count = deleteStatements(ProtobufUtil.toScan((ClientProtos.Scan) request));
+			response = HBaseProtos.LongMsg.newBuilder().setLongMsg(count).build();
+		} catch (IOException e) {
+			CoprocessorRpcUtils.setControllerException(controller, e);
+		}
+		done.run(response);
+	}
+
+	private static void checkMethod(Descriptors.MethodDescriptor method) {
+		if (method.getService() != SERVICE_DESCRIPTOR) {
+			throw new IllegalArgumentException(String.format("Unsupported method: %s", method.getFullName()));
+		}
+	}
+
+	private StatementIndices getStatementIndices(Connection conn, TableName tableName) throws IOException {
+		StatementIndices indices = stmtIndices;
+		if (indices == null) {
+			synchronized (this) {
+				indices = stmtIndices;
+				if (indices == null) {
+					// kept open for value dictionary look-ups
+					keyspaceConn = new TableKeyspace.TableKeyspaceConnection(conn.getTable(tableName));
+					RDFFactory rdfFactory = RDFFactory.create(keyspaceConn);
+					indices = new StatementIndices(env.getConfiguration(), rdfFactory, keyspaceConn);
+					vf = new IdValueFactory(rdfFactory);
+					stmtIndices = indices;
+				}
+			}
+		}
+		return indices;
+	}
+
+	private long deleteStatements(Scan scan) throws IOException {
+		byte[] tsBytes = scan.getAttribute(TIMESTAMP_ATTRIBUTE);
+		if (tsBytes == null) {
+			throw new CoprocessorException("Missing delete timestamp");
+		}
+		long timestamp = Bytes.toLong(tsBytes);
+		Region region = env.getRegion();
+		TableName tableName = region.getTableDescriptor().getTableName();
+		Connection conn = env.getConnection();
+		StatementIndices indices = getStatementIndices(conn, tableName);
+		long counter = 0L;
+		Set<Triple> triples = new HashSet<>();
+		region.startRegionOperation();
+		try (BufferedMutator mutator = conn.getBufferedMutator(tableName)) {
+			try (RegionScanner scanner = region.getScanner(scan)) {
+				List<Cell> cells = new ArrayList<>();
+				boolean hasMore;
+				do {
+					hasMore = scanner.next(cells);
+					for (Cell cell : cells) {
+						Statement st = indices.parseStatement(null, null, null, null, cell, vf);
+						Resource subj = st.getSubject();
+						IRI pred = st.getPredicate();
+						Value obj = st.getObject();
+						delete(mutator, indices.deleteKeyValues(subj, pred, obj, st.getContext(), timestamp));
+						if (subj.isTriple()) {
+							triples.add((Triple) subj);
+						}
+						if (obj.isTriple()) {
+							triples.add((Triple) obj);
+						}
+						counter++;
+					}
+					cells.clear();
+				} while (hasMore);
+			}
+			if (!triples.isEmpty()) {
+				try (KeyspaceConnection kc = new TableKeyspace.TableKeyspaceConnection(conn.getTable(tableName))) {
+					for (Triple t : triples) {
+						removeTriple(t, timestamp, indices, kc, mutator);
+					}
+				}
+			}
+		} finally {
+			region.closeRegionOperation();
+		}
+		return counter;
+	}
+
+	private static void removeTriple(Triple t, long timestamp, StatementIndices indices, KeyspaceConnection kc, BufferedMutator mutator) throws IOException {
+		mutator.flush();
+		if (!indices.isTripleReferenced(kc, t)) {
+			// orphaned so safe to remove
+			delete(mutator, indices.deleteNonDefaultKeyValues(t.getSubject(), t.getPredicate(), t.getObject(), HALYARD.TRIPLE_GRAPH_CONTEXT, timestamp));
+			if (t.getSubject().isTriple()) {
+				removeTriple((Triple) t.getSubject(), timestamp, indices, kc, mutator);
+			}
+			if (t.getObject().isTriple()) {
+				removeTriple((Triple) t.getObject(), timestamp, indices, kc, mutator);
+			}
+		}
+	}
+
+	private static void delete(BufferedMutator mutator, List<? extends KeyValue> kvs) throws IOException {
+		for (KeyValue kv : kvs) {
+			mutator.mutate(new Delete(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength()).add(kv));
+		}
+	}
+}
@@ -1,15 +1,18 @@
 package com.msd.gin.halyard.common;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.msd.gin.halyard.model.LiteralConstraint;
 import com.msd.gin.halyard.model.TermRole;
 import com.msd.gin.halyard.model.ValueConstraint;
 import com.msd.gin.halyard.model.ValueType;
 import com.msd.gin.halyard.query.algebra.evaluation.IndexOrdering;
+import com.msd.gin.halyard.query.algebra.evaluation.StatementOrdering;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
@@ -54,6 +57,7 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		}
 	};
 	private static final byte WELL_KNOWN_IRI_MARKER = (byte) ('#' | 0x80);  // marker must be negative (msb set) so it is distinguishable from a length (>=0)
+	private static final byte DICTIONARY_MARKER = (byte) ('@' | 0x80);
 
 	private static final int SUBJECT_VAR_CARDINALITY = 1000;
 	private static final int PREDICATE_VAR_CARDINALITY = 10;
@@ -78,17 +82,19 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 	/**
 	 * @param sizeLen length of size field, 2 for short, 4 for int.
 	 */
-	private static int valueSize(RDFValue<?,?> v, int sizeLen) {
-		if (v.isWellKnownIRI()) {
+	private int valueSize(RDFValue<?,?> v, int sizeLen) {
+		if (v.isWellKnownIRI() || rdfFactory.isDictionaryValue(v)) {
 			return 1;
 		} else {
 			return sizeLen + v.getSerializedForm().size();
 		}
 	}
 
-	private static void putRDFValue(ByteBuffer cv, RDFValue<?,?> v, int sizeLen) {
+	private void putRDFValue(ByteBuffer cv, RDFValue<?,?> v, int sizeLen) {
 		if (v.isWellKnownIRI()) {
 			cv.put(WELL_KNOWN_IRI_MARKER);
+		} else if (rdfFactory.isDictionaryValue(v)) {
+			cv.put(DICTIONARY_MARKER);
 		} else {
 			ByteSequence ser = v.getSerializedForm();
 			switch (sizeLen) {
@@ -106,9 +112,11 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		}
 	}
 
-	private static void putLastRDFValue(ByteBuffer cv, RDFValue<?,?> v) {
+	private void putLastRDFValue(ByteBuffer cv, RDFValue<?,?> v) {
 		if (v.isWellKnownIRI()) {
 			cv.put(WELL_KNOWN_IRI_MARKER);
+		} else if (rdfFactory.isDictionaryValue(v)) {
+			cv.put(DICTIONARY_MARKER);
 		} else {
 			ByteSequence ser = v.getSerializedForm();
 			ser.writeTo(cv);
@@ -165,8 +173,10 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 	private final int cardinality3;
 	private final int cardinality4;
 	private final int maxCaching;
+	private final ValueDictionary dictionary;
+	private final Cache<ValueIdentifier, Value> valueCache;
 
-	StatementIndex(Name name, int prefix, RDFRole<T1> role1, RDFRole<T2> role2, RDFRole<T3> role3, RDFRole<T4> role4, RDFFactory rdfFactory, Configuration conf) {
+	StatementIndex(Name name, int prefix, RDFRole<T1> role1, RDFRole<T2> role2, RDFRole<T3> role3, RDFRole<T4> role4, RDFFactory rdfFactory, Configuration conf, @Nullable ValueDictionary dictionary, @Nullable Cache<ValueIdentifier, Value> valueCache) {
 		this.name = name;
 		this.prefix = (byte) prefix;
 		this.role1 = role1;
@@ -176,6 +186,8 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		this.rdfFactory = rdfFactory;
 		this.idFormat = rdfFactory.idFormat;
 		this.maxCaching = conf.getInt(HConstants.HBASE_CLIENT_SCANNER_CACHING, HConstants.DEFAULT_HBASE_CLIENT_SCANNER_CACHING);
+		this.dictionary = dictionary;
+		this.valueCache = valueCache;
 
 		this.argIndices = new int[4];
 		this.spocIndices = new int[4];
@@ -278,7 +290,7 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
     private Value parseRDFValue(RDFRole<?> role, @Nullable RDFValue<?,?> pattern, ByteBuffer key, ByteBuffer cq, ByteBuffer cv, int keySize, ValueFactory vf) {
     	byte marker = cv.get(cv.position()); // peek
     	int len;
-    	if (marker == WELL_KNOWN_IRI_MARKER) {
+    	if (marker == WELL_KNOWN_IRI_MARKER || marker == DICTIONARY_MARKER) {
     		len = cv.get();
     	} else {
 			switch (role.sizeLength()) {
@@ -298,7 +310,7 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
     private Value parseLastRDFValue(RDFRole<?> role, @Nullable RDFValue<?,?> pattern, ByteBuffer key, ByteBuffer cq, ByteBuffer cv, int keySize, ValueFactory vf) {
     	byte marker = cv.hasRemaining() ? cv.get(cv.position()) : 0;  // peek
     	int len;
-    	if (marker == WELL_KNOWN_IRI_MARKER) {
+    	if (marker == WELL_KNOWN_IRI_MARKER || marker == DICTIONARY_MARKER) {
     		len = cv.get();
     	} else {
     		len = cv.remaining();
@@ -321,8 +333,38 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 				throw new IllegalStateException(String.format("Unknown IRI hash: %s (index %s, role %s)", id, getName(), role.getName()));
 			}
 			return iri;
+		} else if(len == DICTIONARY_MARKER) {
+			ValueIdentifier id = parseId(role, key, cq, keySize);
+			Value cached = getCachedValue(id);
+			if (cached != null) {
+				return cached;
+			}
+			if (dictionary == null) {
+				throw new IllegalStateException(String.format("No value dictionary available to look up ID: %s (index %s, role %s)", id, getName(), role.getName()));
+			}
+			// defer the look-up until the value is actually needed, joins only need the ID
+			if (id.isIRI(idFormat)) {
+				return cacheValue(id, new IdentifiableIRI(id, dictionary, rdfFactory));
+			} else if (id.isLiteral(idFormat)) {
+				return cacheValue(id, new IdentifiableLiteral(id, dictionary, rdfFactory));
+			} else if (id.isTriple(idFormat)) {
+				return cacheValue(id, new IdentifiableTriple(id, dictionary, rdfFactory));
+			}
+			// might be a skolem IRI
+			ByteArray ser = dictionary.get(id);
+			ValueType valueType = rdfFactory.valueReader.getValueType(ser.asReadOnlyBuffer());
+			if (valueType != null) {
+				return cacheValue(id, createIdentifiableValue(valueType, id, ser));
+			} else {
+				return rdfFactory.valueReader.readValue(ser.asReadOnlyBuffer(), vf);
+			}
 		} else if(len > 0) {
 			ValueIdentifier id = parseId(role, key, cq, keySize);
+			Value cached = getCachedValue(id);
+			if (cached != null) {
+				cv.position(cv.position() + len);
+				return cached;
+			}
 			int startPos = cv.position();
 			int endPos = startPos + len;
 			int prevLimit = cv.limit();
@@ -332,23 +374,7 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 			if (valueType != null) {
 				byte[] serBytes = new byte[len];
 				cv.get(serBytes);
-				ByteArray ser = new ByteArray(serBytes);
-				switch (valueType) {
-					case IRI:
-						value = new IdentifiableIRI(id, ser, rdfFactory);
-						break;
-					case LITERAL:
-						value = new IdentifiableLiteral(id, ser, rdfFactory);
-						break;
-					case BNODE:
-						value = new IdentifiableBNode(id, ser, rdfFactory);
-						break;
-					case TRIPLE:
-						value = new IdentifiableTriple(id, ser, rdfFactory);
-						break;
-					default:
-						throw new AssertionError("Unexpected ValueType: " + valueType);
-				}
+				value = cacheValue(id, createIdentifiableValue(valueType, id, new ByteArray(serBytes)));
 			} else {
 				value = rdfFactory.valueReader.readValue(cv, vf);
 			}
@@ -361,6 +387,33 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		}
     }
 
+	@Nullable
+	private Value getCachedValue(ValueIdentifier id) {
+		return (valueCache != null) ? valueCache.getIfPresent(id) : null;
+	}
+
+	private Value cacheValue(ValueIdentifier id, Value value) {
+		if (valueCache != null) {
+			valueCache.put(id, value);
+		}
+		return value;
+	}
+
+	private Value createIdentifiableValue(ValueType valueType, ValueIdentifier id, ByteArray ser) {
+		switch (valueType) {
+			case IRI:
+				return new IdentifiableIRI(id, ser, rdfFactory);
+			case LITERAL:
+				return new IdentifiableLiteral(id, ser, rdfFactory);
+			case BNODE:
+				return new IdentifiableBNode(id, ser, rdfFactory);
+			case TRIPLE:
+				return new IdentifiableTriple(id, ser, rdfFactory);
+			default:
+				throw new AssertionError("Unexpected ValueType: " + valueType);
+		}
+	}
+
 	private ValueIdentifier parseId(RDFRole<?> role, ByteBuffer key, ByteBuffer cn, int keySize) {
 		byte[] idBytes = new byte[rdfFactory.idFormat.size];
 		rdfFactory.idFormat.unrotate(key.array(), key.arrayOffset() + key.position(), keySize, role.getByteShift(), idBytes);
@@ -683,8 +736,83 @@ public final class StatementIndex<T1 extends SPOC<?>,T2 extends SPOC<?>,T3 exten
 		return Bytes.compareTo(start, key) <= 0 && Bytes.compareTo(key, stop) < 0;
     }
 
+	/**
+	 * Returns the order of the rows of a scan that fixes the given number of leading roles.
+	 * @param fixedRoles number of leading roles fixed by the scan.
+	 * @return the ordering, or null if the rows are not ordered by any role.
+	 */
+	StatementOrdering getOrdering(int fixedRoles) {
+		RDFRole<?> role;
+		switch (fixedRoles) {
+			case 0:
+				role = role1;
+				break;
+			case 1:
+				role = role2;
+				break;
+			case 2:
+				role = role3;
+				break;
+			case 3:
+				role = name.isQuadIndex() ? role4 : null;
+				break;
+			default:
+				role = null;
+		}
+		return (role != null && role.keyHashSize() > 0) ? new KeyHashOrdering(role) : null;
+	}
+
     @Override
 	public String toString() {
 		return name.toString();
 	}
+
+
+	/**
+	 * Rows are ordered by the key hash of the first role that is not fixed.
+	 */
+	private final class KeyHashOrdering implements StatementOrdering {
+		private final RDFRole<?> role;
+
+		KeyHashOrdering(RDFRole<?> role) {
+			this.role = role;
+		}
+
+		@Override
+		public TermRole getRole() {
+			return role.getName();
+		}
+
+		@Override
+		public Name getIndexOrdering() {
+			return name;
+		}
+
+		@Override
+		public byte[] getSortKey(Value v) {
+			return role.keyHash(rdfFactory.id(v), idFormat);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof StatementIndex<?,?,?,?>.KeyHashOrdering)) {
+				return false;
+			}
+			StatementIndex<?,?,?,?>.KeyHashOrdering that = (StatementIndex<?,?,?,?>.KeyHashOrdering) o;
+			return getIndexOrdering() == that.getIndexOrdering() && getRole() == that.getRole();
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(name, role.getName());
+		}
+
+		@Override
+		public String toString() {
+			return name + "(" + role + ")";
+		}
+	}
 }
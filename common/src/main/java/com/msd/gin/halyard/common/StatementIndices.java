@@ -1,10 +1,15 @@
 package com.msd.gin.halyard.common;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.msd.gin.halyard.model.LiteralRangeConstraint;
 import com.msd.gin.halyard.model.TermRole;
 import com.msd.gin.halyard.model.ValueConstraint;
 import com.msd.gin.halyard.model.ValueType;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.query.algebra.evaluation.PartitionedIndex;
+import com.msd.gin.halyard.query.algebra.evaluation.StatementOrdering;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -29,6 +34,7 @@ import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.Triple;
@@ -39,11 +45,24 @@ import org.eclipse.rdf4j.model.ValueFactory;
 public final class StatementIndices {
 	public static final int NO_PARTITIONING = -1;
 
+	/**
+	 * Prefix of the optional literal range index.
+	 * Rows are POS rows with the predicate key followed by the range type and an order-preserving key of the (numeric or temporal) object.
+	 */
+	static final byte LITERAL_RANGE_PREFIX = 6;
+	private static final int LITERAL_RANGE_KEY_SIZE = 1 + Long.BYTES;
 	private static final int PREFIXES = 3;
+	/**
+	 * Maximum number of decoded values to cache by ID, 0 to disable.
+	 */
+	public static final String VALUE_CACHE_SIZE = "halyard.values.cacheSize";
+	private static final int DEFAULT_VALUE_CACHE_SIZE = 10000;
 	private static final Statement[] EMPTY_STATEMENTS = new Statement[0];
 
 	private final int maxCaching;
 	private final RDFFactory rdfFactory;
+	private final ValueDictionary dictionary;
+	private final Cache<ValueIdentifier, Value> valueCache;
 	private final StatementIndex<SPOC.S,SPOC.P,SPOC.O,SPOC.C> spo;
 	private final StatementIndex<SPOC.P,SPOC.O,SPOC.S,SPOC.C> pos;
 	private final StatementIndex<SPOC.O,SPOC.S,SPOC.P,SPOC.C> osp;
@@ -58,8 +77,19 @@ public final class StatementIndices {
 	}
 
 	public StatementIndices(Configuration conf, RDFFactory rdfFactory) {
+		this(conf, rdfFactory, null);
+	}
+
+	/**
+	 * @param keyspaceConn connection used to look up values in the value dictionary (if the table has one).
+	 * Without it, statements with dictionary values cannot be parsed.
+	 */
+	public StatementIndices(Configuration conf, RDFFactory rdfFactory, @Nullable KeyspaceConnection keyspaceConn) {
         this.maxCaching = conf.getInt(HConstants.HBASE_CLIENT_SCANNER_CACHING, HConstants.DEFAULT_HBASE_CLIENT_SCANNER_CACHING);
 		this.rdfFactory = rdfFactory;
+		this.dictionary = (rdfFactory.hasValueDictionary() && keyspaceConn != null) ? new ValueDictionary(keyspaceConn, conf.getInt(ValueDictionary.CACHE_SIZE, ValueDictionary.DEFAULT_CACHE_SIZE)) : null;
+		int valueCacheSize = conf.getInt(VALUE_CACHE_SIZE, DEFAULT_VALUE_CACHE_SIZE);
+		this.valueCache = (valueCacheSize > 0) ? Caffeine.newBuilder().maximumSize(valueCacheSize).recordStats().build() : null;
 
 		this.spo = new StatementIndex<>(
 			StatementIndex.Name.SPO, 0,
@@ -67,7 +97,7 @@ public final class StatementIndices {
 			rdfFactory.getPredicateRole(StatementIndex.Name.SPO),
 			rdfFactory.getObjectRole(StatementIndex.Name.SPO),
 			rdfFactory.getContextRole(StatementIndex.Name.SPO),
-			rdfFactory, conf
+			rdfFactory, conf, dictionary, valueCache
 		);
 		this.pos = new StatementIndex<>(
 			StatementIndex.Name.POS, 1,
@@ -75,7 +105,7 @@ public final class StatementIndices {
 			rdfFactory.getObjectRole(StatementIndex.Name.POS),
 			rdfFactory.getSubjectRole(StatementIndex.Name.POS),
 			rdfFactory.getContextRole(StatementIndex.Name.POS),
-			rdfFactory, conf
+			rdfFactory, conf, dictionary, valueCache
 		);
 		this.osp = new StatementIndex<>(
 			StatementIndex.Name.OSP, 2,
@@ -83,7 +113,7 @@ public final class StatementIndices {
 			rdfFactory.getSubjectRole(StatementIndex.Name.OSP),
 			rdfFactory.getPredicateRole(StatementIndex.Name.OSP),
 			rdfFactory.getContextRole(StatementIndex.Name.OSP),
-			rdfFactory, conf
+			rdfFactory, conf, dictionary, valueCache
 		);
 		this.cspo = new StatementIndex<>(
 			StatementIndex.Name.CSPO, 3,
@@ -91,7 +121,7 @@ public final class StatementIndices {
 			rdfFactory.getSubjectRole(StatementIndex.Name.CSPO),
 			rdfFactory.getPredicateRole(StatementIndex.Name.CSPO),
 			rdfFactory.getObjectRole(StatementIndex.Name.CSPO),
-			rdfFactory, conf
+			rdfFactory, conf, dictionary, valueCache
 		);
 		this.cpos = new StatementIndex<>(
 			StatementIndex.Name.CPOS, 4,
@@ -99,7 +129,7 @@ public final class StatementIndices {
 			rdfFactory.getPredicateRole(StatementIndex.Name.CPOS),
 			rdfFactory.getObjectRole(StatementIndex.Name.CPOS),
 			rdfFactory.getSubjectRole(StatementIndex.Name.CPOS),
-			rdfFactory, conf
+			rdfFactory, conf, dictionary, valueCache
 		);
 		this.cosp = new StatementIndex<>(
 			StatementIndex.Name.COSP, 5,
@@ -107,7 +137,7 @@ public final class StatementIndices {
 			rdfFactory.getObjectRole(StatementIndex.Name.COSP),
 			rdfFactory.getSubjectRole(StatementIndex.Name.COSP),
 			rdfFactory.getPredicateRole(StatementIndex.Name.COSP),
-			rdfFactory, conf
+			rdfFactory, conf, dictionary, valueCache
 		);
 		this.indices = new EnumMap<>(StatementIndex.Name.class);
 		this.indices.put(StatementIndex.Name.SPO, this.spo);
@@ -122,6 +152,14 @@ public final class StatementIndices {
 		return rdfFactory;
 	}
 
+	/**
+	 * Statistics of the cache of decoded values, if enabled.
+	 */
+	@Nullable
+	public CacheStats getValueCacheStats() {
+		return (valueCache != null) ? valueCache.stats() : null;
+	}
+
 	public StatementIndex<SPOC.S,SPOC.P,SPOC.O,SPOC.C> getSPOIndex() {
 		return spo;
 	}
@@ -269,6 +307,35 @@ public final class StatementIndices {
 		}
 	}
 
+	/**
+	 * Scans the objects of a predicate that fall within a numeric or temporal range.
+	 * The range is only approximate so the results still need to be filtered.
+	 * @return null if the table has no literal range index.
+	 */
+	@Nullable
+	public Scan scanLiteralRange(@Nonnull RDFPredicate pred, @Nonnull LiteralRangeConstraint constraint) {
+		if (!rdfFactory.literalRangeIndex) {
+			return null;
+		}
+		byte[] predKey = pos.role1.keyHash(pred.getId(), rdfFactory.idFormat);
+		return HalyardTableUtils.scan(
+			literalRangeRow(predKey, constraint.getRangeType(), constraint.getMinKey(), null),
+			literalRangeRow(predKey, constraint.getRangeType(), constraint.getMaxKey(), ByteSequence.concat(pos.role2.stopKey(), pos.role3.stopKey(), pos.role4.stopKey())),
+			maxCaching,
+			false
+		);
+	}
+
+	private static byte[] literalRangeRow(byte[] predKey, LiteralRangeConstraint.RangeType rangeType, long key, @Nullable ByteSequence stopKeys) {
+		// stop rows have a trailing zero
+		ByteBuffer bb = ByteBuffer.allocate(1 + predKey.length + LITERAL_RANGE_KEY_SIZE + (stopKeys != null ? stopKeys.size() + 1 : 0));
+		bb.put(LITERAL_RANGE_PREFIX).put(predKey).put((byte) rangeType.ordinal()).putLong(key);
+		if (stopKeys != null) {
+			stopKeys.writeTo(bb);
+		}
+		return bb.array();
+	}
+
 	/**
 	 * Performs a scan using any suitable index.
 	 */
@@ -381,6 +448,76 @@ public final class StatementIndices {
 	    }
 	}
 
+	/**
+	 * Returns the order of the statements returned by the scan for the given pattern.
+	 * @see #scan(RDFSubject, RDFPredicate, RDFObject, RDFContext)
+	 * @return the ordering, or null if the statements are not returned in any useful order.
+	 */
+	@Nullable
+	public StatementOrdering getStatementOrdering(@Nullable RDFSubject subj, @Nullable RDFPredicate pred, @Nullable RDFObject obj, @Nullable RDFContext ctx) {
+		if (ctx == null) {
+			if (subj == null) {
+				if (pred == null) {
+					if (obj == null) {
+						return spo.getOrdering(0);
+	                } else {
+						return osp.getOrdering(1);
+	                }
+	            } else {
+					if (obj == null) {
+						return pos.getOrdering(1);
+	                } else {
+						return pos.getOrdering(2);
+	                }
+	            }
+	        } else {
+				if (pred == null) {
+					if (obj == null) {
+						return spo.getOrdering(1);
+	                } else {
+						return osp.getOrdering(2);
+	                }
+	            } else {
+					if (obj == null) {
+						return spo.getOrdering(2);
+	                } else {
+						return null;
+	                }
+	            }
+	        }
+	    } else {
+			if (subj == null) {
+				if (pred == null) {
+					if (obj == null) {
+						return cspo.getOrdering(1);
+	                } else {
+						return cosp.getOrdering(2);
+	                }
+	            } else {
+					if (obj == null) {
+						return cpos.getOrdering(2);
+	                } else {
+						return cpos.getOrdering(3);
+	                }
+	            }
+	        } else {
+				if (pred == null) {
+					if (obj == null) {
+						return cspo.getOrdering(2);
+	                } else {
+						return cosp.getOrdering(3);
+	                }
+	            } else {
+					if (obj == null) {
+						return cspo.getOrdering(3);
+	                } else {
+						return null;
+	                }
+	            }
+	        }
+	    }
+	}
+
 	public static StatementIndex.Name getIndexForConstraint(boolean hasSubj, boolean hasPred, boolean hasObj, boolean hasCtx, TermRole constrainedRole) {
 		switch (constrainedRole) {
 			case SUBJECT:
@@ -525,6 +662,10 @@ public final class StatementIndices {
 				}
 				return scan(subj, pred, obj, ctx);
 			} else {
+				if (constraint instanceof LiteralRangeConstraint && role == TermRole.OBJECT && partitionedStmtIndex == null
+						&& subj == null && pred != null && ctx == null && rdfFactory.literalRangeIndex) {
+					return scanLiteralRange(pred, (LiteralRangeConstraint) constraint);
+				}
 				StatementIndex<?,?,?,?> indexToUse;
 				if (partitionedStmtIndex != null) {
 					indexToUse = partitionedStmtIndex;
@@ -591,7 +732,14 @@ public final class StatementIndices {
 		ByteBuffer row = ByteBuffer.wrap(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
 	    ByteBuffer cq = ByteBuffer.wrap(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
 	    ByteBuffer cv = ByteBuffer.wrap(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
-		StatementIndex<?,?,?,?> index = toIndex(row.get());
+		byte prefix = row.get();
+		StatementIndex<?,?,?,?> index;
+		if (prefix == LITERAL_RANGE_PREFIX) {
+			row = fromLiteralRangeRow(row);
+			index = pos;
+		} else {
+			index = toIndex(prefix);
+		}
 	    Statement stmt = index.parseStatement(subj, pred, obj, ctx, row, cq, cv, vf);
 	    assert !row.hasRemaining();
 	    assert !cq.hasRemaining();
@@ -602,6 +750,54 @@ public final class StatementIndices {
 		return stmt;
 	}
 
+	/**
+	 * Strips the range key from a literal range row leaving the remainder of the POS row.
+	 */
+	private ByteBuffer fromLiteralRangeRow(ByteBuffer row) {
+		int predKeySize = pos.role1.keyHashSize();
+		byte[] posRow = new byte[row.remaining() - LITERAL_RANGE_KEY_SIZE];
+		row.get(posRow, 0, predKeySize);
+		row.position(row.position() + LITERAL_RANGE_KEY_SIZE);
+		row.get(posRow, predKeySize, posRow.length - predKeySize);
+		return ByteBuffer.wrap(posRow);
+	}
+
+	@Nullable
+	private byte[] toLiteralRangeRow(byte[] posRow, int offset, int len, Literal obj) {
+		LiteralRangeConstraint.RangeType rangeType = LiteralRangeConstraint.getRangeType(obj);
+		if (rangeType == null) {
+			return null;
+		}
+		long key;
+		try {
+			key = LiteralRangeConstraint.toKey(obj, rangeType);
+		} catch (IllegalArgumentException e) {
+			// invalid values are never within a range
+			return null;
+		}
+		int predKeySize = pos.role1.keyHashSize();
+		byte[] row = new byte[len + LITERAL_RANGE_KEY_SIZE];
+		ByteBuffer bb = ByteBuffer.wrap(row);
+		bb.put(LITERAL_RANGE_PREFIX);
+		bb.put(posRow, offset + 1, predKeySize);
+		bb.put((byte) rangeType.ordinal());
+		bb.putLong(key);
+		bb.put(posRow, offset + 1 + predKeySize, len - 1 - predKeySize);
+		return row;
+	}
+
+	/**
+	 * Returns the literal range index row that accompanies the given POS cell, so that it can be deleted with it.
+	 * @return null if there is no such row.
+	 */
+	@Nullable
+	public byte[] getLiteralRangeRow(Cell posCell, Value obj) {
+		if (!rdfFactory.literalRangeIndex || !obj.isLiteral() || posCell.getRowArray()[posCell.getRowOffset()] != pos.prefix) {
+			return null;
+		}
+		return toLiteralRangeRow(posCell.getRowArray(), posCell.getRowOffset(), posCell.getRowLength(), (Literal) obj);
+	}
+
 
 	public List<? extends KeyValue> insertKeyValues(Resource subj, IRI pred, Value obj, Resource context, long timestamp) {
 		return toKeyValues(subj, pred, obj, context, false, timestamp, true);
@@ -652,11 +848,28 @@ public final class StatementIndices {
 		RDFContext cb = rdfFactory.createContext(context);
 		List<Tag> tags = null; // not currently used
 
+		// dictionary entries are shared between statements so are never deleted
+		if (type == KeyValue.Type.Put && rdfFactory.hasValueDictionary()) {
+			appendDictionaryKeyValue(sb, timestamp, kvs);
+			appendDictionaryKeyValue(pb, timestamp, kvs);
+			appendDictionaryKeyValue(ob, timestamp, kvs);
+			appendDictionaryKeyValue(cb, timestamp, kvs);
+		}
+
 		// generate HBase key value pairs from: row, family, qualifier, value. Permutations of SPO (and if needed CSPO) are all stored.
 	    if (includeInDefaultGraph) {
 			kvs.add(new KeyValue(spo.row(sb, pb, ob, cb), ColumnFamilyConfig.CF_NAME, spo.qualifier(sb, pb, ob, cb), timestamp, type, spo.value(sb, pb, ob, cb), tags));
-			kvs.add(new KeyValue(pos.row(pb, ob, sb, cb), ColumnFamilyConfig.CF_NAME, pos.qualifier(pb, ob, sb, cb), timestamp, type, pos.value(pb, ob, sb, cb), tags));
+			byte[] posRow = pos.row(pb, ob, sb, cb);
+			byte[] posQualifier = pos.qualifier(pb, ob, sb, cb);
+			byte[] posValue = pos.value(pb, ob, sb, cb);
+			kvs.add(new KeyValue(posRow, ColumnFamilyConfig.CF_NAME, posQualifier, timestamp, type, posValue, tags));
 			kvs.add(new KeyValue(osp.row(ob, sb, pb, cb), ColumnFamilyConfig.CF_NAME, osp.qualifier(ob, sb, pb, cb), timestamp, type, osp.value(ob, sb, pb, cb), tags));
+			if (rdfFactory.literalRangeIndex && obj.isLiteral()) {
+				byte[] rangeRow = toLiteralRangeRow(posRow, 0, posRow.length, (Literal) obj);
+				if (rangeRow != null) {
+					kvs.add(new KeyValue(rangeRow, ColumnFamilyConfig.CF_NAME, posQualifier, timestamp, type, posValue, tags));
+				}
+			}
 	    }
 	    if (context != null) {
 	    	kvs.add(new KeyValue(cspo.row(cb, sb, pb, ob), ColumnFamilyConfig.CF_NAME, cspo.qualifier(cb, sb, pb, ob), timestamp, type, cspo.value(cb, sb, pb, ob), tags));
@@ -677,6 +890,12 @@ public final class StatementIndices {
 	    }
 	}
 
+	private void appendDictionaryKeyValue(@Nullable RDFValue<?,?> v, long timestamp, List<KeyValue> kvs) {
+		if (v != null && rdfFactory.isDictionaryValue(v)) {
+			kvs.add(ValueDictionary.toKeyValue(v.getId(), v.getSerializedForm(), timestamp));
+		}
+	}
+
 	public boolean isTripleReferenced(KeyspaceConnection kc, Triple t) throws IOException {
 		return hasSubject(kc, t)
 			|| hasObject(kc, t)
@@ -0,0 +1,146 @@
+package com.msd.gin.halyard.common;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Increment;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.eclipse.rdf4j.model.IRI;
+
+/**
+ * Accumulates changes to VoID counts (e.g. void:triples of a graph or partition) since the last full statistics calculation
+ * and stores them as HBase counters in reserved rows of the table, next to the config row.
+ * Deltas are approximate: HBase puts and deletes are idempotent, so re-adding an existing statement or removing a non-existent one is still counted.
+ * They are discarded by the next full statistics calculation (see {@link #clear(Table)}).
+ */
+public final class StatisticsDeltas {
+	private static final byte[] ROW_PREFIX = new byte[] {(byte) 0xfe};
+	private static final byte[] ROW_STOP = new byte[] {(byte) 0xff};
+
+	private final Map<String, Map<IRI, LongAdder>> deltas = new ConcurrentHashMap<>();
+
+	private static byte[] row(String node) {
+		return Bytes.add(ROW_PREFIX, node.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static byte[] column(IRI countPredicate) {
+		return Bytes.toBytes(countPredicate.getLocalName());
+	}
+
+	/**
+	 * Records a change to a count.
+	 * @param node statistics node (graph or partition IRI).
+	 * @param countPredicate VoID count property, e.g. void:triples.
+	 * @param delta change.
+	 */
+	public void add(String node, IRI countPredicate, long delta) {
+		deltas.computeIfAbsent(node, k -> new ConcurrentHashMap<>()).computeIfAbsent(countPredicate, k -> new LongAdder()).add(delta);
+	}
+
+	/**
+	 * Returns the accumulated (not yet flushed) change to a count.
+	 */
+	public long getPending(String node, IRI countPredicate) {
+		Map<IRI, LongAdder> nodeDeltas = deltas.get(node);
+		LongAdder delta = (nodeDeltas != null) ? nodeDeltas.get(countPredicate) : null;
+		return (delta != null) ? delta.sum() : 0L;
+	}
+
+	public boolean isEmpty() {
+		return deltas.isEmpty();
+	}
+
+	/**
+	 * Discards all accumulated (not yet flushed) deltas.
+	 */
+	public void reset() {
+		deltas.clear();
+	}
+
+	/**
+	 * Writes all accumulated deltas to the table and resets them.
+	 * Must not be called concurrently with {@link #add(String, IRI, long)}.
+	 * @param table the Halyard table.
+	 * @throws IOException if the counters fail to be updated.
+	 */
+	public void flush(Table table) throws IOException {
+		List<Row> increments = new ArrayList<>(deltas.size());
+		for (String node : deltas.keySet()) {
+			Map<IRI, LongAdder> nodeDeltas = deltas.remove(node);
+			if (nodeDeltas != null) {
+				Increment inc = new Increment(row(node));
+				for (Map.Entry<IRI, LongAdder> entry : nodeDeltas.entrySet()) {
+					long delta = entry.getValue().sum();
+					if (delta != 0L) {
+						inc.addColumn(ColumnFamilyConfig.CF_NAME, column(entry.getKey()), delta);
+					}
+				}
+				if (!inc.getFamilyCellMap().isEmpty()) {
+					// we don't need the new values back
+					inc.setReturnResults(false);
+					increments.add(inc);
+				}
+			}
+		}
+		if (!increments.isEmpty()) {
+			try {
+				table.batch(increments, new Object[increments.size()]);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the stored delta of a count.
+	 * @param kc connection to the Halyard table.
+	 * @param node statistics node (graph or partition IRI).
+	 * @param countPredicate VoID count property, e.g. void:triples.
+	 * @return delta or null if none has been recorded.
+	 * @throws IOException if the counter fails to be read.
+	 */
+	@Nullable
+	public static Long get(KeyspaceConnection kc, String node, IRI countPredicate) throws IOException {
+		byte[] col = column(countPredicate);
+		Result res = kc.get(new Get(row(node)).addColumn(ColumnFamilyConfig.CF_NAME, col));
+		if (res == null) {
+			return null;
+		}
+		byte[] value = res.getValue(ColumnFamilyConfig.CF_NAME, col);
+		return (value != null) ? Bytes.toLong(value) : null;
+	}
+
+	/**
+	 * Removes all stored deltas, e.g. after the statistics have been fully recalculated.
+	 * @param table the Halyard table.
+	 * @throws IOException if the counters fail to be deleted.
+	 */
+	public static void clear(Table table) throws IOException {
+		Scan scan = HalyardTableUtils.scan(ROW_PREFIX, ROW_STOP, 1000, false).setFilter(new KeyOnlyFilter());
+		List<Delete> deletes = new ArrayList<>();
+		try (ResultScanner scanner = table.getScanner(scan)) {
+			for (Result res : scanner) {
+				deletes.add(new Delete(res.getRow()));
+			}
+		}
+		if (!deletes.isEmpty()) {
+			table.delete(deletes);
+		}
+	}
+}
@@ -68,6 +68,9 @@ public final class TableConfig {
 	public static final String NAMESPACE_PREFIXES = "halyard.namespacePrefixes";
 	public static final String LANGS = "halyard.languages";
 	public static final String STRING_COMPRESSION = "halyard.string.compressionThreshold";
+	public static final String STRING_DICTIONARY = "halyard.string.dictionary";
+	public static final String LITERAL_RANGE_INDEX = "halyard.index.literalRanges";
+	public static final String VALUE_DICTIONARY_THRESHOLD = "halyard.values.dictionaryThreshold";
 
 	private static final Set<String> PROPERTIES;
 
@@ -0,0 +1,73 @@
+package com.msd.gin.halyard.common;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+
+/**
+ * Optional ID to serialized value dictionary, stored in the same table as the statement indices.
+ * Index cells of values in the dictionary only carry a marker instead of the serialized value.
+ * Entries are immutable (IDs are content hashes), so they are never deleted and can be cached indefinitely.
+ */
+@ThreadSafe
+public final class ValueDictionary {
+	public static final String CACHE_SIZE = "halyard.values.dictionary.cacheSize";
+	static final int DEFAULT_CACHE_SIZE = 100000;
+	static final byte PREFIX = 7;
+
+	private final KeyspaceConnection keyspaceConn;
+	private final LoadingCache<ValueIdentifier, ByteArray> cache;
+
+	public ValueDictionary(KeyspaceConnection keyspaceConn, int cacheSize) {
+		this.keyspaceConn = Objects.requireNonNull(keyspaceConn);
+		this.cache = Caffeine.newBuilder().maximumSize(cacheSize).build(this::load);
+	}
+
+	static byte[] row(ValueIdentifier id) {
+		byte[] row = new byte[1 + id.size()];
+		ByteBuffer bb = ByteBuffer.wrap(row);
+		bb.put(PREFIX);
+		id.writeTo(bb);
+		return row;
+	}
+
+	static KeyValue toKeyValue(ValueIdentifier id, ByteSequence ser, long timestamp) {
+		byte[] value = new byte[ser.size()];
+		ser.writeTo(ByteBuffer.wrap(value));
+		return new KeyValue(row(id), ColumnFamilyConfig.CF_NAME, HConstants.EMPTY_BYTE_ARRAY, timestamp, KeyValue.Type.Put, value);
+	}
+
+	/**
+	 * Returns the serialized form of the value with the given ID.
+	 * @throws IllegalStateException if the ID is not in the dictionary.
+	 */
+	public ByteArray get(ValueIdentifier id) {
+		return cache.get(id);
+	}
+
+	private ByteArray load(ValueIdentifier id) {
+		Get get = new Get(row(id)).addColumn(ColumnFamilyConfig.CF_NAME, HConstants.EMPTY_BYTE_ARRAY);
+		Result result;
+		try {
+			result = keyspaceConn.get(get);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		byte[] value = result.getValue(ColumnFamilyConfig.CF_NAME, HConstants.EMPTY_BYTE_ARRAY);
+		if (value == null) {
+			throw new IllegalStateException(String.format("Missing dictionary entry for ID: %s", id));
+		}
+		return new ByteArray(value);
+	}
+}
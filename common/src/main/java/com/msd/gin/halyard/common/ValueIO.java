@@ -1,5 +1,11 @@
 package com.msd.gin.halyard.common;
 
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdCompressCtx;
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdException;
 import com.google.common.collect.Sets;
 import com.ibm.icu.text.UnicodeCompressor;
 import com.ibm.icu.text.UnicodeDecompressor;
@@ -11,12 +17,17 @@ import com.msd.gin.halyard.model.vocabulary.IRIEncodingNamespace;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInput;
 import java.io.DataOutput;
+import java.io.Closeable;
 import java.io.IOException;
+import java.lang.ref.Cleaner;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
@@ -24,7 +35,10 @@ import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.function.BiFunction;
+import java.util.function.Supplier;
 
 import javax.annotation.concurrent.ThreadSafe;
 import javax.xml.datatype.DatatypeConfigurationException;
@@ -64,6 +78,7 @@ public class ValueIO {
 		"ne", "ps", "ru", "sd", "sh", "sr", "ta", "tg", "th", "tt", "uk", "ur", "vi", "wuu", "yue", "zh"
 	);
 	private static final BiFunction<String,ValueFactory,Resource> DEFAULT_BNODE_TRANSFORMER = (id,valueFactory) -> valueFactory.createBNode(id);
+	private static final Cleaner CLEANER = Cleaner.create();
 
 	abstract class ByteWriter {
 		abstract ByteBuffer writeBytes(Literal l, ByteBuffer b);
@@ -185,7 +200,7 @@ public class ValueIO {
 		return cal;
 	}
 
-	private static String readString(ByteBuffer b) {
+	private String readString(ByteBuffer b) {
 		int type = b.get();
 		switch (type) {
 			case HeaderBytes.UNCOMPRESSED_STRING_TYPE:
@@ -194,6 +209,8 @@ public class ValueIO {
 				return readCompressedString(b);
 			case HeaderBytes.SCSU_STRING_TYPE:
 				return readScsuString(b);
+			case HeaderBytes.DICTIONARY_COMPRESSED_STRING_TYPE:
+				return readDictionaryCompressedString(b);
 			default:
 				throw new AssertionError(String.format("Unrecognized string type: %d", type));
 		}
@@ -239,6 +256,111 @@ public class ValueIO {
 		return uncompressed;
 	}
 
+	/**
+	 * Trains a dictionary for compressing strings.
+	 * @param samples sample strings, ideally about 100 times the size of the dictionary in total.
+	 * @param maxDictSize maximum size of the dictionary in bytes.
+	 * @return the dictionary as the value of {@link TableConfig#STRING_DICTIONARY}.
+	 * @throws IllegalArgumentException if a dictionary could not be trained from the samples.
+	 */
+	public static String trainStringDictionary(Collection<String> samples, int maxDictSize) {
+		byte[][] sampleBytes = new byte[samples.size()][];
+		int i = 0;
+		for (String s : samples) {
+			sampleBytes[i++] = s.getBytes(StandardCharsets.UTF_8);
+		}
+		byte[] dict = new byte[maxDictSize];
+		long dictSize;
+		try {
+			dictSize = Zstd.trainFromBuffer(sampleBytes, dict);
+		} catch (ZstdException e) {
+			throw new IllegalArgumentException(String.format("Failed to train string dictionary: %s", e.getMessage()), e);
+		}
+		if (Zstd.isError(dictSize)) {
+			throw new IllegalArgumentException(String.format("Failed to train string dictionary: %s", Zstd.getErrorName(dictSize)));
+		}
+		return Base64.getEncoder().encodeToString(Arrays.copyOf(dict, (int) dictSize));
+	}
+
+	/**
+	 * Returns the compressed string or null if compression is ineffective.
+	 */
+	private byte[] writeDictionaryCompressedString(ByteBuffer uncompressed) {
+		byte[] uncompressedBytes = new byte[uncompressed.remaining()];
+		uncompressed.duplicate().get(uncompressedBytes);
+		ZstdCompressCtx ctx = zstdCompressors.acquire();
+		byte[] compressed;
+		try {
+			compressed = ctx.compress(uncompressedBytes);
+		} finally {
+			zstdCompressors.release(ctx);
+		}
+		return (compressed.length < uncompressedBytes.length) ? compressed : null;
+	}
+
+	private String readDictionaryCompressedString(ByteBuffer b) {
+		if (zstdDecompressors == null) {
+			throw new IllegalStateException("No string dictionary configured");
+		}
+		byte[] compressed = new byte[b.remaining()];
+		b.get(compressed);
+		long len = Zstd.getFrameContentSize(compressed, 0, compressed.length, true);
+		ZstdDecompressCtx ctx = zstdDecompressors.acquire();
+		byte[] uncompressed;
+		try {
+			uncompressed = ctx.decompress(compressed, (int) len);
+		} finally {
+			zstdDecompressors.release(ctx);
+		}
+		return new String(uncompressed, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Pool of zstd contexts, which are not thread-safe and hold native memory that is only freed by closing them.
+	 * Surplus contexts are closed on release, and idle ones (and the dictionary) once the owning {@link ValueIO} is no longer reachable.
+	 */
+	private static final class ZstdContextPool<T extends Closeable> implements Runnable {
+		private final Supplier<T> factory;
+		private final Closeable dict;
+		private final BlockingQueue<T> idle = new ArrayBlockingQueue<>(Math.max(1, Runtime.getRuntime().availableProcessors()));
+
+		ZstdContextPool(Supplier<T> factory, Closeable dict) {
+			this.factory = factory;
+			this.dict = dict;
+		}
+
+		T acquire() {
+			T ctx = idle.poll();
+			return (ctx != null) ? ctx : factory.get();
+		}
+
+		void release(T ctx) {
+			if (!idle.offer(ctx)) {
+				close(ctx);
+			}
+		}
+
+		/**
+		 * Closes all idle contexts and the dictionary.
+		 */
+		@Override
+		public void run() {
+			T ctx;
+			while ((ctx = idle.poll()) != null) {
+				close(ctx);
+			}
+			close(dict);
+		}
+
+		private static void close(Closeable c) {
+			try {
+				c.close();
+			} catch (IOException e) {
+				LOGGER.warn("Failed to close {}", c, e);
+			}
+		}
+	}
+
 	private static ByteBuffer writeScsuString(String s, ByteBuffer b) {
 		char[] chars = s.toCharArray();
 		int len = chars.length;
@@ -319,6 +441,8 @@ public class ValueIO {
 	private final Map<CoreDatatype, ByteWriter> byteWriters = new IdentityHashMap<>(32);
 	private final Map<Integer, ByteReader> byteReaders = new HashMap<>(32);
 	private final int stringCompressionThreshold;
+	private final ZstdContextPool<ZstdCompressCtx> zstdCompressors;
+	private final ZstdContextPool<ZstdDecompressCtx> zstdDecompressors;
 
 	public ValueIO(HalyardTableConfiguration config) {
 		this.config = config;
@@ -327,6 +451,20 @@ public class ValueIO {
 			throw new IllegalArgumentException("String compression threshold must be greater than or equal to zero");
 		}
 		this.stringCompressionThreshold = stringCompressionThreshold;
+		String stringDict = config.get(TableConfig.STRING_DICTIONARY);
+		if (stringDict != null && !stringDict.isEmpty()) {
+			byte[] dict = Base64.getDecoder().decode(stringDict);
+			ZstdDictCompress dictCompress = new ZstdDictCompress(dict, Zstd.defaultCompressionLevel());
+			ZstdDictDecompress dictDecompress = new ZstdDictDecompress(dict);
+			// the dictionary is fixed per table, so omit all frame overheads except the content size
+			this.zstdCompressors = new ZstdContextPool<>(() -> new ZstdCompressCtx().setMagicless(true).setDictID(false).setChecksum(false).setContentSize(true).loadDict(dictCompress), dictCompress);
+			this.zstdDecompressors = new ZstdContextPool<>(() -> new ZstdDecompressCtx().setMagicless(true).loadDict(dictDecompress), dictDecompress);
+			CLEANER.register(this, zstdCompressors);
+			CLEANER.register(this, zstdDecompressors);
+		} else {
+			this.zstdCompressors = null;
+			this.zstdDecompressors = null;
+		}
 
 		addByteReaderWriters();
 	}
@@ -540,6 +678,12 @@ public class ValueIO {
 				return vf.createLiteral(readUncompressedString(b));
 			}
 		});
+		addByteReader(HeaderBytes.DICTIONARY_COMPRESSED_STRING_TYPE, new ByteReader(CoreDatatype.XSD.STRING) {
+			@Override
+			public Literal readBytes(ByteBuffer b, ValueFactory vf) {
+				return vf.createLiteral(readDictionaryCompressedString(b));
+			}
+		});
 
 		addByteWriter(CoreDatatype.RDF.LANGSTRING, new ByteWriter() {
 			@Override
@@ -702,6 +846,13 @@ public class ValueIO {
 	}
 
 	private ByteBuffer writeString(String s, ByteBuffer b, String langTag) {
+		if (zstdCompressors != null) {
+			byte[] compressed = writeDictionaryCompressedString(writeUncompressedString(s));
+			if (compressed != null) {
+				b = ByteUtils.ensureCapacity(b, 1 + compressed.length);
+				return b.put(HeaderBytes.DICTIONARY_COMPRESSED_STRING_TYPE).put(compressed);
+			}
+		}
 		int charLen = s.length();
 		int estimatedByteSize = Character.BYTES * charLen;
 		int sepPos = langTag.indexOf('-');
@@ -718,6 +869,13 @@ public class ValueIO {
 	private ByteBuffer writeString(String s, ByteBuffer b) {
 		ByteBuffer uncompressed = writeUncompressedString(s);
 		int uncompressedLen = uncompressed.remaining();
+		if (zstdCompressors != null) {
+			byte[] dictCompressed = writeDictionaryCompressedString(uncompressed);
+			if (dictCompressed != null) {
+				b = ByteUtils.ensureCapacity(b, 1 + dictCompressed.length);
+				return b.put(HeaderBytes.DICTIONARY_COMPRESSED_STRING_TYPE).put(dictCompressed);
+			}
+		}
 		ByteBuffer compressed;
 		int compressedLen;
 		if (uncompressedLen > stringCompressionThreshold) {
@@ -0,0 +1,144 @@
+package com.msd.gin.halyard.util;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * HyperLogLog distinct count sketch.
+ * Sketches with the same precision can be merged, so they can be computed in parallel and updated incrementally.
+ */
+public final class HyperLogLog {
+	public static final int DEFAULT_PRECISION = 12;
+	private static final int MIN_PRECISION = 4;
+	private static final int MAX_PRECISION = 16;
+	private static final HashFunction HASH = Hashing.murmur3_128();
+
+	private final int p;
+	private final byte[] registers;
+
+	public HyperLogLog() {
+		this(DEFAULT_PRECISION);
+	}
+
+	/**
+	 * @param p precision, the sketch uses 2^p registers with a standard error of about 1.04/sqrt(2^p).
+	 */
+	public HyperLogLog(int p) {
+		if (p < MIN_PRECISION || p > MAX_PRECISION) {
+			throw new IllegalArgumentException(String.format("Precision must be between %d and %d: %d", MIN_PRECISION, MAX_PRECISION, p));
+		}
+		this.p = p;
+		this.registers = new byte[1 << p];
+	}
+
+	public int getPrecision() {
+		return p;
+	}
+
+	public void add(ByteBuffer data) {
+		addHash(HASH.hashBytes(data).asLong());
+	}
+
+	public void add(byte[] data) {
+		addHash(HASH.hashBytes(data).asLong());
+	}
+
+	/**
+	 * Adds a well-distributed 64-bit hash.
+	 */
+	public void addHash(long hash) {
+		int idx = (int) (hash >>> (Long.SIZE - p));
+		// the guard bit bounds the rank when the remaining bits are all zero
+		byte rank = (byte) (Long.numberOfLeadingZeros((hash << p) | (1L << (p - 1))) + 1);
+		if (rank > registers[idx]) {
+			registers[idx] = rank;
+		}
+	}
+
+	public void merge(HyperLogLog other) {
+		if (other.p != p) {
+			throw new IllegalArgumentException(String.format("Incompatible precisions: %d != %d", p, other.p));
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	public boolean isEmpty() {
+		for (byte r : registers) {
+			if (r != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long estimate() {
+		int m = registers.length;
+		double sum = 0.0;
+		int zeros = 0;
+		for (byte r : registers) {
+			sum += 1.0 / (1L << r);
+			if (r == 0) {
+				zeros++;
+			}
+		}
+		double estimate = alpha(m) * m * m / sum;
+		if (estimate <= 2.5 * m && zeros > 0) {
+			// small range correction (linear counting)
+			estimate = m * Math.log((double) m / zeros);
+		}
+		return Math.round(estimate);
+	}
+
+	private static double alpha(int m) {
+		switch (m) {
+			case 16:
+				return 0.673;
+			case 32:
+				return 0.697;
+			case 64:
+				return 0.709;
+			default:
+				return 0.7213 / (1.0 + 1.079 / m);
+		}
+	}
+
+	public byte[] toBytes() {
+		byte[] b = new byte[1 + registers.length];
+		b[0] = (byte) p;
+		System.arraycopy(registers, 0, b, 1, registers.length);
+		return b;
+	}
+
+	public static HyperLogLog fromBytes(byte[] b) {
+		HyperLogLog hll = new HyperLogLog(b[0]);
+		if (b.length != 1 + hll.registers.length) {
+			throw new IllegalArgumentException("Invalid sketch length: " + b.length);
+		}
+		System.arraycopy(b, 1, hll.registers, 0, hll.registers.length);
+		return hll;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (!(o instanceof HyperLogLog)) {
+			return false;
+		}
+		HyperLogLog that = (HyperLogLog) o;
+		return this.p == that.p && Arrays.equals(this.registers, that.registers);
+	}
+
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(registers);
+	}
+}
@@ -0,0 +1,78 @@
+package com.msd.gin.halyard.common;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.client.TableDescriptor;
+import org.apache.hadoop.hbase.client.TableDescriptorBuilder;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunsLocalHBase
+public class StatementDeleteEndpointTest {
+	private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testDeleteStatements() throws Exception {
+		Configuration conf = HBaseServerTestInstance.getInstanceConfig();
+		try (Connection hConn = HalyardTableUtils.getConnection(conf)) {
+			Table table = HalyardTableUtils.getTable(hConn, "testStatementDeleteEndpoint", true, 0);
+			try (Admin admin = hConn.getAdmin()) {
+				TableDescriptor td = admin.getDescriptor(table.getName());
+				admin.modifyTable(TableDescriptorBuilder.newBuilder(td).setCoprocessor(StatementDeleteEndpoint.class.getName()).build());
+			}
+			KeyspaceConnection keyspaceConn = new TableKeyspace.TableKeyspaceConnection(table);
+			RDFFactory rdfFactory = RDFFactory.create(keyspaceConn);
+			StatementIndices stmtIndices = new StatementIndices(conf, rdfFactory);
+
+			IRI ctx = vf.createIRI("http://whatever/ctx");
+			Set<Statement> expected = new HashSet<>();
+			long timestamp = System.currentTimeMillis();
+			List<Put> puts = new ArrayList<>();
+			for (int i = 0; i < 100; i++) {
+				Resource subj = vf.createIRI("http://whatever/subj/" + i);
+				Statement deleted = vf.createStatement(subj, RDF.VALUE, vf.createLiteral(i), (i % 2 == 0) ? ctx : null);
+				Statement kept = vf.createStatement(subj, RDFS.LABEL, vf.createLiteral(i), (i % 2 == 0) ? ctx : null);
+				expected.add(kept);
+				for (Statement stmt : new Statement[] {deleted, kept}) {
+					for (Cell kv : stmtIndices.insertKeyValues(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), stmt.getContext(), timestamp)) {
+						puts.add(new Put(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength(), kv.getTimestamp()).add(kv));
+					}
+				}
+			}
+			table.put(puts);
+
+			Scan scan = stmtIndices.scan(null, rdfFactory.createPredicate(RDF.VALUE), null, null);
+			assertEquals(100L, StatementDeleteEndpoint.deleteStatements(table, scan, timestamp + 1));
+
+			Set<Statement> actual = new HashSet<>();
+			try (ResultScanner rs = keyspaceConn.getScanner(stmtIndices.scanAll())) {
+				for (Result r : rs) {
+					for (Statement stmt : stmtIndices.parseStatements(null, null, null, null, r, vf)) {
+						actual.add(vf.createStatement(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), stmt.getContext()));
+					}
+				}
+			}
+			assertEquals(expected, actual);
+		}
+	}
+}
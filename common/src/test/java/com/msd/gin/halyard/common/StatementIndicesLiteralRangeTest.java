@@ -0,0 +1,129 @@
+package com.msd.gin.halyard.common;
+
+import com.msd.gin.halyard.model.LiteralRangeConstraint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementIndicesLiteralRangeTest {
+	private static StatementIndices createIndices(boolean literalRangeIndex) {
+		Configuration conf = HBaseConfiguration.create();
+		conf.setBoolean(TableConfig.LITERAL_RANGE_INDEX, literalRangeIndex);
+		return new StatementIndices(conf, RDFFactory.create(conf));
+	}
+
+	private static Cell findCell(List<? extends Cell> kvs, byte prefix) {
+		for (Cell kv : kvs) {
+			if (kv.getRowArray()[kv.getRowOffset()] == prefix) {
+				return kv;
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testKeyValues() {
+		StatementIndices indices = createIndices(true);
+		ValueFactory vf = new IdValueFactory(indices.getRDFFactory());
+		IRI subj = vf.createIRI("http://whatever/subj");
+		IRI pred = vf.createIRI("http://whatever/pred");
+		Resource ctx = vf.createIRI("http://whatever/ctx");
+		Literal obj = vf.createLiteral(42.5);
+
+		List<? extends Cell> kvs = indices.insertKeyValues(subj, pred, obj, ctx, 0);
+		assertEquals(7, kvs.size());
+		Cell rangeCell = findCell(kvs, StatementIndices.LITERAL_RANGE_PREFIX);
+		assertNotNull(rangeCell);
+		assertEquals(vf.createStatement(subj, pred, obj, ctx), indices.parseStatement(null, null, null, null, rangeCell, vf));
+		RDFPredicate rdfPred = indices.getRDFFactory().createPredicate(pred);
+		assertEquals(vf.createStatement(subj, pred, obj, ctx), indices.parseStatement(null, rdfPred, null, null, rangeCell, vf));
+
+		Cell posCell = findCell(kvs, indices.getPOSIndex().prefix);
+		assertArrayEquals(Bytes.copy(rangeCell.getRowArray(), rangeCell.getRowOffset(), rangeCell.getRowLength()), indices.getLiteralRangeRow(posCell, obj));
+		assertEquals(7, indices.deleteKeyValues(subj, pred, obj, ctx, 0).size());
+
+		// not range indexable
+		assertEquals(6, indices.insertKeyValues(subj, pred, vf.createLiteral("foo"), ctx, 0).size());
+		assertEquals(6, indices.insertKeyValues(subj, pred, vf.createLiteral("abc", XSD.INT), ctx, 0).size());
+		assertEquals(6, indices.insertKeyValues(subj, pred, vf.createIRI("http://whatever/obj"), ctx, 0).size());
+	}
+
+	@Test
+	public void testScanLiteralRange() {
+		StatementIndices indices = createIndices(true);
+		ValueFactory vf = new IdValueFactory(indices.getRDFFactory());
+		IRI subj = vf.createIRI("http://whatever/subj");
+		IRI pred = vf.createIRI("http://whatever/pred");
+		IRI otherPred = vf.createIRI("http://whatever/otherPred");
+		List<byte[]> inRange = new ArrayList<>();
+		List<byte[]> outOfRange = new ArrayList<>();
+		for (int i = -20; i <= 20; i++) {
+			Literal obj = vf.createLiteral(i * 0.5);
+			byte[] row = getLiteralRangeRow(indices.insertKeyValues(subj, pred, obj, null, 0));
+			if (i >= -4 && i <= 8) {
+				inRange.add(row);
+			} else {
+				outOfRange.add(row);
+			}
+			outOfRange.add(getLiteralRangeRow(indices.insertKeyValues(subj, otherPred, obj, null, 0)));
+		}
+		// date in the same predicate
+		outOfRange.add(getLiteralRangeRow(indices.insertKeyValues(subj, pred, vf.createLiteral("2024-01-01", XSD.DATE), null, 0)));
+
+		LiteralRangeConstraint constraint = LiteralRangeConstraint.create(vf.createLiteral(-2), vf.createLiteral(4));
+		Scan scan = indices.scanLiteralRange(indices.getRDFFactory().createPredicate(pred), constraint);
+		for (byte[] row : inRange) {
+			assertTrue(isInScan(scan, row), Bytes.toStringBinary(row));
+		}
+		for (byte[] row : outOfRange) {
+			assertFalse(isInScan(scan, row), Bytes.toStringBinary(row));
+		}
+	}
+
+	@Test
+	public void testDisabled() {
+		StatementIndices indices = createIndices(false);
+		ValueFactory vf = new IdValueFactory(indices.getRDFFactory());
+		IRI subj = vf.createIRI("http://whatever/subj");
+		IRI pred = vf.createIRI("http://whatever/pred");
+		Literal obj = vf.createLiteral(42);
+		List<? extends Cell> kvs = indices.insertKeyValues(subj, pred, obj, null, 0);
+		assertEquals(3, kvs.size());
+		assertNull(indices.getLiteralRangeRow(findCell(kvs, indices.getPOSIndex().prefix), obj));
+		assertNull(indices.scanLiteralRange(indices.getRDFFactory().createPredicate(pred), LiteralRangeConstraint.create(obj, null)));
+	}
+
+	private static byte[] getLiteralRangeRow(List<? extends Cell> kvs) {
+		Cell cell = findCell(kvs, StatementIndices.LITERAL_RANGE_PREFIX);
+		return Bytes.copy(cell.getRowArray(), cell.getRowOffset(), cell.getRowLength());
+	}
+
+	private static boolean isInScan(Scan scan, byte[] row) {
+		return Bytes.compareTo(scan.getStartRow(), row) <= 0 && Bytes.compareTo(row, scan.getStopRow()) < 0;
+	}
+
+	@Test
+	public void testParseStatementFromIndices() {
+		StatementIndices indices = createIndices(true);
+		ValueFactory vf = new IdValueFactory(indices.getRDFFactory());
+		Statement stmt = vf.createStatement(vf.createIRI("http://whatever/subj"), vf.createIRI("http://whatever/pred"), vf.createLiteral("2024-01-01T00:00:00Z", XSD.DATETIME));
+		for (Cell kv : indices.insertKeyValues(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), null, 0)) {
+			assertEquals(stmt, indices.parseStatement(null, null, null, null, kv, vf));
+		}
+	}
+}
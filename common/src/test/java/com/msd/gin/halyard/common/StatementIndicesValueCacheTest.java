@@ -0,0 +1,62 @@
+package com.msd.gin.halyard.common;
+
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementIndicesValueCacheTest {
+	private static StatementIndices createIndices(int cacheSize) {
+		Configuration conf = HBaseConfiguration.create();
+		conf.setInt(StatementIndices.VALUE_CACHE_SIZE, cacheSize);
+		return new StatementIndices(conf, RDFFactory.create(conf));
+	}
+
+	@Test
+	public void testCachedValues() {
+		StatementIndices indices = createIndices(100);
+		ValueFactory vf = new IdValueFactory(indices.getRDFFactory());
+		IRI type = vf.createIRI("http://whatever/Type");
+		IRI pred = vf.createIRI("http://whatever/pred");
+
+		Statement st1 = parseSPO(indices, vf.createIRI("http://whatever/subj1"), pred, type, vf);
+		Statement st2 = parseSPO(indices, vf.createIRI("http://whatever/subj2"), pred, type, vf);
+		assertEquals(type, st1.getObject());
+		assertSame(st1.getObject(), st2.getObject());
+		assertSame(st1.getPredicate(), st2.getPredicate());
+		assertNotSame(st1.getSubject(), st2.getSubject());
+		assertEquals(2L, indices.getValueCacheStats().hitCount());
+
+		// well-known IRIs are not cached
+		parseSPO(indices, vf.createIRI("http://whatever/subj1"), RDF.TYPE, type, vf);
+		assertEquals(4L, indices.getValueCacheStats().hitCount());
+		assertEquals(4L, indices.getValueCacheStats().missCount());
+	}
+
+	@Test
+	public void testDisabled() {
+		StatementIndices indices = createIndices(0);
+		assertNull(indices.getValueCacheStats());
+		ValueFactory vf = new IdValueFactory(indices.getRDFFactory());
+		IRI type = vf.createIRI("http://whatever/Type");
+		IRI pred = vf.createIRI("http://whatever/pred");
+		Statement st1 = parseSPO(indices, vf.createIRI("http://whatever/subj1"), pred, type, vf);
+		Statement st2 = parseSPO(indices, vf.createIRI("http://whatever/subj2"), pred, type, vf);
+		assertEquals(st1.getObject(), st2.getObject());
+		assertNotSame(st1.getObject(), st2.getObject());
+	}
+
+	private static Statement parseSPO(StatementIndices indices, IRI subj, IRI pred, IRI obj, ValueFactory vf) {
+		List<? extends Cell> kvs = indices.insertKeyValues(subj, pred, obj, null, 0);
+		Cell spoCell = kvs.stream().filter(kv -> kv.getRowArray()[kv.getRowOffset()] == indices.getSPOIndex().prefix).findFirst().get();
+		return indices.parseStatement(null, null, null, null, spoCell, vf);
+	}
+}
@@ -0,0 +1,145 @@
+package com.msd.gin.halyard.common;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementIndicesValueDictionaryTest {
+	// below the string compression threshold
+	private static final String LONG_STRING = String.join("", Collections.nCopies(25, "lorem ipsum "));
+
+	private static final class MapKeyspaceConnection implements KeyspaceConnection {
+		final Map<String, Cell> cells = new HashMap<>();
+		int gets;
+
+		@Override
+		public Result get(Get get) {
+			gets++;
+			Cell cell = cells.get(Bytes.toHex(get.getRow()));
+			return Result.create(cell != null ? Collections.singletonList(cell) : Collections.emptyList());
+		}
+
+		@Override
+		public ResultScanner getScanner(Scan scan) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	private static Configuration createConfig(int threshold) {
+		Configuration conf = HBaseConfiguration.create();
+		conf.setInt(TableConfig.VALUE_DICTIONARY_THRESHOLD, threshold);
+		return conf;
+	}
+
+	private static boolean isDictionaryCell(Cell kv) {
+		return kv.getRowArray()[kv.getRowOffset()] == ValueDictionary.PREFIX;
+	}
+
+	@Test
+	public void testKeyValues() {
+		Configuration conf = createConfig(100);
+		RDFFactory rdfFactory = RDFFactory.create(conf);
+		MapKeyspaceConnection kc = new MapKeyspaceConnection();
+		StatementIndices indices = new StatementIndices(conf, rdfFactory, kc);
+		ValueFactory vf = new IdValueFactory(rdfFactory);
+		IRI subj = vf.createIRI("http://whatever/subj");
+		IRI pred = vf.createIRI("http://whatever/pred");
+		Resource ctx = vf.createIRI("http://whatever/ctx");
+		Literal obj = vf.createLiteral(LONG_STRING);
+		Statement expected = vf.createStatement(subj, pred, obj, ctx);
+
+		List<? extends Cell> kvs = indices.insertKeyValues(subj, pred, obj, ctx, 0);
+		assertEquals(7, kvs.size());
+		for (Cell kv : kvs) {
+			if (isDictionaryCell(kv)) {
+				kc.cells.put(Bytes.toHex(CellUtil.cloneRow(kv)), kv);
+			}
+		}
+		assertEquals(1, kc.cells.size());
+		for (Cell kv : kvs) {
+			if (!isDictionaryCell(kv)) {
+				assertTrue(kv.getValueLength() < LONG_STRING.length());
+				assertEquals(expected, indices.parseStatement(null, null, null, null, kv, vf));
+			}
+		}
+		// dictionary entries are left alone
+		assertEquals(6, indices.deleteKeyValues(subj, pred, obj, ctx, 0).size());
+
+		// no dictionary available
+		StatementIndices noDictIndices = new StatementIndices(conf, rdfFactory);
+		Cell spoCell = kvs.stream().filter(kv -> kv.getRowArray()[kv.getRowOffset()] == indices.getSPOIndex().prefix).findFirst().get();
+		assertThrows(IllegalStateException.class, () -> noDictIndices.parseStatement(null, null, null, null, spoCell, vf));
+		RDFObject rdfObj = rdfFactory.createObject(obj);
+		assertEquals(expected, noDictIndices.parseStatement(null, null, rdfObj, null, spoCell, vf));
+	}
+
+	@Test
+	public void testLateMaterialization() {
+		Configuration conf = createConfig(100);
+		RDFFactory rdfFactory = RDFFactory.create(conf);
+		MapKeyspaceConnection kc = new MapKeyspaceConnection();
+		StatementIndices indices = new StatementIndices(conf, rdfFactory, kc);
+		ValueFactory vf = new IdValueFactory(rdfFactory);
+		IRI subj = vf.createIRI("http://whatever/subj");
+		IRI pred = vf.createIRI("http://whatever/pred");
+		Literal obj = vf.createLiteral(LONG_STRING);
+
+		List<? extends Cell> kvs = indices.insertKeyValues(subj, pred, obj, null, 0);
+		for (Cell kv : kvs) {
+			if (isDictionaryCell(kv)) {
+				kc.cells.put(Bytes.toHex(CellUtil.cloneRow(kv)), kv);
+			}
+		}
+		Cell spoCell = kvs.stream().filter(kv -> kv.getRowArray()[kv.getRowOffset()] == indices.getSPOIndex().prefix).findFirst().get();
+		Cell ospCell = kvs.stream().filter(kv -> kv.getRowArray()[kv.getRowOffset()] == indices.getOSPIndex().prefix).findFirst().get();
+		Literal spoObj = (Literal) indices.parseStatement(null, null, null, null, spoCell, vf).getObject();
+		Literal ospObj = (Literal) indices.parseStatement(null, null, null, null, ospCell, vf).getObject();
+		// comparing only needs the IDs
+		assertEquals(spoObj, ospObj);
+		assertEquals(spoObj.hashCode(), ospObj.hashCode());
+		assertEquals(0, kc.gets);
+		assertEquals(LONG_STRING, spoObj.getLabel());
+		assertEquals(1, kc.gets);
+		// cached
+		assertEquals(LONG_STRING, ospObj.getLabel());
+		assertEquals(1, kc.gets);
+		assertEquals(obj, spoObj);
+	}
+
+	@Test
+	public void testDisabled() {
+		Configuration conf = createConfig(0);
+		RDFFactory rdfFactory = RDFFactory.create(conf);
+		assertFalse(rdfFactory.hasValueDictionary());
+		StatementIndices indices = new StatementIndices(conf, rdfFactory, new MapKeyspaceConnection());
+		ValueFactory vf = new IdValueFactory(rdfFactory);
+		List<? extends Cell> kvs = indices.insertKeyValues(vf.createIRI("http://whatever/subj"), vf.createIRI("http://whatever/pred"), vf.createLiteral(LONG_STRING), null, 0);
+		assertEquals(3, kvs.size());
+		for (Cell kv : kvs) {
+			assertFalse(isDictionaryCell(kv));
+		}
+	}
+}
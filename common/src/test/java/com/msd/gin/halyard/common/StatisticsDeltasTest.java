@@ -0,0 +1,45 @@
+package com.msd.gin.halyard.common;
+
+import com.msd.gin.halyard.model.vocabulary.HALYARD;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Table;
+import org.eclipse.rdf4j.model.vocabulary.VOID;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@RunsLocalHBase
+public class StatisticsDeltasTest {
+	@Test
+	public void testFlushAndClear() throws Exception {
+		String node = HALYARD.STATS_ROOT_NODE.stringValue();
+		try (Connection hConn = HalyardTableUtils.getConnection(HBaseServerTestInstance.getInstanceConfig())) {
+			try (Table table = HalyardTableUtils.getTable(hConn, "testStatisticsDeltas", true, 0)) {
+				KeyspaceConnection kc = new TableKeyspace.TableKeyspaceConnection(table);
+				assertNull(StatisticsDeltas.get(kc, node, VOID.TRIPLES));
+
+				StatisticsDeltas deltas = new StatisticsDeltas();
+				deltas.add(node, VOID.TRIPLES, 5L);
+				deltas.add(node, VOID.TRIPLES, -2L);
+				assertEquals(3L, deltas.getPending(node, VOID.TRIPLES));
+				deltas.flush(table);
+				assertTrue(deltas.isEmpty());
+				deltas.add(node, VOID.TRIPLES, 4L);
+				deltas.flush(table);
+				assertEquals(7L, StatisticsDeltas.get(kc, node, VOID.TRIPLES));
+				deltas.add(node, VOID.TRIPLES, 1L);
+				deltas.reset();
+				assertTrue(deltas.isEmpty());
+				deltas.flush(table);
+				assertEquals(7L, StatisticsDeltas.get(kc, node, VOID.TRIPLES));
+				assertNull(StatisticsDeltas.get(kc, node, VOID.ENTITIES));
+
+				StatisticsDeltas.clear(table);
+				assertNull(StatisticsDeltas.get(kc, node, VOID.TRIPLES));
+				// config is untouched
+				assertNotNull(HalyardTableUtils.readConfig(kc));
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package com.msd.gin.halyard.common;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValueIOStringDictionaryTest {
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+	private static String dictionary;
+
+	@BeforeAll
+	public static void trainDictionary() {
+		List<String> samples = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			samples.add(sample(i));
+		}
+		dictionary = ValueIO.trainStringDictionary(samples, 4096);
+	}
+
+	private static String sample(int i) {
+		return String.format("Product %d of the widget catalogue, available in colour %d and size %d", i, i % 17, i % 5);
+	}
+
+	private static RDFFactory createRDFFactory(String dict) {
+		Configuration conf = HBaseConfiguration.create();
+		if (dict != null) {
+			conf.set(TableConfig.STRING_DICTIONARY, dict);
+		}
+		return RDFFactory.create(conf);
+	}
+
+	@Test
+	public void testRoundTrip() {
+		RDFFactory dictFactory = createRDFFactory(dictionary);
+		RDFFactory plainFactory = createRDFFactory(null);
+		Literal[] literals = {
+			VF.createLiteral(sample(12345)),
+			VF.createLiteral(sample(67890), "en"),
+			VF.createLiteral("x")
+		};
+		for (Literal l : literals) {
+			byte[] ser = dictFactory.valueWriter.toBytes(l);
+			assertEquals(l, dictFactory.valueReader.readValue(ByteBuffer.wrap(ser), VF));
+			assertTrue(ser.length <= plainFactory.valueWriter.toBytes(l).length, l.toString());
+		}
+		byte[] ser = dictFactory.valueWriter.toBytes(literals[0]);
+		assertTrue(ser.length < plainFactory.valueWriter.toBytes(literals[0]).length);
+		assertThrows(IllegalStateException.class, () -> plainFactory.valueReader.readValue(ByteBuffer.wrap(ser), VF));
+	}
+
+	@Test
+	public void testTooFewSamples() {
+		List<String> samples = new ArrayList<>();
+		samples.add("foo");
+		assertThrows(IllegalArgumentException.class, () -> ValueIO.trainStringDictionary(samples, 4096));
+	}
+}
@@ -0,0 +1,53 @@
+package com.msd.gin.halyard.util;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+	private static void addRange(HyperLogLog hll, int start, int end) {
+		for (int i = start; i < end; i++) {
+			hll.add(("value" + i).getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private static void assertEstimate(long expected, long actual) {
+		assertEquals(expected, actual, 0.05 * expected, "Estimate " + actual);
+	}
+
+	@Test
+	public void testEstimate() {
+		HyperLogLog hll = new HyperLogLog();
+		assertTrue(hll.isEmpty());
+		assertEquals(0L, hll.estimate());
+		addRange(hll, 0, 100);
+		// duplicates make no difference
+		addRange(hll, 0, 100);
+		assertEstimate(100, hll.estimate());
+		addRange(hll, 100, 100000);
+		assertEstimate(100000, hll.estimate());
+	}
+
+	@Test
+	public void testMerge() {
+		HyperLogLog a = new HyperLogLog();
+		HyperLogLog b = new HyperLogLog();
+		addRange(a, 0, 30000);
+		addRange(b, 20000, 50000);
+		a.merge(b);
+		assertEstimate(50000, a.estimate());
+		assertThrows(IllegalArgumentException.class, () -> a.merge(new HyperLogLog(10)));
+	}
+
+	@Test
+	public void testSerialization() {
+		HyperLogLog hll = new HyperLogLog(8);
+		addRange(hll, 0, 1000);
+		HyperLogLog copy = HyperLogLog.fromBytes(hll.toBytes());
+		assertEquals(hll, copy);
+		assertEquals(hll.estimate(), copy.estimate());
+		assertEquals(8, copy.getPrecision());
+	}
+}
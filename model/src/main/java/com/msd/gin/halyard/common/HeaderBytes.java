@@ -27,6 +27,7 @@ final class HeaderBytes {
 	static final byte COMPRESSED_STRING_TYPE = 'z';
 	static final byte UNCOMPRESSED_STRING_TYPE = 'Z';
 	static final byte SCSU_STRING_TYPE = 'U';
+	static final byte DICTIONARY_COMPRESSED_STRING_TYPE = 'y';
 	static final byte TIME_TYPE = 't';
 	static final byte DATE_TYPE = 'D';
 	static final byte BIG_FLOAT_TYPE = 'F';
@@ -0,0 +1,176 @@
+package com.msd.gin.halyard.model;
+
+import java.util.Objects;
+import java.util.TimeZone;
+
+import javax.annotation.Nullable;
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.base.CoreDatatype;
+import org.eclipse.rdf4j.model.datatypes.XMLDatatypeUtil;
+
+/**
+ * Constrains a literal to a range of numeric or temporal values.
+ * Values are mapped to order-preserving keys (compared as unsigned longs) and the bounds are inclusive,
+ * so the constraint may accept values that the original comparison would reject, but never the other way around.
+ */
+public final class LiteralRangeConstraint extends ValueConstraint {
+	public enum RangeType {
+		NUMERIC, TEMPORAL;
+	}
+
+	public static final long MIN_KEY = 0L;
+	public static final long MAX_KEY = -1L;
+	// timezone-less values are keyed as UTC, but may be anywhere within +/-14 hours of that
+	private static final long TIMEZONE_MARGIN_MILLIS = 14L * 60L * 60L * 1000L;
+	private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+	private final RangeType rangeType;
+	private final long minKey;
+	private final long maxKey;
+
+	/**
+	 * @param lower optional lower bound
+	 * @param upper optional upper bound
+	 * @return null if the bounds do not describe a numeric or temporal range.
+	 */
+	@Nullable
+	public static LiteralRangeConstraint create(@Nullable Literal lower, @Nullable Literal upper) {
+		if (lower == null && upper == null) {
+			return null;
+		}
+		RangeType lowerType = (lower != null) ? getRangeType(lower) : null;
+		RangeType upperType = (upper != null) ? getRangeType(upper) : null;
+		RangeType rangeType = (lowerType != null) ? lowerType : upperType;
+		if (rangeType == null || (lower != null && lowerType != rangeType) || (upper != null && upperType != rangeType)) {
+			return null;
+		}
+		long minKey;
+		long maxKey;
+		try {
+			if (rangeType == RangeType.TEMPORAL) {
+				minKey = (lower != null) ? sortableKey(toMillis(lower) - TIMEZONE_MARGIN_MILLIS) : MIN_KEY;
+				maxKey = (upper != null) ? sortableKey(toMillis(upper) + TIMEZONE_MARGIN_MILLIS) : MAX_KEY;
+			} else {
+				minKey = (lower != null) ? toKey(lower, rangeType) : MIN_KEY;
+				maxKey = (upper != null) ? toKey(upper, rangeType) : MAX_KEY;
+			}
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		return new LiteralRangeConstraint(rangeType, minKey, maxKey);
+	}
+
+	public LiteralRangeConstraint(RangeType rangeType, long minKey, long maxKey) {
+		super(ValueType.LITERAL);
+		this.rangeType = Objects.requireNonNull(rangeType);
+		this.minKey = minKey;
+		this.maxKey = maxKey;
+	}
+
+	public RangeType getRangeType() {
+		return rangeType;
+	}
+
+	/**
+	 * Inclusive lower key.
+	 */
+	public long getMinKey() {
+		return minKey;
+	}
+
+	/**
+	 * Inclusive upper key.
+	 */
+	public long getMaxKey() {
+		return maxKey;
+	}
+
+	/**
+	 * Returns the type of range the literal can be indexed by, if any.
+	 */
+	@Nullable
+	public static RangeType getRangeType(Literal l) {
+		CoreDatatype cdt = l.getCoreDatatype();
+		if (cdt == CoreDatatype.XSD.DATETIME || cdt == CoreDatatype.XSD.DATETIMESTAMP || cdt == CoreDatatype.XSD.DATE) {
+			return RangeType.TEMPORAL;
+		} else if (XMLDatatypeUtil.isNumericDatatype(l.getDatatype())) {
+			return RangeType.NUMERIC;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Maps a literal to a key such that the unsigned order of the keys follows the order of the values.
+	 * @throws IllegalArgumentException if the literal is not a valid value of the range type.
+	 */
+	public static long toKey(Literal l, RangeType rangeType) {
+		switch (rangeType) {
+			case NUMERIC:
+				double d = l.doubleValue();
+				if (Double.isNaN(d)) {
+					throw new IllegalArgumentException("NaN is unordered");
+				}
+				// normalise -0.0
+				long bits = Double.doubleToLongBits(d + 0.0);
+				return (bits < 0L) ? ~bits : (bits ^ Long.MIN_VALUE);
+			case TEMPORAL:
+				return sortableKey(toMillis(l));
+			default:
+				throw new AssertionError();
+		}
+	}
+
+	private static long toMillis(Literal l) {
+		XMLGregorianCalendar cal = l.calendarValue();
+		TimeZone tz = (cal.getTimezone() != DatatypeConstants.FIELD_UNDEFINED) ? null : UTC;
+		return cal.toGregorianCalendar(tz, null, null).getTimeInMillis();
+	}
+
+	private static long sortableKey(long l) {
+		return l ^ Long.MIN_VALUE;
+	}
+
+	@Override
+	public boolean test(Value v) {
+		if (!v.isLiteral()) {
+			return false;
+		}
+		Literal l = (Literal) v;
+		if (getRangeType(l) != rangeType) {
+			return false;
+		}
+		long key;
+		try {
+			key = toKey(l, rangeType);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		return Long.compareUnsigned(key, minKey) >= 0 && Long.compareUnsigned(key, maxKey) <= 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = super.hashCode();
+		h = 89 * h + rangeType.hashCode();
+		h = 89 * h + Long.hashCode(minKey);
+		h = 89 * h + Long.hashCode(maxKey);
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (other == null || this.getClass() != other.getClass()) {
+			return false;
+		}
+		LiteralRangeConstraint that = (LiteralRangeConstraint) other;
+		return super.equals(that) && this.rangeType == that.rangeType && this.minKey == that.minKey && this.maxKey == that.maxKey;
+	}
+}
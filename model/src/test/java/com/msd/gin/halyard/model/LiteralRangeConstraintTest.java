@@ -0,0 +1,97 @@
+package com.msd.gin.halyard.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
+import org.junit.jupiter.api.Test;
+
+public class LiteralRangeConstraintTest {
+	private static final ValueFactory vf = SimpleValueFactory.getInstance();
+
+	@Test
+	public void testNumericKeyOrder() {
+		List<Literal> ordered = Arrays.asList(
+			vf.createLiteral(Double.NEGATIVE_INFINITY),
+			vf.createLiteral(-1000L),
+			vf.createLiteral(-2.5f),
+			vf.createLiteral(-0.0),
+			vf.createLiteral(BigDecimal.valueOf(0.25)),
+			vf.createLiteral(1),
+			vf.createLiteral("7", XSD.INTEGER),
+			vf.createLiteral(1e10),
+			vf.createLiteral(Double.POSITIVE_INFINITY)
+		);
+		assertKeyOrder(ordered, LiteralRangeConstraint.RangeType.NUMERIC);
+		assertEquals(LiteralRangeConstraint.toKey(vf.createLiteral(0), LiteralRangeConstraint.RangeType.NUMERIC), LiteralRangeConstraint.toKey(vf.createLiteral(-0.0), LiteralRangeConstraint.RangeType.NUMERIC));
+		assertEquals(LiteralRangeConstraint.toKey(vf.createLiteral(1), LiteralRangeConstraint.RangeType.NUMERIC), LiteralRangeConstraint.toKey(vf.createLiteral(1.0), LiteralRangeConstraint.RangeType.NUMERIC));
+		assertThrows(IllegalArgumentException.class, () -> LiteralRangeConstraint.toKey(vf.createLiteral(Double.NaN), LiteralRangeConstraint.RangeType.NUMERIC));
+		assertThrows(IllegalArgumentException.class, () -> LiteralRangeConstraint.toKey(vf.createLiteral("abc", XSD.INT), LiteralRangeConstraint.RangeType.NUMERIC));
+	}
+
+	@Test
+	public void testTemporalKeyOrder() {
+		List<Literal> ordered = Arrays.asList(
+			vf.createLiteral("1969-12-31T23:59:59Z", XSD.DATETIME),
+			vf.createLiteral("2024-01-01", XSD.DATE),
+			vf.createLiteral("2024-01-01T10:00:00+02:00", XSD.DATETIME),
+			vf.createLiteral("2024-01-01T09:00:00Z", XSD.DATETIME),
+			vf.createLiteral("2024-06-30T00:00:00", XSD.DATETIME)
+		);
+		assertKeyOrder(ordered, LiteralRangeConstraint.RangeType.TEMPORAL);
+	}
+
+	private static void assertKeyOrder(List<Literal> ordered, LiteralRangeConstraint.RangeType rangeType) {
+		for (int i = 1; i < ordered.size(); i++) {
+			Literal prev = ordered.get(i - 1);
+			Literal next = ordered.get(i);
+			assertEquals(rangeType, LiteralRangeConstraint.getRangeType(next));
+			assertTrue(Long.compareUnsigned(LiteralRangeConstraint.toKey(prev, rangeType), LiteralRangeConstraint.toKey(next, rangeType)) < 0, prev + " < " + next);
+		}
+	}
+
+	@Test
+	public void testNumericRange() {
+		LiteralRangeConstraint vc = LiteralRangeConstraint.create(vf.createLiteral(5), vf.createLiteral(10.5));
+		assertTrue(vc.test(vf.createLiteral(5)));
+		assertTrue(vc.test(vf.createLiteral(7.2f)));
+		assertTrue(vc.test(vf.createLiteral("10.5", XSD.DECIMAL)));
+		assertFalse(vc.test(vf.createLiteral(4)));
+		assertFalse(vc.test(vf.createLiteral(11L)));
+		assertFalse(vc.test(vf.createLiteral("7")));
+		assertFalse(vc.test(vf.createIRI("http://whatever/7")));
+
+		LiteralRangeConstraint lower = LiteralRangeConstraint.create(vf.createLiteral(5), null);
+		assertTrue(lower.test(vf.createLiteral(Double.POSITIVE_INFINITY)));
+		assertFalse(lower.test(vf.createLiteral(-5)));
+	}
+
+	@Test
+	public void testTemporalRange() {
+		LiteralRangeConstraint vc = LiteralRangeConstraint.create(null, vf.createLiteral("2024-01-01T00:00:00Z", XSD.DATETIME));
+		assertTrue(vc.test(vf.createLiteral("2023-12-31T12:00:00Z", XSD.DATETIME)));
+		assertTrue(vc.test(vf.createLiteral("2023-06-01", XSD.DATE)));
+		// within the timezone margin
+		assertTrue(vc.test(vf.createLiteral("2024-01-01T10:00:00", XSD.DATETIME)));
+		assertFalse(vc.test(vf.createLiteral("2024-01-02T00:00:00Z", XSD.DATETIME)));
+		assertFalse(vc.test(vf.createLiteral(5)));
+	}
+
+	@Test
+	public void testCreate() {
+		assertNull(LiteralRangeConstraint.create(null, null));
+		assertNull(LiteralRangeConstraint.create(vf.createLiteral("foo"), null));
+		assertNull(LiteralRangeConstraint.create(vf.createLiteral(5), vf.createLiteral("2024-01-01", XSD.DATE)));
+		assertEquals(LiteralRangeConstraint.create(vf.createLiteral(5), null), LiteralRangeConstraint.create(vf.createLiteral(5.0), null));
+	}
+}
@@ -3,6 +3,8 @@ package com.msd.gin.halyard.query.algebra;
 public final class Algorithms {
 	public static final String HASH_JOIN = "Hash join";
 	public static final String NESTED_LOOPS = "Nested loops";
+	public static final String BIND_JOIN = "Bind join";
+	public static final String MERGE_JOIN = "Merge join";
 	public static final String STAR_JOIN = "Star join";
 	public static final String SUPERSTAR_JOIN = "Superstar join";
 
@@ -7,20 +7,55 @@ public final class EvaluationConfig {
 	public static final String TRACK_RESULT_TIME = "halyard.evaluation.trackResultTime";
 	public static final String TRACK_BRANCH_OPERATORS_ONLY = "halyard.evaluation.trackBranchOperatorsOnly";
 	public static final String QUERY_CACHE_MAX_SIZE = "hayard.evaluation.maxQueryCacheSize";
+	public static final String RESULT_CACHE_MAX_BYTES = "halyard.evaluation.resultCache.maxBytes";
+	public static final String RESULT_CACHE_MAX_ENTRY_BYTES = "halyard.evaluation.resultCache.maxEntryBytes";
+	public static final String RESULT_CACHE_EXPIRY_SECS = "halyard.evaluation.resultCache.expirySecs";
 	public static final String QUERY_HISTORY_MAX_SIZE = "hayard.evaluation.maxQueryHistorySize";
 	public static final String QUERY_HELPERS_PREFIX = "halyard.queryHelpers.";
+	public static final String SERVER_SIDE_DELETE = "halyard.update.serverSideDelete";
+	public static final String STATS_DELTAS = "halyard.update.statsDeltas";
+	public static final String INGEST_THREADS = "halyard.update.ingest.threads";
+	public static final String INGEST_MUTATORS = "halyard.update.ingest.mutators";
+	public static final String INGEST_MAX_IN_FLIGHT_BYTES = "halyard.update.ingest.maxInFlightBytes";
+	public static final String INGEST_GRAPH_STORE = "halyard.update.ingest.graphStore";
 
 	public final int queryCacheSize;
+	public final long resultCacheMaxBytes;
+	public final int resultCacheMaxEntryBytes;
+	/**
+	 * Maximum time a cached result is kept for.
+	 * This also bounds how long writes made outside of this sail (e.g. by bulk loads or other endpoints) can go unnoticed.
+	 */
+	public final long resultCacheExpirySecs;
 	public final boolean trackResultSize;
 	public final boolean trackResultTime;
 	public final boolean trackBranchOperatorsOnly;
 	public final int maxQueryHistorySize;
+	public final boolean serverSideDelete;
+	public final boolean statsDeltas;
+	public final int ingestThreads;
+	public final int ingestMutators;
+	public final long ingestMaxInFlightBytes;
+	/**
+	 * If true, graph store POST requests are streamed through a {@link StreamingIngester}, which is faster but not transactional:
+	 * a failed request can leave the statements received so far in the table.
+	 */
+	public final boolean ingestGraphStore;
 
 	EvaluationConfig(Configuration config) {
 		queryCacheSize = config.getInt(EvaluationConfig.QUERY_CACHE_MAX_SIZE, 100);
+		resultCacheMaxBytes = config.getLong(EvaluationConfig.RESULT_CACHE_MAX_BYTES, 0L);
+		resultCacheMaxEntryBytes = config.getInt(EvaluationConfig.RESULT_CACHE_MAX_ENTRY_BYTES, 1024*1024);
+		resultCacheExpirySecs = config.getLong(EvaluationConfig.RESULT_CACHE_EXPIRY_SECS, 300L);
 		trackResultSize = config.getBoolean(EvaluationConfig.TRACK_RESULT_SIZE, false);
 		trackResultTime = config.getBoolean(EvaluationConfig.TRACK_RESULT_TIME, false);
 		trackBranchOperatorsOnly = config.getBoolean(TRACK_BRANCH_OPERATORS_ONLY, true);
 		maxQueryHistorySize = config.getInt(EvaluationConfig.QUERY_HISTORY_MAX_SIZE, 10);
+		serverSideDelete = config.getBoolean(EvaluationConfig.SERVER_SIDE_DELETE, false);
+		statsDeltas = config.getBoolean(EvaluationConfig.STATS_DELTAS, false);
+		ingestThreads = config.getInt(EvaluationConfig.INGEST_THREADS, Runtime.getRuntime().availableProcessors());
+		ingestMutators = config.getInt(EvaluationConfig.INGEST_MUTATORS, 4);
+		ingestMaxInFlightBytes = config.getLong(EvaluationConfig.INGEST_MAX_IN_FLIGHT_BYTES, 64L*1024L*1024L);
+		ingestGraphStore = config.getBoolean(EvaluationConfig.INGEST_GRAPH_STORE, false);
 	}
 }
@@ -19,6 +19,7 @@ package com.msd.gin.halyard.sail;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.common.IdValueFactory;
 import com.msd.gin.halyard.common.Keyspace;
@@ -62,7 +63,9 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nonnull;
@@ -73,11 +76,13 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Table;
 import org.eclipse.rdf4j.common.transaction.IsolationLevel;
 import org.eclipse.rdf4j.common.transaction.IsolationLevels;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.QueryEvaluationException;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
@@ -232,6 +237,8 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 	private boolean trackResultSize;
 	private boolean trackResultTime;
 	private boolean trackBranchOperatorsOnly;
+	boolean serverSideDelete;
+	boolean statsDeltas;
     final Ticker ticker;
 	private FederatedServiceResolver federatedServiceResolver;
 	private RDFFactory rdfFactory;
@@ -249,13 +256,18 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 	Connection hConnection;
 	final boolean hConnectionIsShared; //whether a Connection is provided or we need to create our own
 	Keyspace keyspace;
+	private KeyspaceConnection dictionaryConn;
 	volatile Optional<SearchClient> searchClient;
 	QueryCache queryCache;
+	ResultCache resultCache;
 	private Cache<Pair<IRI, IRI>, Long> statisticsCache;
+	private Cache<IRI, HalyardStatsBasedStatementPatternCardinalityCalculator.CharacteristicSets> characteristicSetsCache;
 	private HalyardEvaluationStatistics statistics;
 	private Map<Class<?>, Object> queryHelpers;
 	String owner;
 	private MBeanManager<HBaseSail> mbeanManager;
+	private final LongAdder ingestedStatementCount = new LongAdder();
+	private final LongAdder ingestedBytes = new LongAdder();
 	private final Cache<String, HBaseSailConnection> connections = Caffeine.newBuilder().weakValues().removalListener((String id, HBaseSailConnection conn, RemovalCause cause) ->
 	{
 		if (cause.wasEvicted()) {
@@ -377,8 +389,15 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		trackResultSize = evaluationConfig.trackResultSize;
 		trackResultTime = evaluationConfig.trackResultTime;
 		trackBranchOperatorsOnly = evaluationConfig.trackBranchOperatorsOnly;
+		serverSideDelete = evaluationConfig.serverSideDelete;
+		statsDeltas = evaluationConfig.statsDeltas;
 		queryCache = new QueryCache(evaluationConfig.queryCacheSize);
-		statisticsCache = HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
+		// result caching is opt-in
+		resultCache = (evaluationConfig.resultCacheMaxBytes > 0L) ? new ResultCache(evaluationConfig.resultCacheMaxBytes, evaluationConfig.resultCacheMaxEntryBytes, evaluationConfig.resultCacheExpirySecs) : null;
+		// deltas keep the stats current so don't cache them for long
+		statisticsCache = statsDeltas ? HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache(1L, TimeUnit.MINUTES) : HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
+		// characteristic sets are only updated by a full stats run
+		characteristicSetsCache = HalyardStatsBasedStatementPatternCardinalityCalculator.newCharacteristicSetsCache();
 	}
 
 	@Override
@@ -439,6 +458,28 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		return (int) connections.estimatedSize();
 	}
 
+	@Override
+	public long getIngestedStatementCount() {
+		return ingestedStatementCount.sum();
+	}
+
+	@Override
+	public long getIngestedBytes() {
+		return ingestedBytes.sum();
+	}
+
+	@Override
+	public long getValueCacheHitCount() {
+		CacheStats stats = stmtIndices.getValueCacheStats();
+		return (stats != null) ? stats.hitCount() : 0L;
+	}
+
+	@Override
+	public long getValueCacheMissCount() {
+		CacheStats stats = stmtIndices.getValueCacheStats();
+		return (stats != null) ? stats.missCount() : 0L;
+	}
+
 	@Override
 	public boolean isTrackResultSize() {
 		return trackResultSize;
@@ -498,11 +539,15 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 	@Override
 	public void clearQueryCache() {
 		queryCache.clear();
+		if (resultCache != null) {
+			resultCache.clear();
+		}
 	}
 
 	@Override
 	public void clearStatisticsCache() {
 		statisticsCache.invalidateAll();
+		characteristicSetsCache.invalidateAll();
 	}
 
 	@Override
@@ -530,6 +575,62 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 		}
 	}
 
+	/**
+	 * Creates a multi-threaded ingester for streaming large numbers of statements into the table.
+	 * Writes are not transactional: statements are visible as soon as their batch has been written, and a failure can leave a partial load in the table.
+	 * @param contexts contexts to insert the statements into, if empty then the statement contexts are used.
+	 * @return ingester that must be closed after use.
+	 */
+	public StreamingIngester createIngester(Resource... contexts) {
+		if (!isWritable()) {
+			throw new SailException(tableName + " is read only");
+		}
+		int mutatorCount = Math.max(1, evaluationConfig.ingestMutators);
+		long writeBufferSize = Math.max(1L, evaluationConfig.ingestMaxInFlightBytes / mutatorCount);
+		BufferedMutator[] mutators = new BufferedMutator[mutatorCount];
+		try {
+			for (int i = 0; i < mutatorCount; i++) {
+				mutators[i] = hConnection.getBufferedMutator(new BufferedMutatorParams(tableName).writeBufferSize(writeBufferSize));
+			}
+		} catch (IOException e) {
+			for (BufferedMutator mutator : mutators) {
+				if (mutator != null) {
+					try {
+						mutator.close();
+					} catch (IOException ignore) {
+					}
+				}
+			}
+			throw new SailException(e);
+		}
+		return new StreamingIngester(getStatementIndices(), contexts, mutators, Math.max(1, evaluationConfig.ingestThreads), newStatisticsDeltaTracker(), this::dataModified, ingestedStatementCount, ingestedBytes);
+	}
+
+	@Nullable
+	StatisticsDeltaTracker newStatisticsDeltaTracker() {
+		return statsDeltas ? new StatisticsDeltaTracker(this) : null;
+	}
+
+	/**
+	 * Called whenever writes to the table have been flushed (not for every individual mutation).
+	 */
+	void dataModified() {
+		if (resultCache != null) {
+			resultCache.invalidate();
+		}
+	}
+
+	Table getTable() {
+		if (hConnection == null) {
+			throw new SailException("Snapshots are not modifiable");
+		}
+		try {
+			return hConnection.getTable(tableName);
+		} catch (IOException e) {
+			throw new SailException(e);
+		}
+	}
+
 	QueryInfo trackQuery(HBaseSailConnection conn, String sourceString, TupleExpr rawExpr, TupleExpr optimizedExpr) {
 		QueryInfo query = new QueryInfo(conn.getId(), sourceString, rawExpr, optimizedExpr);
 		queryHistory.add(query);
@@ -559,7 +660,7 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 			throw new IllegalStateException("Sail is not initialized");
 		}
 		StatementPatternCardinalityCalculator.Factory spcalcFactory = () -> new HalyardStatsBasedStatementPatternCardinalityCalculator(new HBaseTripleSource(keyspace.getConnection(), valueFactory, stmtIndices, evaluationTimeoutSecs),
-				rdfFactory, statisticsCache);
+				HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionIriTransformer(rdfFactory), statisticsCache, characteristicSetsCache, statsDeltas ? keyspace.getConnection() : null);
 		ServiceStatisticsProvider srvStatsProvider = new ServiceStatisticsProvider() {
 			final Map<String, Optional<ExtendedEvaluationStatistics>> serviceToStats = new ConcurrentHashMap<>();
 
@@ -608,10 +709,13 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 			try (KeyspaceConnection keyspaceConn = keyspace.getConnection()) {
 				rdfFactory = RDFFactory.create(keyspaceConn);
 			}
+			if (rdfFactory.hasValueDictionary()) {
+				dictionaryConn = keyspace.getConnection();
+			}
 		} catch (IOException e) {
 			throw new SailException(e);
 		}
-		stmtIndices = new StatementIndices(conf, rdfFactory);
+		stmtIndices = new StatementIndices(conf, rdfFactory, dictionaryConn);
 		valueFactory = new IdValueFactory(rdfFactory);
 
 		if (federatedServiceResolver == null) {
@@ -788,6 +892,13 @@ public class HBaseSail implements BindingSetConsumerSail, BindingSetPipeSail, Sp
 			((AbstractFederatedServiceResolver) federatedServiceResolver).shutDown();
 			federatedServiceResolver = null;
 		}
+		if (dictionaryConn != null) {
+			try {
+				dictionaryConn.close();
+			} catch (IOException ignore) {
+			}
+			dictionaryConn = null;
+		}
 		if (!hConnectionIsShared) {
 
 			if (hConnection != null) {
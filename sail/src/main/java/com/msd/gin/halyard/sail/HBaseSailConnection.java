@@ -19,6 +19,10 @@ package com.msd.gin.halyard.sail;
 import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.common.KeyspaceConnection;
 import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.RDFObject;
+import com.msd.gin.halyard.common.RDFPredicate;
+import com.msd.gin.halyard.common.RDFSubject;
+import com.msd.gin.halyard.common.StatementDeleteEndpoint;
 import com.msd.gin.halyard.common.StatementIndices;
 import com.msd.gin.halyard.common.Timestamped;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
@@ -42,10 +46,13 @@ import com.msd.gin.halyard.strategy.HalyardEvaluationStrategy;
 import com.msd.gin.halyard.util.MBeanManager;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -58,6 +65,8 @@ import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
 import org.eclipse.rdf4j.common.iteration.EmptyIteration;
@@ -109,7 +118,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 
 	public static final String SOURCE_STRING_BINDING = internalBinding("source");
 	public static final String UPDATE_PART_BINDING = internalBinding("update_part");
-	private static final int NO_UPDATE_PARTS = -1;
+	static final int NO_UPDATE_PARTS = -1;
 	public static final String FORK_INDEX_BINDING = internalBinding("fork_index");
 	private static final String CONNECTION_ID_ATTRIBUTE = "connectionId";
 
@@ -129,6 +138,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 	private HalyardEvaluationExecutor executor;
 	private boolean executorIsShared;
 	private BufferedMutator mutator;
+	private final StatisticsDeltaTracker statsDeltaTracker;
 	private int pendingUpdateCount;
 	private boolean flushWritesBeforeReads = true;
 	private KeyValueMapper insertCurrentKeyValueMapper;
@@ -153,6 +163,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		this.usePush = sail.pushStrategy;
 		this.executor = executor;
 		this.executorIsShared = (executor != null);
+		this.statsDeltaTracker = sail.newStatisticsDeltaTracker();
 		// tables are lightweight but not thread-safe so get a new instance per sail
 		// connection
 		this.keyspaceConn = sail.keyspace.getConnection();
@@ -247,6 +258,7 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		beginTimestamp = Timestamped.NOT_SET;
 		try {
 			flush();
+			flushStatisticsDeltas();
 			if (!executorIsShared && executor != null) {
 				executor.shutdown();
 				executor = null;
@@ -440,12 +452,26 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 			LOGGER.debug("Partition index is {}", forkIndex);
 		}
 
+		ResultCache.Key resultKey = null;
+		if (sail.resultCache != null && sourceString != null && updatePart == NO_UPDATE_PARTS && !isPartitioned && !(tupleExpr instanceof ServiceRoot) && ResultCache.isCacheable(tupleExpr)) {
+			resultKey = sail.resultCache.newKey(sourceString, dataset, queryBindings, includeInferred);
+			List<BindingSet> cachedResults = sail.resultCache.get(resultKey, sail.getValueFactory());
+			if (cachedResults != null) {
+				LOGGER.debug("Query results (cached): {}", cachedResults.size());
+				HBaseSail.QueryInfo queryInfo = sail.trackQuery(this, sourceString, tupleExpr, tupleExpr);
+				return evaluator.evaluate(tupleExpr, ResultCache.replay(cachedResults), queryInfo);
+			}
+		}
+
 		HBaseTripleSource tripleSource = sail.createTripleSource(keyspaceConn, includeInferred, forkIndex);
 		EvaluationStrategy strategy = createEvaluationStrategy(tripleSource, dataset, isPartitioned);
 
 		TupleExpr optimizedTree = getOptimizedQuery(sourceString, updatePart, tupleExpr, dataset, queryBindings, includeInferred, isPartitioned, tripleSource, strategy);
 		QueryEvaluationContext evalContext = new QueryEvaluationContext.Minimal(dataset, tripleSource.getValueFactory());
 		QueryEvaluationStep step = strategy.precompile(optimizedTree, evalContext);
+		if (resultKey != null) {
+			step = sail.resultCache.record(resultKey, step);
+		}
 		HBaseSail.QueryInfo queryInfo = sail.trackQuery(this, sourceString, tupleExpr, optimizedTree);
 		return evaluator.evaluate(optimizedTree, step, queryInfo);
 	}
@@ -509,55 +535,59 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 
 			if (sail.evaluationTimeoutSecs > 0) {
 				// try to find them manually if there are no stats and there is a specific timeout
-				class StatementScanner extends AbstractStatementScanner {
-					final ResultScanner rs;
-
-					StatementScanner(RDFFactory rdfFactory) throws IOException {
-						super(sail.getStatementIndices(), sail.getValueFactory());
-						rs = keyspaceConn.getScanner(sail.getStatementIndices().getCSPOIndex().scan());
-					}
-
+				CloseableIteration<Resource> ctxIter = scanContexts();
+				return new TimeLimitIteration<Resource>(ctxIter, TimeUnit.SECONDS.toMillis(sail.evaluationTimeoutSecs)) {
 					@Override
-					protected Result nextResult() {
-						try {
-							return rs.next();
-						} catch (IOException ioe) {
-							throw new QueryEvaluationException(ioe);
-						}
+					protected void throwInterruptedException() {
+						throw new SailException(String.format("Evaluation exceeded specified timeout %ds", sail.evaluationTimeoutSecs));
 					}
+				};
+			} else {
+				return new EmptyIteration<>();
+			}
+		}
+    }
 
-					@Override
-					protected void handleClose() {
-						rs.close();
-					}
-				}
+	private CloseableIteration<Resource> scanContexts() {
+		class StatementScanner extends AbstractStatementScanner {
+			final ResultScanner rs;
+
+			StatementScanner() throws IOException {
+				super(sail.getStatementIndices(), sail.getValueFactory());
+				rs = keyspaceConn.getScanner(sail.getStatementIndices().getCSPOIndex().scan());
+			}
 
+			@Override
+			protected Result nextResult() {
 				try {
-					return new TimeLimitIteration<Resource>(
-							new ReducedIteration<Resource>(new ConvertingIteration<Statement, Resource>(new ExceptionConvertingIteration<Statement, SailException>(new StatementScanner(sail.getRDFFactory())) {
-								@Override
-								protected SailException convert(RuntimeException e) {
-									return new SailException(e);
-								}
-							}) {
-								@Override
-								protected Resource convert(Statement stmt) {
-									return stmt.getContext();
-								}
-							}), TimeUnit.SECONDS.toMillis(sail.evaluationTimeoutSecs)) {
-						@Override
-						protected void throwInterruptedException() {
-							throw new SailException(String.format("Evaluation exceeded specified timeout %ds", sail.evaluationTimeoutSecs));
-						}
-					};
+					return rs.next();
 				} catch (IOException ioe) {
-					throw new SailException(ioe);
+					throw new QueryEvaluationException(ioe);
 				}
-			} else {
-				return new EmptyIteration<>();
+			}
+
+			@Override
+			protected void handleClose() {
+				rs.close();
 			}
 		}
-    }
+
+		try {
+			return new ReducedIteration<Resource>(new ConvertingIteration<Statement, Resource>(new ExceptionConvertingIteration<Statement, SailException>(new StatementScanner()) {
+				@Override
+				protected SailException convert(RuntimeException e) {
+					return new SailException(e);
+				}
+			}) {
+				@Override
+				protected Resource convert(Statement stmt) {
+					return stmt.getContext();
+				}
+			});
+		} catch (IOException ioe) {
+			throw new SailException(ioe);
+		}
+	}
 
     @Override
 	public CloseableIteration<? extends Statement> getStatements(Resource subj, IRI pred, Value obj, boolean includeInferred, Resource... contexts) throws SailException {
@@ -645,6 +675,9 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 				pendingUpdateCount = 0;
 			} catch (IOException e) {
 				throw new SailException(e);
+			} finally {
+				// invalidate once per flush (even a failed one might have written something)
+				sail.dataModified();
 			}
 		}
     }
@@ -656,8 +689,20 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
     @Override
     public void commit() throws SailException {
 		beginTimestamp = Timestamped.NOT_SET;
+		flush();
+		flushStatisticsDeltas();
     }
 
+	private void flushStatisticsDeltas() throws SailException {
+		if (statsDeltaTracker != null) {
+			try {
+				statsDeltaTracker.flush();
+			} catch (IOException e) {
+				throw new SailException(e);
+			}
+		}
+	}
+
     @Override
     public void rollback() throws SailException {
 		beginTimestamp = Timestamped.NOT_SET;
@@ -719,6 +764,9 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
         try {
 			for (Resource ctx : contexts) {
 				insertStatement(subj, pred, obj, ctx, timestamp, insertCurrentKeyValueMapper);
+				if (statsDeltaTracker != null) {
+					statsDeltaTracker.statementAdded(subj, pred, obj, ctx);
+				}
 			}
         } catch (IOException e) {
             throw new SailException(e);
@@ -730,6 +778,9 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		long timestamp = getTimestamp(updateTimestamp, false);
 		try {
 			insertStatement(subj, pred, obj, ctx, timestamp, insertCurrentKeyValueMapper);
+			if (statsDeltaTracker != null) {
+				statsDeltaTracker.statementAdded(subj, pred, obj, ctx);
+			}
 		} catch (IOException e) {
 			throw new SailException(e);
 		}
@@ -794,6 +845,9 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		try {
 			for (Resource ctx : contexts) {
 				deleteStatement(subj, pred, obj, ctx, timestamp, deleteCurrentKeyValueMapper);
+				if (statsDeltaTracker != null) {
+					statsDeltaTracker.statementRemoved(subj, pred, obj, ctx);
+				}
 			}
 			if (subj.isTriple()) {
 				removeTriple((Triple) subj, timestamp);
@@ -813,6 +867,9 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 			return -1L;
 		} else {
 			final long timestamp = getTimestamp(updateTimestamp, true);
+			if (sail.serverSideDelete && (contexts == null || Arrays.stream(contexts).noneMatch(Objects::isNull))) {
+				return removeStatementsServerSide(subjPattern, predPattern, objPattern, contexts, timestamp);
+			}
 			long counter = 0L;
 
 			final class TripleSet {
@@ -847,6 +904,9 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 					IRI pred = st.getPredicate();
 					Value obj = st.getObject();
 					deleteStatement(subj, pred, obj, st.getContext(), timestamp, deleteCurrentKeyValueMapper);
+					if (statsDeltaTracker != null) {
+						statsDeltaTracker.statementRemoved(subj, pred, obj, st.getContext());
+					}
 					if (subj.isTriple()) {
 						triples.add((Triple) subj);
 					}
@@ -863,6 +923,37 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 		}
 	}
 
+	/**
+	 * Deletes the matching statements via {@link StatementDeleteEndpoint}, which must be loaded on the table.
+	 */
+	private long removeStatementsServerSide(@Nullable Resource subjPattern, @Nullable IRI predPattern, @Nullable Value objPattern, @Nullable Resource[] contexts, long timestamp) throws SailException {
+		// apply any pending writes first
+		flush();
+		RDFFactory rdfFactory = sail.getRDFFactory();
+		RDFSubject subj = rdfFactory.createSubject(subjPattern);
+		RDFPredicate pred = rdfFactory.createPredicate(predPattern);
+		RDFObject obj = rdfFactory.createObject(objPattern);
+		List<Resource> ctxs = (contexts == null || contexts.length == 0) ? Collections.singletonList(null) : Arrays.asList(contexts);
+		long counter = 0L;
+		try (Table table = sail.getTable()) {
+			for (Resource ctx : ctxs) {
+				Scan scan = sail.getStatementIndices().scan(subj, pred, obj, rdfFactory.createContext(ctx));
+				if (scan != null) {
+					long deleted = StatementDeleteEndpoint.deleteStatements(table, scan, timestamp);
+					if (statsDeltaTracker != null) {
+						statsDeltaTracker.statementsRemoved(predPattern, objPattern, ctx, deleted);
+					}
+					counter += deleted;
+				}
+			}
+		} catch (IOException e) {
+			throw new SailException(e);
+		} finally {
+			sail.dataModified();
+		}
+		return counter;
+	}
+
 	private void removeTriple(Triple t, Long timestamp) throws IOException {
 		flush();
 		if (!sail.getStatementIndices().isTripleReferenced(keyspaceConn, t)) {
@@ -930,8 +1021,14 @@ public class HBaseSailConnection extends AbstractSailConnection implements Bindi
 	private void clearAllStatements() throws SailException {
         try {
 			HalyardTableUtils.clearStatements(sail.hConnection, sail.tableName);
+			if (statsDeltaTracker != null) {
+				// the stored statistics and deltas have been truncated along with everything else
+				statsDeltaTracker.reset();
+			}
         } catch (IOException ex) {
             throw new SailException(ex);
+        } finally {
+			sail.dataModified();
         }
     }
 
@@ -30,6 +30,14 @@ public interface HBaseSailMXBean {
 
 	int getConnectionCount();
 
+	long getIngestedStatementCount();
+
+	long getIngestedBytes();
+
+	long getValueCacheHitCount();
+
+	long getValueCacheMissCount();
+
 	void killConnection(String id);
 
 	void clearQueryCache();
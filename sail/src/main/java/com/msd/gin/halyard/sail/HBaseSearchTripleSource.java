@@ -22,6 +22,7 @@ import com.msd.gin.halyard.common.KeyspaceConnection;
 import com.msd.gin.halyard.common.RDFObject;
 import com.msd.gin.halyard.common.StatementIndices;
 import com.msd.gin.halyard.query.algebra.evaluation.QueryPreparer;
+import com.msd.gin.halyard.query.algebra.evaluation.StatementOrdering;
 import com.msd.gin.halyard.sail.geosparql.WithinDistanceInterpreter;
 import com.msd.gin.halyard.sail.search.KNNInterpreter;
 import com.msd.gin.halyard.sail.search.SearchClient;
@@ -79,6 +80,20 @@ public class HBaseSearchTripleSource extends HBaseTripleSource {
 		}
 	}
 
+	@Override
+	protected boolean isBatchable(Resource subj, IRI pred, Value obj) {
+		return !HalyardEvaluationStrategy.isSearchStatement(obj);
+	}
+
+	@Override
+	public StatementOrdering getStatementOrdering(Resource subj, IRI pred, Value obj, Resource... contexts) {
+		if (HalyardEvaluationStrategy.isSearchStatement(obj)) {
+			return null;
+		} else {
+			return super.getStatementOrdering(subj, pred, obj, contexts);
+		}
+	}
+
 	@Override
 	protected CloseableIteration<? extends Statement> createStatementScanner(Resource subj, IRI pred, Value obj, List<Resource> contexts) throws QueryEvaluationException {
 		if (HalyardEvaluationStrategy.isSearchStatement(obj)) {
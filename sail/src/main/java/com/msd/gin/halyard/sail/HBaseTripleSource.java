@@ -28,13 +28,17 @@ import com.msd.gin.halyard.common.TimestampedValueFactory;
 import com.msd.gin.halyard.model.TermRole;
 import com.msd.gin.halyard.model.ValueConstraint;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
+import com.msd.gin.halyard.query.algebra.evaluation.BatchTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.CloseableTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.ExtendedTripleSource;
+import com.msd.gin.halyard.query.algebra.evaluation.OrderedTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.PartitionableTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.PartitionedIndex;
 import com.msd.gin.halyard.query.algebra.evaluation.QueryPreparer;
+import com.msd.gin.halyard.query.algebra.evaluation.StatementOrdering;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
@@ -45,14 +49,22 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.MultiRowRangeFilter;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.common.iteration.ConvertingIteration;
+import org.eclipse.rdf4j.common.iteration.EmptyIteration;
 import org.eclipse.rdf4j.common.iteration.ExceptionConvertingIteration;
 import org.eclipse.rdf4j.common.iteration.FilterIteration;
+import org.eclipse.rdf4j.common.iteration.LookAheadIteration;
 import org.eclipse.rdf4j.common.iteration.TimeLimitIteration;
+import org.eclipse.rdf4j.common.iteration.UnionIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
@@ -70,7 +82,7 @@ import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSource, PartitionableTripleSource, CloseableTripleSource {
+public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSource, PartitionableTripleSource, BatchTripleSource, OrderedTripleSource, CloseableTripleSource {
 	private static final Logger LOG = LoggerFactory.getLogger(HBaseTripleSource.class);
 
 	protected final KeyspaceConnection keyspaceConn;
@@ -201,6 +213,97 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 		return new StatementScanner(subj, pred, obj, contexts);
 	}
 
+	/**
+	 * Looks up the given patterns using a single multi-range scan.
+	 * Patterns that can't be expressed as a simple row range are looked up individually.
+	 */
+	@Override
+	public final CloseableIteration<Match> getStatements(List<Lookup> lookups) throws QueryEvaluationException {
+		List<LookupRange> ranges = new ArrayList<>(lookups.size());
+		List<Scan> scans = new ArrayList<>(lookups.size());
+		List<CloseableIteration<Match>> iters = new ArrayList<>(1);
+		for (int i=0; i<lookups.size(); i++) {
+			Lookup lookup = lookups.get(i);
+			Resource subj = lookup.getSubject();
+			IRI pred = lookup.getPredicate();
+			Value obj = lookup.getObject();
+			if (RDF.TYPE.equals(pred) && SPIN.MAGIC_PROPERTY_CLASS.equals(obj)) {
+				continue;
+			}
+			QueryContexts queryContexts = new QueryContexts(lookup.getContexts());
+			List<Scan> lookupScans = (queryContexts.contextsToFilter == null && isBatchable(subj, pred, obj)) ? new ArrayList<>(queryContexts.contextsToScan.size()) : null;
+			if (lookupScans != null) {
+				RDFSubject subject = rdfFactory.createSubject(subj);
+				RDFPredicate predicate = rdfFactory.createPredicate(pred);
+				RDFObject object = rdfFactory.createObject(obj);
+				for (Resource ctx : queryContexts.contextsToScan) {
+					Scan scan = scan(subject, predicate, object, rdfFactory.createContext(ctx));
+					if (scan != null) {
+						Filter filter = scan.getFilter();
+						if (filter != null && !(filter instanceof ColumnPrefixFilter)) {
+							// not a plain row range
+							lookupScans = null;
+							break;
+						}
+						lookupScans.add(scan);
+					}
+				}
+			}
+			if (lookupScans != null) {
+				for (int j=0; j<lookupScans.size(); j++) {
+					Scan scan = lookupScans.get(j);
+					ranges.add(new LookupRange(i, subj, pred, obj, queryContexts.contextsToScan.get(j), scan));
+					scans.add(scan);
+				}
+			} else {
+				int index = i;
+				iters.add(new ConvertingIteration<Statement, Match>(getStatementsInternal(subj, pred, obj, queryContexts)) {
+					@Override
+					protected Match convert(Statement stmt) {
+						return new Match(index, stmt);
+					}
+				});
+			}
+		}
+		if (!scans.isEmpty()) {
+			Scan scan = HalyardTableUtils.scanRanges(scans);
+			applySettings(scan);
+			iters.add(timeLimit(new ExceptionConvertingIteration<Match, QueryEvaluationException>(new BatchStatementScanner(scan, ranges)) {
+				@Override
+				protected QueryEvaluationException convert(RuntimeException e) {
+					return new QueryEvaluationException(e);
+				}
+			}, timeoutSecs));
+		}
+		if (iters.isEmpty()) {
+			return new EmptyIteration<>();
+		} else if (iters.size() == 1) {
+			return iters.get(0);
+		} else {
+			return new UnionIteration<>(iters);
+		}
+	}
+
+	/**
+	 * Statements are returned in row key order if they come from a single scan.
+	 */
+	@Override
+	public StatementOrdering getStatementOrdering(Resource subj, IRI pred, Value obj, Resource... contexts) {
+		if (contexts.length > 1) {
+			// one scan per context
+			return null;
+		}
+		Resource ctx = (contexts.length == 1) ? contexts[0] : null;
+		return stmtIndices.getStatementOrdering(rdfFactory.createSubject(subj), rdfFactory.createPredicate(pred), rdfFactory.createObject(obj), rdfFactory.createContext(ctx));
+	}
+
+	/**
+	 * Returns false if the pattern must not be included in a batched scan.
+	 */
+	protected boolean isBatchable(Resource subj, IRI pred, Value obj) {
+		return true;
+	}
+
 	protected boolean hasStatementInternal(Resource subj, IRI pred, Value obj, QueryContexts queryContexts) throws QueryEvaluationException {
 		if (queryContexts.contextsToFilter != null) {
 			// not possible to optimise
@@ -264,6 +367,12 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 				applySettings(scan);
 				return scan;
 			}
+
+			@Override
+			public StatementOrdering getStatementOrdering(Resource subj, IRI pred, Value obj, Resource... contexts) {
+				// constrained scans may use a different index
+				return null;
+			}
 		};
 	}
 
@@ -344,6 +453,116 @@ public class HBaseTripleSource implements ExtendedTripleSource, RDFStarTripleSou
 		}
 	}
 
+	private static final class LookupRange {
+		final int index;
+		final Resource subj;
+		final IRI pred;
+		final Value obj;
+		final Resource ctx;
+		final MultiRowRangeFilter.RowRange rowRange;
+
+		LookupRange(int index, Resource subj, IRI pred, Value obj, Resource ctx, Scan scan) {
+			this.index = index;
+			this.subj = subj;
+			this.pred = pred;
+			this.obj = obj;
+			this.ctx = ctx;
+			this.rowRange = new MultiRowRangeFilter.RowRange(scan.getStartRow(), scan.includeStartRow(), scan.getStopRow(), scan.includeStopRow());
+		}
+
+		boolean startsBeforeOrAt(byte[] row) {
+			return Bytes.compareTo(rowRange.getStartRow(), row) <= 0;
+		}
+
+		boolean endsBefore(byte[] row) {
+			byte[] stopRow = rowRange.getStopRow();
+			if (stopRow.length == 0) {
+				return false;
+			}
+			int cmp = Bytes.compareTo(stopRow, row);
+			return cmp < 0 || (cmp == 0 && !rowRange.isStopRowInclusive());
+		}
+
+		boolean matches(Statement stmt) {
+			return (subj == null || subj.equals(stmt.getSubject()))
+				&& (pred == null || pred.equals(stmt.getPredicate()))
+				&& (obj == null || obj.equals(stmt.getObject()))
+				&& (ctx == null || ctx.equals(stmt.getContext()));
+		}
+	}
+
+	/**
+	 * Scans a set of row ranges and assigns the statements back to the lookups they belong to.
+	 * Relies on rows being returned in ascending order.
+	 */
+	private final class BatchStatementScanner extends LookAheadIteration<Match> {
+		private final Scan scan;
+		private final List<LookupRange> ranges;
+		private final List<LookupRange> activeRanges = new ArrayList<>();
+		private int nextRange = 0;
+		private ResultScanner rs = null;
+		private List<Match> matches = Collections.emptyList();
+		private int matchIndex = 0;
+
+		BatchStatementScanner(Scan scan, List<LookupRange> ranges) {
+			this.scan = scan;
+			this.ranges = new ArrayList<>(ranges);
+			this.ranges.sort((r1, r2) -> r1.rowRange.compareTo(r2.rowRange));
+		}
+
+		@Override
+		protected Match getNextElement() {
+			try {
+				while (matchIndex >= matches.size()) {
+					if (rs == null) {
+						rs = keyspaceConn.getScanner(scan);
+					}
+					Result res = rs.next();
+					if (ticker != null) {
+						ticker.tick(); // sends a tick for keep alive purposes
+					}
+					if (res == null) {
+						return null;
+					}
+					matches = parseMatches(res);
+					matchIndex = 0;
+				}
+				return matches.get(matchIndex++);
+			} catch (IOException ioe) {
+				throw new QueryEvaluationException(ioe);
+			}
+		}
+
+		private List<Match> parseMatches(Result res) {
+			if (res.isEmpty()) {
+				return Collections.emptyList();
+			}
+			byte[] row = res.getRow();
+			while (nextRange < ranges.size() && ranges.get(nextRange).startsBeforeOrAt(row)) {
+				activeRanges.add(ranges.get(nextRange++));
+			}
+			activeRanges.removeIf(range -> range.endsBefore(row));
+			List<Match> resMatches = new ArrayList<>();
+			for (Cell cell : res.rawCells()) {
+				Statement stmt = stmtIndices.parseStatement(null, null, null, null, cell, vf);
+				for (LookupRange range : activeRanges) {
+					if (range.rowRange.contains(row) && range.matches(stmt)) {
+						resMatches.add(new Match(range.index, stmt));
+					}
+				}
+			}
+			return resMatches;
+		}
+
+		@Override
+		protected void handleClose() {
+			if (rs != null) {
+				rs.close();
+				rs = null;
+			}
+		}
+	}
+
 	@Override
 	public final CloseableIteration<? extends Triple> getRdfStarTriples(Resource subj, IRI pred, Value obj) throws QueryEvaluationException {
 		CloseableIteration<? extends Triple> iter = new ConvertingIteration<Statement, Triple>(
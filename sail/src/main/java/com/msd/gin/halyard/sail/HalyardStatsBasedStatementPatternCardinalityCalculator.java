@@ -18,18 +18,24 @@ package com.msd.gin.halyard.sail;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.msd.gin.halyard.common.KeyspaceConnection;
 import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.StatisticsDeltas;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.optimizers.SchemaBasedStatementPatternCardinalityCalculator;
 import com.msd.gin.halyard.query.algebra.evaluation.CloseableTripleSource;
 import com.msd.gin.halyard.vocab.VOID_EXT;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -76,6 +82,7 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 		mapping.put(VOID.PROPERTY, VOID.PROPERTY_PARTITION);
 		mapping.put(VOID_EXT.OBJECT, VOID_EXT.OBJECT_PARTITION);
 		mapping.put(VOID.CLASS, VOID.CLASS_PARTITION);
+		mapping.put(VOID_EXT.CHARACTERISTIC_SET, VOID_EXT.CHARACTERISTIC_SET_PARTITION);
 		return Collections.unmodifiableMap(mapping);
 	}
 
@@ -100,7 +107,10 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 		}
 
 		public final String getGraph(Resource partitionIri) {
-			String partitionString = partitionIri.stringValue();
+			return getGraph(partitionIri.stringValue());
+		}
+
+		private String getGraph(String partitionString) {
 			if (!isPartitionIri(partitionString)) {
 				return null;
 			}
@@ -108,7 +118,9 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 			if (idSepPos != -1) {
 				int ptSepPos = partitionString.lastIndexOf(",", idSepPos - 1);
 				if (ptSepPos != -1) {
-					return partitionString.substring(HALYARD.DATASET_NS.length(), ptSepPos);
+					String graph = partitionString.substring(HALYARD.DATASET_NS.length(), ptSepPos);
+					// partitions of partitions
+					return isPartitionIri(graph) ? getGraph(graph) : graph;
 				}
 			}
 			return null;
@@ -132,21 +144,52 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 	}
 
 	static Cache<Pair<IRI, IRI>, Long> newStatisticsCache() {
-		return Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(1L, TimeUnit.DAYS).build();
+		return newStatisticsCache(1L, TimeUnit.DAYS);
+	}
+
+	static Cache<Pair<IRI, IRI>, Long> newStatisticsCache(long expiry, TimeUnit unit) {
+		return Caffeine.newBuilder().maximumSize(1000).expireAfterWrite(expiry, unit).build();
+	}
+
+	static Cache<IRI, CharacteristicSets> newCharacteristicSetsCache() {
+		return newCharacteristicSetsCache(1L, TimeUnit.DAYS);
+	}
+
+	static Cache<IRI, CharacteristicSets> newCharacteristicSetsCache(long expiry, TimeUnit unit) {
+		return Caffeine.newBuilder().maximumSize(100).expireAfterWrite(expiry, unit).build();
 	}
 
 	private final CloseableTripleSource statsSource;
 	private final PartitionIriTransformer partitionIriTransformer;
 	private final Cache<Pair<IRI, IRI>, Long> stmtCountCache;
+	private final Cache<IRI, CharacteristicSets> csCache;
+	private final KeyspaceConnection deltasConn;
 
 	public HalyardStatsBasedStatementPatternCardinalityCalculator(CloseableTripleSource statsSource, RDFFactory rdfFactory, Cache<Pair<IRI, IRI>, Long> stmtCountCache) {
 		this(statsSource, createPartitionIriTransformer(rdfFactory), stmtCountCache);
 	}
 
 	public HalyardStatsBasedStatementPatternCardinalityCalculator(CloseableTripleSource statsSource, PartitionIriTransformer partitionIriTransformer, Cache<Pair<IRI, IRI>, Long> stmtCountCache) {
+		this(statsSource, partitionIriTransformer, stmtCountCache, null);
+	}
+
+	/**
+	 * @param deltasConn optional connection to read incrementally maintained {@link StatisticsDeltas} from, closed with the calculator.
+	 */
+	public HalyardStatsBasedStatementPatternCardinalityCalculator(CloseableTripleSource statsSource, PartitionIriTransformer partitionIriTransformer, Cache<Pair<IRI, IRI>, Long> stmtCountCache, @Nullable KeyspaceConnection deltasConn) {
+		this(statsSource, partitionIriTransformer, stmtCountCache, newCharacteristicSetsCache(), deltasConn);
+	}
+
+	/**
+	 * @param csCache cache of the characteristic sets of each graph.
+	 * @param deltasConn optional connection to read incrementally maintained {@link StatisticsDeltas} from, closed with the calculator.
+	 */
+	public HalyardStatsBasedStatementPatternCardinalityCalculator(CloseableTripleSource statsSource, PartitionIriTransformer partitionIriTransformer, Cache<Pair<IRI, IRI>, Long> stmtCountCache, Cache<IRI, CharacteristicSets> csCache, @Nullable KeyspaceConnection deltasConn) {
 		this.statsSource = statsSource;
 		this.partitionIriTransformer = partitionIriTransformer;
 		this.stmtCountCache = stmtCountCache;
+		this.csCache = csCache;
+		this.deltasConn = deltasConn;
 	}
 
 	@Override
@@ -205,6 +248,9 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 					int schemaCardinality = (pred != null) ? getSchemaPredicateCardinality(pred) : -1;
 					if (schemaCardinality != -1) {
 						card = schemaCardinality;
+					} else if (subj == null && pred != null && hasPartitionValue(graphNode, VOID.PROPERTY, pred, VOID.DISTINCT_SUBJECTS)) {
+						// average number of objects per subject (distinct subjects are only available from sketches)
+						card = getPartitionedCardinality(graphNode, VOID.PROPERTY, pred, VOID.DISTINCT_SUBJECTS, triples, defaultCardinality);
 					} else {
 						card = subsetTriples(graphNode, VOID_EXT.SUBJECT, subj, VOID.PROPERTIES, VOID.PROPERTY, pred, VOID.DISTINCT_OBJECTS, triples, defaultCardinality);
 					}
@@ -219,7 +265,12 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 				if (RDF.TYPE.equals(pred) && obj != null) {
 					card = classPartitionEntities(graphNode, obj, defaultCardinality);
 				} else {
-					card = subsetTriples(graphNode, VOID.PROPERTY, pred, VOID.DISTINCT_OBJECTS, VOID_EXT.OBJECT, obj, VOID.DISTINCT_SUBJECTS, triples, defaultCardinality);
+					Double mostCommonObjectsCard = (pred != null) ? getMostCommonObjectsCardinality(graphNode, pred, obj) : null;
+					if (mostCommonObjectsCard != null) {
+						card = mostCommonObjectsCard;
+					} else {
+						card = subsetTriples(graphNode, VOID.PROPERTY, pred, VOID.DISTINCT_OBJECTS, VOID_EXT.OBJECT, obj, VOID.DISTINCT_SUBJECTS, triples, defaultCardinality);
+					}
 				}
 			} else {
 				card = subsetTriples(graphNode, VOID.PROPERTY, pred, triples, defaultCardinality);
@@ -245,23 +296,20 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 			Long count = stmtCountCache.get(Pair.of(subjectNode, countPredicate), subjPred -> {
 				IRI statsNode = subjPred.getLeft();
 				IRI statsPred = subjPred.getRight();
-				try (CloseableIteration<? extends Statement> ci = statsSource.getStatements(statsNode, statsPred, null, HALYARD.STATS_GRAPH_CONTEXT)) {
-					if (ci.hasNext()) {
-						Value v = ci.next().getObject();
-						if (v.isLiteral()) {
-							try {
-								long l = ((Literal) v).longValue();
-								LOG.trace("{} statistics for {} = {}", statsPred, statsNode, l);
-								return l;
-							} catch (NumberFormatException ignore) {
-								LOG.warn("Invalid {} statistics for {}: {}", statsPred, statsNode, v, ignore);
-							}
-						}
-						LOG.warn("Invalid {} statistics for {}: {}", statsPred, statsNode, v);
+				Long value = getStoredValue(statsNode, statsPred);
+				if (deltasConn != null && (VOID.TRIPLES.equals(statsPred) || VOID.ENTITIES.equals(statsPred))) {
+					Long delta;
+					try {
+						delta = StatisticsDeltas.get(deltasConn, statsNode.stringValue(), statsPred);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					if (delta != null) {
+						LOG.trace("{} statistics delta for {} = {}", statsPred, statsNode, delta);
+						value = Math.max(0L, (value != null ? value : 0L) + delta);
 					}
 				}
-				LOG.trace("{} statistics for {} are not available", statsPred, statsNode);
-				return null;
+				return value;
 			});
 			return (count != null) ? count.longValue() : defaultValue;
 		} catch (Exception e) {
@@ -270,6 +318,27 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 		}
 	}
 
+	@Nullable
+	private Long getStoredValue(IRI statsNode, IRI statsPred) {
+		try (CloseableIteration<? extends Statement> ci = statsSource.getStatements(statsNode, statsPred, null, HALYARD.STATS_GRAPH_CONTEXT)) {
+			if (ci.hasNext()) {
+				Value v = ci.next().getObject();
+				if (v.isLiteral()) {
+					try {
+						long l = ((Literal) v).longValue();
+						LOG.trace("{} statistics for {} = {}", statsPred, statsNode, l);
+						return l;
+					} catch (NumberFormatException ignore) {
+						LOG.warn("Invalid {} statistics for {}: {}", statsPred, statsNode, v, ignore);
+					}
+				}
+				LOG.warn("Invalid {} statistics for {}: {}", statsPred, statsNode, v);
+			}
+		}
+		LOG.trace("{} statistics for {} are not available", statsPred, statsNode);
+		return null;
+	}
+
 	/**
 	 * How many triples are there with one role known?
 	 */
@@ -356,6 +425,11 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 		}
 	}
 
+	private boolean hasPartitionValue(IRI graph, IRI partitionType, @Nonnull Value partition, IRI countPredicate) {
+		IRI partitionIri = statsSource.getValueFactory().createIRI(partitionIriTransformer.apply(graph, partitionType, partition));
+		return getValue(partitionIri, countPredicate, -1L) != -1L;
+	}
+
 	private double getDistinctCount(IRI graph, IRI partitionType, @Nonnull Value partition, IRI distinctType, long defaultCardinality) {
 		IRI partitionIri = statsSource.getValueFactory().createIRI(partitionIriTransformer.apply(graph, partitionType, partition));
 		long distinctCount = getValue(partitionIri, distinctType, -1L);
@@ -367,6 +441,148 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 		}
 	}
 
+	/**
+	 * Estimates the number of triples with a property and an object (either known or bound to a value likely to occur in the data)
+	 * using the most common objects of the property partition.
+	 */
+	private Double getMostCommonObjectsCardinality(IRI graph, Value pred, @Nullable Value obj) {
+		IRI propertyPartitionIri = statsSource.getValueFactory().createIRI(partitionIriTransformer.apply(graph, VOID.PROPERTY, pred));
+		if (obj != null) {
+			long objCount = getTriplesCount(statsSource.getValueFactory().createIRI(partitionIriTransformer.apply(propertyPartitionIri, VOID_EXT.OBJECT, obj)), -1L);
+			if (objCount != -1L) {
+				return (double) objCount;
+			}
+		}
+		long partitionTriples = getTriplesCount(propertyPartitionIri, -1L);
+		long distinctObjects = getValue(propertyPartitionIri, VOID.DISTINCT_OBJECTS, -1L);
+		if (partitionTriples <= 0L || distinctObjects <= 0L) {
+			return null;
+		}
+		long sumxx = 0L;
+		long sumx = 0L;
+		int k = 0;
+		try (CloseableIteration<? extends Statement> iter = statsSource.getStatements(propertyPartitionIri, VOID_EXT.OBJECT_PARTITION, null, HALYARD.STATS_GRAPH_CONTEXT)) {
+			while (iter.hasNext()) {
+				long count = getTriplesCount((IRI) iter.next().getObject(), 0L);
+				sumxx += count * count;
+				sumx += count;
+				k++;
+			}
+		}
+		if (k == 0) {
+			return null;
+		}
+		// assume the remaining objects are evenly distributed
+		long restTriples = Math.max(partitionTriples - sumx, 0L);
+		long restDistinct = distinctObjects - k;
+		double restAverage = (restDistinct > 0L) ? (double) restTriples / (double) restDistinct : 0.0;
+		if (obj != null) {
+			// not one of the most common
+			return Math.max(restAverage, 1.0);
+		} else {
+			// weighted by the likelihood of each object: sum_v x_v^2 / sum x_v
+			return (sumxx + restTriples * restAverage) / partitionTriples;
+		}
+	}
+
+	/**
+	 * Estimates the cardinality of a star join using characteristic sets (sets of properties of subjects):
+	 * sum over all characteristic sets containing the properties of the number of subjects multiplied by the average number of occurrences of each property.
+	 * Only characteristic sets above the threshold are stored, so the subjects not covered by them are added assuming
+	 * each property occurs independently with its average frequency over those remaining subjects.
+	 */
+	@Override
+	public Double getStarCardinality(Var subjVar, List<Var> predVars, List<Var> objVars, Var ctxVar, Collection<String> boundVars) {
+		if (hasValue(subjVar, boundVars)) {
+			return null;
+		}
+		for (Var objVar : objVars) {
+			if (hasValue(objVar, boundVars)) {
+				return null;
+			}
+		}
+		List<IRI> preds = new ArrayList<>(predVars.size());
+		for (Var predVar : predVars) {
+			Value pred = predVar.getValue();
+			if (pred == null || !pred.isIRI()) {
+				return null;
+			}
+			preds.add((IRI) pred);
+		}
+		IRI graphNode;
+		Value contextValue = (ctxVar != null) ? ctxVar.getValue() : null;
+		if (contextValue == null) {
+			graphNode = HALYARD.STATS_ROOT_NODE;
+		} else if (contextValue.isIRI()) {
+			graphNode = (IRI) contextValue;
+		} else {
+			return null;
+		}
+
+		CharacteristicSets css;
+		try {
+			css = csCache.get(graphNode, this::loadCharacteristicSets);
+		} catch (Exception e) {
+			LOG.warn("Error retrieving characteristic sets for {}", graphNode, e);
+			return null;
+		}
+		if (css.isEmpty()) {
+			return null;
+		}
+		double card = css.getCardinality(preds);
+		// subjects whose characteristic sets were below the threshold
+		long remainingSubjects = getValue(graphNode, VOID.DISTINCT_SUBJECTS, 0L) - css.getSubjects();
+		if (remainingSubjects > 0L) {
+			double remainderCard = remainingSubjects;
+			for (IRI pred : preds) {
+				long occurrences = getTriplesCount(statsSource.getValueFactory().createIRI(partitionIriTransformer.apply(graphNode, VOID.PROPERTY, pred)), 0L);
+				long remainingOccurrences = Math.max(0L, occurrences - css.getOccurrences(pred));
+				remainderCard *= (double) remainingOccurrences / (double) remainingSubjects;
+			}
+			card += remainderCard;
+		}
+		if (card == 0.0) {
+			// no (matching) characteristic sets
+			return null;
+		}
+		LOG.debug("Cardinality of star {} {} {} = {} (characteristic sets)", subjVar, predVars, ctxVar, card);
+		return Math.ceil(card);
+	}
+
+	/**
+	 * Reads all the stored characteristic sets of a graph.
+	 */
+	private CharacteristicSets loadCharacteristicSets(IRI graphNode) {
+		CharacteristicSets.Builder builder = new CharacteristicSets.Builder();
+		try (CloseableIteration<? extends Statement> iter = statsSource.getStatements(graphNode, VOID_EXT.CHARACTERISTIC_SET_PARTITION, null, HALYARD.STATS_GRAPH_CONTEXT)) {
+			while (iter.hasNext()) {
+				IRI csIri = (IRI) iter.next().getObject();
+				Long subjects = getStoredValue(csIri, VOID.ENTITIES);
+				List<IRI> csPreds = new ArrayList<>();
+				List<Long> csOccurrences = new ArrayList<>();
+				try (CloseableIteration<? extends Statement> ppIter = statsSource.getStatements(csIri, VOID.PROPERTY_PARTITION, null, HALYARD.STATS_GRAPH_CONTEXT)) {
+					while (ppIter.hasNext()) {
+						IRI ppIri = (IRI) ppIter.next().getObject();
+						try (CloseableIteration<? extends Statement> propIter = statsSource.getStatements(ppIri, VOID.PROPERTY, null, HALYARD.STATS_GRAPH_CONTEXT)) {
+							if (propIter.hasNext()) {
+								Value pred = propIter.next().getObject();
+								if (pred.isIRI()) {
+									Long occurrences = getStoredValue(ppIri, VOID.TRIPLES);
+									csPreds.add((IRI) pred);
+									csOccurrences.add(occurrences != null ? occurrences : 0L);
+								}
+							}
+						}
+					}
+				}
+				builder.add(subjects != null ? subjects : 0L, csPreds, csOccurrences);
+			}
+		}
+		CharacteristicSets css = builder.build();
+		LOG.debug("Loaded {} characteristic sets for {}", css.size(), graphNode);
+		return css;
+	}
+
 	private double classPartitionEntities(IRI graph, Value type, long defaultCardinality) {
 		IRI partitionType = VOID.CLASS;
 		IRI classPartitionIri = statsSource.getValueFactory().createIRI(partitionIriTransformer.apply(graph, partitionType, type));
@@ -381,5 +597,132 @@ public final class HalyardStatsBasedStatementPatternCardinalityCalculator extend
 	@Override
 	public void close() throws IOException {
 		statsSource.close();
+		if (deltasConn != null) {
+			deltasConn.close();
+		}
+	}
+
+
+	/**
+	 * In-memory table of the characteristic sets of a graph.
+	 * For each property, the sets containing it are stored as sorted set indices with the occurrences of the property in each.
+	 */
+	public static final class CharacteristicSets {
+		private static final int[] NO_SETS = new int[0];
+		private static final long[] NO_OCCURRENCES = new long[0];
+
+		private final long[] setSubjects;
+		private final Map<IRI, int[]> propertySets;
+		private final Map<IRI, long[]> propertyOccurrences;
+		private final long subjects;
+
+		private CharacteristicSets(long[] setSubjects, Map<IRI, int[]> propertySets, Map<IRI, long[]> propertyOccurrences) {
+			this.setSubjects = setSubjects;
+			this.propertySets = propertySets;
+			this.propertyOccurrences = propertyOccurrences;
+			long sum = 0L;
+			for (long n : setSubjects) {
+				sum += n;
+			}
+			this.subjects = sum;
+		}
+
+		boolean isEmpty() {
+			return setSubjects.length == 0;
+		}
+
+		int size() {
+			return setSubjects.length;
+		}
+
+		/**
+		 * Total number of subjects covered by the sets.
+		 */
+		long getSubjects() {
+			return subjects;
+		}
+
+		/**
+		 * Total occurrences of a property over all the sets.
+		 */
+		long getOccurrences(IRI pred) {
+			long sum = 0L;
+			for (long n : propertyOccurrences.getOrDefault(pred, NO_OCCURRENCES)) {
+				sum += n;
+			}
+			return sum;
+		}
+
+		/**
+		 * Sum over all the sets containing all the properties of the number of subjects multiplied by the average number of occurrences of each property.
+		 */
+		double getCardinality(List<IRI> preds) {
+			// drive from the property in the fewest sets
+			IRI driver = null;
+			int[] driverSets = null;
+			for (IRI pred : preds) {
+				int[] sets = propertySets.getOrDefault(pred, NO_SETS);
+				if (driverSets == null || sets.length < driverSets.length) {
+					driver = pred;
+					driverSets = sets;
+				}
+			}
+			if (driverSets == null) {
+				return 0.0;
+			}
+			double card = 0.0;
+			for (int setIndex : driverSets) {
+				long n = setSubjects[setIndex];
+				if (n == 0L) {
+					continue;
+				}
+				double csCard = n;
+				for (IRI pred : preds) {
+					int pos = (pred == driver) ? Arrays.binarySearch(driverSets, setIndex) : Arrays.binarySearch(propertySets.getOrDefault(pred, NO_SETS), setIndex);
+					if (pos < 0) {
+						csCard = 0.0;
+						break;
+					}
+					csCard *= (double) propertyOccurrences.get(pred)[pos] / (double) n;
+				}
+				card += csCard;
+			}
+			return card;
+		}
+
+		static final class Builder {
+			private final List<Long> setSubjects = new ArrayList<>();
+			private final Map<IRI, List<long[]>> propertyEntries = new HashMap<>();
+
+			void add(long subjects, List<IRI> preds, List<Long> occurrences) {
+				int setIndex = setSubjects.size();
+				setSubjects.add(subjects);
+				for (int i = 0; i < preds.size(); i++) {
+					propertyEntries.computeIfAbsent(preds.get(i), k -> new ArrayList<>()).add(new long[] {setIndex, occurrences.get(i)});
+				}
+			}
+
+			CharacteristicSets build() {
+				long[] subjects = new long[setSubjects.size()];
+				for (int i = 0; i < subjects.length; i++) {
+					subjects[i] = setSubjects.get(i);
+				}
+				Map<IRI, int[]> propertySets = new HashMap<>(propertyEntries.size() * 2);
+				Map<IRI, long[]> propertyOccurrences = new HashMap<>(propertyEntries.size() * 2);
+				for (Map.Entry<IRI, List<long[]>> entry : propertyEntries.entrySet()) {
+					List<long[]> entries = entry.getValue();
+					int[] sets = new int[entries.size()];
+					long[] occurrences = new long[entries.size()];
+					for (int i = 0; i < sets.length; i++) {
+						long[] e = entries.get(i);
+						sets[i] = (int) e[0];
+						occurrences[i] = e[1];
+					}
+					propertySets.put(entry.getKey(), sets);
+					propertyOccurrences.put(entry.getKey(), occurrences);
+				}
+				return new CharacteristicSets(subjects, propertySets, propertyOccurrences);
+			}
+		}
 	}
 }
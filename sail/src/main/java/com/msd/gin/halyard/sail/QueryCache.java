@@ -44,7 +44,7 @@ final class QueryCache {
 		cache.invalidateAll();
 	}
 
-	private static final class PreparedQueryKey implements Serializable {
+	static final class PreparedQueryKey implements Serializable {
 		private static final long serialVersionUID = -8673870599435959092L;
 
 		final String sourceString;
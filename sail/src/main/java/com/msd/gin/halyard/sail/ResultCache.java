@@ -0,0 +1,372 @@
+package com.msd.gin.halyard.sail;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.msd.gin.halyard.common.ValueIO;
+import com.msd.gin.halyard.query.BindingSetPipe;
+import com.msd.gin.halyard.query.BindingSetPipeQueryEvaluationStep;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
+import org.eclipse.rdf4j.common.iteration.IterationWrapper;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.Dataset;
+import org.eclipse.rdf4j.query.algebra.BNodeGenerator;
+import org.eclipse.rdf4j.query.algebra.FunctionCall;
+import org.eclipse.rdf4j.query.algebra.QueryModelNode;
+import org.eclipse.rdf4j.query.algebra.Service;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.eclipse.rdf4j.query.algebra.evaluation.QueryEvaluationStep;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.Function;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.FunctionRegistry;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.datetime.Now;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.numeric.Rand;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.rdfterm.STRUUID;
+import org.eclipse.rdf4j.query.algebra.evaluation.function.rdfterm.UUID;
+import org.eclipse.rdf4j.query.algebra.helpers.AbstractQueryModelVisitor;
+
+/**
+ * Caches the complete results of read queries, serialized with {@link ValueIO} and bounded by their total size in bytes.
+ * Entries are keyed on the query and a modification watermark which is advanced whenever writes are flushed or committed
+ * through a {@link HBaseSailConnection} or {@link StreamingIngester} of the same {@link HBaseSail},
+ * so those writes make all previously cached results unreachable.
+ * Writes made by other processes (e.g. bulk loads or other endpoints) are not seen,
+ * so results can be stale for up to the expiry time ({@link EvaluationConfig#RESULT_CACHE_EXPIRY_SECS}).
+ * Queries that use non-deterministic functions (e.g. NOW() or RAND()) are never cached.
+ */
+final class ResultCache {
+	private static final ValueIO.Writer WRITER = ValueIO.getDefaultWriter();
+	private static final ValueIO.Reader READER = ValueIO.getDefaultReader();
+
+	private final Cache<Key, byte[]> cache;
+	private final int maxEntryBytes;
+	private final AtomicLong watermark = new AtomicLong();
+
+	ResultCache(long maxBytes, int maxEntryBytes, long expirySecs) {
+		this.cache = Caffeine.newBuilder().maximumWeight(maxBytes).weigher((Key k, byte[] v) -> v.length).expireAfterWrite(expirySecs, TimeUnit.SECONDS).build();
+		this.maxEntryBytes = maxEntryBytes;
+	}
+
+	Key newKey(String sourceString, Dataset dataset, BindingSet bindings, boolean includeInferred) {
+		QueryCache.PreparedQueryKey pqkey = new QueryCache.PreparedQueryKey(sourceString, HBaseSailConnection.NO_UPDATE_PARTS, dataset, bindings, includeInferred, false);
+		return new Key(pqkey, watermark.get());
+	}
+
+	/**
+	 * Called whenever the data might have changed.
+	 */
+	void invalidate() {
+		watermark.incrementAndGet();
+		if (cache.estimatedSize() > 0L) {
+			cache.invalidateAll();
+		}
+	}
+
+	void clear() {
+		cache.invalidateAll();
+	}
+
+	@Nullable
+	List<BindingSet> get(Key key, ValueFactory vf) {
+		byte[] results = cache.getIfPresent(key);
+		if (results == null) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(results))) {
+			int count = in.readInt();
+			List<BindingSet> bindingSets = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int size = in.readInt();
+				QueryBindingSet bs = new QueryBindingSet(size);
+				for (int j = 0; j < size; j++) {
+					String name = in.readUTF();
+					Value v = READER.readValueWithSizeHeader(in, vf, Integer.BYTES);
+					bs.addBinding(name, v);
+				}
+				bindingSets.add(bs);
+			}
+			return bindingSets;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Checks if the results of the query can be cached, i.e. that it doesn't use any functions that return a different value each time the query is evaluated,
+	 * and doesn't call any (possibly remote) services, anywhere in the query.
+	 */
+	static boolean isCacheable(TupleExpr tupleExpr) {
+		UncacheableNodeFinder finder = new UncacheableNodeFinder();
+		tupleExpr.visit(finder);
+		return !finder.found;
+	}
+
+	/**
+	 * Returns a step that caches the results of the given step if they are fully consumed.
+	 */
+	QueryEvaluationStep record(Key key, QueryEvaluationStep step) {
+		return new RecordingQueryEvaluationStep(key, step);
+	}
+
+	/**
+	 * Returns a step that replays cached results.
+	 */
+	static QueryEvaluationStep replay(List<BindingSet> results) {
+		return new BindingSetPipeQueryEvaluationStep() {
+			@Override
+			public CloseableIteration<BindingSet> evaluate(BindingSet bindings) {
+				return new CloseableIteratorIteration<>(results.iterator());
+			}
+
+			@Override
+			public void evaluate(BindingSetPipe parent, BindingSet bindings) {
+				for (BindingSet bs : results) {
+					if (!parent.push(bs)) {
+						break;
+					}
+				}
+				parent.close();
+			}
+
+			@Override
+			public void evaluate(Consumer<BindingSet> handler, BindingSet bindings) {
+				results.forEach(handler);
+			}
+		};
+	}
+
+
+	private static final class UncacheableNodeFinder extends AbstractQueryModelVisitor<RuntimeException> {
+		boolean found;
+
+		@Override
+		protected void meetNode(QueryModelNode node) {
+			if (!found) {
+				super.meetNode(node);
+			}
+		}
+
+		@Override
+		public void meet(FunctionCall funcCall) {
+			Function function = FunctionRegistry.getInstance().get(funcCall.getURI()).orElse(null);
+			if (function instanceof Now || function instanceof Rand || function instanceof UUID || function instanceof STRUUID) {
+				found = true;
+			} else {
+				super.meet(funcCall);
+			}
+		}
+
+		@Override
+		public void meet(BNodeGenerator node) {
+			found = true;
+		}
+
+		@Override
+		public void meet(Service node) {
+			found = true;
+		}
+	}
+
+
+	static final class Key {
+		private final QueryCache.PreparedQueryKey pqkey;
+		private final long watermark;
+
+		Key(QueryCache.PreparedQueryKey pqkey, long watermark) {
+			this.pqkey = pqkey;
+			this.watermark = watermark;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) o;
+			return this.watermark == other.watermark && this.pqkey.equals(other.pqkey);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(pqkey, watermark);
+		}
+	}
+
+
+	private final class Recorder {
+		private final Key key;
+		private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private DataOutputStream out = new DataOutputStream(bytes);
+		private final ByteBuffer tmp = ByteBuffer.allocate(ValueIO.DEFAULT_BUFFER_SIZE);
+		private int count;
+
+		Recorder(Key key) {
+			this.key = key;
+			try {
+				// placeholder for the count
+				out.writeInt(0);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		synchronized void add(BindingSet bs) {
+			if (out == null) {
+				return;
+			}
+			try {
+				out.writeInt(bs.size());
+				for (Binding b : bs) {
+					out.writeUTF(b.getName());
+					WRITER.writeValueWithSizeHeader(b.getValue(), out, Integer.BYTES, tmp);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			count++;
+			if (bytes.size() > maxEntryBytes) {
+				// too big to cache
+				abandon();
+			}
+		}
+
+		synchronized void abandon() {
+			out = null;
+			bytes = null;
+		}
+
+		synchronized void complete() {
+			if (out == null) {
+				return;
+			}
+			byte[] results = bytes.toByteArray();
+			abandon();
+			// don't cache anything that might be stale
+			if (key.watermark == watermark.get()) {
+				ByteBuffer.wrap(results, 0, Integer.BYTES).putInt(count);
+				cache.put(key, results);
+			}
+		}
+	}
+
+
+	private final class RecordingQueryEvaluationStep implements BindingSetPipeQueryEvaluationStep {
+		private final Key key;
+		private final QueryEvaluationStep step;
+
+		RecordingQueryEvaluationStep(Key key, QueryEvaluationStep step) {
+			this.key = key;
+			this.step = step;
+		}
+
+		@Override
+		public CloseableIteration<BindingSet> evaluate(BindingSet bindings) {
+			Recorder recorder = new Recorder(key);
+			return new IterationWrapper<BindingSet>(step.evaluate(bindings)) {
+				@Override
+				public boolean hasNext() {
+					if (isClosed()) {
+						return false;
+					}
+					if (wrappedIter.hasNext()) {
+						return true;
+					}
+					// NB: complete before close() abandons the recording
+					recorder.complete();
+					close();
+					return false;
+				}
+
+				@Override
+				public BindingSet next() {
+					BindingSet bs = super.next();
+					recorder.add(bs);
+					return bs;
+				}
+
+				@Override
+				protected void handleClose() {
+					try {
+						super.handleClose();
+					} finally {
+						// no-op if already complete
+						recorder.abandon();
+					}
+				}
+			};
+		}
+
+		@Override
+		public void evaluate(BindingSetPipe parent, BindingSet bindings) {
+			Recorder recorder = new Recorder(key);
+			BindingSetPipe recordingPipe = new BindingSetPipe(parent) {
+				@Override
+				protected boolean next(BindingSet bs) {
+					recorder.add(bs);
+					boolean pushMore = parent.push(bs);
+					if (!pushMore) {
+						// incomplete results
+						recorder.abandon();
+					}
+					return pushMore;
+				}
+
+				@Override
+				protected void doClose() {
+					recorder.complete();
+					super.doClose();
+				}
+
+				@Override
+				public boolean handleException(Throwable e) {
+					recorder.abandon();
+					return super.handleException(e);
+				}
+			};
+			if (step instanceof BindingSetPipeQueryEvaluationStep) {
+				((BindingSetPipeQueryEvaluationStep) step).evaluate(recordingPipe, bindings);
+			} else {
+				BindingSetPipeSailConnection.report(step.evaluate(bindings), recordingPipe);
+			}
+		}
+
+		@Override
+		public void evaluate(Consumer<BindingSet> handler, BindingSet bindings) {
+			Recorder recorder = new Recorder(key);
+			Consumer<BindingSet> recordingHandler = bs -> {
+				recorder.add(bs);
+				handler.accept(bs);
+			};
+			try {
+				if (step instanceof BindingSetPipeQueryEvaluationStep) {
+					((BindingSetPipeQueryEvaluationStep) step).evaluate(recordingHandler, bindings);
+				} else {
+					BindingSetConsumerSailConnection.report(step.evaluate(bindings), recordingHandler);
+				}
+				recorder.complete();
+			} finally {
+				recorder.abandon();
+			}
+		}
+	}
+}
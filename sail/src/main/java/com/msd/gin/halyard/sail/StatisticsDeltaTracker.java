@@ -0,0 +1,85 @@
+package com.msd.gin.halyard.sail;
+
+import com.msd.gin.halyard.common.StatisticsDeltas;
+import com.msd.gin.halyard.model.vocabulary.HALYARD;
+import com.msd.gin.halyard.sail.HalyardStatsBasedStatementPatternCardinalityCalculator.PartitionIriTransformer;
+
+import java.io.IOException;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.hbase.client.Table;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.VOID;
+
+/**
+ * Tracks the changes to the dataset, graph, property partition and class partition counts caused by statement updates.
+ * The counts are approximate (see {@link StatisticsDeltas}) and are reset by the next full HalyardStats run.
+ */
+final class StatisticsDeltaTracker {
+	private final HBaseSail sail;
+	private final PartitionIriTransformer partitionIriTransformer;
+	private final StatisticsDeltas deltas = new StatisticsDeltas();
+
+	StatisticsDeltaTracker(HBaseSail sail) {
+		this.sail = sail;
+		this.partitionIriTransformer = HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionIriTransformer(sail.getRDFFactory());
+	}
+
+	void statementAdded(Resource subj, IRI pred, Value obj, @Nullable Resource ctx) {
+		record(pred, obj, ctx, 1L);
+	}
+
+	void statementRemoved(Resource subj, IRI pred, Value obj, @Nullable Resource ctx) {
+		record(pred, obj, ctx, -1L);
+	}
+
+	/**
+	 * Records the removal of a number of statements matching a pattern, e.g. by a server-side delete.
+	 * Only the counts that the pattern determines are updated, e.g. property partitions are not updated if the predicate is unknown.
+	 */
+	void statementsRemoved(@Nullable IRI pred, @Nullable Value obj, @Nullable Resource ctx, long count) {
+		if (count > 0L) {
+			record(pred, obj, ctx, -count);
+		}
+	}
+
+	/**
+	 * Discards any pending changes, e.g. after the table has been truncated.
+	 */
+	void reset() {
+		deltas.reset();
+	}
+
+	private void record(@Nullable IRI pred, @Nullable Value obj, @Nullable Resource ctx, long delta) {
+		record(HALYARD.STATS_ROOT_NODE, pred, obj, delta);
+		if (ctx != null && ctx.isIRI()) {
+			record((IRI) ctx, pred, obj, delta);
+		}
+	}
+
+	private void record(IRI graph, @Nullable IRI pred, @Nullable Value obj, long delta) {
+		deltas.add(graph.stringValue(), VOID.TRIPLES, delta);
+		if (pred != null) {
+			deltas.add(partitionIriTransformer.apply(graph, VOID.PROPERTY, pred), VOID.TRIPLES, delta);
+			if (RDF.TYPE.equals(pred) && obj != null) {
+				deltas.add(partitionIriTransformer.apply(graph, VOID.CLASS, obj), VOID.ENTITIES, delta);
+			}
+		}
+	}
+
+	StatisticsDeltas getDeltas() {
+		return deltas;
+	}
+
+	void flush() throws IOException {
+		if (!deltas.isEmpty()) {
+			try (Table table = sail.getTable()) {
+				deltas.flush(table);
+			}
+		}
+	}
+}
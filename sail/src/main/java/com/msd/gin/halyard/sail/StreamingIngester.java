@@ -0,0 +1,236 @@
+package com.msd.gin.halyard.sail;
+
+import com.msd.gin.halyard.common.StatementIndices;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Streams statements into a Halyard table without a MapReduce job.
+ * Statements are batched, converted to key values on a pool of worker threads and written through several buffered mutators.
+ * The number of queued batches and the mutator write buffers are bounded, so a fast producer is throttled (it ends up doing the work itself) rather than exhausting memory.
+ * Each batch is timestamped when it is submitted, so statements received after a delete are ordered after it.
+ * Writes are not transactional and the sail is only notified of them on {@link #flush()}.
+ * Obtain an instance from {@link HBaseSail#createIngester(Resource...)}, feed it statements (e.g. as the handler of an RDF parser) and close it.
+ */
+public final class StreamingIngester extends AbstractRDFHandler implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(StreamingIngester.class);
+	private static final AtomicInteger INSTANCE_SEQ = new AtomicInteger();
+	static final int BATCH_SIZE = 1000;
+
+	private final StatementIndices stmtIndices;
+	private final Resource[] contexts;
+	private final BufferedMutator[] mutators;
+	private final ThreadPoolExecutor executor;
+	private final StatisticsDeltaTracker statsDeltaTracker;
+	private final Runnable modificationListener;
+	private final Phaser pending = new Phaser(1);
+	private final AtomicInteger nextMutator = new AtomicInteger();
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private final LongAdder statementCount = new LongAdder();
+	private final LongAdder keyValueCount = new LongAdder();
+	private final LongAdder byteCount = new LongAdder();
+	private final LongAdder totalStatementCount;
+	private final LongAdder totalByteCount;
+	private List<Statement> batch = new ArrayList<>(BATCH_SIZE);
+	private long lastTimestamp;
+	private boolean closed;
+
+	StreamingIngester(StatementIndices stmtIndices, Resource[] contexts, BufferedMutator[] mutators, int threads, @Nullable StatisticsDeltaTracker statsDeltaTracker, Runnable modificationListener, LongAdder totalStatementCount, LongAdder totalByteCount) {
+		this.stmtIndices = stmtIndices;
+		this.contexts = (contexts != null && contexts.length > 0) ? contexts : null;
+		this.mutators = mutators;
+		this.statsDeltaTracker = statsDeltaTracker;
+		this.modificationListener = modificationListener;
+		this.totalStatementCount = totalStatementCount;
+		this.totalByteCount = totalByteCount;
+		String namePrefix = "Halyard ingester " + INSTANCE_SEQ.incrementAndGet() + " ";
+		AtomicInteger threadSeq = new AtomicInteger();
+		ThreadFactory tf = (r) -> {
+			Thread thr = new Thread(r, namePrefix+threadSeq.incrementAndGet());
+			thr.setDaemon(true);
+			return thr;
+		};
+		this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(2 * threads), tf, new ThreadPoolExecutor.CallerRunsPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	@Override
+	public void handleStatement(Statement st) throws RDFHandlerException {
+		checkState();
+		batch.add(st);
+		if (batch.size() >= BATCH_SIZE) {
+			submitBatch();
+		}
+	}
+
+	@Override
+	public void endRDF() throws RDFHandlerException {
+		flush();
+	}
+
+	/**
+	 * Waits until all statements received so far have been written to the table.
+	 */
+	public void flush() throws RDFHandlerException {
+		checkState();
+		if (!batch.isEmpty()) {
+			submitBatch();
+		}
+		pending.arriveAndAwaitAdvance();
+		for (BufferedMutator mutator : mutators) {
+			try {
+				mutator.flush();
+			} catch (IOException e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+		// even a failed flush may have written some statements
+		modificationListener.run();
+		if (statsDeltaTracker != null && failure.get() == null) {
+			try {
+				statsDeltaTracker.flush();
+			} catch (IOException e) {
+				failure.compareAndSet(null, e);
+			}
+		}
+		checkFailure();
+	}
+
+	private void checkState() {
+		if (closed) {
+			throw new IllegalStateException("Ingester is closed");
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() {
+		Throwable e = failure.get();
+		if (e != null) {
+			throw new RDFHandlerException("Ingest failed", e);
+		}
+	}
+
+	private void submitBatch() {
+		List<Statement> stmts = batch;
+		batch = new ArrayList<>(BATCH_SIZE);
+		long timestamp = nextTimestamp();
+		pending.register();
+		executor.execute(() -> {
+			try {
+				if (failure.get() == null) {
+					write(stmts, timestamp);
+				}
+			} catch (Throwable e) {
+				failure.compareAndSet(null, e);
+			} finally {
+				pending.arriveAndDeregister();
+			}
+		});
+	}
+
+	private long nextTimestamp() {
+		long ts = System.currentTimeMillis();
+		if (ts > lastTimestamp) {
+			lastTimestamp = ts;
+		}
+		return lastTimestamp;
+	}
+
+	private void write(List<Statement> stmts, long timestamp) throws IOException {
+		List<Mutation> puts = new ArrayList<>(6 * stmts.size());
+		long bytes = 0L;
+		for (Statement st : stmts) {
+			if (contexts != null) {
+				for (Resource ctx : contexts) {
+					bytes += toPuts(st, ctx, timestamp, puts);
+				}
+			} else {
+				bytes += toPuts(st, st.getContext(), timestamp, puts);
+			}
+		}
+		BufferedMutator mutator = mutators[Math.floorMod(nextMutator.getAndIncrement(), mutators.length)];
+		mutator.mutate(puts);
+		statementCount.add(stmts.size());
+		keyValueCount.add(puts.size());
+		byteCount.add(bytes);
+		totalStatementCount.add(stmts.size());
+		totalByteCount.add(bytes);
+	}
+
+	private long toPuts(Statement st, Resource ctx, long timestamp, List<Mutation> puts) throws IOException {
+		if (ctx != null && ctx.isTriple()) {
+			throw new RDFHandlerException("context argument can not be of type Triple: " + ctx);
+		}
+		long bytes = 0L;
+		for (KeyValue kv : stmtIndices.insertKeyValues(st.getSubject(), st.getPredicate(), st.getObject(), ctx, timestamp)) {
+			puts.add(new Put(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength(), kv.getTimestamp()).add(kv));
+			bytes += kv.getLength();
+		}
+		if (statsDeltaTracker != null) {
+			statsDeltaTracker.statementAdded(st.getSubject(), st.getPredicate(), st.getObject(), ctx);
+		}
+		return bytes;
+	}
+
+	public long getStatementCount() {
+		return statementCount.sum();
+	}
+
+	public long getKeyValueCount() {
+		return keyValueCount.sum();
+	}
+
+	public long getByteCount() {
+		return byteCount.sum();
+	}
+
+	/**
+	 * Flushes any remaining statements and releases all resources.
+	 * @throws RDFHandlerException if any statements failed to be written.
+	 */
+	@Override
+	public void close() throws RDFHandlerException {
+		if (closed) {
+			return;
+		}
+		try {
+			flush();
+		} finally {
+			closed = true;
+			// wait for any outstanding batches (no-op after a successful flush)
+			pending.arriveAndAwaitAdvance();
+			executor.shutdown();
+			for (BufferedMutator mutator : mutators) {
+				try {
+					mutator.close();
+				} catch (IOException e) {
+					LOGGER.warn("Failed to close mutator", e);
+				}
+			}
+			LOGGER.debug("Ingested {} statements ({} key values, {} bytes)", getStatementCount(), getKeyValueCount(), getByteCount());
+		}
+	}
+}
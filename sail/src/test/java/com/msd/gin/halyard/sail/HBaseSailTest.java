@@ -19,12 +19,16 @@ package com.msd.gin.halyard.sail;
 import com.google.common.collect.Sets;
 import com.msd.gin.halyard.common.HBaseServerTestInstance;
 import com.msd.gin.halyard.common.HalyardTableUtils;
+import com.msd.gin.halyard.common.KeyspaceConnection;
 import com.msd.gin.halyard.common.RDFFactory;
+import com.msd.gin.halyard.common.StatementDeleteEndpoint;
+import com.msd.gin.halyard.common.StatisticsDeltas;
 import com.msd.gin.halyard.common.TableConfig;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.optimizers.HalyardEvaluationStatistics;
 import com.msd.gin.halyard.optimizers.SimpleStatementPatternCardinalityCalculator;
 import com.msd.gin.halyard.repository.HBaseRepository;
+import com.msd.gin.halyard.sail.HalyardStatsBasedStatementPatternCardinalityCalculator.PartitionIriTransformer;
 
 import java.io.File;
 import java.net.URL;
@@ -63,6 +67,7 @@ import org.eclipse.rdf4j.query.BooleanQuery;
 import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.GraphQueryResult;
 import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.QueryResults;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
@@ -286,6 +291,70 @@ public class HBaseSailTest {
         }
     }
 
+	@Test
+	public void testGetContextIDsWithoutStats() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		Set<Resource> expected = new HashSet<>();
+		HBaseSail sail = new HBaseSail(hconn, useTable("whatevertablectxscan"), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		sail.init();
+		try (SailConnection conn = sail.getConnection()) {
+			conn.begin();
+			for (int i = 0; i < 50; i++) {
+				IRI ctx = vf.createIRI("http://whatever/ctx/" + i);
+				expected.add(ctx);
+				for (int j = 0; j < 10; j++) {
+					conn.addStatement(vf.createIRI("http://whatever/subj/" + j), RDF.VALUE, vf.createLiteral(i), ctx);
+				}
+			}
+			conn.addStatement(vf.createIRI("http://whatever/subj/"), RDF.VALUE, vf.createLiteral("default"));
+			conn.commit();
+			Set<Resource> actual = new HashSet<>();
+			try (CloseableIteration<? extends Resource> ctxIt = conn.getContextIDs()) {
+				while (ctxIt.hasNext()) {
+					assertTrue(actual.add(ctxIt.next()));
+				}
+			}
+			assertEquals(expected, actual);
+		} finally {
+			sail.shutDown();
+		}
+	}
+
+	@Test
+	public void testStreamingIngester() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		IRI graph = vf.createIRI("http://whatever/graph");
+		int count = 3 * StreamingIngester.BATCH_SIZE + 17;
+		HBaseSail sail = new HBaseSail(hconn, useTable("whatevertableingest"), true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		sail.init();
+		try {
+			try (StreamingIngester ingester = sail.createIngester(graph)) {
+				for (int i = 0; i < count; i++) {
+					ingester.handleStatement(vf.createStatement(vf.createIRI("http://whatever/subj/" + i), RDF.VALUE, vf.createLiteral(i)));
+				}
+				ingester.flush();
+				assertEquals(count, ingester.getStatementCount());
+			}
+			assertEquals(count, sail.getIngestedStatementCount());
+			Statement stmt = vf.createStatement(vf.createIRI("http://whatever/subj/0"), RDF.VALUE, vf.createLiteral(0));
+			try (SailConnection conn = sail.getConnection()) {
+				assertEquals(count, conn.size(graph));
+				conn.removeStatements(stmt.getSubject(), stmt.getPredicate(), stmt.getObject(), graph);
+				assertEquals(count - 1, conn.size(graph));
+			}
+			Thread.sleep(2L);
+			// re-adding through an ingester must be ordered after the delete
+			try (StreamingIngester ingester = sail.createIngester(graph)) {
+				ingester.handleStatement(stmt);
+			}
+			try (SailConnection conn = sail.getConnection()) {
+				assertEquals(count, conn.size(graph));
+			}
+		} finally {
+			sail.shutDown();
+		}
+	}
+
 	@Test
 	public void testHasDefaultGraphStatement() throws Exception {
 		ValueFactory vf = SimpleValueFactory.getInstance();
@@ -557,6 +626,158 @@ public class HBaseSailTest {
         rep.shutDown();
     }
 
+	@Test
+	public void testResultCache() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		IRI pred = vf.createIRI("http://whatever/pred/");
+		String table = useTable("whatevertableresultcache");
+		HBaseRepository writeRep = new HBaseRepository(new HBaseSail(hconn, table, true, 0, usePushStrategy, QUERY_TIMEOUT, null, null));
+		writeRep.init();
+		Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+		conf.setLong(EvaluationConfig.RESULT_CACHE_MAX_BYTES, 1024L*1024L);
+		HBaseRepository rep = new HBaseRepository(new HBaseSail(conf, table, false, 0, usePushStrategy, QUERY_TIMEOUT, null, null));
+		rep.init();
+		try {
+			try (RepositoryConnection conn = writeRep.getConnection()) {
+				conn.add(vf.createIRI("http://whatever/subj/1"), pred, vf.createLiteral(1));
+			}
+			String query = "select ?s ?o where {?s <http://whatever/pred/> ?o}";
+			try (RepositoryConnection conn = rep.getConnection()) {
+				assertEquals(1, QueryResults.asList(conn.prepareTupleQuery(query).evaluate()).size());
+			}
+			// not written through the caching sail so not visible yet
+			try (RepositoryConnection conn = writeRep.getConnection()) {
+				conn.add(vf.createIRI("http://whatever/subj/2"), pred, vf.createLiteral(2));
+			}
+			try (RepositoryConnection conn = rep.getConnection()) {
+				List<BindingSet> results = QueryResults.asList(conn.prepareTupleQuery(query).evaluate());
+				assertEquals(1, results.size());
+				assertEquals(vf.createLiteral(1), results.get(0).getValue("o"));
+			}
+			// writes through the caching sail invalidate the cache
+			try (RepositoryConnection conn = rep.getConnection()) {
+				conn.add(vf.createIRI("http://whatever/subj/3"), pred, vf.createLiteral(3));
+			}
+			try (RepositoryConnection conn = rep.getConnection()) {
+				assertEquals(3, QueryResults.asList(conn.prepareTupleQuery(query).evaluate()).size());
+			}
+			// as do writes through its ingesters
+			try (StreamingIngester ingester = ((HBaseSail) rep.getSail()).createIngester()) {
+				ingester.handleStatement(vf.createStatement(vf.createIRI("http://whatever/subj/4"), pred, vf.createLiteral(4)));
+			}
+			try (RepositoryConnection conn = rep.getConnection()) {
+				assertEquals(4, QueryResults.asList(conn.prepareTupleQuery(query).evaluate()).size());
+			}
+			// non-deterministic queries are never cached
+			String randQuery = "select (struuid() as ?id) where {}";
+			try (RepositoryConnection conn = rep.getConnection()) {
+				Value id1 = QueryResults.singleResult(conn.prepareTupleQuery(randQuery).evaluate()).getValue("id");
+				Value id2 = QueryResults.singleResult(conn.prepareTupleQuery(randQuery).evaluate()).getValue("id");
+				assertNotEquals(id1, id2);
+			}
+		} finally {
+			rep.shutDown();
+			writeRep.shutDown();
+		}
+	}
+
+	@Test
+	public void testServerSideDelete() throws Exception {
+		ValueFactory vf = SimpleValueFactory.getInstance();
+		IRI pred = vf.createIRI("http://whatever/pred/");
+		IRI ctx = vf.createIRI("http://whatever/ctx/");
+		String table = useTable("whatevertableserversidedelete");
+		Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+		conf.setBoolean(EvaluationConfig.SERVER_SIDE_DELETE, true);
+		conf.setBoolean(EvaluationConfig.STATS_DELTAS, true);
+		conf.setLong(EvaluationConfig.RESULT_CACHE_MAX_BYTES, 1024L*1024L);
+		HBaseSail sail = new HBaseSail(conf, table, true, 0, usePushStrategy, QUERY_TIMEOUT, null, null);
+		HBaseRepository rep = new HBaseRepository(sail);
+		rep.init();
+		try (Admin admin = hconn.getAdmin()) {
+			TableDescriptor td = admin.getDescriptor(TableName.valueOf(table));
+			admin.modifyTable(TableDescriptorBuilder.newBuilder(td).setCoprocessor(StatementDeleteEndpoint.class.getName()).build());
+		}
+		PartitionIriTransformer transformer = HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionIriTransformer(sail.getRDFFactory());
+		String query = "select ?s where {graph <http://whatever/ctx/> {?s <http://whatever/pred/> ?o}}";
+		try {
+			try (SailConnection conn = sail.getConnection()) {
+				conn.begin();
+				for (int i = 0; i < 10; i++) {
+					IRI subj = vf.createIRI("http://whatever/subj/" + i);
+					conn.addStatement(subj, pred, vf.createLiteral(i), ctx);
+					conn.addStatement(subj, RDFS.LABEL, vf.createLiteral(i), ctx);
+					if (i < 5) {
+						conn.addStatement(subj, pred, vf.createLiteral(i));
+					}
+				}
+				conn.commit();
+			}
+			try (RepositoryConnection conn = rep.getConnection()) {
+				assertEquals(10, QueryResults.asList(conn.prepareTupleQuery(query).evaluate()).size());
+			}
+
+			// deleted server-side
+			try (SailConnection conn = sail.getConnection()) {
+				conn.begin();
+				conn.removeStatements(null, pred, null, ctx);
+				conn.commit();
+				assertEquals(10L, conn.size(ctx));
+				assertEquals(5L, count(conn.getStatements(null, pred, null, true)));
+			}
+			// the cached result must have been invalidated
+			try (RepositoryConnection conn = rep.getConnection()) {
+				assertEquals(0, QueryResults.asList(conn.prepareTupleQuery(query).evaluate()).size());
+			}
+			try (KeyspaceConnection kc = sail.keyspace.getConnection()) {
+				assertEquals(Long.valueOf(15L), StatisticsDeltas.get(kc, HALYARD.STATS_ROOT_NODE.stringValue(), VOID.TRIPLES));
+				assertEquals(Long.valueOf(10L), StatisticsDeltas.get(kc, ctx.stringValue(), VOID.TRIPLES));
+				assertEquals(Long.valueOf(0L), StatisticsDeltas.get(kc, transformer.apply(ctx, VOID.PROPERTY, pred), VOID.TRIPLES));
+				assertEquals(Long.valueOf(5L), StatisticsDeltas.get(kc, transformer.apply(HALYARD.STATS_ROOT_NODE, VOID.PROPERTY, pred), VOID.TRIPLES));
+			}
+
+			// the default graph can't be deleted server-side so falls back to client-side deletes
+			try (SailConnection conn = sail.getConnection()) {
+				conn.begin();
+				conn.removeStatements(null, pred, null, (Resource) null);
+				conn.commit();
+				assertEquals(0L, count(conn.getStatements(null, pred, null, true)));
+				assertEquals(10L, conn.size(ctx));
+			}
+			try (KeyspaceConnection kc = sail.keyspace.getConnection()) {
+				assertEquals(Long.valueOf(10L), StatisticsDeltas.get(kc, HALYARD.STATS_ROOT_NODE.stringValue(), VOID.TRIPLES));
+				assertEquals(Long.valueOf(0L), StatisticsDeltas.get(kc, transformer.apply(HALYARD.STATS_ROOT_NODE, VOID.PROPERTY, pred), VOID.TRIPLES));
+			}
+
+			// clearing a graph server-side returns the number of statements deleted
+			try (SailConnection conn = sail.getConnection()) {
+				conn.begin();
+				assertEquals(10L, ((HBaseSailConnection) conn).clearGraph(null, ctx));
+				conn.commit();
+				assertEquals(0L, conn.size(ctx));
+			}
+			try (KeyspaceConnection kc = sail.keyspace.getConnection()) {
+				assertEquals(Long.valueOf(0L), StatisticsDeltas.get(kc, HALYARD.STATS_ROOT_NODE.stringValue(), VOID.TRIPLES));
+				assertEquals(Long.valueOf(0L), StatisticsDeltas.get(kc, ctx.stringValue(), VOID.TRIPLES));
+			}
+		} finally {
+			rep.shutDown();
+		}
+	}
+
+	private static long count(CloseableIteration<?> iter) {
+		try {
+			long n = 0L;
+			while (iter.hasNext()) {
+				iter.next();
+				n++;
+			}
+			return n;
+		} finally {
+			iter.close();
+		}
+	}
+
     @Test
 	public void testEvaluateConstruct() throws Exception {
 		ValueFactory vf = SimpleValueFactory.getInstance();
@@ -1,6 +1,7 @@
 package com.msd.gin.halyard.sail;
 
 import com.github.benmanes.caffeine.cache.Cache;
+import com.msd.gin.halyard.common.KeyspaceConnection;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.optimizers.SimpleStatementPatternCardinalityCalculator;
 import com.msd.gin.halyard.query.algebra.evaluation.ModelTripleSource;
@@ -12,6 +13,13 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Model;
 import org.eclipse.rdf4j.model.Value;
@@ -25,6 +33,7 @@ import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class HalyardStatsBasedStatementPatternCardinalityCalculatorTest {
 	private static final int TOTAL_TRIPLES = 13;
@@ -39,6 +48,7 @@ public class HalyardStatsBasedStatementPatternCardinalityCalculatorTest {
 	private final IRI pred = vf.createIRI("http://predicate");
 	private final IRI obj = vf.createIRI("http://object");
 	private HalyardStatsBasedStatementPatternCardinalityCalculator.PartitionIriTransformer transformer;
+	private ModelTripleSource ts;
 	private HalyardStatsBasedStatementPatternCardinalityCalculator calc;
 
 	@BeforeEach
@@ -54,7 +64,7 @@ public class HalyardStatsBasedStatementPatternCardinalityCalculatorTest {
 		model.add(vf.createIRI(transformer.apply(graphNode, VOID_EXT.OBJECT, obj)), VOID.DISTINCT_SUBJECTS, vf.createLiteral(2), HALYARD.STATS_GRAPH_CONTEXT);
 		model.add(vf.createIRI(transformer.apply(graphNode, VOID_EXT.OBJECT, obj)), VOID.TRIPLES, vf.createLiteral(TRIPLES_WITH_OBJ), HALYARD.STATS_GRAPH_CONTEXT);
 		model.add(graph1, VOID.TRIPLES, vf.createLiteral(GRAPH_TRIPLES), HALYARD.STATS_GRAPH_CONTEXT);
-		ModelTripleSource ts = new ModelTripleSource(model, vf);
+		ts = new ModelTripleSource(model, vf);
 		Cache<Pair<IRI, IRI>, Long> cache = HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
 		calc = new HalyardStatsBasedStatementPatternCardinalityCalculator(ts, transformer, cache);
 	}
@@ -69,6 +79,37 @@ public class HalyardStatsBasedStatementPatternCardinalityCalculatorTest {
 		}
 	}
 
+	@Test
+	public void testStatisticsDeltas() throws Exception {
+		String predPartition = transformer.apply(HALYARD.STATS_ROOT_NODE, VOID.PROPERTY, pred);
+		KeyspaceConnection deltasConn = new KeyspaceConnection() {
+			@Override
+			public Result get(Get get) {
+				byte[] row = get.getRow();
+				if (predPartition.equals(Bytes.toString(row, 1, row.length - 1))) {
+					byte[] family = get.getFamilyMap().keySet().iterator().next();
+					byte[] qualifier = get.getFamilyMap().get(family).first();
+					return Result.create(new Cell[] {new KeyValue(row, family, qualifier, Bytes.toBytes(5L))});
+				} else {
+					return Result.EMPTY_RESULT;
+				}
+			}
+
+			@Override
+			public ResultScanner getScanner(Scan scan) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		try (HalyardStatsBasedStatementPatternCardinalityCalculator deltasCalc = new HalyardStatsBasedStatementPatternCardinalityCalculator(ts, transformer, HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache(), deltasConn)) {
+			assertEquals(TRIPLES_WITH_PRED + 5, deltasCalc.getStatementCardinality(new Var("s"), new Var("p", pred), new Var("o"), null, Collections.emptySet()));
+			assertEquals(TRIPLES_WITH_SUBJ, deltasCalc.getStatementCardinality(new Var("s", subj), new Var("p"), new Var("o"), null, Collections.emptySet()));
+		}
+	}
+
 	@Test
 	public void testSingleValue() {
 		double card = calc.getStatementCardinality(new Var("s", subj), new Var("p"), new Var("o"), null, Collections.emptySet());
@@ -111,6 +152,131 @@ public class HalyardStatsBasedStatementPatternCardinalityCalculatorTest {
 		assertEquals(2.0, card);
 	}
 
+	@Test
+	public void testBoundSubjectUsingPropertyDistinctSubjects() throws Exception {
+		IRI graphNode = HALYARD.STATS_ROOT_NODE;
+		Model model = new LinkedHashModel();
+		model.add(graphNode, VOID.TRIPLES, vf.createLiteral(TOTAL_TRIPLES), HALYARD.STATS_GRAPH_CONTEXT);
+		IRI propertyPartition = vf.createIRI(transformer.apply(graphNode, VOID.PROPERTY, pred));
+		model.add(propertyPartition, VOID.TRIPLES, vf.createLiteral(8), HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(propertyPartition, VOID.DISTINCT_OBJECTS, vf.createLiteral(8), HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(propertyPartition, VOID.DISTINCT_SUBJECTS, vf.createLiteral(4), HALYARD.STATS_GRAPH_CONTEXT);
+		Cache<Pair<IRI, IRI>, Long> cache = HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
+		try (HalyardStatsBasedStatementPatternCardinalityCalculator sketchCalc = new HalyardStatsBasedStatementPatternCardinalityCalculator(new ModelTripleSource(model, vf), transformer, cache)) {
+			double card = sketchCalc.getStatementCardinality(new Var("s"), new Var("p", pred), new Var("o"), null, Collections.singleton("s"));
+			// triples per distinct subject
+			assertEquals(2.0, card);
+		}
+	}
+
+	@Test
+	public void testMostCommonObjects() throws Exception {
+		IRI graphNode = HALYARD.STATS_ROOT_NODE;
+		Model model = new LinkedHashModel();
+		model.add(graphNode, VOID.TRIPLES, vf.createLiteral(200), HALYARD.STATS_GRAPH_CONTEXT);
+		IRI propertyPartition = vf.createIRI(transformer.apply(graphNode, VOID.PROPERTY, pred));
+		model.add(propertyPartition, VOID.TRIPLES, vf.createLiteral(100), HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(propertyPartition, VOID.DISTINCT_OBJECTS, vf.createLiteral(12), HALYARD.STATS_GRAPH_CONTEXT);
+		IRI obj2 = vf.createIRI("http://object2");
+		addObjectPartition(model, propertyPartition, obj, 50);
+		addObjectPartition(model, propertyPartition, obj2, 30);
+		Cache<Pair<IRI, IRI>, Long> cache = HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
+		try (HalyardStatsBasedStatementPatternCardinalityCalculator mcvCalc = new HalyardStatsBasedStatementPatternCardinalityCalculator(new ModelTripleSource(model, vf), transformer, cache)) {
+			assertEquals(50.0, mcvCalc.getStatementCardinality(new Var("s"), new Var("p", pred), new Var("o", obj), null, Collections.emptySet()));
+			// remaining 20 triples spread over 10 objects
+			assertEquals(2.0, mcvCalc.getStatementCardinality(new Var("s"), new Var("p", pred), new Var("o", vf.createIRI("http://object3")), null, Collections.emptySet()));
+			// (50*50 + 30*30 + 20*2)/100 rounded up
+			assertEquals(35.0, mcvCalc.getStatementCardinality(new Var("s"), new Var("p", pred), new Var("o"), null, Collections.singleton("o")));
+		}
+	}
+
+	private void addObjectPartition(Model model, IRI propertyPartition, Value o, long triples) {
+		IRI objectPartition = vf.createIRI(transformer.apply(propertyPartition, VOID_EXT.OBJECT, o));
+		model.add(propertyPartition, VOID_EXT.OBJECT_PARTITION, objectPartition, HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(objectPartition, VOID_EXT.OBJECT, o, HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(objectPartition, VOID.TRIPLES, vf.createLiteral(triples), HALYARD.STATS_GRAPH_CONTEXT);
+	}
+
+	@Test
+	public void testStarCardinality() throws Exception {
+		IRI graphNode = HALYARD.STATS_ROOT_NODE;
+		IRI pred2 = vf.createIRI("http://predicate2");
+		Model model = new LinkedHashModel();
+		IRI cs1 = addCharacteristicSet(model, graphNode, pred.stringValue() + " " + pred2.stringValue(), 10);
+		addCharacteristicSetProperty(model, cs1, pred, 10);
+		addCharacteristicSetProperty(model, cs1, pred2, 20);
+		IRI cs2 = addCharacteristicSet(model, graphNode, pred.stringValue(), 5);
+		addCharacteristicSetProperty(model, cs2, pred, 5);
+		Cache<Pair<IRI, IRI>, Long> cache = HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
+		try (HalyardStatsBasedStatementPatternCardinalityCalculator csCalc = new HalyardStatsBasedStatementPatternCardinalityCalculator(new ModelTripleSource(model, vf), transformer, cache)) {
+			assertEquals(20.0, csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred), new Var("p2", pred2)), Arrays.asList(new Var("o1"), new Var("o2")), null, Collections.emptySet()));
+			assertEquals(15.0, csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred)), Arrays.asList(new Var("o1")), null, Collections.emptySet()));
+			assertNull(csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred), new Var("p2", vf.createIRI("http://no-such-predicate"))), Arrays.asList(new Var("o1"), new Var("o2")), null, Collections.emptySet()));
+			assertNull(csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred)), Arrays.asList(new Var("o1")), null, Collections.singleton("s")));
+		}
+	}
+
+	@Test
+	public void testStarCardinalityUsesCachedCharacteristicSets() throws Exception {
+		IRI graphNode = HALYARD.STATS_ROOT_NODE;
+		IRI pred2 = vf.createIRI("http://predicate2");
+		Model model = new LinkedHashModel();
+		IRI cs1 = addCharacteristicSet(model, graphNode, pred.stringValue() + " " + pred2.stringValue(), 10);
+		addCharacteristicSetProperty(model, cs1, pred, 10);
+		addCharacteristicSetProperty(model, cs1, pred2, 20);
+		Cache<Pair<IRI, IRI>, Long> cache = HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
+		Cache<IRI, HalyardStatsBasedStatementPatternCardinalityCalculator.CharacteristicSets> csCache = HalyardStatsBasedStatementPatternCardinalityCalculator.newCharacteristicSetsCache();
+		try (HalyardStatsBasedStatementPatternCardinalityCalculator csCalc = new HalyardStatsBasedStatementPatternCardinalityCalculator(new ModelTripleSource(model, vf), transformer, cache, csCache, null)) {
+			assertEquals(20.0, csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred), new Var("p2", pred2)), Arrays.asList(new Var("o1"), new Var("o2")), null, Collections.emptySet()));
+		}
+		// the characteristic sets are no longer read from the stats
+		model.clear();
+		try (HalyardStatsBasedStatementPatternCardinalityCalculator csCalc = new HalyardStatsBasedStatementPatternCardinalityCalculator(new ModelTripleSource(model, vf), transformer, cache, csCache, null)) {
+			assertEquals(20.0, csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred), new Var("p2", pred2)), Arrays.asList(new Var("o1"), new Var("o2")), null, Collections.emptySet()));
+			assertEquals(10.0, csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred)), Arrays.asList(new Var("o1")), null, Collections.emptySet()));
+		}
+		csCache.invalidateAll();
+		try (HalyardStatsBasedStatementPatternCardinalityCalculator csCalc = new HalyardStatsBasedStatementPatternCardinalityCalculator(new ModelTripleSource(model, vf), transformer, cache, csCache, null)) {
+			assertNull(csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred), new Var("p2", pred2)), Arrays.asList(new Var("o1"), new Var("o2")), null, Collections.emptySet()));
+		}
+	}
+
+	@Test
+	public void testStarCardinalityWithUnstoredCharacteristicSets() throws Exception {
+		IRI graphNode = HALYARD.STATS_ROOT_NODE;
+		IRI pred2 = vf.createIRI("http://predicate2");
+		Model model = new LinkedHashModel();
+		model.add(graphNode, VOID.DISTINCT_SUBJECTS, vf.createLiteral(25), HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(vf.createIRI(transformer.apply(graphNode, VOID.PROPERTY, pred)), VOID.TRIPLES, vf.createLiteral(30), HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(vf.createIRI(transformer.apply(graphNode, VOID.PROPERTY, pred2)), VOID.TRIPLES, vf.createLiteral(40), HALYARD.STATS_GRAPH_CONTEXT);
+		IRI cs1 = addCharacteristicSet(model, graphNode, pred.stringValue() + " " + pred2.stringValue(), 10);
+		addCharacteristicSetProperty(model, cs1, pred, 10);
+		addCharacteristicSetProperty(model, cs1, pred2, 20);
+		IRI cs2 = addCharacteristicSet(model, graphNode, pred.stringValue(), 5);
+		addCharacteristicSetProperty(model, cs2, pred, 5);
+		Cache<Pair<IRI, IRI>, Long> cache = HalyardStatsBasedStatementPatternCardinalityCalculator.newStatisticsCache();
+		try (HalyardStatsBasedStatementPatternCardinalityCalculator csCalc = new HalyardStatsBasedStatementPatternCardinalityCalculator(new ModelTripleSource(model, vf), transformer, cache)) {
+			// 10 remaining subjects with on average 1.5 x pred and 2 x pred2
+			assertEquals(50.0, csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred), new Var("p2", pred2)), Arrays.asList(new Var("o1"), new Var("o2")), null, Collections.emptySet()));
+			assertEquals(30.0, csCalc.getStarCardinality(new Var("s"), Arrays.asList(new Var("p1", pred)), Arrays.asList(new Var("o1")), null, Collections.emptySet()));
+		}
+	}
+
+	private IRI addCharacteristicSet(Model model, IRI graphNode, String properties, long subjects) {
+		IRI cs = vf.createIRI(transformer.apply(graphNode, VOID_EXT.CHARACTERISTIC_SET, vf.createLiteral(properties)));
+		model.add(graphNode, VOID_EXT.CHARACTERISTIC_SET_PARTITION, cs, HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(cs, VOID_EXT.CHARACTERISTIC_SET, vf.createLiteral(properties), HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(cs, VOID.ENTITIES, vf.createLiteral(subjects), HALYARD.STATS_GRAPH_CONTEXT);
+		return cs;
+	}
+
+	private void addCharacteristicSetProperty(Model model, IRI cs, IRI p, long triples) {
+		IRI propertyPartition = vf.createIRI(transformer.apply(cs, VOID.PROPERTY, p));
+		model.add(cs, VOID.PROPERTY_PARTITION, propertyPartition, HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(propertyPartition, VOID.PROPERTY, p, HALYARD.STATS_GRAPH_CONTEXT);
+		model.add(propertyPartition, VOID.TRIPLES, vf.createLiteral(triples), HALYARD.STATS_GRAPH_CONTEXT);
+	}
+
 	@Test
 	public void testSingleBoundVarNoPartitionStats() {
 		Set<String> boundVars = new HashSet<>();
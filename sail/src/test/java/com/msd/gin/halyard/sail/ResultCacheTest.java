@@ -0,0 +1,38 @@
+package com.msd.gin.halyard.sail;
+
+import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.parser.QueryParserUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResultCacheTest {
+	private static TupleExpr parse(String query) {
+		return QueryParserUtil.parseTupleQuery(QueryLanguage.SPARQL, query, "http://whatever/").getTupleExpr();
+	}
+
+	@Test
+	public void testIsCacheable() {
+		assertTrue(ResultCache.isCacheable(parse("select ?s ?o where {?s <http://whatever/pred/> ?o}")));
+	}
+
+	@Test
+	public void testNonDeterministicFunctionIsNotCacheable() {
+		assertFalse(ResultCache.isCacheable(parse("select (struuid() as ?id) where {}")));
+		assertFalse(ResultCache.isCacheable(parse("select ?s where {?s <http://whatever/pred/> ?o filter(?o < rand())}")));
+		assertFalse(ResultCache.isCacheable(parse("select ?b where {bind(bnode() as ?b)}")));
+	}
+
+	@Test
+	public void testServiceIsNotCacheable() {
+		assertFalse(ResultCache.isCacheable(parse("select * where {service <http://whatever/sparql> {?s ?p ?o}}")));
+	}
+
+	@Test
+	public void testNestedServiceIsNotCacheable() {
+		assertFalse(ResultCache.isCacheable(parse("select ?s ?o where {?s <http://whatever/pred/> ?x optional {service <http://whatever/sparql> {?x <http://whatever/pred/> ?o}}}")));
+		assertFalse(ResultCache.isCacheable(parse("select ?s where {{select ?s where {service <http://whatever/sparql> {?s ?p ?o}}} union {?s <http://whatever/pred/> ?o}}")));
+	}
+}
@@ -3,6 +3,7 @@ package com.msd.gin.halyard.optimizers;
 import com.msd.gin.halyard.common.StatementIndex;
 import com.msd.gin.halyard.common.StatementIndices;
 import com.msd.gin.halyard.model.LiteralConstraint;
+import com.msd.gin.halyard.model.LiteralRangeConstraint;
 import com.msd.gin.halyard.model.TermRole;
 import com.msd.gin.halyard.model.ValueConstraint;
 import com.msd.gin.halyard.model.ValueType;
@@ -218,6 +219,13 @@ public class ConstrainedValueOptimizer implements QueryOptimizer {
 			addConstraint(var, new VarConstraint(t, func, op, value), null);
 		}
 
+		private void addRangeConstraint(Var var, CompareOp op, ValueExpr value) {
+			ValueExpr lowerBound = (op == CompareOp.GT || op == CompareOp.GE || op == CompareOp.EQ) ? value : null;
+			ValueExpr upperBound = (op == CompareOp.LT || op == CompareOp.LE || op == CompareOp.EQ) ? value : null;
+			// range is only approximate so keep the filter
+			addConstraint(var, VarConstraint.rangeConstraint(ValueType.LITERAL, lowerBound, upperBound), null);
+		}
+
 		@Override
 		public void meet(Filter filter) {
 			ValueExpr condition = filter.getCondition();
@@ -259,7 +267,11 @@ public class ConstrainedValueOptimizer implements QueryOptimizer {
 				} else if (isVar(leftArg)) {
 					if (cmpOp != CompareOp.NE && isLiteral(cmp.getRightArg())) {
 						// var compared with a literal
-						addBroadConstraint((Var) leftArg, ValueType.LITERAL);
+						if (LiteralRangeConstraint.getRangeType((Literal) getValue(cmp.getRightArg())) != null) {
+							addRangeConstraint((Var) leftArg, cmpOp, cmp.getRightArg());
+						} else {
+							addBroadConstraint((Var) leftArg, ValueType.LITERAL);
+						}
 					} else if (cmpOp == CompareOp.EQ && isIRI(cmp.getRightArg())) {
 						// var compared with an IRI
 						addBroadConstraint((Var) leftArg, ValueType.IRI);
@@ -370,12 +382,27 @@ public class ConstrainedValueOptimizer implements QueryOptimizer {
 					}
     			}
     		}
+			if (varConstraint.getLowerBound() != null || varConstraint.getUpperBound() != null) {
+				// any other constraints are still enforced by their filters, so prefer the range as it is the most selective
+				LiteralRangeConstraint rangeConstraint = LiteralRangeConstraint.create(evaluateLiteral(varConstraint.getLowerBound(), bindings), evaluateLiteral(varConstraint.getUpperBound(), bindings));
+				if (rangeConstraint != null) {
+					constraint = rangeConstraint;
+				}
+			}
 		} else {
 			constraint = null;
 		}
 		return constraint;
 	}
 
+	private static Literal evaluateLiteral(ValueExpr expr, BindingSet bindings) {
+		if (expr == null) {
+			return null;
+		}
+		Value v = Algebra.evaluateConstant(expr, bindings);
+		return (v != null && v.isLiteral()) ? (Literal) v : null;
+	}
+
 	static final class UnboundVarComparator implements Comparator<StatementPattern> {
 		static final UnboundVarComparator INSTANCE = new UnboundVarComparator();
 
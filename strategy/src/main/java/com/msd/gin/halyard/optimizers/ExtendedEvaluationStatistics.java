@@ -9,8 +9,10 @@ import com.msd.gin.halyard.query.algebra.StarJoin;
 import com.msd.gin.halyard.query.algebra.VarConstraint;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -358,10 +360,25 @@ public class ExtendedEvaluationStatistics extends EvaluationStatistics {
         	}
         	card *= rightCard/n; // account for cheaper cost
 
-            cardinality = card;
+        	Double starCard = getStarCardinality(node);
+            cardinality = (starCard != null) ? starCard : card;
             updateMap(node);
         }
 
+        protected Double getStarCardinality(StarJoin node) {
+        	List<Var> predVars = new ArrayList<>(node.getArgCount());
+        	List<Var> objVars = new ArrayList<>(node.getArgCount());
+        	for (TupleExpr arg : node.getArgs()) {
+        		if (!(arg instanceof StatementPattern)) {
+        			return null;
+        		}
+        		StatementPattern sp = (StatementPattern) arg;
+        		predVars.add(sp.getPredicateVar());
+        		objVars.add(sp.getObjectVar());
+        	}
+        	return spcalc.getStarCardinality(node.getCommonVar(), predVars, objVars, node.getContextVar(), boundVars);
+        }
+
         public void meet(LeftStarJoin node) {
         	TupleExpr sp = node.getArg(0);
         	sp.visit(this);
@@ -2,11 +2,18 @@ package com.msd.gin.halyard.optimizers;
 
 import com.msd.gin.halyard.query.algebra.Algorithms;
 import com.msd.gin.halyard.query.algebra.SkipVarsQueryModelVisitor;
+import com.msd.gin.halyard.query.algebra.evaluation.OrderedTripleSource;
+import com.msd.gin.halyard.query.algebra.evaluation.StatementOrdering;
 import com.msd.gin.halyard.strategy.HalyardEvaluationStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.annotation.Nullable;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.Dataset;
 import org.eclipse.rdf4j.query.algebra.BinaryTupleOperator;
@@ -16,6 +23,7 @@ import org.eclipse.rdf4j.query.algebra.LeftJoin;
 import org.eclipse.rdf4j.query.algebra.QueryModelNode;
 import org.eclipse.rdf4j.query.algebra.StatementPattern;
 import org.eclipse.rdf4j.query.algebra.TupleExpr;
+import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
 import org.eclipse.rdf4j.query.algebra.helpers.TupleExprs;
 import org.slf4j.Logger;
@@ -30,11 +38,17 @@ public class JoinAlgorithmOptimizer implements QueryOptimizer {
 	private final ExtendedEvaluationStatistics statistics;
 	private final int hashJoinLimit;
 	private final float costRatio;
+	private final OrderedTripleSource orderedTripleSource;
 
 	public JoinAlgorithmOptimizer(ExtendedEvaluationStatistics stats, int hashJoinLimit, float ratio) {
+		this(stats, hashJoinLimit, ratio, null);
+	}
+
+	public JoinAlgorithmOptimizer(ExtendedEvaluationStatistics stats, int hashJoinLimit, float ratio, @Nullable OrderedTripleSource orderedTripleSource) {
 		this.statistics = stats;
 		this.hashJoinLimit = hashJoinLimit;
 		this.costRatio = ratio;
+		this.orderedTripleSource = orderedTripleSource;
 	}
 
 	public int getHashJoinLimit() {
@@ -86,6 +100,16 @@ public class JoinAlgorithmOptimizer implements QueryOptimizer {
 			double hashCost = INDEX_SCAN_COST + rightCard * HASH_BUILD_COST + leftCard * HASH_LOOKUP_COST;
 			boolean useHash = rightCard <= hashJoinLimit && costRatio*hashCost < nestedCost;
 			LOGGER.debug("Nested join cost {} vs hash join cost {} ({}, {})", nestedCost, hashCost, leftCard, rightCard);
+			if ((join instanceof Join) && isMergeable(left, right, boundVars)) {
+				// merge join: scan left and right once, in the same order
+				double mergeCost = 2.0 * INDEX_SCAN_COST + (leftCard + rightCard) * HASH_LOOKUP_COST;
+				LOGGER.debug("Nested join cost {} vs merge join cost {} ({}, {})", nestedCost, mergeCost, leftCard, rightCard);
+				if (costRatio*mergeCost < nestedCost && (!useHash || mergeCost < hashCost)) {
+					join.setAlgorithm(Algorithms.MERGE_JOIN);
+					join.setCostEstimate(mergeCost);
+					return;
+				}
+			}
 			if (useHash) {
 				join.setAlgorithm(Algorithms.HASH_JOIN);
 				join.setCostEstimate(hashCost);
@@ -93,6 +117,44 @@ public class JoinAlgorithmOptimizer implements QueryOptimizer {
 		}
 	}
 
+	/**
+	 * Checks if both statement patterns are returned in the same order of a shared variable,
+	 * e.g. ?s :p :a . ?s :q :b, where both POS scans (predicate and object fixed) are ordered by subject.
+	 * Note that ?s :p ?a . ?s :q ?b is not mergeable, as POS scans with only the predicate fixed are ordered by object.
+	 */
+	private boolean isMergeable(TupleExpr left, TupleExpr right, Set<String> boundVars) {
+		// currently, StatementPattern subclasses aren't supported
+		if (orderedTripleSource == null || left.getClass() != StatementPattern.class || right.getClass() != StatementPattern.class) {
+			return false;
+		}
+		StatementPattern leftSp = (StatementPattern) left;
+		StatementPattern rightSp = (StatementPattern) right;
+		StatementOrdering leftOrdering = getStatementOrdering(leftSp);
+		if (leftOrdering == null || !leftOrdering.equals(getStatementOrdering(rightSp))) {
+			return false;
+		}
+		Var leftVar = leftOrdering.getRole().getVar(leftSp);
+		Var rightVar = leftOrdering.getRole().getVar(rightSp);
+		return leftVar != null && rightVar != null && !leftVar.hasValue() && !rightVar.hasValue()
+			&& leftVar.getName().equals(rightVar.getName()) && !boundVars.contains(leftVar.getName());
+	}
+
+	private StatementOrdering getStatementOrdering(StatementPattern sp) {
+		Value subj = getConstantValue(sp.getSubjectVar());
+		Value pred = getConstantValue(sp.getPredicateVar());
+		Value obj = getConstantValue(sp.getObjectVar());
+		Value ctx = getConstantValue(sp.getContextVar());
+		if ((subj != null && !subj.isResource()) || (pred != null && !pred.isIRI()) || (ctx != null && !ctx.isResource())) {
+			return null;
+		}
+		Resource[] ctxs = (ctx != null) ? new Resource[] {(Resource) ctx} : new Resource[0];
+		return orderedTripleSource.getStatementOrdering((Resource) subj, (IRI) pred, obj, ctxs);
+	}
+
+	private static Value getConstantValue(Var var) {
+		return (var != null) ? var.getValue() : null;
+	}
+
 	/**
 	 * NB: Hash-join only coincides with SPARQL semantics in a few special cases (e.g. no complex scoping).
 	 * @param expr expression to check
@@ -3,6 +3,7 @@ package com.msd.gin.halyard.optimizers;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Collection;
+import java.util.List;
 
 import org.eclipse.rdf4j.query.algebra.Var;
 
@@ -14,4 +15,12 @@ public interface StatementPatternCardinalityCalculator extends Closeable {
 
 	double getStatementCardinality(Var subjVar, Var predVar, Var objVar, Var ctxVar, Collection<String> boundVars);
 	double getTripleCardinality(Var subjVar, Var predVar, Var objVar, Collection<String> boundVars);
+
+	/**
+	 * Estimates the cardinality of a star of statement patterns sharing the same subject.
+	 * @return estimate or null if not available.
+	 */
+	default Double getStarCardinality(Var subjVar, List<Var> predVars, List<Var> objVars, Var ctxVar, Collection<String> boundVars) {
+		return null;
+	}
 }
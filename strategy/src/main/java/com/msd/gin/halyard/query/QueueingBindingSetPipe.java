@@ -51,8 +51,13 @@ public final class QueueingBindingSetPipe extends BindingSetPipe {
 			for (Object next : nexts) {
 				if (next == END_OF_QUEUE) {
 					return false;
+				} else if (next instanceof List) {
+					for (Object bs : (List<?>) next) {
+						consumer.accept((BindingSet) bs);
+					}
+				} else {
+					consumer.accept((BindingSet) next);
 				}
-				consumer.accept((BindingSet) next);
 			}
 			return true;
 		} else {
@@ -116,6 +121,12 @@ public final class QueueingBindingSetPipe extends BindingSetPipe {
 		return addToQueue(bs);
 	}
 
+	@Override
+	protected boolean nextBatch(List<? extends BindingSet> bss) {
+		// queue the whole batch as a single element (so maxQueueSize bounds the number of batches)
+		return bss.isEmpty() || addToQueue(bss);
+	}
+
 	@Override
 	protected void doClose() {
 		addToQueue(END_OF_QUEUE);
@@ -16,23 +16,36 @@ public final class VarConstraint implements Serializable, Cloneable {
 
 	private ValueType valueType;
 	private FunctionalConstraint functionalConstraint;
+	private ValueExpr lowerBound;
+	private ValueExpr upperBound;
 	private int partitionCount;
 
 	public VarConstraint(ValueType t) {
-		this(t, null, 0);
+		this(t, null, null, null, 0);
 	}
 
 	public VarConstraint(ValueType t, ValueExpr func, CompareOp op, ValueExpr value) {
-		this(t, new FunctionalConstraint(func, op, value), 0);
+		this(t, new FunctionalConstraint(func, op, value), null, null, 0);
+	}
+
+	/**
+	 * Constrains the value of the var to lie between the (inclusive) bounds.
+	 * @param lowerBound can be null
+	 * @param upperBound can be null
+	 */
+	public static VarConstraint rangeConstraint(ValueType t, ValueExpr lowerBound, ValueExpr upperBound) {
+		return new VarConstraint(t, null, lowerBound, upperBound, 0);
 	}
 
 	public static VarConstraint partitionConstraint(int partitionCount) {
-		return new VarConstraint(null, null, partitionCount);
+		return new VarConstraint(null, null, null, null, partitionCount);
 	}
 
-	private VarConstraint(ValueType t, FunctionalConstraint func, int partitionCount) {
+	private VarConstraint(ValueType t, FunctionalConstraint func, ValueExpr lowerBound, ValueExpr upperBound, int partitionCount) {
 		this.valueType = t;
 		this.functionalConstraint = func;
+		this.lowerBound = lowerBound;
+		this.upperBound = upperBound;
 		this.partitionCount = partitionCount;
 	}
 
@@ -44,6 +57,14 @@ public final class VarConstraint implements Serializable, Cloneable {
 		return functionalConstraint;
 	}
 
+	public ValueExpr getLowerBound() {
+		return lowerBound;
+	}
+
+	public ValueExpr getUpperBound() {
+		return upperBound;
+	}
+
 	public int getPartitionCount() {
 		return partitionCount;
 	}
@@ -58,6 +79,8 @@ public final class VarConstraint implements Serializable, Cloneable {
 			VarConstraint o = (VarConstraint) other;
 			return this.valueType == o.valueType
 					&& Objects.equals(this.functionalConstraint, o.functionalConstraint)
+					&& Objects.equals(this.lowerBound, o.lowerBound)
+					&& Objects.equals(this.upperBound, o.upperBound)
 					&& this.partitionCount == o.partitionCount;
 		}
 		return false;
@@ -68,6 +91,8 @@ public final class VarConstraint implements Serializable, Cloneable {
 		int result = super.hashCode();
 		result = 89 * result + Objects.hashCode(valueType);
 		result = 89 * result + Objects.hashCode(functionalConstraint);
+		result = 89 * result + Objects.hashCode(lowerBound);
+		result = 89 * result + Objects.hashCode(upperBound);
 		result = 89 * result + partitionCount;
 		return result;
 	}
@@ -79,6 +104,12 @@ public final class VarConstraint implements Serializable, Cloneable {
 			if (functionalConstraint != null) {
 				clone.functionalConstraint = functionalConstraint.clone();
 			}
+			if (lowerBound != null) {
+				clone.lowerBound = lowerBound.clone();
+			}
+			if (upperBound != null) {
+				clone.upperBound = upperBound.clone();
+			}
 			return clone;
 		} catch(CloneNotSupportedException ex) {
 			throw new AssertionError(ex);
@@ -97,6 +128,14 @@ public final class VarConstraint implements Serializable, Cloneable {
 			sb.append(sep).append(functionalConstraint);
 			sep = ", ";
 		}
+		if (lowerBound != null || upperBound != null) {
+			sb.append(sep).append("range [")
+				.append(lowerBound != null ? lowerBound.getSignature() : "")
+				.append(", ")
+				.append(upperBound != null ? upperBound.getSignature() : "")
+				.append("]");
+			sep = ", ";
+		}
 		if (partitionCount > 1) {
 			sb.append(sep).append("partitioned by ").append(partitionCount);
 		}
@@ -112,11 +151,19 @@ public final class VarConstraint implements Serializable, Cloneable {
 		if (newFunc.isInvalid()) {
 			return null;
 		}
+		TriOptional<ValueExpr> newLower = nonNull(a.lowerBound, b.lowerBound);
+		if (newLower.isInvalid()) {
+			return null;
+		}
+		TriOptional<ValueExpr> newUpper = nonNull(a.upperBound, b.upperBound);
+		if (newUpper.isInvalid()) {
+			return null;
+		}
 		int newPC = nonZero(a.partitionCount, b.partitionCount);
 		if (newPC == -1) {
 			return null;
 		}
-		return new VarConstraint(newVT.orElse(null), newFunc.orElse(null), newPC);
+		return new VarConstraint(newVT.orElse(null), newFunc.orElse(null), newLower.orElse(null), newUpper.orElse(null), newPC);
 	}
 
 	/**
@@ -38,6 +38,7 @@ final class AsyncPullPusher implements PullPusher {
 	private final TrackingThreadPoolExecutor executor;
 	private int taskQueueMaxSize;
 	private double pullPushAllLimit;
+	private final int pushBatchSize;
 
 	AsyncPullPusher(String name, Configuration conf) {
 	    int threads = conf.getInt(StrategyConfig.HALYARD_EVALUATION_THREADS, StrategyConfig.DEFAULT_THREADS);
@@ -45,6 +46,7 @@ final class AsyncPullPusher implements PullPusher {
 		executor = createExecutor(name + " ", threads, taskQueueMaxSize);
 		int limit = conf.getInt(StrategyConfig.HALYARD_EVALUATION_PULL_PUSH_ASYNC_ALL_LIMIT, StrategyConfig.DEFAULT_PULL_PUSH_ASYNC_ALL_LIMIT);
 		setPullPushAllLimit(limit);
+		pushBatchSize = conf.getInt(StrategyConfig.HALYARD_EVALUATION_PUSH_BATCH_SIZE, StrategyConfig.DEFAULT_PUSH_BATCH_SIZE);
 	}
 
 	TrackingThreadPoolExecutorMXBean getThreadPoolExecutorMXBean() {
@@ -190,7 +192,11 @@ final class AsyncPullPusher implements PullPusher {
             		if (iter == null) {
                         iter = trackerFactory.apply(evalStep.evaluate(bindingSet));
             		}
-                	if(iter.hasNext()) {
+            		if (pushBatchSize > 1) {
+            			if (SyncPullPusher.pullPushBatch(iter, pipe, pushBatchSize)) {
+            				return true;
+            			}
+            		} else if(iter.hasNext()) {
                         BindingSet bs = iter.next();
                         if (pipe.push(bs)) { //true indicates more data is expected from this iterator
                             return true;
@@ -256,7 +262,7 @@ final class AsyncPullPusher implements PullPusher {
 
 		@Override
     	public void run() {
-			SyncPullPusher.pullPushAll(pipe, evalStep, queryNode, bindingSet, trackerFactory);
+			SyncPullPusher.pullPushAll(pipe, evalStep, queryNode, bindingSet, trackerFactory, pushBatchSize);
     	}
     }
 }
\ No newline at end of file
@@ -78,7 +78,7 @@ public final class HalyardEvaluationExecutor implements HalyardEvaluationExecuto
 		if (asyncPullPush) {
 			pullPusher = new AsyncPullPusher(name, conf);
 		} else {
-			pullPusher = new SyncPullPusher();
+			pullPusher = new SyncPullPusher(conf.getInt(StrategyConfig.HALYARD_EVALUATION_PUSH_BATCH_SIZE, StrategyConfig.DEFAULT_PUSH_BATCH_SIZE));
 		}
 
 		int bindingsRateUpdateMillis = conf.getInt(StrategyConfig.HALYARD_EVALUATION_BINDINGS_RATE_UPDATE_MILLIS, 100);
@@ -363,6 +363,12 @@ public final class HalyardEvaluationExecutor implements HalyardEvaluationExecuto
 			counter.incrementAndGet();
 			return parent.push(bs);
 		}
+
+		@Override
+		protected boolean nextBatch(List<? extends BindingSet> bss) {
+			counter.addAndGet(bss.size());
+			return parent.pushBatch(bss);
+		}
     }
 }
 
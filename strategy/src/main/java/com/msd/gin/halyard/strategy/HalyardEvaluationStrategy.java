@@ -35,6 +35,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -473,6 +474,15 @@ public class HalyardEvaluationStrategy implements EvaluationStrategy {
 			return super.next(bs);
 		}
 
+		@Override
+		protected boolean nextBatch(List<? extends BindingSet> bss) {
+			long count = counter.addAndGet(bss.size());
+			if ((count - lastCount) > config.trackResultSizeUpdateInterval) {
+				updateResultSize();
+			}
+			return parent.pushBatch(bss);
+		}
+
 		@Override
 		public boolean handleException(Throwable e) {
 			updateResultSize();
@@ -508,11 +518,24 @@ public class HalyardEvaluationStrategy implements EvaluationStrategy {
 			long start = System.nanoTime();
 			boolean pushMore = super.next(bs);
 			long end = System.nanoTime();
-			long nanos = elapsed.addAndGet(end - start);
+			addElapsed(end - start);
+			return pushMore;
+		}
+
+		@Override
+		protected boolean nextBatch(List<? extends BindingSet> bss) {
+			long start = System.nanoTime();
+			boolean pushMore = parent.pushBatch(bss);
+			long end = System.nanoTime();
+			addElapsed(end - start);
+			return pushMore;
+		}
+
+		private void addElapsed(long delta) {
+			long nanos = elapsed.addAndGet(delta);
 			if ((nanos - lastNanos) > config.trackResultTimeUpdateInterval) {
 				updateResultTime();
 			}
-			return pushMore;
 		}
 
 		@Override
@@ -26,6 +26,7 @@ import com.msd.gin.halyard.optimizers.LeftStarJoinOptimizer;
 import com.msd.gin.halyard.optimizers.NAryUnionOptimizer;
 import com.msd.gin.halyard.optimizers.QueryJoinOptimizer;
 import com.msd.gin.halyard.optimizers.StarJoinOptimizer;
+import com.msd.gin.halyard.query.algebra.evaluation.OrderedTripleSource;
 
 import java.util.Arrays;
 
@@ -33,6 +34,7 @@ import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.algebra.evaluation.EvaluationStrategy;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizerPipeline;
+import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.eclipse.rdf4j.query.algebra.evaluation.optimizer.RegexAsStringFunctionOptimizer;
 import org.eclipse.rdf4j.query.algebra.evaluation.optimizer.StandardQueryOptimizerPipeline;
 
@@ -63,7 +65,8 @@ public final class HalyardQueryOptimizerPipeline implements QueryOptimizerPipeli
 		this.naryUnionOptimizer = new NAryUnionOptimizer(minUnions);
 		int hashJoinLimit = strategy.getConfig().hashJoinLimit;
 		float costRatio = strategy.getConfig().hashJoinCostRatio;
-		this.joinAlgoOptimizer = new JoinAlgorithmOptimizer(statistics, hashJoinLimit, costRatio);
+		TripleSource tripleSource = strategy.getTripleSource();
+		this.joinAlgoOptimizer = new JoinAlgorithmOptimizer(statistics, hashJoinLimit, costRatio, (tripleSource instanceof OrderedTripleSource) ? (OrderedTripleSource) tripleSource : null);
 	}
 
 	JoinAlgorithmOptimizer getJoinAlgorithmOptimizer() {
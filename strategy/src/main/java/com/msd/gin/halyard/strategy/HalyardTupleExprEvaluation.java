@@ -20,6 +20,7 @@ import com.google.common.collect.Sets;
 import com.msd.gin.halyard.common.CachingValueFactory;
 import com.msd.gin.halyard.common.StatementIndices;
 import com.msd.gin.halyard.common.ValueFactories;
+import com.msd.gin.halyard.model.TermRole;
 import com.msd.gin.halyard.model.ValueConstraint;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.optimizers.ConstrainedValueOptimizer;
@@ -39,9 +40,12 @@ import com.msd.gin.halyard.query.algebra.LeftStarJoin;
 import com.msd.gin.halyard.query.algebra.NAryUnion;
 import com.msd.gin.halyard.query.algebra.StarJoin;
 import com.msd.gin.halyard.query.algebra.VarConstraint;
+import com.msd.gin.halyard.query.algebra.evaluation.BatchTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.ExtendedTripleSource;
+import com.msd.gin.halyard.query.algebra.evaluation.OrderedTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.PartitionableTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.PartitionedIndex;
+import com.msd.gin.halyard.query.algebra.evaluation.StatementOrdering;
 import com.msd.gin.halyard.query.algebra.evaluation.federation.BindingSetConsumerFederatedService;
 import com.msd.gin.halyard.query.algebra.evaluation.federation.BindingSetPipeFederatedService;
 import com.msd.gin.halyard.query.algebra.evaluation.impl.TupleFunctionEvaluationStrategy;
@@ -54,6 +58,7 @@ import com.msd.gin.halyard.strategy.aggregators.ExtendedAggregateCollector;
 import com.msd.gin.halyard.strategy.aggregators.ExtendedAggregateFunction;
 import com.msd.gin.halyard.strategy.aggregators.LongCollector;
 import com.msd.gin.halyard.strategy.aggregators.MaxAggregateFunction;
+import com.msd.gin.halyard.strategy.aggregators.MergeableAggregateFunction;
 import com.msd.gin.halyard.strategy.aggregators.MinAggregateFunction;
 import com.msd.gin.halyard.strategy.aggregators.SumCollector;
 import com.msd.gin.halyard.strategy.aggregators.SampleAggregateFunction;
@@ -64,13 +69,19 @@ import com.msd.gin.halyard.strategy.aggregators.ValueCollector;
 import com.msd.gin.halyard.strategy.aggregators.WildcardCountAggregateFunction;
 import com.msd.gin.halyard.strategy.collections.AbstractValueSerializer;
 import com.msd.gin.halyard.strategy.collections.BigHashSet;
+import com.msd.gin.halyard.strategy.collections.BigQueue;
+import com.msd.gin.halyard.strategy.collections.BindingSetPartitions;
 import com.msd.gin.halyard.strategy.collections.Sorter;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -78,6 +89,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -184,8 +196,6 @@ import org.eclipse.rdf4j.query.impl.MapBindingSet;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateCollector;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateFunction;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateFunctionFactory;
-import org.mapdb.DataInput2;
-import org.mapdb.DataOutput2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -201,14 +211,24 @@ final class HalyardTupleExprEvaluation {
 	private static final int MAX_INITIAL_HASH_JOIN_TABLE_SIZE = 5000;
 	private static final Resource[] ALL_CONTEXTS = new Resource[0];
 	private static final Set<IRI> VIRTUAL_CONTEXTS = Sets.newHashSet(HALYARD.FUNCTION_GRAPH_CONTEXT);
+	private static final int MAX_INITIAL_TOP_K_HEAP_SIZE = 1024;
 	private static final int GROUP_BY_CONCURRENCY = 1024;
+	private static final int GROUP_BY_SPILL_PARTITIONS = 16;
+	private static final int PARTIAL_GROUP_LIMIT = 1024;
+	private static final int PARTIAL_GROUP_MIN_ROWS_PER_GROUP = 2;
 
     private final HalyardEvaluationStrategy parentStrategy;
 	private final TripleSource tripleSource;
 	private final Dataset dataset;
     private final HalyardEvaluationExecutor executor;
     private final int hashJoinLimit;
+    private final int hashJoinSpillPartitions;
+    private final int bindJoinBatchSize;
+    private final int pathBatchSize;
     private final int collectionMemoryThreshold;
+    private final Path spillDir;
+    private final int topKMaxLimit;
+    private final boolean groupByPartialAggregation;
     private final int valueCacheSize;
     private volatile TripleSource functionGraph;
 
@@ -234,7 +254,13 @@ final class HalyardTupleExprEvaluation {
     	} else {
     		hashJoinLimit = config.hashJoinLimit;
     	}
+    	hashJoinSpillPartitions = config.hashJoinSpillPartitions;
+    	bindJoinBatchSize = config.bindJoinBatchSize;
+    	pathBatchSize = config.pathBatchSize;
     	collectionMemoryThreshold = config.collectionMemoryThreshold;
+    	spillDir = config.spillDir;
+    	topKMaxLimit = Math.min(config.topKMaxLimit, collectionMemoryThreshold);
+    	groupByPartialAggregation = config.groupByPartialAggregation;
     	valueCacheSize = config.valueCacheSize;
     }
 
@@ -922,6 +948,14 @@ final class HalyardTupleExprEvaluation {
 	                return parent.push(ProjectionIterator.project(projection.getProjectionElemList(), bs, bindings, includeAll));
 	            }
 	            @Override
+	            protected boolean nextBatch(List<? extends BindingSet> bss) {
+	            	List<BindingSet> projected = new ArrayList<>(bss.size());
+	            	for (BindingSet bs : bss) {
+	            		projected.add(ProjectionIterator.project(projection.getProjectionElemList(), bs, bindings, includeAll));
+	            	}
+	                return parent.pushBatch(projected);
+	            }
+	            @Override
 	            public String toString() {
 	            	return "ProjectionBindingSetPipe";
 	            }
@@ -1014,6 +1048,66 @@ final class HalyardTupleExprEvaluation {
 	            	return !parent.isClosed();
 	            }
 	            @Override
+	            protected boolean nextBatch(List<? extends BindingSet> bss) {
+	            	if (bss.isEmpty()) {
+	            		return !parent.isClosed();
+	            	}
+                    startSecondaryPipe();
+                    // conditions that complete while the batch is being submitted are pushed together at the end of it,
+                    // any that complete later (asynchronously) are pushed as soon as they do
+                    List<BindingSet> accepted = new ArrayList<>(bss.size());
+                    boolean[] submitting = {true};
+                    // one extra for the submitting loop
+                    AtomicInteger remaining = new AtomicInteger(bss.size() + 1);
+                    Runnable evaluated = () -> {
+                    	if (remaining.decrementAndGet() == 0) {
+                    		endSecondaryPipe();
+                    	}
+                    };
+                    int submitted = 0;
+                    for (BindingSet bs : bss) {
+                    	if (parent.isClosed()) {
+                    		break;
+                    	}
+                    	submitted++;
+	                    BindingSet scopeBindings = retain.apply(bs);
+	                    parentStrategy.isTrue(conditionStep, new BindingSetValuePipe(parent) {
+		            		@Override
+		            		protected void next(Value v) {
+		            			if (parentStrategy.isTrue(v)) {
+		            				boolean deferred;
+		            				synchronized (accepted) {
+		            					deferred = submitting[0];
+		            					if (deferred) {
+		            						accepted.add(bs);
+		            					}
+		            				}
+		            				if (!deferred && !pushToParent(bs)) {
+		            					parent.close();
+		            				}
+		            			}
+		            			evaluated.run();
+		            		}
+		            		@Override
+		            		public void handleValueError(String msg) {
+		            			// ignore - failed to evaluate condition
+		            			evaluated.run();
+		            		}
+		            	}, scopeBindings);
+                    }
+                    remaining.addAndGet(submitted - bss.size());
+                    List<BindingSet> toPush;
+                    synchronized (accepted) {
+                    	submitting[0] = false;
+                    	toPush = new ArrayList<>(accepted);
+                    }
+                    if (!toPush.isEmpty() && !pushBatchToParent(toPush)) {
+                    	parent.close();
+                    }
+                    evaluated.run();
+	            	return !parent.isClosed();
+	            }
+	            @Override
 	            public String toString() {
 	            	return "FilterBindingSetPipe";
 	            }
@@ -1117,7 +1211,7 @@ final class HalyardTupleExprEvaluation {
 		}
 
 		@Override
-		public void serialize(DataOutput2 out, ComparableBindingSetWrapper cbsw) throws IOException {
+		public void write(ComparableBindingSetWrapper cbsw, DataOutput out) throws IOException {
 			ByteBuffer tmp = newTempBuffer();
 			writeBindingSet(cbsw.bs, out, tmp);
 			out.writeInt(cbsw.values.length);
@@ -1129,7 +1223,7 @@ final class HalyardTupleExprEvaluation {
 		}
 
 		@Override
-		public ComparableBindingSetWrapper deserialize(DataInput2 in, int available) throws IOException {
+		public ComparableBindingSetWrapper read(DataInput in) throws IOException {
 			BindingSet bs = readBindingSet(in);
 			int len = in.readInt();
 			Value[] values = new Value[len];
@@ -1148,7 +1242,6 @@ final class HalyardTupleExprEvaluation {
      * @param order
      */
     private BindingSetPipeEvaluationStep precompileOrder(final Order order, QueryEvaluationContext evalContext) {
-        final Sorter<ComparableBindingSetWrapper> sorter = new Sorter<>(getLimit(order), isReducedOrDistinct(order), collectionMemoryThreshold, new ComparableBindingSetWrapperSerializer(tripleSource.getValueFactory()));
         List<OrderElem> orderElems = order.getElements();
         QueryValueEvaluationStep[] elemSteps = new QueryValueEvaluationStep[orderElems.size()];
         boolean[] ascending = new boolean[elemSteps.length];
@@ -1158,6 +1251,12 @@ final class HalyardTupleExprEvaluation {
         	ascending[i] = oe.isAscending();
         }
         BindingSetPipeEvaluationStep step = precompileTupleExpr(order.getArg(), evalContext);
+        long limit = getLimit(order);
+        boolean distinct = isReducedOrDistinct(order);
+        if (limit > 0 && limit <= topKMaxLimit) {
+        	return precompileTopK((int) limit, distinct, elemSteps, ascending, step);
+        }
+        final Sorter<ComparableBindingSetWrapper> sorter = new Sorter<>(limit, distinct, collectionMemoryThreshold, new ComparableBindingSetWrapperSerializer(tripleSource.getValueFactory()), spillDir);
         return (parent, bindings) -> {
         	final class OrderBindingSetPipe extends BindingSetPipe {
 	            final AtomicLong minorOrder = new AtomicLong();
@@ -1209,6 +1308,84 @@ final class HalyardTupleExprEvaluation {
         };
     }
 
+    /**
+     * ORDER BY under a small LIMIT: only the top K binding sets are kept, in a bounded heap.
+     * @param k number of binding sets to keep (offset + limit)
+     * @param distinct true to drop duplicate binding sets
+     */
+    private BindingSetPipeEvaluationStep precompileTopK(int k, boolean distinct, QueryValueEvaluationStep[] elemSteps, boolean[] ascending, BindingSetPipeEvaluationStep step) {
+        return (parent, bindings) -> {
+        	final class TopKBindingSetPipe extends BindingSetPipe {
+        		// max-heap, so the head is the binding set to evict next
+        		final PriorityQueue<ComparableBindingSetWrapper> heap = new PriorityQueue<>(Math.min(k, MAX_INITIAL_TOP_K_HEAP_SIZE), Collections.reverseOrder());
+        		final Set<BindingSet> heapBindingSets = distinct ? new HashSet<>() : null;
+	            final AtomicLong minorOrder = new AtomicLong();
+	            // the current K-th binding set, once the heap is full
+	            volatile ComparableBindingSetWrapper cutoff;
+
+	            TopKBindingSetPipe(BindingSetPipe parent) {
+    				super(parent);
+    			}
+
+	            @Override
+	            protected boolean next(BindingSet bs) {
+	            	ComparableBindingSetWrapper cbsw;
+	                try {
+	                    cbsw = new ComparableBindingSetWrapper(parentStrategy, bs, elemSteps, ascending, minorOrder.getAndIncrement());
+	                } catch (QueryEvaluationException e) {
+	                    return handleException(e);
+	                }
+	                ComparableBindingSetWrapper currentCutoff = cutoff;
+	                if (currentCutoff != null && cbsw.compareTo(currentCutoff) >= 0) {
+	                	return true;
+	                }
+	                synchronized (heap) {
+	                	if (heapBindingSets != null && !heapBindingSets.add(bs)) {
+	                		return true;
+	                	}
+	                	if (heap.size() < k) {
+	                		heap.add(cbsw);
+	                	} else if (cbsw.compareTo(heap.peek()) < 0) {
+	                		ComparableBindingSetWrapper evicted = heap.poll();
+	                		if (heapBindingSets != null) {
+	                			heapBindingSets.remove(evicted.bs);
+	                		}
+	                		heap.add(cbsw);
+	                	} else if (heapBindingSets != null) {
+	                		heapBindingSets.remove(bs);
+	                	}
+	                	if (heap.size() == k) {
+	                		cutoff = heap.peek();
+	                	}
+	                }
+	                return true;
+	            }
+
+	            @Override
+	            protected void doClose() {
+	            	ComparableBindingSetWrapper[] topK;
+	            	synchronized (heap) {
+	            		topK = heap.toArray(new ComparableBindingSetWrapper[heap.size()]);
+	            		heap.clear();
+	            	}
+	            	Arrays.sort(topK);
+	            	for (ComparableBindingSetWrapper cbsw : topK) {
+	            		if (!parent.push(cbsw.bs)) {
+	            			break;
+	            		}
+	            	}
+                    parent.close();
+	            }
+
+	            @Override
+	            public String toString() {
+	            	return "TopKBindingSetPipe";
+	            }
+        	}
+	        step.evaluate(new TopKBindingSetPipe(parent), bindings);
+        };
+    }
+
     /**
      * Precompile {@link Group} query model nodes
      * @param group
@@ -1232,14 +1409,86 @@ final class HalyardTupleExprEvaluation {
     		}
     		argEvaluators[i] = evaluator;
 		}
-
+        final boolean partialAggregation = groupByPartialAggregation && elems.stream().allMatch(elem -> isMergeable(elem.getOperator()));
+
+        /**
+         * Once there are too many groups to hold in memory,
+         * binding sets for any new groups are spilled to disk, partitioned by group key,
+         * and each partition is aggregated in turn at the end.
+         * If all the aggregates are mergeable, each thread pre-aggregates into its own small map,
+         * which is periodically merged into the shared map.
+         */
         abstract class GroupBindingSetPipe<K> extends BindingSetPipe {
 			final Map<K,GroupValue> groupByMap = new ConcurrentHashMap<>(GROUP_BY_CONCURRENCY);
+			final Function<K, GroupValue> valueFactory;
 			final Function<K, GroupValue> valueLoader;
+			final BindingSetPartitions spilledPartitions = new BindingSetPartitions(GROUP_BY_SPILL_PARTITIONS, spillDir, tripleSource.getValueFactory());
+			final Map<Thread,PartialGroups> partials = partialAggregation ? new ConcurrentHashMap<>() : null;
+			volatile boolean spilling;
+
+			/**
+			 * Thread-local pre-aggregated groups.
+			 * Only groups that are held in memory by the shared map are pre-aggregated.
+			 * Pre-aggregation is bypassed if most rows belong to a different group.
+			 */
+			final class PartialGroups {
+				private final Map<K,GroupValue> localMap = new HashMap<>();
+				private int rowCount;
+				private boolean bypass;
+
+				synchronized boolean add(K key, BindingSet bs) {
+					if (bypass) {
+						return false;
+					}
+					GroupValue aggregators = localMap.get(key);
+					if (aggregators == null) {
+						GroupValue shared = groupByMap.computeIfAbsent(key, valueLoader);
+						if (shared == null) {
+							return false;
+						}
+						if (!shared.isMergeable()) {
+							bypass = true;
+							flush();
+							return false;
+						}
+						if (localMap.size() >= PARTIAL_GROUP_LIMIT) {
+							bypass = (rowCount < PARTIAL_GROUP_MIN_ROWS_PER_GROUP * localMap.size());
+							flush();
+							if (bypass) {
+								return false;
+							}
+						}
+						aggregators = valueFactory.apply(key);
+						localMap.put(key, aggregators);
+					}
+					aggregators.addValues(bs, argEvaluators);
+					rowCount++;
+					return true;
+				}
+
+				synchronized void flush() {
+					ValueFactory vf = tripleSource.getValueFactory();
+					for (Map.Entry<K,GroupValue> entry : localMap.entrySet()) {
+						try (GroupValue partial = entry.getValue()) {
+							groupByMap.get(entry.getKey()).merge(partial, vf);
+						}
+					}
+					localMap.clear();
+					rowCount = 0;
+				}
+			}
 
 			GroupBindingSetPipe(BindingSetPipe parent, List<Supplier<Aggregator<?,?,?>>> aggregatorFactories) {
 				super(parent);
-				this.valueLoader = k -> GroupValue.create(elemNames, aggregatorFactories);
+				this.valueFactory = k -> GroupValue.create(elemNames, aggregatorFactories);
+				// NB: once spilling, any group not already in memory is always spilled
+				this.valueLoader = k -> {
+					if (spilling || groupByMap.size() >= collectionMemoryThreshold) {
+						spilling = true;
+						return null;
+					}
+					return valueFactory.apply(k);
+				};
 			}
 			@Override
 			protected final boolean next(BindingSet bs) {
@@ -1247,23 +1496,67 @@ final class HalyardTupleExprEvaluation {
 					return false;
 				}
 				K key = createKey(bs);
+				if (partials != null && partials.computeIfAbsent(Thread.currentThread(), t -> new PartialGroups()).add(key, bs)) {
+					return true;
+				}
 				GroupValue aggregators = groupByMap.computeIfAbsent(key, valueLoader);
-				aggregators.addValues(bs, argEvaluators);
+				if (aggregators != null) {
+					aggregators.addValues(bs, argEvaluators);
+				} else {
+					try {
+						spilledPartitions.add(BindingSetPartitions.partitionOf(key.hashCode(), GROUP_BY_SPILL_PARTITIONS), bs);
+					} catch (IOException e) {
+						return handleException(e);
+					}
+				}
 				return true;
 			}
 			@Override
+			public boolean handleException(Throwable e) {
+				spilledPartitions.close();
+				return super.handleException(e);
+			}
+			@Override
 			protected final void doClose() {
-				for(Map.Entry<K,GroupValue> aggEntry : groupByMap.entrySet()) {
+				try {
+					if (partials != null) {
+						for (PartialGroups partial : partials.values()) {
+							partial.flush();
+						}
+						partials.clear();
+					}
+					if (pushGroups(groupByMap) && spilling) {
+						spilledPartitions.finish();
+						for (int i=0; i<GROUP_BY_SPILL_PARTITIONS; i++) {
+							Map<K,GroupValue> partitionMap = new HashMap<>();
+							spilledPartitions.read(i, bs -> {
+								partitionMap.computeIfAbsent(createKey(bs), valueFactory).addValues(bs, argEvaluators);
+								return true;
+							});
+							if (!pushGroups(partitionMap)) {
+								break;
+							}
+						}
+					}
+				} catch (IOException e) {
+					handleException(e);
+				} finally {
+					spilledPartitions.close();
+				}
+				parent.close();
+			}
+			private boolean pushGroups(Map<K,GroupValue> groups) {
+				for(Map.Entry<K,GroupValue> aggEntry : groups.entrySet()) {
 					K groupKey = aggEntry.getKey();
 					MutableBindingSet result = setBindings(groupKey);
 					try (GroupValue aggregators = aggEntry.getValue()) {
 						aggregators.bindResult(result, tripleSource);
 					}
 					if (!parent.push(result)) {
-						break;
+						return false;
 					}
 				}
-				parent.close();
+				return true;
 			}
 			abstract K createKey(BindingSet bs);
 			abstract MutableBindingSet setBindings(K key);
@@ -1277,6 +1570,7 @@ final class HalyardTupleExprEvaluation {
 
     	        final class GroupWithoutByBindingSetPipe extends BindingSetPipe {
 					final GroupValue aggregators = GroupValue.create(elemNames, aggregatorFactories);
+					final Map<Thread,GroupValue> partials = (partialAggregation && aggregators.isMergeable()) ? new ConcurrentHashMap<>() : null;
 
 					GroupWithoutByBindingSetPipe(BindingSetPipe parent) {
 						super(parent);
@@ -1286,11 +1580,21 @@ final class HalyardTupleExprEvaluation {
     					if (parent.isClosed()) {
     						return false;
     					}
-    					aggregators.addValues(bs, argEvaluators);
+    					GroupValue threadAggregators = (partials != null) ? partials.computeIfAbsent(Thread.currentThread(), t -> GroupValue.create(elemNames, aggregatorFactories)) : aggregators;
+    					threadAggregators.addValues(bs, argEvaluators);
     					return true;
     				}
     				@Override
     				protected void doClose() {
+    					if (partials != null) {
+    						ValueFactory vf = tripleSource.getValueFactory();
+    						for (GroupValue partial : partials.values()) {
+    							try (partial) {
+    								aggregators.merge(partial, vf);
+    							}
+    						}
+    						partials.clear();
+    					}
     					MutableBindingSet result = new QueryBindingSet(bindings);
     					try (aggregators) {
         					aggregators.bindResult(result, tripleSource);
@@ -1398,6 +1702,24 @@ final class HalyardTupleExprEvaluation {
 			}
 		}
 
+		boolean isMergeable() {
+			for (Aggregator<?,?,?> agg : aggregators) {
+				if (agg != null && !(agg instanceof MergeableAggregator)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void merge(GroupValue partial, ValueFactory vf) {
+			for(int i=0; i<elemNames.length; i++) {
+				Aggregator<?,?,?> agg = aggregators[i];
+				if (agg != null) {
+					((MergeableAggregator<?,?>) agg).merge((MergeableAggregator<?,?>) partial.aggregators[i], vf);
+				}
+			}
+		}
+
 		void bindResult(MutableBindingSet bs, TripleSource ts) {
 			for(int i=0; i<elemNames.length; i++) {
 				try(Aggregator<?,?,?> agg = aggregators[i]) {
@@ -1433,6 +1755,20 @@ final class HalyardTupleExprEvaluation {
 
 	private static final Predicate<?> ALWAYS_TRUE = (v) -> true;
 
+	/**
+	 * Checks if partial results for the aggregate might be computed independently and then merged.
+	 * Aggregate function calls are only known to be mergeable once their aggregators have been created (see {@link GroupValue#isMergeable()}).
+	 */
+	private static boolean isMergeable(AggregateOperator operator) {
+		if (operator instanceof Sample) {
+			return true;
+		} else if (operator.isDistinct()) {
+			return false;
+		} else {
+			return operator instanceof Count || operator instanceof Min || operator instanceof Max || operator instanceof Sum || operator instanceof Avg || operator instanceof AggregateFunctionCall;
+		}
+	}
+
 	private Supplier<Aggregator<?,?,?>> getAggregatorFactory(AggregateOperator operator, QueryValueStepEvaluator opArgEvaluator, BindingSet parentBindings, QueryEvaluationContext evalContext) {
 		boolean isDistinct = operator.isDistinct();
 		if (operator instanceof Count) {
@@ -1552,11 +1888,17 @@ final class HalyardTupleExprEvaluation {
 		}
 	}
 
-	private static final class ThreadSafeAggregator<T extends ExtendedAggregateCollector, D> extends Aggregator<T, D, ThreadSafeAggregateFunction<T,D>> implements Serializable {
+	private static class ThreadSafeAggregator<T extends ExtendedAggregateCollector, D> extends Aggregator<T, D, ThreadSafeAggregateFunction<T,D>> implements Serializable {
 		private static final long serialVersionUID = -425855529343469186L;
 
+		@SuppressWarnings("unchecked")
 		static <T extends ExtendedAggregateCollector,D> ThreadSafeAggregator<T,D> create(ThreadSafeAggregateFunction<T,D> aggFunc, Predicate<D> distinctPredicate, T valueCollector) {
-    		return new ThreadSafeAggregator<T,D>(aggFunc, distinctPredicate, valueCollector);
+			// only the partial results of non-distinct aggregates can be merged
+			if (distinctPredicate == ALWAYS_TRUE && aggFunc instanceof MergeableAggregateFunction) {
+				return new MergeableAggregator<T,D>(aggFunc, distinctPredicate, valueCollector);
+			} else {
+				return new ThreadSafeAggregator<T,D>(aggFunc, distinctPredicate, valueCollector);
+			}
     	}
 
     	private ThreadSafeAggregator(ThreadSafeAggregateFunction<T, D> aggFunc, Predicate<D> distinctPredicate, T valueCollector) {
@@ -1572,8 +1914,25 @@ final class HalyardTupleExprEvaluation {
     	Value getValue(TripleSource ts) {
     		return valueCollector.getFinalValue(ts);
     	}
+
     }
 
+	private static final class MergeableAggregator<T extends ExtendedAggregateCollector, D> extends ThreadSafeAggregator<T, D> {
+		private static final long serialVersionUID = 2208567153286430557L;
+
+		private MergeableAggregator(ThreadSafeAggregateFunction<T, D> aggFunc, Predicate<D> distinctPredicate, T valueCollector) {
+			super(aggFunc, distinctPredicate, valueCollector);
+		}
+
+		/**
+		 * Merges the partial result of an aggregator of the same kind into this one.
+		 */
+		@SuppressWarnings("unchecked")
+		void merge(MergeableAggregator<?,?> partial, ValueFactory vf) {
+			((MergeableAggregateFunction<T>) aggFunc).merge((T) partial.valueCollector, valueCollector, vf);
+		}
+	}
+
     private static final class ExtendedAggregator<T extends ExtendedAggregateCollector, D> extends Aggregator<T, D, ExtendedAggregateFunction<T,D>> implements Serializable {
 		private static final long serialVersionUID = 5903416271410355393L;
 
@@ -1772,11 +2131,34 @@ final class HalyardTupleExprEvaluation {
 	        argStep.evaluate(new BindingSetPipe(parent) {
 	            @Override
 	            protected boolean next(BindingSet bs) {
+	            	BindingSet targetBindings;
+	            	try {
+	            		targetBindings = extend(bs);
+	            	} catch (QueryEvaluationException e) {
+	            		return handleException(e);
+	            	}
+	                return parent.push(targetBindings);
+	            }
+	            @Override
+	            protected boolean nextBatch(List<? extends BindingSet> bss) {
+	            	List<BindingSet> extended = new ArrayList<>(bss.size());
+	            	for (BindingSet bs : bss) {
+		            	try {
+		            		extended.add(extend(bs));
+		            	} catch (QueryEvaluationException e) {
+		            		if (!handleException(e)) {
+		            			return false;
+		            		}
+		            	}
+	            	}
+	                return extended.isEmpty() || parent.pushBatch(extended);
+	            }
+	            private BindingSet extend(BindingSet bs) {
 	                QueryBindingSet targetBindings = new QueryBindingSet(bs);
 	                for (org.apache.commons.lang3.tuple.Triple<String,ValuePipeQueryValueEvaluationStep,QueryEvaluationException> nonAgg : nonAggs) {
 	                	QueryEvaluationException ex = nonAgg.getRight();
 	                	if (ex != null) {
-	                		return handleException(ex);
+	                		throw ex;
 	                	}
                 		String extElemName = nonAgg.getLeft();
                 		ValuePipeQueryValueEvaluationStep elemStep = nonAgg.getMiddle();
@@ -1795,11 +2177,9 @@ final class HalyardTupleExprEvaluation {
                             // see https://www.w3.org/TR/sparql11-query/#assignment
                             // use null as place holder for unbound variables that must remain so
                             targetBindings.setBinding(extElemName, null);
-                        } catch (QueryEvaluationException e) {
-                            return handleException(e);
                         }
 	                }
-	                return parent.push(targetBindings);
+	                return targetBindings;
 	            }
 	            @Override
 	            public String toString() {
@@ -2011,12 +2391,361 @@ final class HalyardTupleExprEvaluation {
 
     	if (Algorithms.HASH_JOIN.equals(algorithm)) {
     		step = new HashJoinEvaluationStep(join, evalContext);
+    	} else if (Algorithms.MERGE_JOIN.equals(algorithm) && isMergeJoinSupported(join)) {
+    		step = precompileMergeJoin(join, evalContext);
+    	} else if (isBindJoinSupported(join)) {
+    		step = precompileBindJoin(join, evalContext);
     	} else {
     		step = precompileNestedLoopsJoin(join, evalContext);
     	}
     	return step;
     }
 
+    private boolean isMergeJoinSupported(Join join) {
+    	// currently, StatementPattern subclasses aren't supported
+    	return (tripleSource instanceof OrderedTripleSource) && join.getLeftArg().getClass() == StatementPattern.class && join.getRightArg().getClass() == StatementPattern.class;
+    }
+
+    /**
+     * Joins two statement patterns that are returned in the same order of the join variable by merging the two statement streams.
+     * Falls back to nested loops if the bindings change the order of either statement pattern.
+     */
+    private BindingSetPipeEvaluationStep precompileMergeJoin(Join join, QueryEvaluationContext evalContext) {
+    	join.setAlgorithm(Algorithms.MERGE_JOIN);
+    	StatementPattern leftSp = (StatementPattern) join.getLeftArg();
+    	StatementPattern rightSp = (StatementPattern) join.getRightArg();
+    	BindingSetPipeEvaluationStep nestedLoopsStep = precompileNestedLoopsJoin(precompileTupleExpr(leftSp, evalContext), precompileTupleExpr(rightSp, evalContext), join);
+    	return (parent, bindings) -> {
+    		QuadPattern leftNq = getQuadPattern(leftSp, bindings);
+    		QuadPattern rightNq = getQuadPattern(rightSp, bindings);
+    		if (leftNq == null || rightNq == null) {
+    			parent.close(); // nothing to push
+    			return;
+    		}
+    		StatementOrdering ordering = getMergeOrdering(leftSp, leftNq, rightSp, rightNq);
+    		if (ordering == null) {
+    			nestedLoopsStep.evaluate(parent, bindings);
+    			return;
+    		}
+    		String joinVarName = ordering.getRole().getVar(leftSp).getName();
+    		QueryEvaluationStep leftStep = evaluateStatementPattern(leftSp, leftNq, tripleSource);
+    		QueryEvaluationStep rightStep = evaluateStatementPattern(rightSp, rightNq, tripleSource);
+    		QueryEvaluationStep evalStep = bs -> new MergeJoinIteration(leftStep.evaluate(bs), rightStep.evaluate(bs), ordering, joinVarName);
+        	try {
+        		pullPushAsync(parent, evalStep, join, bindings);
+            } catch (QueryEvaluationException e) {
+                parent.handleException(e);
+            }
+    	};
+    }
+
+    /**
+     * Returns the common ordering of the two statement patterns if they can be merge-joined on the variable they are ordered by.
+     */
+    private StatementOrdering getMergeOrdering(StatementPattern leftSp, QuadPattern leftNq, StatementPattern rightSp, QuadPattern rightNq) {
+    	if (Arrays.stream(leftNq.ctxs).anyMatch(VIRTUAL_CONTEXTS::contains) || Arrays.stream(rightNq.ctxs).anyMatch(VIRTUAL_CONTEXTS::contains)) {
+    		return null;
+    	}
+    	OrderedTripleSource ots = (OrderedTripleSource) tripleSource;
+    	StatementOrdering ordering = ots.getStatementOrdering(leftNq.subj, leftNq.pred, leftNq.obj, leftNq.ctxs);
+    	if (ordering == null || !ordering.equals(ots.getStatementOrdering(rightNq.subj, rightNq.pred, rightNq.obj, rightNq.ctxs))) {
+    		return null;
+    	}
+    	TermRole role = ordering.getRole();
+    	Var leftVar = role.getVar(leftSp);
+    	Var rightVar = role.getVar(rightSp);
+    	if (leftVar == null || rightVar == null || !leftVar.getName().equals(rightVar.getName())
+    			|| role.getValue(leftNq.subj, leftNq.pred, leftNq.obj, null) != null || role.getValue(rightNq.subj, rightNq.pred, rightNq.obj, null) != null) {
+    		return null;
+    	}
+    	return ordering;
+    }
+
+    /**
+     * Merges two binding set streams that are sorted by the sort key of the join variable.
+     * Different values can share a sort key, so each left binding set is joined with all the right binding sets with the same sort key.
+     * Only a run of right binding sets with the same sort key is held in memory.
+     */
+    private static final class MergeJoinIteration extends LookAheadIteration<BindingSet> {
+    	private final CloseableIteration<BindingSet> leftIter;
+    	private final CloseableIteration<BindingSet> rightIter;
+    	private final StatementOrdering ordering;
+    	private final String joinVarName;
+    	private final List<BindingSet> rightRun = new ArrayList<>();
+    	private byte[] rightRunKey;
+    	private BindingSet nextRight;
+    	private byte[] nextRightKey;
+    	private BindingSet currentLeft;
+    	private int rightRunIndex;
+
+    	MergeJoinIteration(CloseableIteration<BindingSet> leftIter, CloseableIteration<BindingSet> rightIter, StatementOrdering ordering, String joinVarName) {
+    		this.leftIter = leftIter;
+    		this.rightIter = rightIter;
+    		this.ordering = ordering;
+    		this.joinVarName = joinVarName;
+    	}
+
+    	private byte[] getSortKey(BindingSet bs) {
+    		return ordering.getSortKey(bs.getValue(joinVarName));
+    	}
+
+    	@Override
+    	protected BindingSet getNextElement() {
+    		while (true) {
+    			while (currentLeft != null && rightRunIndex < rightRun.size()) {
+    				BindingSet result = join(currentLeft, rightRun.get(rightRunIndex++));
+    				if (result != null) {
+    					return result;
+    				}
+    			}
+    			currentLeft = null;
+    			if (!leftIter.hasNext()) {
+    				return null;
+    			}
+    			BindingSet left = leftIter.next();
+    			byte[] leftKey = getSortKey(left);
+    			if (rightRunKey == null || Arrays.compareUnsigned(leftKey, rightRunKey) != 0) {
+    				if (!nextRunFrom(leftKey)) {
+    					return null;
+    				}
+    			}
+    			if (Arrays.compareUnsigned(leftKey, rightRunKey) == 0) {
+    				currentLeft = left;
+    				rightRunIndex = 0;
+    			}
+    		}
+    	}
+
+    	/**
+    	 * Reads the next run of right binding sets with a sort key not less than the given key.
+    	 * @return false if there are no more right binding sets.
+    	 */
+    	private boolean nextRunFrom(byte[] key) {
+    		if (rightRunKey != null && Arrays.compareUnsigned(rightRunKey, key) > 0) {
+    			// current run is still ahead
+    			return true;
+    		}
+    		rightRun.clear();
+    		rightRunKey = null;
+    		while (nextRight == null || Arrays.compareUnsigned(nextRightKey, key) < 0) {
+    			if (!rightIter.hasNext()) {
+    				nextRight = null;
+    				return false;
+    			}
+    			nextRight = rightIter.next();
+    			nextRightKey = getSortKey(nextRight);
+    		}
+    		rightRunKey = nextRightKey;
+    		do {
+    			rightRun.add(nextRight);
+    			if (rightIter.hasNext()) {
+    				nextRight = rightIter.next();
+    				nextRightKey = getSortKey(nextRight);
+    			} else {
+    				nextRight = null;
+    			}
+    		} while (nextRight != null && Arrays.compareUnsigned(nextRightKey, rightRunKey) == 0);
+    		return true;
+    	}
+
+    	private static BindingSet join(BindingSet left, BindingSet right) {
+    		QueryBindingSet result = new QueryBindingSet(left);
+    		for (Binding b : right) {
+    			Value leftValue = left.getValue(b.getName());
+    			if (leftValue == null) {
+    				result.addBinding(b);
+    			} else if (!leftValue.equals(b.getValue())) {
+    				return null;
+    			}
+    		}
+    		return result;
+    	}
+
+    	@Override
+    	protected void handleClose() {
+    		try {
+    			leftIter.close();
+    		} finally {
+    			rightIter.close();
+    		}
+    	}
+    }
+
+    private boolean isBindJoinSupported(Join join) {
+    	// currently, StatementPattern subclasses aren't supported
+    	return bindJoinBatchSize > 1 && (tripleSource instanceof BatchTripleSource) && join.getRightArg().getClass() == StatementPattern.class;
+    }
+
+    /**
+     * Nested loops join that buffers the left-hand binding sets and looks up the right-hand statement pattern for a whole batch at a time.
+     */
+    private BindingSetPipeEvaluationStep precompileBindJoin(Join join, QueryEvaluationContext evalContext) {
+    	join.setAlgorithm(Algorithms.BIND_JOIN);
+        BindingSetPipeEvaluationStep outerStep = precompileTupleExpr(join.getLeftArg(), evalContext);
+        StatementPattern sp = (StatementPattern) join.getRightArg();
+    	final class BindJoinPipe extends PipeJoin {
+    		private final StatementPattern innerPattern;
+    		private List<BindingSet> batch = new ArrayList<>(bindJoinBatchSize);
+
+    		BindJoinPipe(BindingSetPipe parent, StatementPattern innerPattern) {
+				super(parent);
+				this.innerPattern = innerPattern;
+			}
+			@Override
+            protected boolean next(BindingSet bs) {
+				if (parent.isClosed()) {
+					return false;
+				}
+				List<BindingSet> fullBatch;
+				synchronized (this) {
+					batch.add(bs);
+					if (batch.size() >= bindJoinBatchSize) {
+						fullBatch = batch;
+						batch = new ArrayList<>(bindJoinBatchSize);
+					} else {
+						fullBatch = null;
+					}
+				}
+				if (fullBatch != null) {
+					startBatch(fullBatch, false);
+				}
+                return !parent.isClosed(); // lookup is async, check if we've been closed
+            }
+			@Override
+			protected void doClose() {
+				List<BindingSet> lastBatch;
+				synchronized (this) {
+					lastBatch = batch;
+					batch = null;
+				}
+				if (lastBatch != null && !lastBatch.isEmpty()) {
+					startBatch(lastBatch, true);
+				} else {
+					super.doClose();
+				}
+			}
+			private void startBatch(List<BindingSet> bss, boolean isLast) {
+				startSecondaryPipe(isLast);
+				evaluateStatementPatternBatch(new BindingSetPipe(parent) {
+                	@Override
+                	protected boolean next(BindingSet bs) {
+                		return pushToParent(bs);
+                	}
+                	@Override
+                	protected boolean nextBatch(List<? extends BindingSet> bss) {
+                		return pushBatchToParent(bss);
+                	}
+                    @Override
+    				protected void doClose() {
+                    	endSecondaryPipe();
+                    }
+                    @Override
+                    public String toString() {
+                    	return "BindJoinBindingSetPipe(inner)";
+                    }
+				}, innerPattern, bss);
+			}
+            @Override
+            public String toString() {
+            	return "BindJoinBindingSetPipe(outer)";
+            }
+    	}
+        return (topPipe, bindings) -> {
+	        outerStep.evaluate(new BindJoinPipe(parentStrategy.track(topPipe, join), sp), bindings);
+        };
+    }
+
+    /**
+     * Evaluates the statement pattern for each of the supplied bindings using a single batched lookup.
+     * @param parent to push evaluation results
+     * @param sp the {@code StatementPattern} to evaluate
+     * @param bss the binding sets to evaluate the statement pattern with
+     */
+    private void evaluateStatementPatternBatch(BindingSetPipe parent, StatementPattern sp, List<BindingSet> bss) {
+    	List<BindingSet> lookupBindings = new ArrayList<>(bss.size());
+    	List<QuadPattern> lookupPatterns = new ArrayList<>(bss.size());
+    	List<BatchTripleSource.Lookup> lookups = new ArrayList<>(bss.size());
+    	BitSet virtualLookups = new BitSet(bss.size());
+    	for (BindingSet bs : bss) {
+    		QuadPattern nq = getQuadPattern(sp, bs);
+    		if (nq != null) {
+    			int i = lookupPatterns.size();
+    			lookupBindings.add(bs);
+    			lookupPatterns.add(nq);
+    			lookups.add(new BatchTripleSource.Lookup(nq.subj, nq.pred, nq.obj, nq.ctxs));
+    			if (Arrays.stream(nq.ctxs).anyMatch(VIRTUAL_CONTEXTS::contains)) {
+    				virtualLookups.set(i);
+    			}
+    		}
+    	}
+    	if (lookups.isEmpty()) {
+    		parent.close(); // nothing to push
+    		return;
+    	}
+
+    	QueryEvaluationStep evalStep = ignored -> {
+    		CloseableIteration<BatchTripleSource.Match> matchIter;
+    		if (virtualLookups.isEmpty()) {
+    			matchIter = ((BatchTripleSource) tripleSource).getStatements(lookups);
+    		} else {
+    			// virtual contexts are not known to the triple source so have to be looked up individually
+    			List<BatchTripleSource.Lookup> batchLookups = new ArrayList<>(lookups.size());
+    			int virtualCount = virtualLookups.cardinality();
+    			int[] batchIndices = new int[lookups.size() - virtualCount];
+    			List<CloseableIteration<BatchTripleSource.Match>> iters = new ArrayList<>(1 + virtualCount);
+    			for (int i=0; i<lookups.size(); i++) {
+    				if (virtualLookups.get(i)) {
+    					int index = i;
+    					iters.add(new ConvertingIteration<Statement, BatchTripleSource.Match>(getStatements(lookupPatterns.get(i), tripleSource)) {
+    						@Override
+    						protected BatchTripleSource.Match convert(Statement stmt) {
+    							return new BatchTripleSource.Match(index, stmt);
+    						}
+    					});
+    				} else {
+    					batchIndices[batchLookups.size()] = i;
+    					batchLookups.add(lookups.get(i));
+    				}
+    			}
+    			if (!batchLookups.isEmpty()) {
+    				iters.add(new ConvertingIteration<BatchTripleSource.Match, BatchTripleSource.Match>(((BatchTripleSource) tripleSource).getStatements(batchLookups)) {
+    					@Override
+    					protected BatchTripleSource.Match convert(BatchTripleSource.Match m) {
+    						return new BatchTripleSource.Match(batchIndices[m.getIndex()], m.getStatement());
+    					}
+    				});
+    			}
+    			matchIter = iters.size() > 1 ? new UnionIteration<>(iters) : iters.get(0);
+    		}
+    		CloseableIteration<BatchTripleSource.Match> matches = matchIter;
+    		return new LookAheadIteration<BindingSet>() {
+				@Override
+				protected BindingSet getNextElement() {
+					while (matches.hasNext()) {
+						BatchTripleSource.Match match = matches.next();
+						int i = match.getIndex();
+						Statement stmt = match.getStatement();
+						QuadPattern nq = lookupPatterns.get(i);
+						if ((!nq.isAllNamedContexts() || stmt.getContext() != null) && filterStatement(sp, stmt, nq)) {
+							return convertStatement(sp, stmt, lookupBindings.get(i));
+						}
+					}
+					return null;
+				}
+
+				@Override
+				protected void handleClose() {
+					matches.close();
+				}
+    		};
+    	};
+    	try {
+    		pullPushAsync(parent, evalStep, sp, lookupBindings.get(0));
+        } catch (QueryEvaluationException e) {
+            parent.handleException(e);
+        }
+    }
+
     private BindingSetPipeEvaluationStep precompileNestedLoopsJoin(Join join, QueryEvaluationContext evalContext) {
     	join.setAlgorithm(Algorithms.NESTED_LOOPS);
         BindingSetPipeEvaluationStep outerStep = precompileTupleExpr(join.getLeftArg(), evalContext);
@@ -2037,6 +2766,10 @@ final class HalyardTupleExprEvaluation {
                 	protected boolean next(BindingSet bs) {
                 		return pushToParent(bs);
                 	}
+                	@Override
+                	protected boolean nextBatch(List<? extends BindingSet> bss) {
+                		return pushBatchToParent(bss);
+                	}
                     @Override
     				protected void doClose() {
                     	endSecondaryPipe();
@@ -2365,24 +3098,42 @@ final class HalyardTupleExprEvaluation {
     		return joinAttributeNames;
     	}
 
-    	final HashJoinTable<?> createHashTable(Set<String> joinBindings, List<String> buildBindings) {
+    	final HashJoinTable createHashTable(Set<String> joinBindings, List<String> buildBindings) {
 	    	return HashJoinTable.create(initialSize, joinBindings, buildBindings);
     	}
 
+    	final BindingSetPartitions createPartitions() {
+    		return new BindingSetPartitions(hashJoinSpillPartitions, spillDir, tripleSource.getValueFactory());
+    	}
+
 		@Override
 		public void evaluate(BindingSetPipe parent, BindingSet bindings) {
 			Set<String> actualJoinBindings = getUnboundNames(estimatedJoinBindings, bindings);
 			List<String> actualBuildBindings = getUnboundNames(estimatedBuildBindings, actualJoinBindings, bindings);
 			buildStep.evaluate(new PipeJoin(parentStrategy.track(parent, join)) {
-		    	HashJoinTable<?> hashTable = createHashTable(actualJoinBindings, actualBuildBindings);
+		    	HashJoinTable hashTable = createHashTable(actualJoinBindings, actualBuildBindings);
+		    	BindingSetPartitions spilledPartitions;
 	            @Override
 	            protected boolean next(BindingSet buildBs) {
 					if (parent.isClosed()) {
 						return false;
 					}
-	            	HashJoinTable<?> partition;
+	            	HashJoinTable partition;
 	            	synchronized (this) {
 	                	if (hashTable.entryCount() >= hashTableLimit) {
+	                		// NB: left joins are never partitioned
+	                		if (hashJoinSpillPartitions > 0 && !actualJoinBindings.isEmpty()) {
+	                			// spill the overflow to disk, partitioned by join key
+	                			try {
+	                				if (spilledPartitions == null) {
+	                					spilledPartitions = createPartitions();
+	                				}
+	                				spilledPartitions.add(hashTable.partitionOf(buildBs, hashJoinSpillPartitions), buildBs);
+	                			} catch (IOException e) {
+	                				return handleException(e);
+	                			}
+	                			return true;
+	                		}
 	                		partition = hashTable;
 	                		hashTable = createHashTable(actualJoinBindings, actualBuildBindings);
 	                	} else {
@@ -2399,17 +3150,32 @@ final class HalyardTupleExprEvaluation {
 				protected void doClose() {
 	            	synchronized (this) {
 	            		if (hashTable != null) {
-	                   		startJoin(hashTable, true);
+	            			if (spilledPartitions != null) {
+	            				startGraceJoin(hashTable, spilledPartitions);
+	            				spilledPartitions = null;
+	            			} else {
+	            				startJoin(hashTable, true);
+	            			}
 	            			hashTable = null;
 	            		}
 	            	}
+	            }
+	            @Override
+	            public boolean handleException(Throwable e) {
+	            	synchronized (this) {
+	            		if (spilledPartitions != null) {
+	            			spilledPartitions.close();
+	            			spilledPartitions = null;
+	            		}
+	            	}
+	            	return super.handleException(e);
 	            }
 	        	/**
 	        	 * Performs a hash-join.
 	        	 * @param hashTablePartition hash table to join against.
 	        	 * @param isLast true if this is the last time doJoin() will be called for the current join operation.
 	        	 */
-	        	private void startJoin(HashJoinTable<?> hashTablePartition, boolean isLast) {
+	        	private void startJoin(HashJoinTable hashTablePartition, boolean isLast) {
 	        		if (hashTablePartition.entryCount() == 0) {
 	        			BindingSetPipe noJoinPipe = createNoJoinPipe(this);
 	        			if (noJoinPipe != null) {
@@ -2427,6 +3193,11 @@ final class HalyardTupleExprEvaluation {
 	                	probeStep.evaluate(createPipe(this, hashTablePartition), bindings);
 	        		}
 	        	}
+	        	private void startGraceJoin(HashJoinTable hashTablePartition, BindingSetPartitions buildPartitions) {
+	        		startSecondaryPipe(true);
+	        		// NB: this part may execute asynchronously
+	        		probeStep.evaluate(new GraceHashJoinBindingSetPipe(this, hashTablePartition, buildPartitions), bindings);
+	        	}
 	            @Override
 	            public String toString() {
 	            	return "HashTableBindingSetPipe";
@@ -2436,13 +3207,116 @@ final class HalyardTupleExprEvaluation {
 
 		protected abstract BindingSetPipe createNoJoinPipe(PipeJoin primary);
 
-		protected abstract BindingSetPipe createPipe(PipeJoin primary, HashJoinTable<?> hashTablePartition);
+		protected abstract BindingSetPipe createPipe(PipeJoin primary, HashJoinTable hashTablePartition);
+
+		/**
+		 * Grace hash join for when the build side does not fit in memory.
+		 * Probe binding sets are joined against the in-memory part of the build side straight away,
+		 * and are also spilled to disk using the same partitioning as the rest of the build side.
+		 * Each spilled partition is then joined in turn.
+		 */
+		final class GraceHashJoinBindingSetPipe extends BindingSetPipe {
+			private final PipeJoin primary;
+			private final HashJoinTable hashTablePartition;
+			private final BindingSetPipe hashTablePipe;
+			private final BindingSetPartitions buildPartitions;
+			private final BindingSetPartitions probePartitions;
+			private final int partitionCount;
+
+			GraceHashJoinBindingSetPipe(PipeJoin primary, HashJoinTable hashTablePartition, BindingSetPartitions buildPartitions) {
+				super(primary.getParent());
+				this.primary = primary;
+				this.hashTablePartition = hashTablePartition;
+				this.buildPartitions = buildPartitions;
+				this.probePartitions = createPartitions();
+				this.partitionCount = buildPartitions.getPartitionCount();
+				primary.startSecondaryPipe();
+				this.hashTablePipe = createPipe(primary, hashTablePartition);
+			}
+			@Override
+			protected boolean next(BindingSet probeBs) {
+				if (!hashTablePipe.push(probeBs)) {
+					return false;
+				}
+				try {
+					if (probeBs.isEmpty() || hasUnboundJoinValue(probeBs)) {
+						// may join with any partition
+						for (int i=0; i<partitionCount; i++) {
+							spillProbe(i, probeBs);
+						}
+					} else {
+						spillProbe(hashTablePartition.partitionOf(probeBs, partitionCount), probeBs);
+					}
+				} catch (IOException e) {
+					return handleException(e);
+				}
+				return !parent.isClosed();
+			}
+			private boolean hasUnboundJoinValue(BindingSet probeBs) {
+				for (String name : hashTablePartition.joinBindings) {
+					if (probeBs.getValue(name) == null) {
+						return true;
+					}
+				}
+				return false;
+			}
+			private void spillProbe(int partition, BindingSet probeBs) throws IOException {
+				if (buildPartitions.size(partition) > 0) {
+					probePartitions.add(partition, probeBs);
+				}
+			}
+			@Override
+			protected void doClose() {
+				hashTablePipe.close();
+				try {
+					buildPartitions.finish();
+					probePartitions.finish();
+					for (int i=0; i<partitionCount && !parent.isClosed(); i++) {
+						if (buildPartitions.size(i) > 0 && probePartitions.size(i) > 0) {
+							joinPartition(i);
+						}
+					}
+				} catch (IOException e) {
+					handleException(e);
+				} finally {
+					closePartitions();
+					primary.endSecondaryPipe();
+				}
+			}
+			private void joinPartition(int partition) throws IOException {
+				HashJoinTable spilledTable = createHashTable(hashTablePartition.joinKeySet, Arrays.asList(hashTablePartition.buildBindings));
+				buildPartitions.read(partition, bs -> {
+					spilledTable.put(bs);
+					return true;
+				});
+				primary.startSecondaryPipe();
+				BindingSetPipe spilledPipe = createPipe(primary, spilledTable);
+				try {
+					probePartitions.read(partition, spilledPipe::push);
+				} finally {
+					spilledPipe.close();
+				}
+			}
+			@Override
+			public boolean handleException(Throwable e) {
+				closePartitions();
+				return super.handleException(e);
+			}
+			private void closePartitions() {
+				buildPartitions.close();
+				probePartitions.close();
+			}
+		    @Override
+		    public String toString() {
+		    	return "GraceHashJoinBindingSetPipe";
+		    }
+		}
 
     	abstract class AbstractHashJoinBindingSetPipe extends BindingSetPipe {
     		private final PipeJoin primary;
-    		protected final HashJoinTable<?> hashTablePartition;
+    		protected final HashJoinTable hashTablePartition;
 
-    		protected AbstractHashJoinBindingSetPipe(PipeJoin primary, HashJoinTable<?> hashTablePartition) {
+    		protected AbstractHashJoinBindingSetPipe(PipeJoin primary, HashJoinTable hashTablePartition) {
 				super(primary.getParent());
 				this.primary = primary;
 				this.hashTablePartition = hashTablePartition;
@@ -2478,7 +3352,7 @@ final class HalyardTupleExprEvaluation {
 		}
 
 		final class HashJoinBindingSetPipe extends AbstractHashJoinBindingSetPipe {
-			protected HashJoinBindingSetPipe(PipeJoin primary, HashJoinTable<?> hashTablePartition) {
+			protected HashJoinBindingSetPipe(PipeJoin primary, HashJoinTable hashTablePartition) {
 				super(primary, hashTablePartition);
 			}
 			@Override
@@ -2530,7 +3404,7 @@ final class HalyardTupleExprEvaluation {
 		}
 
 		@Override
-		protected BindingSetPipe createPipe(PipeJoin primary, HashJoinTable<?> hashTablePartition) {
+		protected BindingSetPipe createPipe(PipeJoin primary, HashJoinTable hashTablePartition) {
 			return new HashJoinBindingSetPipe(primary, hashTablePartition);
 		}
 	}
@@ -2550,7 +3424,7 @@ final class HalyardTupleExprEvaluation {
 		}
 
 		final class LeftHashJoinBindingSetPipe extends AbstractHashJoinBindingSetPipe {
-			protected LeftHashJoinBindingSetPipe(PipeJoin primary, HashJoinTable<?> hashTablePartition) {
+			protected LeftHashJoinBindingSetPipe(PipeJoin primary, HashJoinTable hashTablePartition) {
 				super(primary, hashTablePartition);
 			}
 			@Override
@@ -2626,7 +3500,7 @@ final class HalyardTupleExprEvaluation {
 		}
 
 		@Override
-		protected BindingSetPipe createPipe(PipeJoin primary, HashJoinTable<?> hashTablePartition) {
+		protected BindingSetPipe createPipe(PipeJoin primary, HashJoinTable hashTablePartition) {
 			return new LeftHashJoinBindingSetPipe(primary, hashTablePartition);
 		}
 	}
@@ -3243,6 +4117,221 @@ final class HalyardTupleExprEvaluation {
      * @param alp
      */
     private BindingSetPipeEvaluationStep precompileArbitraryLengthPath(ArbitraryLengthPath alp) {
+    	BindingSetPipeEvaluationStep pathIterationStep = precompilePathIteration(alp);
+    	TupleExpr pathExpr = alp.getPathExpression();
+    	Var subjVar = alp.getSubjectVar();
+    	Var objVar = alp.getObjectVar();
+    	Var ctxVar = alp.getContextVar();
+    	// currently, only single predicate paths (and StatementPattern subclasses aren't supported)
+    	if (alp.getMinLength() > 1 || pathExpr.getClass() != StatementPattern.class || subjVar.getName().equals(objVar.getName())) {
+    		return pathIterationStep;
+    	}
+    	StatementPattern sp = (StatementPattern) pathExpr;
+    	String spSubjName = sp.getSubjectVar().getName();
+    	String spObjName = sp.getObjectVar().getName();
+    	boolean isInverse;
+    	if (spSubjName.equals(subjVar.getName()) && spObjName.equals(objVar.getName())) {
+    		isInverse = false;
+    	} else if (spSubjName.equals(objVar.getName()) && spObjName.equals(subjVar.getName())) {
+    		isInverse = true;
+    	} else {
+    		return pathIterationStep;
+    	}
+    	Var spCtxVar = sp.getContextVar();
+    	if ((ctxVar == null) != (spCtxVar == null) || (ctxVar != null && !ctxVar.getName().equals(spCtxVar.getName()))) {
+    		return pathIterationStep;
+    	}
+    	StatementPattern lookupSp = new StatementPattern(sp.getScope(), Algebra.createAnonVar(ANON_SUBJECT_VAR), sp.getPredicateVar().clone(), Algebra.createAnonVar(ANON_OBJECT_VAR), (spCtxVar != null) ? spCtxVar.clone() : null);
+    	return (parent, bindings) -> {
+    		Value subj = Algebra.getVarValue(subjVar, bindings);
+    		Value obj = Algebra.getVarValue(objVar, bindings);
+    		if ((subj == null && obj == null) || (ctxVar != null && Algebra.getVarValue(ctxVar, bindings) == null)) {
+    			// all paths (or paths per graph)
+    			pathIterationStep.evaluate(parent, bindings);
+    			return;
+    		}
+    		QuadPattern nq = getQuadPattern(lookupSp, bindings);
+    		if (nq == null) {
+    			parent.close(); // nothing to push
+    			return;
+    		}
+    		// traverse from a bound end
+    		boolean fromSubj = (subj != null);
+    		Value start = fromSubj ? subj : obj;
+    		Value target = fromSubj ? obj : subj;
+    		Var startVar = fromSubj ? subjVar : objVar;
+    		Var endVar = fromSubj ? objVar : subjVar;
+    		boolean forward = (fromSubj != isInverse);
+    		QueryBindingSet startBindings = new QueryBindingSet(bindings);
+    		addBindingIfAbsent(startBindings, startVar, start);
+    		if (ctxVar != null) {
+    			addBindingIfAbsent(startBindings, ctxVar, ctxVar.getValue());
+    		}
+    		try {
+    			pullPushAsync(parent, bs -> new BreadthFirstPathIteration(nq, forward, start, target, alp.getMinLength(), endVar, startBindings), alp, bindings);
+    		} catch (QueryEvaluationException e) {
+    			parent.handleException(e);
+    		}
+    	};
+    }
+
+    private static void addBindingIfAbsent(QueryBindingSet bs, Var var, Value value) {
+    	if (!var.isConstant() && !bs.hasBinding(var.getName())) {
+    		bs.addBinding(var.getName(), value);
+    	}
+    }
+
+    /**
+     * Breadth-first search from a node, looking up the neighbours of queued nodes in batches.
+     * Each reachable node is reported once, and the search ends as soon as the target node (if any) is reached.
+     * The queue of nodes still to expand spills to disk beyond the collections memory threshold,
+     * and neighbours are read lazily so that at most one result is buffered.
+     */
+    private final class BreadthFirstPathIteration extends LookAheadIteration<BindingSet> {
+    	private final QuadPattern nq;
+    	private final boolean forward;
+    	private final Value target;
+    	private final Var endVar;
+    	private final BindingSet bindings;
+    	private final BigHashSet<Value> visited = BigHashSet.createValueSet(collectionMemoryThreshold, tripleSource.getValueFactory());
+    	private final BigQueue<Value> queue = BigQueue.createValueQueue(collectionMemoryThreshold, spillDir, tripleSource.getValueFactory());
+    	private CloseableIteration<? extends Statement> stmts;
+    	private Value result;
+    	private boolean done;
+
+    	BreadthFirstPathIteration(QuadPattern nq, boolean forward, Value start, Value target, long minLength, Var endVar, BindingSet bindings) {
+    		this.nq = nq;
+    		this.forward = forward;
+    		this.target = target;
+    		this.endVar = endVar;
+    		this.bindings = bindings;
+    		if (minLength == 0) {
+    			visit(start);
+    		} else {
+    			enqueue(start);
+    		}
+    	}
+
+    	@Override
+    	protected BindingSet getNextElement() {
+    		while (true) {
+    			if (result != null) {
+    				QueryBindingSet bs = new QueryBindingSet(bindings);
+    				addBindingIfAbsent(bs, endVar, result);
+    				result = null;
+    				return bs;
+    			}
+    			if (done) {
+    				return null;
+    			}
+    			if (stmts != null) {
+    				if (stmts.hasNext()) {
+    					Statement stmt = stmts.next();
+    					if (!nq.isAllNamedContexts() || stmt.getContext() != null) {
+    						visit(forward ? stmt.getObject() : stmt.getSubject());
+    					}
+    					continue;
+    				}
+    				stmts.close();
+    				stmts = null;
+    			}
+    			List<Value> nodes = new ArrayList<>();
+    			try {
+    				Value node;
+    				while (nodes.size() < Math.max(pathBatchSize, 1) && (node = queue.poll()) != null) {
+    					nodes.add(node);
+    				}
+    			} catch (IOException ioe) {
+    				throw new QueryEvaluationException(ioe);
+    			}
+    			if (nodes.isEmpty()) {
+    				return null;
+    			}
+    			stmts = lookup(nodes);
+    		}
+    	}
+
+    	private void enqueue(Value v) {
+    		try {
+    			queue.add(v);
+    		} catch (IOException ioe) {
+    			throw new QueryEvaluationException(ioe);
+    		}
+    	}
+
+    	private void visit(Value v) {
+    		boolean added;
+    		try {
+    			added = visited.add(v);
+    		} catch (IOException ioe) {
+    			throw new QueryEvaluationException(ioe);
+    		}
+    		if (added) {
+    			if (target == null) {
+    				result = v;
+    			} else if (target.equals(v)) {
+    				result = v;
+    				done = true;
+    				return;
+    			}
+    			enqueue(v);
+    		}
+    	}
+
+    	/**
+    	 * @return the neighbour statements of the nodes, or null if none of the nodes can have any.
+    	 */
+    	private CloseableIteration<? extends Statement> lookup(List<Value> nodes) {
+    		List<QuadPattern> lookupPatterns = new ArrayList<>(nodes.size());
+    		for (Value node : nodes) {
+    			if (forward) {
+    				if (node.isResource()) {
+    					lookupPatterns.add(new QuadPattern((Resource) node, nq.pred, null, nq.ctxs, nq.scope));
+    				}
+    			} else {
+    				lookupPatterns.add(new QuadPattern(null, nq.pred, node, nq.ctxs, nq.scope));
+    			}
+    		}
+    		if (lookupPatterns.isEmpty()) {
+    			return null;
+    		}
+    		if (lookupPatterns.size() > 1 && (tripleSource instanceof BatchTripleSource) && Arrays.stream(nq.ctxs).noneMatch(VIRTUAL_CONTEXTS::contains)) {
+    			List<BatchTripleSource.Lookup> lookups = new ArrayList<>(lookupPatterns.size());
+    			for (QuadPattern lookupPattern : lookupPatterns) {
+    				lookups.add(new BatchTripleSource.Lookup(lookupPattern.subj, lookupPattern.pred, lookupPattern.obj, lookupPattern.ctxs));
+    			}
+    			return new ConvertingIteration<BatchTripleSource.Match, Statement>(((BatchTripleSource) tripleSource).getStatements(lookups)) {
+    				@Override
+    				protected Statement convert(BatchTripleSource.Match m) {
+    					return m.getStatement();
+    				}
+    			};
+    		} else {
+    			List<CloseableIteration<? extends Statement>> iters = new ArrayList<>(lookupPatterns.size());
+    			for (QuadPattern lookupPattern : lookupPatterns) {
+    				iters.add(getStatements(lookupPattern, tripleSource));
+    			}
+    			return iters.size() > 1 ? new UnionIteration<>(iters) : iters.get(0);
+    		}
+    	}
+
+    	@Override
+    	protected void handleClose() {
+    		try {
+    			if (stmts != null) {
+    				stmts.close();
+    			}
+    		} finally {
+    			queue.close();
+    			visited.close();
+    		}
+    	}
+    }
+
+    /**
+     * Evaluates {@link ArbitraryLengthPath} query model nodes using RDF4J's {@link PathIteration}.
+     */
+    private BindingSetPipeEvaluationStep precompilePathIteration(ArbitraryLengthPath alp) {
     	return (parent, bindings) -> {
 	        final StatementPattern.Scope scope = alp.getScope();
 	        final Var subjectVar = alp.getSubjectVar();
@@ -3489,6 +4578,13 @@ final class HalyardTupleExprEvaluation {
     		}
     		return pushMore;
     	}
+    	protected final boolean pushBatchToParent(List<? extends BindingSet> bss) {
+    		boolean pushMore = parent.pushBatch(bss);
+    		if (!pushMore) {
+    			finished.set(true);
+    		}
+    		return pushMore;
+    	}
     	protected final void endSecondaryPipe() {
     		inProgress.decrementAndGet();
     		// close if we are the last child and the main pipe has already finished
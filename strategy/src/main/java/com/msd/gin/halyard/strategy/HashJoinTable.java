@@ -1,5 +1,7 @@
 package com.msd.gin.halyard.strategy;
 
+import com.msd.gin.halyard.strategy.collections.BindingSetPartitions;
+
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -12,15 +14,15 @@ import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 
-abstract class HashJoinTable<K> {
+abstract class HashJoinTable {
 	final Set<String> joinKeySet;
 	final String[] joinBindings;
 	final String[] buildBindings;
-	private final Map<K, List<BindingSetValues>> hashTable;
-	private int keyCount;
-	private int bsCount;
 
-	static HashJoinTable<?> create(int initialSize, Set<String> joinBindings, List<String> buildBindings) {
+	/**
+	 * @param buildBindings must start with the join bindings, in the same order.
+	 */
+	static HashJoinTable create(int initialSize, Set<String> joinBindings, List<String> buildBindings) {
 		if (joinBindings.size() == 1) {
 			String joinBinding = joinBindings.iterator().next();
 			return new SingleKeyHashJoinTable(initialSize, joinBinding, buildBindings);
@@ -29,47 +31,81 @@ abstract class HashJoinTable<K> {
 		}
 	}
 
-	HashJoinTable(int initialSize, Set<String> joinBindings, List<String> buildBindings) {
+	HashJoinTable(Set<String> joinBindings, List<String> buildBindings) {
 		this.joinKeySet = joinBindings;
 		this.joinBindings = joinBindings.toArray(new String[joinBindings.size()]);
 		this.buildBindings = buildBindings.toArray(new String[buildBindings.size()]);
-		if (!joinBindings.isEmpty()) {
-			hashTable = new HashMap<>(initialSize);
-		} else {
-			hashTable = Collections.<K, List<BindingSetValues>>singletonMap(createKey(EmptyBindingSet.getInstance()), new ArrayList<>(initialSize));
-		}
 	}
 
-	void put(BindingSet bs) {
-		K hashKey = createKey(bs);
-		List<BindingSetValues> hashValue = hashTable.get(hashKey);
-		boolean newEntry = (hashValue == null);
-		if (newEntry) {
-			int averageSize = (keyCount > 0) ? (int) (bsCount/keyCount) : 0;
-			hashValue = new ArrayList<>(averageSize + 1);
-			hashTable.put(hashKey, hashValue);
-			keyCount++;
+	abstract void put(BindingSet bs);
+
+	abstract int entryCount();
+
+	abstract List<BindingSetValues> get(BindingSet bs);
+
+	abstract Collection<? extends List<BindingSetValues>> all();
+
+	/**
+	 * Assigns a binding set to a partition by the hash of its join values.
+	 */
+	final int partitionOf(BindingSet bs, int partitionCount) {
+		int h = 1;
+		for (String name : joinBindings) {
+			Value v = bs.getValue(name);
+			h = 31 * h + (v != null ? v.hashCode() : 0);
 		}
-		hashValue.add(BindingSetValues.create(buildBindings, bs));
-		bsCount++;
+		return BindingSetPartitions.partitionOf(h, partitionCount);
 	}
 
-	int entryCount() {
-		return bsCount;
-	}
+	private static abstract class MapHashJoinTable<K> extends HashJoinTable {
+		private final Map<K, List<BindingSetValues>> hashTable;
+		private int keyCount;
+		private int bsCount;
 
-	List<BindingSetValues> get(BindingSet bs) {
-		K key = createKey(bs);
-		return hashTable.get(key);
-	}
+		MapHashJoinTable(int initialSize, Set<String> joinBindings, List<String> buildBindings) {
+			super(joinBindings, buildBindings);
+			if (!joinBindings.isEmpty()) {
+				hashTable = new HashMap<>(initialSize);
+			} else {
+				hashTable = Collections.<K, List<BindingSetValues>>singletonMap(createKey(EmptyBindingSet.getInstance()), new ArrayList<>(initialSize));
+			}
+		}
 
-	Collection<? extends List<BindingSetValues>> all() {
-		return hashTable.values();
-	}
+		@Override
+		void put(BindingSet bs) {
+			K hashKey = createKey(bs);
+			List<BindingSetValues> hashValue = hashTable.get(hashKey);
+			boolean newEntry = (hashValue == null);
+			if (newEntry) {
+				int averageSize = (keyCount > 0) ? (int) (bsCount/keyCount) : 0;
+				hashValue = new ArrayList<>(averageSize + 1);
+				hashTable.put(hashKey, hashValue);
+				keyCount++;
+			}
+			hashValue.add(BindingSetValues.create(buildBindings, bs));
+			bsCount++;
+		}
+
+		@Override
+		int entryCount() {
+			return bsCount;
+		}
 
-	abstract K createKey(BindingSet bs);
+		@Override
+		List<BindingSetValues> get(BindingSet bs) {
+			K key = createKey(bs);
+			return hashTable.get(key);
+		}
+
+		@Override
+		Collection<? extends List<BindingSetValues>> all() {
+			return hashTable.values();
+		}
+
+		abstract K createKey(BindingSet bs);
+	}
 
-	private static final class MultiKeyHashJoinTable extends HashJoinTable<BindingSetValues> {
+	private static final class MultiKeyHashJoinTable extends MapHashJoinTable<BindingSetValues> {
 		MultiKeyHashJoinTable(int initialSize, Set<String> joinBindings, List<String> buildBindings) {
 			super(initialSize, joinBindings, buildBindings);
 		}
@@ -80,7 +116,7 @@ abstract class HashJoinTable<K> {
 		}
 	}
 
-	private static final class SingleKeyHashJoinTable extends HashJoinTable<Value> {
+	private static final class SingleKeyHashJoinTable extends MapHashJoinTable<Value> {
 		private final String joinBinding;
 
 		SingleKeyHashJoinTable(int initialSize, String joinBinding, List<String> buildBindings) {
@@ -1,19 +1,29 @@
 package com.msd.gin.halyard.strategy;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
 import org.apache.hadoop.conf.Configuration;
 
 public final class StrategyConfig {
 
 	public static final String HALYARD_EVALUATION_HASH_JOIN_LIMIT = "halyard.evaluation.hashJoin.limit";
 	public static final String HALYARD_EVALUATION_HASH_JOIN_COST_RATIO = "halyard.evaluation.hashJoin.costRatio";
+	public static final String HALYARD_EVALUATION_HASH_JOIN_SPILL_PARTITIONS = "halyard.evaluation.hashJoin.spillPartitions";
+	public static final String HALYARD_EVALUATION_BIND_JOIN_BATCH_SIZE = "halyard.evaluation.bindJoin.batchSize";
+	public static final String HALYARD_EVALUATION_PATH_BATCH_SIZE = "halyard.evaluation.path.batchSize";
 	public static final String HALYARD_EVALUATION_STAR_JOIN_MIN_JOINS = "halyard.evaluation.starJoin.minJoins";
 	public static final String HALYARD_EVALUATION_LEFT_STAR_JOIN_MIN_JOINS = "halyard.evaluation.leftStarJoin.minJoins";
 	public static final String HALYARD_EVALUATION_NARY_UNION_MIN_UNIONS = "halyard.evaluation.naryUnion.minUnions";
 	public static final String HALYARD_EVALUATION_MEMORY_THRESHOLD = "halyard.evaluation.collections.memoryThreshold";
+	public static final String HALYARD_EVALUATION_SPILL_DIR = "halyard.evaluation.collections.spillDir";
+	public static final String HALYARD_EVALUATION_TOP_K_MAX_LIMIT = "halyard.evaluation.topK.maxLimit";
+	public static final String HALYARD_EVALUATION_GROUP_BY_PARTIAL_AGGREGATION = "halyard.evaluation.groupBy.partialAggregation";
 	public static final String HALYARD_EVALUATION_VALUE_CACHE_SIZE = "halyard.evaluation.valueCache.size";
 	public static final String HALYARD_EVALUATION_POLL_TIMEOUT_MILLIS = "halyard.evaluation.pollTimeoutMillis";
 	public static final String HALYARD_EVALUATION_OFFER_TIMEOUT_MILLIS = "halyard.evaluation.offerTimeoutMillis";
 	public static final String HALYARD_EVALUATION_MAX_QUEUE_SIZE = "halyard.evaluation.maxQueueSize";
+	public static final String HALYARD_EVALUATION_PUSH_BATCH_SIZE = "halyard.evaluation.pushBatchSize";
 	public static final String HALYARD_EVALUATION_THREADS = "halyard.evaluation.threads";
 	public static final String HALYARD_EVALUATION_TASK_QUEUE_MAX_SIZE = "halyard.evaluation.taskQueue.maxSize";
 	public static final String HALYARD_EVALUATION_BINDINGS_RATE_UPDATE_MILLIS = "halyard.evaluation.bindingsRate.updateMillis";
@@ -23,12 +33,18 @@ public final class StrategyConfig {
 	public static final String HALYARD_EVALUATION_PULL_PUSH_ASYNC_ALL_LIMIT = "halyard.evaluation.pullPush.asyncAll.limit";
 
 	static final int DEFAULT_HASH_JOIN_LIMIT = 50000;
+	static final int DEFAULT_HASH_JOIN_SPILL_PARTITIONS = 16;
+	static final int DEFAULT_BIND_JOIN_BATCH_SIZE = 0;
+	static final int DEFAULT_PATH_BATCH_SIZE = 100;
 	static final int DEFAULT_STAR_JOIN_MIN_JOINS = 3;
 	static final int DEFAULT_LEFT_STAR_JOIN_MIN_JOINS = 3;
 	static final int DEFAULT_NARY_UNION_MIN_UNIONS = 2;
 	static final int DEFAULT_MEMORY_THRESHOLD = 100000;
+	static final int DEFAULT_TOP_K_MAX_LIMIT = 2000;
 	static final int DEFAULT_VALUE_CACHE_SIZE = 1000;
 	static final int DEFAULT_MAX_QUEUE_SIZE = 5000;
+	// batching is opt-in as queue sizes then count batches rather than binding sets
+	static final int DEFAULT_PUSH_BATCH_SIZE = 1;
 	static final int DEFAULT_THREADS = 25;
 	static final int DEFAULT_TASK_QUEUE_MAX_SIZE = 10000;
 	static final int DEFAULT_PULL_PUSH_ASYNC_ALL_LIMIT = 50;
@@ -41,7 +57,13 @@ public final class StrategyConfig {
 	public final int naryUnionMinUnions;
 	public final int hashJoinLimit;
 	public final float hashJoinCostRatio;
+	public final int hashJoinSpillPartitions;
+	public final int bindJoinBatchSize;
+	public final int pathBatchSize;
 	public final int collectionMemoryThreshold;
+	public final Path spillDir;
+	public final int topKMaxLimit;
+	public final boolean groupByPartialAggregation;
 	public final int valueCacheSize;
 
 	public StrategyConfig(Configuration conf) {
@@ -52,7 +74,13 @@ public final class StrategyConfig {
 		this.naryUnionMinUnions = conf.getInt(HALYARD_EVALUATION_NARY_UNION_MIN_UNIONS, DEFAULT_NARY_UNION_MIN_UNIONS);
 		this.hashJoinLimit = conf.getInt(HALYARD_EVALUATION_HASH_JOIN_LIMIT, DEFAULT_HASH_JOIN_LIMIT);
 		this.hashJoinCostRatio = conf.getFloat(HALYARD_EVALUATION_HASH_JOIN_COST_RATIO, 2.0f);
+		this.hashJoinSpillPartitions = conf.getInt(HALYARD_EVALUATION_HASH_JOIN_SPILL_PARTITIONS, DEFAULT_HASH_JOIN_SPILL_PARTITIONS);
+		this.bindJoinBatchSize = conf.getInt(HALYARD_EVALUATION_BIND_JOIN_BATCH_SIZE, DEFAULT_BIND_JOIN_BATCH_SIZE);
+		this.pathBatchSize = conf.getInt(HALYARD_EVALUATION_PATH_BATCH_SIZE, DEFAULT_PATH_BATCH_SIZE);
     	this.collectionMemoryThreshold = conf.getInt(HALYARD_EVALUATION_MEMORY_THRESHOLD, DEFAULT_MEMORY_THRESHOLD);
+    	this.spillDir = Paths.get(conf.get(HALYARD_EVALUATION_SPILL_DIR, System.getProperty("java.io.tmpdir")));
+    	this.topKMaxLimit = conf.getInt(HALYARD_EVALUATION_TOP_K_MAX_LIMIT, DEFAULT_TOP_K_MAX_LIMIT);
+    	this.groupByPartialAggregation = conf.getBoolean(HALYARD_EVALUATION_GROUP_BY_PARTIAL_AGGREGATION, true);
     	this.valueCacheSize = conf.getInt(HALYARD_EVALUATION_VALUE_CACHE_SIZE, DEFAULT_VALUE_CACHE_SIZE);
 	}
 }
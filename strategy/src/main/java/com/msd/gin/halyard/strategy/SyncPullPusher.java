@@ -2,6 +2,8 @@ package com.msd.gin.halyard.strategy;
 
 import com.msd.gin.halyard.query.BindingSetPipe;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
@@ -13,6 +15,11 @@ import org.eclipse.rdf4j.query.algebra.evaluation.QueryEvaluationStep;
 
 final class SyncPullPusher implements PullPusher {
 	private final AtomicInteger active = new AtomicInteger();
+	private final int pushBatchSize;
+
+	SyncPullPusher(int pushBatchSize) {
+		this.pushBatchSize = pushBatchSize;
+	}
 
 	@Override
 	public void pullPush(BindingSetPipe pipe,
@@ -21,7 +28,7 @@ final class SyncPullPusher implements PullPusher {
 			Function<CloseableIteration<BindingSet>,CloseableIteration<BindingSet>> trackerFactory) {
 		active.incrementAndGet();
 		try {
-			pullPushAll(pipe, evalStep, node, bs, trackerFactory);
+			pullPushAll(pipe, evalStep, node, bs, trackerFactory, pushBatchSize);
 		} finally {
 			active.decrementAndGet();
 		}
@@ -44,17 +51,22 @@ final class SyncPullPusher implements PullPusher {
 	static void pullPushAll(BindingSetPipe pipe,
 			QueryEvaluationStep evalStep,
 			TupleExpr expr, BindingSet bindingSet,
-			Function<CloseableIteration<BindingSet>,CloseableIteration<BindingSet>> trackerFactory) {
+			Function<CloseableIteration<BindingSet>,CloseableIteration<BindingSet>> trackerFactory,
+			int pushBatchSize) {
 		if (!pipe.isClosed()) {
 			try {
 				CloseableIteration<BindingSet> iter = trackerFactory.apply(evalStep.evaluate(bindingSet));
 				boolean doNext = true;
 				while (doNext && !pipe.isClosed()) {
 		    		try {
-		    			doNext = iter.hasNext();
-		    			if (doNext) {
-		        			BindingSet bs = iter.next();
-		        			doNext = pipe.push(bs);
+		    			if (pushBatchSize > 1) {
+		    				doNext = pullPushBatch(iter, pipe, pushBatchSize);
+		    			} else {
+			    			doNext = iter.hasNext();
+			    			if (doNext) {
+			        			BindingSet bs = iter.next();
+			        			doNext = pipe.push(bs);
+			    			}
 		    			}
 		    		} catch (Throwable nextEx) {
 		    			doNext = pipe.handleException(nextEx);
@@ -71,4 +83,29 @@ final class SyncPullPusher implements PullPusher {
     		}
 		}
 	}
+
+	/**
+	 * Pulls up to batchSize binding sets from the iteration and pushes them to the pipe as a single batch.
+	 * @return true if there might be more to pull and push
+	 */
+	static boolean pullPushBatch(CloseableIteration<BindingSet> iter, BindingSetPipe pipe, int batchSize) {
+		List<BindingSet> batch = new ArrayList<>(batchSize);
+		boolean hasMore = true;
+		Throwable nextEx = null;
+		try {
+			while (hasMore && batch.size() < batchSize) {
+				hasMore = iter.hasNext();
+				if (hasMore) {
+					batch.add(iter.next());
+				}
+			}
+		} catch (Throwable e) {
+			nextEx = e;
+		}
+		boolean pushMore = batch.isEmpty() || pipe.pushBatch(batch);
+		if (pushMore && nextEx != null) {
+			pushMore = pipe.handleException(nextEx);
+		}
+		return pushMore && hasMore;
+	}
 }
@@ -6,10 +6,11 @@ import java.util.function.Predicate;
 
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
 
-public class AvgAggregateFunction extends ThreadSafeAggregateFunction<AvgCollector,Value> {
+public class AvgAggregateFunction extends ThreadSafeAggregateFunction<AvgCollector,Value> implements MergeableAggregateFunction<AvgCollector> {
 
 	@Override
 	public void processAggregate(BindingSet bs, Predicate<Value> distinctPredicate, AvgCollector col, QueryValueStepEvaluator evaluationStep) {
@@ -38,4 +39,9 @@ public class AvgAggregateFunction extends ThreadSafeAggregateFunction<AvgCollect
 			}
 		}
 	}
+
+	@Override
+	public void merge(AvgCollector partial, AvgCollector target, ValueFactory vf) {
+		target.merge(partial, vf);
+	}
 }
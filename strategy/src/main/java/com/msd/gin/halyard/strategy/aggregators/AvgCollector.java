@@ -6,6 +6,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.algebra.MathExpr.MathOp;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 
@@ -20,6 +21,11 @@ public final class AvgCollector extends SumCollector {
 		count.incrementAndGet();
 	}
 
+	void merge(AvgCollector partial, ValueFactory vf) {
+		super.merge(partial, vf);
+		count.addAndGet(partial.count.get());
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		validate();
@@ -5,9 +5,10 @@ import com.msd.gin.halyard.strategy.QueryValueStepEvaluator;
 import java.util.function.Predicate;
 
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 
-public final class CountAggregateFunction extends ThreadSafeAggregateFunction<LongCollector,Value> {
+public final class CountAggregateFunction extends ThreadSafeAggregateFunction<LongCollector,Value> implements MergeableAggregateFunction<LongCollector> {
 
 	@Override
 	public void processAggregate(BindingSet bs, Predicate<Value> distinctPredicate, LongCollector col, QueryValueStepEvaluator evaluationStep) {
@@ -16,4 +17,9 @@ public final class CountAggregateFunction extends ThreadSafeAggregateFunction<Lo
 			col.increment();
 		}
 	}
+
+	@Override
+	public void merge(LongCollector partial, LongCollector target, ValueFactory vf) {
+		target.add(partial.get());
+	}
 }
@@ -13,6 +13,14 @@ public final class LongCollector implements ExtendedAggregateCollector {
 		v.incrementAndGet();
 	}
 
+	void add(long delta) {
+		v.addAndGet(delta);
+	}
+
+	long get() {
+		return v.get();
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		return ts.getValueFactory().createLiteral(Long.toString(v.get()), CoreDatatype.XSD.INTEGER);
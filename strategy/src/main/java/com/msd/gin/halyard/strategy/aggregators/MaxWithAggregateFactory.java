@@ -8,6 +8,7 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateCollector;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateFunction;
@@ -32,7 +33,7 @@ public final class MaxWithAggregateFactory implements AggregateFunctionFactory {
 	}
 
 
-	private static final class MaxWithAggregateFunction extends ThreadSafeAggregateFunction<ValueCollector<TupleLiteral>,Value> {
+	private static final class MaxWithAggregateFunction extends ThreadSafeAggregateFunction<ValueCollector<TupleLiteral>,Value> implements MergeableAggregateFunction<ValueCollector<TupleLiteral>> {
 
 		@Override
 		public void processAggregate(BindingSet bs, Predicate<Value> distinctPredicate, ValueCollector<TupleLiteral> col, QueryValueStepEvaluator evaluationStep) {
@@ -44,5 +45,13 @@ public final class MaxWithAggregateFactory implements AggregateFunctionFactory {
 				}
 			}
 		}
+
+		@Override
+		public void merge(ValueCollector<TupleLiteral> partial, ValueCollector<TupleLiteral> target, ValueFactory vf) {
+			TupleLiteral l = partial.get();
+			if (l != null) {
+				target.max(l);
+			}
+		}
 	}
 }
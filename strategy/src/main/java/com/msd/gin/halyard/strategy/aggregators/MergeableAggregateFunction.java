@@ -0,0 +1,17 @@
+package com.msd.gin.halyard.strategy.aggregators;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+
+/**
+ * An aggregate function whose partial results can be combined,
+ * so that values can be pre-aggregated independently (e.g. per thread) and merged at the end.
+ * Only applies to non-distinct aggregates.
+ */
+public interface MergeableAggregateFunction<T extends ExtendedAggregateCollector> {
+	/**
+	 * Adds the partial result collected by one collector to another.
+	 * @param partial collector to merge from.
+	 * @param target collector to merge into.
+	 */
+	void merge(T partial, T target, ValueFactory vf);
+}
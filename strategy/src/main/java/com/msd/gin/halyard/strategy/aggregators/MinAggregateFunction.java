@@ -5,9 +5,10 @@ import com.msd.gin.halyard.strategy.QueryValueStepEvaluator;
 import java.util.function.Predicate;
 
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 
-public final class MinAggregateFunction extends ThreadSafeAggregateFunction<ValueCollector<Value>,Value> {
+public final class MinAggregateFunction extends ThreadSafeAggregateFunction<ValueCollector<Value>,Value> implements MergeableAggregateFunction<ValueCollector<Value>> {
 
 	@Override
 	public void processAggregate(BindingSet bs, Predicate<Value> distinctPredicate, ValueCollector<Value> col, QueryValueStepEvaluator evaluationStep) {
@@ -16,4 +17,12 @@ public final class MinAggregateFunction extends ThreadSafeAggregateFunction<Valu
 			col.min(v);
 		}
 	}
+
+	@Override
+	public void merge(ValueCollector<Value> partial, ValueCollector<Value> target, ValueFactory vf) {
+		Value v = partial.get();
+		if (v != null) {
+			target.min(v);
+		}
+	}
 }
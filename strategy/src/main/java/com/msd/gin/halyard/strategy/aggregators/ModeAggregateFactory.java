@@ -10,6 +10,7 @@ import java.util.function.Function;
 import java.util.function.Predicate;
 
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateCollector;
@@ -35,7 +36,7 @@ public final class ModeAggregateFactory implements AggregateFunctionFactory {
 	}
 
 
-	private static final class ModeAggregateFunction extends ThreadSafeAggregateFunction<ModeCollector,Value> {
+	private static final class ModeAggregateFunction extends ThreadSafeAggregateFunction<ModeCollector,Value> implements MergeableAggregateFunction<ModeCollector> {
 		@Override
 		public void processAggregate(BindingSet bs, Predicate<Value> distinctPredicate, ModeCollector col, QueryValueStepEvaluator evaluationStep) {
 			Value v = evaluationStep.apply(bs);
@@ -43,6 +44,13 @@ public final class ModeAggregateFactory implements AggregateFunctionFactory {
 				col.add(v);
 			}
 		}
+
+		@Override
+		public void merge(ModeCollector partial, ModeCollector target, ValueFactory vf) {
+			for (Map.Entry<Value,AtomicLong> entry : partial.freqTable.entrySet()) {
+				target.add(entry.getKey(), entry.getValue().get());
+			}
+		}
 	}
 
 
@@ -53,6 +61,10 @@ public final class ModeAggregateFactory implements AggregateFunctionFactory {
 			freqTable.computeIfAbsent(l, k -> new AtomicLong()).incrementAndGet();
 		}
 
+		void add(Value l, long count) {
+			freqTable.computeIfAbsent(l, k -> new AtomicLong()).addAndGet(count);
+		}
+
 		@Override
 		public Value getFinalValue(TripleSource ts) {
 			Map.Entry<Value,AtomicLong> entry = freqTable.reduceEntries(50000, (e1, e2) -> {
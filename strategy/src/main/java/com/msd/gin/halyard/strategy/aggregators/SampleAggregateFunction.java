@@ -7,9 +7,10 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Predicate;
 
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 
-public class SampleAggregateFunction extends ThreadSafeAggregateFunction<SampleCollector,Value> {
+public class SampleAggregateFunction extends ThreadSafeAggregateFunction<SampleCollector,Value> implements MergeableAggregateFunction<SampleCollector> {
 
 	@Override
 	public void processAggregate(BindingSet bs, Predicate<Value> distinctPredicate, SampleCollector col, QueryValueStepEvaluator evaluationStep) {
@@ -40,4 +41,12 @@ public class SampleAggregateFunction extends ThreadSafeAggregateFunction<SampleC
 			nextValue.ifPresent(col::setSample);
 		}
 	}
+
+	@Override
+	public void merge(SampleCollector partial, SampleCollector target, ValueFactory vf) {
+		Value v = partial.get();
+		if (v != null && !target.setInitial(v) && ThreadLocalRandom.current().nextBoolean()) {
+			target.setSample(v);
+		}
+	}
 }
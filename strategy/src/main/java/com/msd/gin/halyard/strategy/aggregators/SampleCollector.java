@@ -21,6 +21,10 @@ public final class SampleCollector implements ExtendedAggregateCollector {
 		vref.set(v);
 	}
 
+	Value get() {
+		return vref.get();
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		Value v = vref.get();
@@ -6,10 +6,11 @@ import java.util.function.Predicate;
 
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.ValueExprEvaluationException;
 
-public final class SumAggregateFunction extends ThreadSafeAggregateFunction<SumCollector,Value> {
+public final class SumAggregateFunction extends ThreadSafeAggregateFunction<SumCollector,Value> implements MergeableAggregateFunction<SumCollector> {
 
 	@Override
 	public void processAggregate(BindingSet bs, Predicate<Value> distinctPredicate, SumCollector col, QueryValueStepEvaluator evaluationStep) {
@@ -34,4 +35,9 @@ public final class SumAggregateFunction extends ThreadSafeAggregateFunction<SumC
 			}
 		}
 	}
+
+	@Override
+	public void merge(SumCollector partial, SumCollector target, ValueFactory vf) {
+		target.merge(partial, vf);
+	}
 }
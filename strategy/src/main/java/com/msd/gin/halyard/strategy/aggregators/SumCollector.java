@@ -42,6 +42,17 @@ public class SumCollector implements ExtendedAggregateCollector {
 		});
 	}
 
+	void merge(SumCollector partial, ValueFactory vf) {
+		if (partial.typeError != null) {
+			typeError = partial.typeError;
+		}
+		Literal partialTotal = partial.getTotal();
+		if (partialTotal != null) {
+			// partial totals are already normalised
+			sumRef.accumulateAndGet(partialTotal, (total,next) -> (total != null) ? mathOpEval.evaluate(total, next, MathOp.PLUS, vf) : next);
+		}
+	}
+
 	Literal getTotal() {
 		return sumRef.get();
 	}
@@ -13,6 +13,7 @@ import java.util.function.Predicate;
 
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.TripleSource;
 import org.eclipse.rdf4j.query.parser.sparql.aggregate.AggregateCollector;
@@ -42,7 +43,7 @@ public final class TopNWithAggregateFactory implements AggregateFunctionFactory
 	}
 
 
-	public static final class TopNWithAggregateFunction extends ThreadSafeAggregateFunction<TopNCollector,Value> {
+	public static final class TopNWithAggregateFunction extends ThreadSafeAggregateFunction<TopNCollector,Value> implements MergeableAggregateFunction<TopNCollector> {
 		@Override
 		public void processAggregate(BindingSet bs, Predicate<Value> distinctPredicate, TopNCollector col, QueryValueStepEvaluator evaluationStep) {
 			Value v = evaluationStep.apply(bs);
@@ -53,6 +54,13 @@ public final class TopNWithAggregateFactory implements AggregateFunctionFactory
 				}
 			}
 		}
+
+		@Override
+		public void merge(TopNCollector partial, TopNCollector target, ValueFactory vf) {
+			for (TupleLiteral l : partial.topN) {
+				target.add(l);
+			}
+		}
 	}
 
 	private static final class TopNCollector implements ExtendedAggregateCollector {
@@ -42,6 +42,10 @@ public final class ValueCollector<V extends Value> implements ExtendedAggregateC
 		});
 	}
 
+	V get() {
+		return vref.get();
+	}
+
 	@Override
 	public Value getFinalValue(TripleSource ts) {
 		return vref.get();
@@ -4,9 +4,10 @@ import com.msd.gin.halyard.strategy.QueryValueStepEvaluator;
 
 import java.util.function.Predicate;
 
+import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 
-public final class WildcardCountAggregateFunction extends ThreadSafeAggregateFunction<LongCollector,BindingSet> {
+public final class WildcardCountAggregateFunction extends ThreadSafeAggregateFunction<LongCollector,BindingSet> implements MergeableAggregateFunction<LongCollector> {
 
 	@Override
 	public void processAggregate(BindingSet bs, Predicate<BindingSet> distinctPredicate, LongCollector col, QueryValueStepEvaluator evaluationStep) {
@@ -16,4 +17,9 @@ public final class WildcardCountAggregateFunction extends ThreadSafeAggregateFun
 			col.increment();
 		}
 	}
+
+	@Override
+	public void merge(LongCollector partial, LongCollector target, ValueFactory vf) {
+		target.add(partial.get());
+	}
 }
@@ -17,9 +17,14 @@ import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.Binding;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryBindingSet;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
 import org.mapdb.serializer.GroupSerializerObjectArray;
 
-public abstract class AbstractValueSerializer<E> extends GroupSerializerObjectArray<E> implements Externalizable {
+/**
+ * Serializes values using {@link ValueIO}, both for MapDB and for spill files.
+ */
+public abstract class AbstractValueSerializer<E> extends GroupSerializerObjectArray<E> implements SpillSerializer<E>, Externalizable {
 	protected static final ValueIO.Writer WRITER = ValueIO.getDefaultWriter();
 	protected static final ValueIO.Reader READER = ValueIO.getDefaultReader();
 	protected transient ValueFactory vf;
@@ -63,6 +68,16 @@ public abstract class AbstractValueSerializer<E> extends GroupSerializerObjectAr
 		return bs;
 	}
 
+	@Override
+	public final void serialize(DataOutput2 out, E e) throws IOException {
+		write(e, out);
+	}
+
+	@Override
+	public final E deserialize(DataInput2 in, int available) throws IOException {
+		return read(in);
+	}
+
 	@Override
 	public final int fixedSize() {
 		return -1;
@@ -21,8 +21,9 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.mapdb.DB;
@@ -41,7 +42,7 @@ public class BigHashMap<K extends Serializable, V extends Serializable> implemen
     private static final String MAP_NAME = "temp";
 
     private final AtomicLong counter = new AtomicLong();
-    private final AtomicInteger refCounter = new AtomicInteger();
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
     private final int memoryThreshold;
     private final Serializer<K> keySerializer;
     private final Serializer<V> valueSerializer;
@@ -65,28 +66,29 @@ public class BigHashMap<K extends Serializable, V extends Serializable> implemen
     	}
 
     	if (shouldSwap(localRef)) {
-    		synchronized (this) {
+    		swapLock.writeLock().lock();
+    		try {
     			localRef = mapDb;
-    			if (shouldSwap(localRef)) {
-    				// spin lock
-    				while (refCounter.get() > 0) {
-    					;
-    				}
-    				localRef = transferToDisk(localRef);
-    				mapDb = localRef;
+    			if (localRef != null && shouldSwap(localRef)) {
+    				mapDb = transferToDisk(localRef);
     			}
+    		} finally {
+    			swapLock.writeLock().unlock();
     		}
     	}
 
     	V oldValue;
-    	refCounter.incrementAndGet();
-    	localRef = mapDb;
+    	swapLock.readLock().lock();
     	try {
+    		localRef = mapDb;
+    		if (localRef == null) {
+    			throw new IOException("Already closed");
+    		}
             oldValue = localRef.getLeft().put(k, v);
         } catch (IllegalAccessError err) {
             throw new IOException(err);
         } finally {
-        	refCounter.decrementAndGet();
+        	swapLock.readLock().unlock();
         }
     	if (oldValue == null) {
     		counter.incrementAndGet();
@@ -125,19 +127,24 @@ public class BigHashMap<K extends Serializable, V extends Serializable> implemen
     }
 
     @Override
-    public synchronized void close() {
-    	Pair<Map<K,V>,DB> localRef = mapDb;
-    	if (localRef != null) {
-	        try {
-	    		DB db = localRef.getRight();
-	    		if (db != null) {
-	    			db.close();
-	    		}
-	        } catch (IllegalAccessError|IllegalStateException ignore) {
-	            //silent close
-	        } finally {
-	        	mapDb = null;
-	        }
+    public void close() {
+    	swapLock.writeLock().lock();
+    	try {
+	    	Pair<Map<K,V>,DB> localRef = mapDb;
+	    	if (localRef != null) {
+		        try {
+		    		DB db = localRef.getRight();
+		    		if (db != null) {
+		    			db.close();
+		    		}
+		        } catch (IllegalAccessError|IllegalStateException ignore) {
+		            //silent close
+		        } finally {
+		        	mapDb = null;
+		        }
+	    	}
+    	} finally {
+    		swapLock.writeLock().unlock();
     	}
     }
 }
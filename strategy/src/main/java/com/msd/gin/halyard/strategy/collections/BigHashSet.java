@@ -17,14 +17,17 @@
 package com.msd.gin.halyard.strategy.collections;
 
 import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.eclipse.rdf4j.model.Value;
@@ -33,12 +36,10 @@ import org.eclipse.rdf4j.query.BindingSet;
 import org.mapdb.DB;
 import org.mapdb.DB.HashSetMaker;
 import org.mapdb.DBMaker;
-import org.mapdb.DataInput2;
-import org.mapdb.DataOutput2;
 import org.mapdb.Serializer;
 
 /**
- * This is a MapDB implementation.
+ * This is a MapDB implementation, as membership checks need random access once on disk.
  * Thread-safe.
  * @author Adam Sotona (MSD)
  * @param <E> Serializable element type
@@ -48,7 +49,7 @@ public class BigHashSet<E extends Serializable> implements Iterable<E>, Closeabl
     private static final String SET_NAME = "temp";
 
     private final AtomicLong counter = new AtomicLong();
-    private final AtomicInteger refCounter = new AtomicInteger();
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
     private final int memoryThreshold;
     private final Serializer<E> serializer;
     private volatile Pair<Set<E>,DB> setDb;
@@ -88,28 +89,29 @@ public class BigHashSet<E extends Serializable> implements Iterable<E>, Closeabl
     	}
 
     	if (shouldSwap(localRef)) {
-    		synchronized (this) {
+    		swapLock.writeLock().lock();
+    		try {
     			localRef = setDb;
-    			if (shouldSwap(localRef)) {
-    				// spin lock
-    				while (refCounter.get() > 0) {
-    					;
-    				}
-    				localRef = transferToDisk(localRef);
-    				setDb = localRef;
+    			if (localRef != null && shouldSwap(localRef)) {
+    				setDb = transferToDisk(localRef);
     			}
+    		} finally {
+    			swapLock.writeLock().unlock();
     		}
     	}
 
     	boolean added;
-    	refCounter.incrementAndGet();
-    	localRef = setDb;
+    	swapLock.readLock().lock();
     	try {
+    		localRef = setDb;
+    		if (localRef == null) {
+    			throw new IOException("Already closed");
+    		}
             added = localRef.getLeft().add(e);
         } catch (IllegalAccessError err) {
             throw new IOException(err);
         } finally {
-        	refCounter.decrementAndGet();
+        	swapLock.readLock().unlock();
         }
     	if (added) {
     		counter.incrementAndGet();
@@ -165,19 +167,24 @@ public class BigHashSet<E extends Serializable> implements Iterable<E>, Closeabl
     }
 
     @Override
-    public synchronized void close() {
-    	Pair<Set<E>,DB> localRef = setDb;
-    	if (localRef != null) {
-	        try {
-	    		DB db = localRef.getRight();
-	    		if (db != null) {
-	    			db.close();
-	    		}
-	        } catch (IllegalAccessError|IllegalStateException ignore) {
-	            //silent close
-	        } finally {
-	        	setDb = null;
-	        }
+    public void close() {
+    	swapLock.writeLock().lock();
+    	try {
+	    	Pair<Set<E>,DB> localRef = setDb;
+	    	if (localRef != null) {
+		        try {
+		    		DB db = localRef.getRight();
+		    		if (db != null) {
+		    			db.close();
+		    		}
+		        } catch (IllegalAccessError|IllegalStateException ignore) {
+		            //silent close
+		        } finally {
+		        	setDb = null;
+		        }
+	    	}
+    	} finally {
+    		swapLock.writeLock().unlock();
     	}
     }
 
@@ -192,13 +199,13 @@ public class BigHashSet<E extends Serializable> implements Iterable<E>, Closeabl
     	}
 
     	@Override
-		public void serialize(DataOutput2 out, Value value) throws IOException {
+		public void write(Value value, DataOutput out) throws IOException {
 			ByteBuffer tmp = newTempBuffer();
 			writeValue(value, out, tmp);
 		}
 
 		@Override
-		public Value deserialize(DataInput2 in, int available) throws IOException {
+		public Value read(DataInput in) throws IOException {
 			return readValue(in);
 		}
     }
@@ -214,13 +221,13 @@ public class BigHashSet<E extends Serializable> implements Iterable<E>, Closeabl
 		}
 
 		@Override
-		public void serialize(DataOutput2 out, BindingSet bs) throws IOException {
+		public void write(BindingSet bs, DataOutput out) throws IOException {
 			ByteBuffer tmp = newTempBuffer();
 			writeBindingSet(bs, out, tmp);
 		}
 
 		@Override
-		public BindingSet deserialize(DataInput2 in, int available) throws IOException {
+		public BindingSet read(DataInput in) throws IOException {
 			return readBindingSet(in);
 		}
     }
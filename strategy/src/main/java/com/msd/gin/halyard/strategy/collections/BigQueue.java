@@ -0,0 +1,166 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+
+/**
+ * First-in first-out queue that keeps at most the memory threshold of elements in memory.
+ * Once the in-memory tail reaches the threshold, it is written out to disk as an LZ4-compressed segment.
+ * Segments are read back in order, one at a time, before the in-memory tail.
+ * Not thread-safe.
+ * @param <E> element type
+ */
+public final class BigQueue<E> implements Closeable {
+	private static final String FILE_PREFIX = "halyard-queue-";
+
+	private final int memoryThreshold;
+	private final SpillSerializer<E> serializer;
+	private final Path spillDir;
+	private final Deque<Segment> segments = new ArrayDeque<>();
+	private Deque<E> tail = new ArrayDeque<>();
+	private Segment readSegment;
+	private DataInputStream in;
+	private long size;
+	private boolean closed;
+
+	public static BigQueue<Value> createValueQueue(int memoryThreshold, Path spillDir, ValueFactory vf) {
+		return new BigQueue<>(memoryThreshold, new ValueCodec(vf), spillDir);
+	}
+
+	public BigQueue(int memoryThreshold, SpillSerializer<E> serializer, Path spillDir) {
+		this.memoryThreshold = Math.max(memoryThreshold, 1);
+		this.serializer = serializer;
+		this.spillDir = spillDir;
+	}
+
+	public void add(E e) throws IOException {
+		if (closed) {
+			throw new IOException("Already closed");
+		}
+		tail.add(e);
+		size++;
+		if (tail.size() >= memoryThreshold) {
+			spill();
+		}
+	}
+
+	private void spill() throws IOException {
+		Path file = SpillFiles.createFile(spillDir, FILE_PREFIX);
+		Segment segment = new Segment(file, tail.size());
+		segments.add(segment);
+		try (DataOutputStream out = SpillFiles.newOutput(file)) {
+			for (E e : tail) {
+				serializer.write(e, out);
+			}
+		}
+		tail = new ArrayDeque<>();
+	}
+
+	/**
+	 * Removes the head of the queue.
+	 * @return the head of the queue or null if empty.
+	 */
+	public E poll() throws IOException {
+		if (closed) {
+			throw new IOException("Already closed");
+		}
+		while (readSegment != null || !segments.isEmpty()) {
+			if (readSegment == null) {
+				readSegment = segments.poll();
+				in = SpillFiles.newInput(readSegment.file);
+			}
+			if (readSegment.remaining > 0) {
+				readSegment.remaining--;
+				size--;
+				return serializer.read(in);
+			}
+			closeReadSegment();
+		}
+		E e = tail.poll();
+		if (e != null) {
+			size--;
+		}
+		return e;
+	}
+
+	private void closeReadSegment() {
+		try {
+			in.close();
+		} catch (IOException ignore) {
+			// silent close
+		}
+		in = null;
+		SpillFiles.delete(readSegment.file);
+		readSegment = null;
+	}
+
+	public long size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Deletes all segment files.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			if (readSegment != null) {
+				closeReadSegment();
+			}
+			for (Segment segment : segments) {
+				SpillFiles.delete(segment.file);
+			}
+			segments.clear();
+			tail.clear();
+		}
+	}
+
+
+	private static final class Segment {
+		final Path file;
+		long remaining;
+
+		Segment(Path file, long count) {
+			this.file = file;
+			this.remaining = count;
+		}
+	}
+
+
+	/**
+	 * Not thread-safe (reuses a buffer).
+	 */
+	private static final class ValueCodec extends AbstractValueSerializer<Value> {
+		private final ByteBuffer tmp = newTempBuffer();
+
+		ValueCodec(ValueFactory vf) {
+			super(vf);
+		}
+
+		@Override
+		public void write(Value value, DataOutput out) throws IOException {
+			writeValue(value, out, tmp);
+		}
+
+		@Override
+		public Value read(DataInput in) throws IOException {
+			return readValue(in);
+		}
+	}
+}
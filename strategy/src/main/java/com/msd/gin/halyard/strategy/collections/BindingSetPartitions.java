@@ -0,0 +1,169 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Predicate;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+
+/**
+ * Binding sets spilled to local disk, split into a fixed number of partitions with one LZ4-compressed file per partition.
+ * Partitions are written first, then {@link #finish() finished}, then read back.
+ * Thread-safe.
+ */
+public final class BindingSetPartitions implements Closeable {
+	private static final String FILE_PREFIX = "halyard-partition-";
+
+	private final Path dir;
+	private final BindingSetCodec codec;
+	private final Path[] files;
+	private final DataOutputStream[] outs;
+	private final long[] counts;
+	private boolean finished;
+	private boolean closed;
+
+	public BindingSetPartitions(int partitionCount, Path dir, ValueFactory vf) {
+		if (partitionCount < 1) {
+			throw new IllegalArgumentException("Invalid partition count: " + partitionCount);
+		}
+		this.dir = dir;
+		this.codec = new BindingSetCodec(vf);
+		this.files = new Path[partitionCount];
+		this.outs = new DataOutputStream[partitionCount];
+		this.counts = new long[partitionCount];
+	}
+
+	/**
+	 * Maps a hash code to a partition.
+	 * Uses the high bits of the spread hash so that the elements of a partition still spread evenly within a hash table.
+	 */
+	public static int partitionOf(int hash, int partitionCount) {
+		return (int) (((hash * 0x9E3779B97F4A7C15L) >>> 33) % partitionCount);
+	}
+
+	public int getPartitionCount() {
+		return counts.length;
+	}
+
+	public synchronized void add(int partition, BindingSet bs) throws IOException {
+		if (closed) {
+			throw new IOException("Already closed");
+		}
+		if (finished) {
+			throw new IOException("Already finished");
+		}
+		DataOutputStream out = outs[partition];
+		if (out == null) {
+			Path file = SpillFiles.createFile(dir, FILE_PREFIX);
+			files[partition] = file;
+			out = SpillFiles.newOutput(file);
+			outs[partition] = out;
+		}
+		codec.write(bs, out);
+		counts[partition]++;
+	}
+
+	public synchronized long size(int partition) {
+		return counts[partition];
+	}
+
+	/**
+	 * Completes writing. No more binding sets can be added after this.
+	 */
+	public synchronized void finish() throws IOException {
+		if (!finished) {
+			finished = true;
+			for (int i=0; i<outs.length; i++) {
+				if (outs[i] != null) {
+					outs[i].close();
+					outs[i] = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads back the binding sets of a partition, in the order they were added.
+	 * @param partition partition to read.
+	 * @param handler returns false to stop reading.
+	 * @return false if stopped by the handler.
+	 */
+	public boolean read(int partition, Predicate<? super BindingSet> handler) throws IOException {
+		Path file;
+		long count;
+		synchronized (this) {
+			if (closed) {
+				throw new IOException("Already closed");
+			}
+			if (!finished) {
+				throw new IOException("Not finished");
+			}
+			file = files[partition];
+			count = counts[partition];
+		}
+		if (count == 0) {
+			return true;
+		}
+		try (DataInputStream in = SpillFiles.newInput(file)) {
+			for (long i=0; i<count; i++) {
+				if (!handler.test(codec.read(in))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Deletes all partition files.
+	 */
+	@Override
+	public synchronized void close() {
+		if (!closed) {
+			closed = true;
+			for (int i=0; i<files.length; i++) {
+				if (outs[i] != null) {
+					try {
+						outs[i].close();
+					} catch (IOException ignore) {
+						// silent close
+					}
+					outs[i] = null;
+				}
+				if (files[i] != null) {
+					SpillFiles.delete(files[i]);
+					files[i] = null;
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Not thread-safe (reuses a buffer), only used for writing under lock.
+	 */
+	private static final class BindingSetCodec extends AbstractValueSerializer<BindingSet> {
+		private final ByteBuffer tmp = newTempBuffer();
+
+		BindingSetCodec(ValueFactory vf) {
+			super(vf);
+		}
+
+		@Override
+		public void write(BindingSet bs, DataOutput out) throws IOException {
+			writeBindingSet(bs, out, tmp);
+		}
+
+		@Override
+		public BindingSet read(DataInput in) throws IOException {
+			return readBindingSet(in);
+		}
+	}
+}
@@ -17,53 +17,69 @@
 package com.msd.gin.halyard.strategy.collections;
 
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 
-import org.mapdb.DB;
-import org.mapdb.DB.TreeMapMaker;
-import org.mapdb.DBMaker;
-import org.mapdb.serializer.GroupSerializer;
-
 /**
  * Sorter does not preserve unique instances. All equal instances are mapped to a single instance.
- * This is a MapDB implementation.
+ * Elements are sorted in memory until the memory threshold is reached,
+ * then written out to disk as a sorted, LZ4-compressed run.
+ * Iteration does a k-way merge of the runs and the remaining in-memory elements.
  * @author Adam Sotona (MSD)
  * @param <E> Comparable and Serializable element type
  */
 public class Sorter<E extends Comparable<E> & Serializable> implements Iterable<Map.Entry<E, Long>>, Closeable {
 
-    private static final String MAP_NAME = "temp";
+    private static final String FILE_PREFIX = "halyard-sort-";
 
     private final int memoryThreshold;
-    private final GroupSerializer<E> serializer;
-    private NavigableMap<E, Long> map;
-    private DB db;
+    private final SpillSerializer<E> serializer;
+    private final Path spillDir;
     private final long limit;
     private final boolean distinct;
+    private NavigableMap<E, Long> map;
     private long size;
+    private final List<Run> runs = new ArrayList<>();
+    private final List<RunCursor> openCursors = new ArrayList<>();
+    // any element sorted after this cannot make it within the limit
+    private E cutoff;
 
     /**
      * Constructs Sorter with optional limit and optional distinct filtering
      * @param limit long limit, where Long.MAXLONG means no limit
      * @param distinct optional boolean switch to do not preserve multiple equal elements
-     * @param memoryThreshold memory usage threshold at which to swap to disk
-     * @param serializer custom serializer to use (can be null)
+     * @param memoryThreshold memory usage threshold at which to write a run to disk
+     * @param serializer serializer to use for runs
+     * @param spillDir directory to write runs to
      */
-    public Sorter(long limit, boolean distinct, int memoryThreshold, GroupSerializer<E> serializer) {
+    public Sorter(long limit, boolean distinct, int memoryThreshold, SpillSerializer<E> serializer, Path spillDir) {
         this.map = new TreeMap<>();
         this.limit = limit;
         this.distinct = distinct;
         this.memoryThreshold = memoryThreshold;
         this.serializer = serializer;
+        this.spillDir = spillDir;
+    }
+
+    public Sorter(long limit, boolean distinct, int memoryThreshold, SpillSerializer<E> serializer) {
+    	this(limit, distinct, memoryThreshold, serializer, SpillFiles.DEFAULT_DIR);
     }
 
     public Sorter(long limit, boolean distinct, int memoryThreshold) {
-    	this(limit, distinct, memoryThreshold, null);
+    	this(limit, distinct, memoryThreshold, new SpillFiles.JavaSerializer<>());
     }
 
     /**
@@ -77,69 +93,212 @@ public class Sorter<E extends Comparable<E> & Serializable> implements Iterable<
     		throw new IOException("Already closed");
     	}
 
-    	if (db == null && map.size() > memoryThreshold) {
-    		swapToDisk();
+    	if (cutoff != null && e.compareTo(cutoff) > 0) {
+    		return;
+    	}
+
+    	if (map.size() > memoryThreshold) {
+    		writeRun();
     	}
 
     	if (size < limit || (!map.isEmpty() && e.compareTo(map.lastKey()) < 0)) {
-    		try {
-	            Long c = map.get(e);
-	            if (c == null) {
-	                map.put(e, 1l);
-	                size++;
-	            } else if (!distinct) {
-	                map.put(e, c + 1l);
-	                size++;
-	            }
-	            while (size > limit) {
-	                // Discard key(s) that are currently sorted last
-	                Map.Entry<E, Long> last = map.lastEntry();
-	                long surplus = size - limit;
-	                if (last.getValue() > surplus) {
-	                    map.put(last.getKey(), last.getValue() - surplus);
-	                    size = limit;
-	                } else {
-	                    map.remove(last.getKey());
-	                    size -= last.getValue();
-	                }
-	            }
-	        } catch (IllegalAccessError err) {
-	            throw new IOException(err);
-	        }
+            Long c = map.get(e);
+            if (c == null) {
+                map.put(e, 1l);
+                size++;
+            } else if (!distinct) {
+                map.put(e, c + 1l);
+                size++;
+            }
+            while (size > limit) {
+                // Discard key(s) that are currently sorted last
+                Map.Entry<E, Long> last = map.lastEntry();
+                long surplus = size - limit;
+                if (last.getValue() > surplus) {
+                    map.put(last.getKey(), last.getValue() - surplus);
+                    size = limit;
+                } else {
+                    map.remove(last.getKey());
+                    size -= last.getValue();
+                }
+            }
     	}
     }
 
-    private synchronized void swapToDisk() {
-    	if (db != null) {
-    		return;
+    private void writeRun() throws IOException {
+    	Run run = new Run(SpillFiles.createFile(spillDir, FILE_PREFIX), map.size());
+    	runs.add(run);
+    	try (DataOutputStream out = SpillFiles.newOutput(run.file)) {
+    		for (Map.Entry<E, Long> entry : map.entrySet()) {
+    			serializer.write(entry.getKey(), out);
+    			out.writeLong(entry.getValue());
+    		}
     	}
-
-    	db = DBMaker.tempFileDB().fileDeleteAfterClose().closeOnJvmShutdown().fileMmapEnableIfSupported().make();
-    	TreeMapMaker mapMaker = db.treeMap(MAP_NAME);
-    	if (serializer != null) {
-    		mapMaker = mapMaker.keySerializer(serializer);
+    	if (size >= limit) {
+    		// a run already full to the limit bounds the final result
+    		E last = map.lastKey();
+    		if (cutoff == null || last.compareTo(cutoff) < 0) {
+    			cutoff = last;
+    		}
     	}
-        NavigableMap<E,Long> dbMap = mapMaker.create();
-        dbMap.putAll(map);
-        map = dbMap;
+    	map = new TreeMap<>();
+    	size = 0;
     }
 
     @Override
     public synchronized Iterator<Map.Entry<E, Long>> iterator() {
-        return map.entrySet().iterator();
+    	if (runs.isEmpty()) {
+    		return map.entrySet().iterator();
+    	}
+    	List<Cursor> cursors = new ArrayList<>(runs.size() + 1);
+    	cursors.add(new MemoryCursor(map.entrySet().iterator()));
+    	for (Run run : runs) {
+    		RunCursor cursor;
+    		try {
+    			cursor = new RunCursor(run);
+    		} catch (IOException ioe) {
+    			throw new UncheckedIOException(ioe);
+    		}
+    		openCursors.add(cursor);
+    		cursors.add(cursor);
+    	}
+    	return new MergeIterator(cursors);
     }
 
     @Override
     public synchronized void close() {
     	map = null;
-    	if (db != null) {
-	        try {
-	            db.close();
-	        } catch (IllegalAccessError|IllegalStateException ignore) {
-	            //silent close
-	        } finally {
-	        	db = null;
-	        }
+    	for (RunCursor cursor : openCursors) {
+    		cursor.close();
+    	}
+    	openCursors.clear();
+    	for (Run run : runs) {
+    		SpillFiles.delete(run.file);
+    	}
+    	runs.clear();
+    }
+
+
+    private static final class Run {
+    	final Path file;
+    	final int entryCount;
+
+    	Run(Path file, int entryCount) {
+    		this.file = file;
+    		this.entryCount = entryCount;
+    	}
+    }
+
+    private abstract class Cursor {
+    	E head;
+    	long count;
+
+    	/**
+    	 * Moves to the next entry.
+    	 * @return false if there are no more entries.
+    	 */
+    	abstract boolean advance();
+    }
+
+    private final class MemoryCursor extends Cursor {
+    	private final Iterator<Map.Entry<E, Long>> iter;
+
+    	MemoryCursor(Iterator<Map.Entry<E, Long>> iter) {
+    		this.iter = iter;
+    	}
+
+    	@Override
+    	boolean advance() {
+    		if (iter.hasNext()) {
+    			Map.Entry<E, Long> entry = iter.next();
+    			head = entry.getKey();
+    			count = entry.getValue();
+    			return true;
+    		} else {
+    			return false;
+    		}
+    	}
+    }
+
+    private final class RunCursor extends Cursor implements Closeable {
+    	private final DataInputStream in;
+    	private int remaining;
+
+    	RunCursor(Run run) throws IOException {
+    		this.in = SpillFiles.newInput(run.file);
+    		this.remaining = run.entryCount;
+    	}
+
+    	@Override
+    	boolean advance() {
+    		if (remaining == 0) {
+    			close();
+    			return false;
+    		}
+    		try {
+    			head = serializer.read(in);
+    			count = in.readLong();
+    		} catch (IOException ioe) {
+    			throw new UncheckedIOException(ioe);
+    		}
+    		remaining--;
+    		return true;
+    	}
+
+    	@Override
+    	public void close() {
+    		remaining = 0;
+    		try {
+    			in.close();
+    		} catch (IOException ignore) {
+    			// silent close
+    		}
+    	}
+    }
+
+    private final class MergeIterator implements Iterator<Map.Entry<E, Long>> {
+    	private final PriorityQueue<Cursor> queue;
+    	private long remaining = limit;
+
+    	MergeIterator(List<Cursor> cursors) {
+    		queue = new PriorityQueue<>(cursors.size(), (c1, c2) -> c1.head.compareTo(c2.head));
+    		for (Cursor cursor : cursors) {
+    			requeue(cursor);
+    		}
+    	}
+
+    	private void requeue(Cursor cursor) {
+    		if (cursor.advance()) {
+    			queue.add(cursor);
+    		}
+    	}
+
+    	@Override
+    	public boolean hasNext() {
+    		return remaining > 0 && !queue.isEmpty();
+    	}
+
+    	@Override
+    	public Map.Entry<E, Long> next() {
+    		if (!hasNext()) {
+    			throw new NoSuchElementException();
+    		}
+    		Cursor cursor = queue.poll();
+    		E e = cursor.head;
+    		long count = cursor.count;
+    		requeue(cursor);
+    		// merge equal elements from other runs
+    		while (!queue.isEmpty() && queue.peek().head.compareTo(e) == 0) {
+    			cursor = queue.poll();
+    			count += cursor.count;
+    			requeue(cursor);
+    		}
+    		if (distinct) {
+    			count = 1;
+    		}
+    		count = Math.min(count, remaining);
+    		remaining -= count;
+    		return new AbstractMap.SimpleImmutableEntry<>(e, count);
     	}
     }
 }
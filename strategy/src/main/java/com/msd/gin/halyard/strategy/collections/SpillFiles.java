@@ -0,0 +1,79 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+
+/**
+ * Sequential, LZ4-compressed temporary files.
+ */
+final class SpillFiles {
+	private static final int BUFFER_SIZE = 64*1024;
+	private static final int BLOCK_SIZE = 64*1024;
+
+	static final Path DEFAULT_DIR = Paths.get(System.getProperty("java.io.tmpdir"));
+
+	private SpillFiles() {}
+
+	static Path createFile(Path dir, String prefix) throws IOException {
+		return Files.createTempFile(dir, prefix, null);
+	}
+
+	static DataOutputStream newOutput(Path file) throws IOException {
+		return new DataOutputStream(new LZ4BlockOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE), BLOCK_SIZE));
+	}
+
+	static DataInputStream newInput(Path file) throws IOException {
+		return new DataInputStream(new LZ4BlockInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE)));
+	}
+
+	static void delete(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException ignore) {
+			// best effort
+		}
+	}
+
+	/**
+	 * Fallback serializer that uses Java serialization.
+	 */
+	static final class JavaSerializer<E extends Serializable> implements SpillSerializer<E> {
+		@Override
+		public void write(E e, DataOutput out) throws IOException {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(e);
+			}
+			out.writeInt(bytes.size());
+			out.write(bytes.toByteArray());
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public E read(DataInput in) throws IOException {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+				return (E) ois.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+}
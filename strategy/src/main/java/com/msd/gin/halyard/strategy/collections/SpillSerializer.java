@@ -0,0 +1,15 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Serializes elements to and from spill files.
+ * @param <E> element type
+ */
+public interface SpillSerializer<E> {
+	void write(E e, DataOutput out) throws IOException;
+
+	E read(DataInput in) throws IOException;
+}
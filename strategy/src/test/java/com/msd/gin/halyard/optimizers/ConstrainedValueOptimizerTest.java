@@ -1,7 +1,9 @@
 package com.msd.gin.halyard.optimizers;
 
 import com.msd.gin.halyard.common.StatementIndex;
+import com.msd.gin.halyard.model.LiteralRangeConstraint;
 import com.msd.gin.halyard.model.TermRole;
+import com.msd.gin.halyard.model.ValueType;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.query.algebra.ConstrainedStatementPattern;
 import com.msd.gin.halyard.query.algebra.VarConstraint;
@@ -10,6 +12,8 @@ import java.math.BigInteger;
 
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.algebra.Compare;
+import org.eclipse.rdf4j.query.algebra.Compare.CompareOp;
 import org.eclipse.rdf4j.query.algebra.Datatype;
 import org.eclipse.rdf4j.query.algebra.Extension;
 import org.eclipse.rdf4j.query.algebra.ExtensionElem;
@@ -26,8 +30,11 @@ import org.eclipse.rdf4j.query.algebra.TupleExpr;
 import org.eclipse.rdf4j.query.algebra.ValueConstant;
 import org.eclipse.rdf4j.query.algebra.Var;
 import org.eclipse.rdf4j.query.algebra.evaluation.QueryOptimizer;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.*;
+
 public class ConstrainedValueOptimizerTest extends AbstractOptimizerTest {
 	private static final ValueFactory VF = SimpleValueFactory.getInstance();
 
@@ -93,4 +100,33 @@ public class ConstrainedValueOptimizerTest extends AbstractOptimizerTest {
 				new Projection(where, new ProjectionElemList(new ProjectionElem("s"))));
 		testOptimizer(expected, q);
 	}
+
+	@Test
+	public void testRange() throws InvalidConstraintException {
+		String q ="SELECT ?s { ?s ?p ?x filter(?x > 5) filter(?x <= 10) }";
+		ValueConstant lower = new ValueConstant(VF.createLiteral(BigInteger.valueOf(5)));
+		ValueConstant upper = new ValueConstant(VF.createLiteral(BigInteger.valueOf(10)));
+		VarConstraint constraint = VarConstraint.rangeConstraint(ValueType.LITERAL, lower, upper);
+		ConstrainedStatementPattern csp = new ConstrainedStatementPattern(StatementPattern.Scope.DEFAULT_CONTEXTS, new Var("s"), new Var("p"), new Var("x"), null, null, TermRole.OBJECT, constraint);
+		// filters are kept as the range is inclusive
+		TupleExpr where = new Filter(new Filter(csp, new Compare(new Var("x"), lower.clone(), CompareOp.GT)), new Compare(new Var("x"), upper.clone(), CompareOp.LE));
+		TupleExpr expected = new QueryRoot(
+				new Projection(where, new ProjectionElemList(new ProjectionElem("s"))));
+		testOptimizer(expected, q);
+
+		LiteralRangeConstraint rangeConstraint = (LiteralRangeConstraint) ConstrainedValueOptimizer.toValueConstraint(constraint, EmptyBindingSet.getInstance());
+		assertEquals(LiteralRangeConstraint.RangeType.NUMERIC, rangeConstraint.getRangeType());
+		assertTrue(rangeConstraint.test(VF.createLiteral(7)));
+		assertFalse(rangeConstraint.test(VF.createLiteral(11)));
+	}
+
+	@Test
+	public void testNonRangeLiteral() throws InvalidConstraintException {
+		String q ="SELECT ?s { ?s ?p ?x filter(?x > \"foo\") }";
+		ConstrainedStatementPattern csp = new ConstrainedStatementPattern(StatementPattern.Scope.DEFAULT_CONTEXTS, new Var("s"), new Var("p"), new Var("x"), null, null, TermRole.OBJECT, new VarConstraint(ValueType.LITERAL));
+		TupleExpr where = new Filter(csp, new Compare(new Var("x"), new ValueConstant(VF.createLiteral("foo")), CompareOp.GT));
+		TupleExpr expected = new QueryRoot(
+				new Projection(where, new ProjectionElemList(new ProjectionElem("s"))));
+		testOptimizer(expected, q);
+	}
 }
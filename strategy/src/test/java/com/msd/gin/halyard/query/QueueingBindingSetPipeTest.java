@@ -0,0 +1,53 @@
+package com.msd.gin.halyard.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueueingBindingSetPipeTest {
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	private static BindingSet bs(int i) {
+		MapBindingSet bs = new MapBindingSet();
+		bs.setBinding("x", VF.createLiteral(i));
+		return bs;
+	}
+
+	@Test
+	public void testPushBatch() {
+		QueueingBindingSetPipe pipe = new QueueingBindingSetPipe(10, 1, TimeUnit.SECONDS);
+		assertTrue(pipe.push(bs(1)));
+		assertTrue(pipe.pushBatch(Arrays.asList(bs(2), bs(3), bs(4))));
+		assertTrue(pipe.push(bs(5)));
+		pipe.close();
+		List<BindingSet> results = new ArrayList<>();
+		pipe.collect(results::add, 1, TimeUnit.SECONDS);
+		assertEquals(Arrays.asList(bs(1), bs(2), bs(3), bs(4), bs(5)), results);
+	}
+
+	@Test
+	public void testDefaultPushBatch() {
+		List<BindingSet> results = new ArrayList<>();
+		BindingSetPipe pipe = new BindingSetPipe(null) {
+			@Override
+			protected boolean next(BindingSet bs) {
+				results.add(bs);
+				return results.size() < 2;
+			}
+		};
+		assertFalse(pipe.pushBatch(Arrays.asList(bs(1), bs(2), bs(3))));
+		assertFalse(pipe.push(bs(4)));
+		assertEquals(Arrays.asList(bs(1), bs(2)), results);
+	}
+}
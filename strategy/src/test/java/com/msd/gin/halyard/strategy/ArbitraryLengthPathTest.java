@@ -16,14 +16,18 @@
  */
 package com.msd.gin.halyard.strategy;
 
+import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
+import static org.junit.Assert.assertEquals;
 
 import java.util.Arrays;
 import java.util.Collection;
 
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.query.QueryLanguage;
+import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
@@ -64,8 +68,7 @@ public class ArbitraryLengthPathTest {
         repo.shutDown();
     }
 
-    @Test
-    public void testN() throws Exception {
+    private void addChain() {
         ValueFactory vf = con.getValueFactory();
         IRI node = vf.createIRI("urn:test:root");
         for (int i = 0; i < n; i++) {
@@ -74,7 +77,73 @@ public class ArbitraryLengthPathTest {
 			node = nextNode;
         }
 		con.add(node, vf.createIRI("urn:test:hasChild"), vf.createIRI("urn:test:node-end"));
+    }
+
+    private int count(String sparql) {
+        try (TupleQueryResult res = con.prepareTupleQuery(QueryLanguage.SPARQL, sparql).evaluate()) {
+            return ((Literal) res.next().getValue("c")).intValue();
+        }
+    }
+
+    @Test
+    public void testN() throws Exception {
+        addChain();
         String sparql = "ASK { <urn:test:root> <urn:test:hasChild>* <urn:test:node-end> }";
         assertTrue(con.prepareBooleanQuery(QueryLanguage.SPARQL, sparql).evaluate());
     }
+
+    @Test
+    public void testInverseN() throws Exception {
+        addChain();
+        String sparql = "ASK { <urn:test:node-end> ^<urn:test:hasChild>+ <urn:test:root> }";
+        assertTrue(con.prepareBooleanQuery(QueryLanguage.SPARQL, sparql).evaluate());
+        sparql = "ASK { <urn:test:node-end> <urn:test:hasChild>+ <urn:test:root> }";
+        assertFalse(con.prepareBooleanQuery(QueryLanguage.SPARQL, sparql).evaluate());
+    }
+
+    @Test
+    public void testReachableN() throws Exception {
+        addChain();
+        assertEquals(n + 2, count("SELECT (COUNT(*) AS ?c) { <urn:test:root> <urn:test:hasChild>* ?x }"));
+        assertEquals(n + 1, count("SELECT (COUNT(*) AS ?c) { <urn:test:root> <urn:test:hasChild>+ ?x }"));
+        assertEquals(n + 2, count("SELECT (COUNT(*) AS ?c) { ?x <urn:test:hasChild>* <urn:test:node-end> }"));
+        assertEquals(n + 1, count("SELECT (COUNT(*) AS ?c) { ?x ^<urn:test:hasChild>+ <urn:test:root> }"));
+    }
+
+    @Test
+    public void testCycleN() throws Exception {
+        addChain();
+        ValueFactory vf = con.getValueFactory();
+        con.add(vf.createIRI("urn:test:node-end"), vf.createIRI("urn:test:hasChild"), vf.createIRI("urn:test:root"));
+        assertEquals(n + 2, count("SELECT (COUNT(*) AS ?c) { <urn:test:root> <urn:test:hasChild>+ ?x }"));
+        assertEquals(n + 2, count("SELECT (COUNT(*) AS ?c) { ?x <urn:test:hasChild>+ <urn:test:node-end> }"));
+        String sparql = "ASK { <urn:test:root> <urn:test:hasChild>+ <urn:test:root> }";
+        assertTrue(con.prepareBooleanQuery(QueryLanguage.SPARQL, sparql).evaluate());
+    }
+
+    @Test
+    public void testWideN() throws Exception {
+        // tiny memory threshold so that the visited set and the queue of nodes to expand spill to disk
+        MockSailWithHalyardStrategy sail = new MockSailWithHalyardStrategy();
+        sail.setMemoryThreshold(5);
+        con.close();
+        repo.shutDown();
+        repo = new SailRepository(sail);
+        repo.init();
+        con = repo.getConnection();
+        ValueFactory vf = con.getValueFactory();
+        IRI hasChild = vf.createIRI("urn:test:hasChild");
+        IRI root = vf.createIRI("urn:test:root");
+        int width = n / 10;
+        for (int i = 0; i < width; i++) {
+            IRI child = vf.createIRI("urn:test:node" + i);
+            con.add(root, hasChild, child);
+            for (int j = 0; j < 3; j++) {
+                con.add(child, hasChild, vf.createIRI("urn:test:node" + i + "-" + j));
+            }
+        }
+        assertEquals(4 * width + 1, count("SELECT (COUNT(*) AS ?c) { <urn:test:root> <urn:test:hasChild>* ?x }"));
+        assertEquals(4 * width, count("SELECT (COUNT(DISTINCT ?x) AS ?c) { <urn:test:root> <urn:test:hasChild>+ ?x }"));
+        assertEquals(width > 0, con.prepareBooleanQuery(QueryLanguage.SPARQL, "ASK { <urn:test:root> <urn:test:hasChild>+ <urn:test:node" + (width - 1) + "-2> }").evaluate());
+    }
 }
@@ -22,10 +22,12 @@ import static junit.framework.TestCase.assertTrue;
 import com.msd.gin.halyard.model.ObjectArrayLiteral;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.model.vocabulary.SCHEMA_ORG;
+import com.msd.gin.halyard.query.algebra.Algorithms;
 
 import java.util.HashSet;
 import java.util.Set;
 
+import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
@@ -39,6 +41,9 @@ import org.eclipse.rdf4j.query.QueryResult;
 import org.eclipse.rdf4j.query.TupleQuery;
 import org.eclipse.rdf4j.query.TupleQueryResult;
 import org.eclipse.rdf4j.query.Update;
+import org.eclipse.rdf4j.query.algebra.Join;
+import org.eclipse.rdf4j.query.algebra.Projection;
+import org.eclipse.rdf4j.query.algebra.QueryRoot;
 import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
 import org.eclipse.rdf4j.repository.sail.SailRepository;
@@ -243,6 +248,115 @@ public class HalyardStrategyExtendedTest {
 		}
 	}
 
+    @Test
+    public void testGroupByManyRows() {
+        ValueFactory vf = con.getValueFactory();
+        int n = 5000;
+        int groups = 7;
+        for (int i = 0; i < n; i++) {
+            IRI s = vf.createIRI("http://whatever/s" + i);
+            con.add(s, vf.createIRI("http://whatever/group"), vf.createLiteral(i % groups));
+            con.add(s, vf.createIRI("http://whatever/val"), vf.createLiteral(i));
+        }
+        String q = "SELECT ?g (COUNT(?x) as ?countx) (SUM(?x) as ?sumx) (MIN(?x) as ?minx) (MAX(?x) as ?maxx) (COUNT(*) as ?count) {"
+            + " ?s <http://whatever/group> ?g; <http://whatever/val> ?x } GROUP BY ?g";
+        int groupCount = 0;
+        try (TupleQueryResult res = con.prepareTupleQuery(q).evaluate()) {
+            while (res.hasNext()) {
+                BindingSet bs = res.next();
+                int g = ((Literal) bs.getValue("g")).intValue();
+                int count = (n - g + groups - 1) / groups;
+                assertEquals(count, ((Literal) bs.getValue("countx")).intValue());
+                assertEquals(count, ((Literal) bs.getValue("count")).intValue());
+                assertEquals(count * (long) g + (long) groups * count * (count - 1) / 2, ((Literal) bs.getValue("sumx")).longValue());
+                assertEquals(g, ((Literal) bs.getValue("minx")).intValue());
+                assertEquals(g + groups * (count - 1), ((Literal) bs.getValue("maxx")).intValue());
+                groupCount++;
+            }
+        }
+        assertEquals(groups, groupCount);
+    }
+
+    @Test
+    public void testOrderByLimit() {
+        assertOrderByLimit(con);
+    }
+
+    @Test
+    public void testOrderByLimitAboveTopKMaxLimit() throws Exception {
+        MockSailWithHalyardStrategy sail = new MockSailWithHalyardStrategy();
+        sail.setTopKMaxLimit(2);
+        Repository sortRepo = new SailRepository(sail);
+        sortRepo.init();
+        try (RepositoryConnection sortCon = sortRepo.getConnection()) {
+            assertOrderByLimit(sortCon);
+        } finally {
+            sortRepo.shutDown();
+        }
+    }
+
+    private static void assertOrderByLimit(RepositoryConnection con) {
+        ValueFactory vf = con.getValueFactory();
+        for (int i = 0; i < 1000; i++) {
+            con.add(vf.createIRI("http://whatever/s" + i), vf.createIRI("http://whatever/val"), vf.createLiteral((i * 37) % 1000));
+            con.add(vf.createIRI("http://whatever/s" + i), vf.createIRI("http://whatever/group"), vf.createLiteral(((i * 37) % 1000) / 2));
+        }
+        String q = "SELECT ?x { ?s <http://whatever/val> ?x } ORDER BY DESC(?x) LIMIT 5 OFFSET 2";
+        try (TupleQueryResult res = con.prepareTupleQuery(q).evaluate()) {
+            for (int i = 997; i > 992; i--) {
+                assertTrue(res.hasNext());
+                assertEquals(i, ((Literal) res.next().getValue("x")).intValue());
+            }
+            assertFalse(res.hasNext());
+        }
+        q = "SELECT DISTINCT ?g { ?s <http://whatever/group> ?g } ORDER BY ?g LIMIT 3";
+        try (TupleQueryResult res = con.prepareTupleQuery(q).evaluate()) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(res.hasNext());
+                assertEquals(i, ((Literal) res.next().getValue("g")).intValue());
+            }
+            assertFalse(res.hasNext());
+        }
+    }
+
+    @Test
+    public void testMergeJoin() throws Exception {
+        MockSailWithHalyardStrategy sail = new MockSailWithHalyardStrategy(0, 0, 0.0f, Integer.MAX_VALUE, Integer.MAX_VALUE, 0);
+        sail.setOrdered(true);
+        Repository mergeRepo = new SailRepository(sail);
+        mergeRepo.init();
+        try (RepositoryConnection mergeCon = mergeRepo.getConnection()) {
+            ValueFactory vf = mergeCon.getValueFactory();
+            int n = 300;
+            for (int i = 0; i < n; i++) {
+                IRI s = vf.createIRI("http://whatever/s" + i);
+                if (i % 2 == 0) {
+                    mergeCon.add(s, vf.createIRI("http://whatever/group"), vf.createLiteral(i % 7));
+                }
+                if (i % 3 == 0) {
+                    mergeCon.add(s, vf.createIRI("http://whatever/val"), vf.createLiteral(i));
+                    mergeCon.add(s, vf.createIRI("http://whatever/val"), vf.createLiteral(-i));
+                }
+            }
+            String q = "SELECT ?s ?g ?x { ?s <http://whatever/group> ?g . ?s <http://whatever/val> ?x }";
+            Set<String> results = new HashSet<>();
+            try (TupleQueryResult res = mergeCon.prepareTupleQuery(q).evaluate()) {
+                while (res.hasNext()) {
+                    BindingSet bs = res.next();
+                    int i = Integer.parseInt(bs.getValue("s").stringValue().substring("http://whatever/s".length()));
+                    assertEquals(0, i % 6);
+                    assertEquals(i % 7, ((Literal) bs.getValue("g")).intValue());
+                    assertEquals(i, Math.abs(((Literal) bs.getValue("x")).intValue()));
+                    assertTrue(results.add(bs.getValue("x").stringValue()));
+                }
+            }
+            assertEquals(2 * ((n + 5) / 6) - 1, results.size());
+            assertEquals(Algorithms.MERGE_JOIN, ((Join) ((Projection) ((QueryRoot) sail.getQueryHistory().getLast()).getArg()).getArg()).getAlgorithmName());
+        } finally {
+            mergeRepo.shutDown();
+        }
+    }
+
     @Test
     public void testConstantAggregates() {
     	String q = "SELECT (MAX(-2) as ?maxx) (MIN(3) as ?minx) (AVG(1) as ?avgx) (SUM(7) as ?sumx) (COUNT('foo') as ?countx) (SAMPLE('bar') as ?samplex) (GROUP_CONCAT('foobar') as ?concatx) { }";
@@ -420,6 +534,33 @@ public class HalyardStrategyExtendedTest {
         assertEquals(2, total);
     }
 
+    @Test
+    public void testBatchedFilterExists() throws Exception {
+        MockSailWithHalyardStrategy sail = new MockSailWithHalyardStrategy();
+        sail.setPushBatchSize(10);
+        Repository batchRepo = new SailRepository(sail);
+        batchRepo.init();
+        try (RepositoryConnection batchCon = batchRepo.getConnection()) {
+            ValueFactory vf = batchCon.getValueFactory();
+            for (int i = 0; i < 25; i++) {
+                IRI person = vf.createIRI("http://example.com/p" + i);
+                batchCon.add(person, RDF.TYPE, SCHEMA_ORG.PERSON);
+                if (i % 2 == 0) {
+                    batchCon.add(person, SCHEMA_ORG.NAME, vf.createLiteral("Name " + i));
+                }
+            }
+            String query = "PREFIX s: <http://schema.org/>\nSELECT ?s {?s a s:Person FILTER EXISTS {?s s:name []} }";
+            try (TupleQueryResult res = batchCon.prepareTupleQuery(query).evaluate()) {
+                assertEquals(13, count(res));
+            }
+            try (TupleQueryResult res = batchCon.prepareTupleQuery(query + " LIMIT 3").evaluate()) {
+                assertEquals(3, count(res));
+            }
+        } finally {
+            batchRepo.shutDown();
+        }
+    }
+
     private static int count(QueryResult<?> res) {
     	int n = 0;
     	while (res.hasNext()) {
@@ -0,0 +1,75 @@
+package com.msd.gin.halyard.strategy;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.EmptyBindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class HashJoinTableTest {
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	private static BindingSet bs(Integer x, Integer y, int z) {
+		MapBindingSet bs = new MapBindingSet();
+		if (x != null) {
+			bs.setBinding("x", VF.createLiteral(x));
+		}
+		if (y != null) {
+			bs.setBinding("y", VF.createLiteral(y));
+		}
+		bs.setBinding("z", VF.createLiteral(z));
+		return bs;
+	}
+
+	@Test
+	public void testSingleKey() {
+		Set<String> joinBindings = new LinkedHashSet<>(Arrays.asList("x"));
+		HashJoinTable table = HashJoinTable.create(0, joinBindings, Arrays.asList("x", "z"));
+		for (int i = 0; i < 1000; i++) {
+			table.put(bs(i % 100, null, i));
+		}
+		table.put(bs(null, null, -1));
+		assertEquals(1001, table.entryCount());
+		List<BindingSetValues> matches = table.get(bs(7, null, 0));
+		assertEquals(10, matches.size());
+		for (BindingSetValues bsv : matches) {
+			BindingSet joined = bsv.joinTo(table.buildBindings, EmptyBindingSet.getInstance());
+			assertEquals(7, ((Literal) joined.getValue("x")).intValue());
+			assertEquals(7, ((Literal) joined.getValue("z")).intValue() % 100);
+		}
+		assertNull(table.get(bs(100, null, 0)));
+		assertEquals(1001, table.all().stream().mapToInt(List::size).sum());
+	}
+
+	@Test
+	public void testMultiKey() {
+		Set<String> joinBindings = new LinkedHashSet<>(Arrays.asList("x", "y"));
+		HashJoinTable table = HashJoinTable.create(0, joinBindings, Arrays.asList("x", "y", "z"));
+		for (int i = 0; i < 100; i++) {
+			table.put(bs(i % 10, i % 3, i));
+		}
+		// x = 4 and y = 1 for i = 4, 34, 64, 94
+		assertEquals(4, table.get(bs(4, 1, 0)).size());
+		assertNull(table.get(bs(4, 5, 0)));
+	}
+
+	@Test
+	public void testNoKey() {
+		Set<String> joinBindings = new LinkedHashSet<>();
+		HashJoinTable table = HashJoinTable.create(0, joinBindings, Arrays.asList("z"));
+		for (int i = 0; i < 50; i++) {
+			table.put(bs(null, null, i));
+		}
+		assertEquals(50, table.get(EmptyBindingSet.getInstance()).size());
+	}
+}
@@ -21,16 +21,26 @@ import com.msd.gin.halyard.optimizers.JoinAlgorithmOptimizer;
 import com.msd.gin.halyard.optimizers.SimpleStatementPatternCardinalityCalculator;
 import com.msd.gin.halyard.query.BindingSetPipe;
 import com.msd.gin.halyard.query.BindingSetPipeQueryEvaluationStep;
+import com.msd.gin.halyard.query.algebra.evaluation.BatchTripleSource;
+import com.msd.gin.halyard.model.TermRole;
 import com.msd.gin.halyard.query.algebra.evaluation.ExtendedTripleSource;
+import com.msd.gin.halyard.query.algebra.evaluation.IndexOrdering;
+import com.msd.gin.halyard.query.algebra.evaluation.OrderedTripleSource;
 import com.msd.gin.halyard.query.algebra.evaluation.QueryPreparer;
+import com.msd.gin.halyard.query.algebra.evaluation.StatementOrdering;
 import com.msd.gin.halyard.query.algebra.evaluation.federation.SailFederatedService;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
 
 import org.apache.hadoop.conf.Configuration;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.common.iteration.CloseableIteratorIteration;
 import org.eclipse.rdf4j.common.iteration.IterationWrapper;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Resource;
@@ -66,6 +76,11 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
 	private final int minJoins;
 	private final int minUnions;
 	private final int pullAllLimit;
+	private final int bindJoinBatchSize;
+	private int memoryThreshold = StrategyConfig.DEFAULT_MEMORY_THRESHOLD;
+	private int pushBatchSize = StrategyConfig.DEFAULT_PUSH_BATCH_SIZE;
+	private int topKMaxLimit = StrategyConfig.DEFAULT_TOP_K_MAX_LIMIT;
+	private boolean ordered;
 
 	MockSailWithHalyardStrategy() {
 		this(0, 0, Float.MAX_VALUE, 1, 1, 0);
@@ -97,12 +112,33 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
 	}
 
 	MockSailWithHalyardStrategy(int optHashJoinLimit, int evalHashJoinLimit, float cardinalityRatio, int starJoinMin, int naryUnionMin, int pullAllLimit) {
+		this(optHashJoinLimit, evalHashJoinLimit, cardinalityRatio, starJoinMin, naryUnionMin, pullAllLimit, 0);
+	}
+
+	MockSailWithHalyardStrategy(int optHashJoinLimit, int evalHashJoinLimit, float cardinalityRatio, int starJoinMin, int naryUnionMin, int pullAllLimit, int bindJoinBatchSize) {
 		this.optHashJoinLimit = optHashJoinLimit;
 		this.evalHashJoinLimit = evalHashJoinLimit;
 		this.cardinalityRatio = cardinalityRatio;
 		this.minJoins = starJoinMin;
 		this.minUnions = naryUnionMin;
 		this.pullAllLimit = pullAllLimit;
+		this.bindJoinBatchSize = bindJoinBatchSize;
+	}
+
+	void setMemoryThreshold(int memoryThreshold) {
+		this.memoryThreshold = memoryThreshold;
+	}
+
+	void setPushBatchSize(int pushBatchSize) {
+		this.pushBatchSize = pushBatchSize;
+	}
+
+	void setTopKMaxLimit(int topKMaxLimit) {
+		this.topKMaxLimit = topKMaxLimit;
+	}
+
+	void setOrdered(boolean ordered) {
+		this.ordered = ordered;
 	}
 
 	LinkedList<TupleExpr> getQueryHistory() {
@@ -129,7 +165,11 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
         	conf.setInt(StrategyConfig.HALYARD_EVALUATION_LEFT_STAR_JOIN_MIN_JOINS, minJoins);
         	conf.setInt(StrategyConfig.HALYARD_EVALUATION_NARY_UNION_MIN_UNIONS, minUnions);
         	conf.setInt(StrategyConfig.HALYARD_EVALUATION_PULL_PUSH_ASYNC_ALL_LIMIT, pullAllLimit);
-        	HalyardEvaluationStrategy evalStrat = new HalyardEvaluationStrategy(conf, new MockTripleSource(tripleSource), dataset, getFederatedServiceResolver(), stats) {
+        	conf.setInt(StrategyConfig.HALYARD_EVALUATION_BIND_JOIN_BATCH_SIZE, bindJoinBatchSize);
+        	conf.setInt(StrategyConfig.HALYARD_EVALUATION_MEMORY_THRESHOLD, memoryThreshold);
+        	conf.setInt(StrategyConfig.HALYARD_EVALUATION_PUSH_BATCH_SIZE, pushBatchSize);
+        	conf.setInt(StrategyConfig.HALYARD_EVALUATION_TOP_K_MAX_LIMIT, topKMaxLimit);
+        	HalyardEvaluationStrategy evalStrat = new HalyardEvaluationStrategy(conf, ordered ? new OrderedMockTripleSource(tripleSource) : new MockTripleSource(tripleSource), dataset, getFederatedServiceResolver(), stats) {
         		@Override
         		public BindingSetPipeQueryEvaluationStep precompile(TupleExpr expr, QueryEvaluationContext evalContext) {
         			queryHistory.add(expr);
@@ -147,7 +187,7 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
         }
 	}
 
-    static class MockTripleSource implements RDFStarTripleSource, ExtendedTripleSource {
+    static class MockTripleSource implements RDFStarTripleSource, ExtendedTripleSource, BatchTripleSource {
         private final TripleSource tripleSource;
 
         MockTripleSource(TripleSource tripleSource) {
@@ -200,4 +240,71 @@ public class MockSailWithHalyardStrategy extends MemoryStore {
 			throw new AssertionError();
 		}
 	}
+
+	/**
+	 * Returns statements sorted by a deliberately coarse sort key of the first unbound position, so that different values share sort keys.
+	 */
+	static class OrderedMockTripleSource extends MockTripleSource implements OrderedTripleSource {
+		OrderedMockTripleSource(TripleSource tripleSource) {
+			super(tripleSource);
+		}
+
+		@Override
+		public CloseableIteration<? extends Statement> getStatements(Resource subj, IRI pred, Value obj, Resource... contexts) throws QueryEvaluationException {
+			StatementOrdering ordering = getStatementOrdering(subj, pred, obj, contexts);
+			if (ordering == null) {
+				return super.getStatements(subj, pred, obj, contexts);
+			}
+			List<Statement> stmts = new ArrayList<>();
+			try (CloseableIteration<? extends Statement> iter = super.getStatements(subj, pred, obj, contexts)) {
+				while (iter.hasNext()) {
+					stmts.add(iter.next());
+				}
+			}
+			stmts.sort(Comparator.comparing(st -> ordering.getSortKey(ordering.getRole().getValue(st)), Arrays::compareUnsigned));
+			return new CloseableIteratorIteration<>(stmts.iterator());
+		}
+
+		@Override
+		public StatementOrdering getStatementOrdering(Resource subj, IRI pred, Value obj, Resource... contexts) {
+			if (contexts.length > 1) {
+				return null;
+			} else if (subj == null) {
+				return MockStatementOrdering.SUBJECT;
+			} else if (pred == null) {
+				return MockStatementOrdering.PREDICATE;
+			} else if (obj == null) {
+				return MockStatementOrdering.OBJECT;
+			} else {
+				return null;
+			}
+		}
+	}
+
+	enum MockStatementOrdering implements StatementOrdering, IndexOrdering {
+		SUBJECT(TermRole.SUBJECT),
+		PREDICATE(TermRole.PREDICATE),
+		OBJECT(TermRole.OBJECT);
+
+		private final TermRole role;
+
+		MockStatementOrdering(TermRole role) {
+			this.role = role;
+		}
+
+		@Override
+		public TermRole getRole() {
+			return role;
+		}
+
+		@Override
+		public IndexOrdering getIndexOrdering() {
+			return this;
+		}
+
+		@Override
+		public byte[] getSortKey(Value v) {
+			return new byte[] {(byte) (v.hashCode() & 0x0F)};
+		}
+	}
 }
@@ -0,0 +1,88 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BigQueueTest {
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private static Value value(int i) {
+		return (i % 2 == 0) ? VF.createLiteral(i) : VF.createIRI("http://whatever/", Integer.toString(i));
+	}
+
+	private static long fileCount(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.count();
+		}
+	}
+
+	@Test
+	public void testInMemory() throws Exception {
+		Path dir = tempFolder.getRoot().toPath();
+		try (BigQueue<Value> queue = BigQueue.createValueQueue(100, dir, VF)) {
+			for (int i = 0; i < 10; i++) {
+				queue.add(value(i));
+			}
+			assertEquals(10, queue.size());
+			assertEquals(0, fileCount(dir));
+			for (int i = 0; i < 10; i++) {
+				assertEquals(value(i), queue.poll());
+			}
+			assertNull(queue.poll());
+			assertTrue(queue.isEmpty());
+		}
+	}
+
+	@Test
+	public void testSpillInterleaved() throws Exception {
+		Path dir = tempFolder.getRoot().toPath();
+		try (BigQueue<Value> queue = BigQueue.createValueQueue(7, dir, VF)) {
+			int next = 0;
+			for (int i = 0; i < 50; i++) {
+				queue.add(value(i));
+			}
+			assertEquals(7, fileCount(dir));
+			for (; next < 20; next++) {
+				assertEquals(value(next), queue.poll());
+			}
+			for (int i = 50; i < 100; i++) {
+				queue.add(value(i));
+			}
+			assertEquals(80, queue.size());
+			for (; next < 100; next++) {
+				assertEquals(value(next), queue.poll());
+			}
+			assertNull(queue.poll());
+			assertEquals(0, fileCount(dir));
+		}
+	}
+
+	@Test
+	public void testCloseDeletesFiles() throws Exception {
+		Path dir = tempFolder.getRoot().toPath();
+		BigQueue<Value> queue = BigQueue.createValueQueue(3, dir, VF);
+		for (int i = 0; i < 10; i++) {
+			queue.add(value(i));
+		}
+		queue.poll();
+		assertEquals(3, fileCount(dir));
+		queue.close();
+		assertEquals(0, fileCount(dir));
+	}
+}
@@ -0,0 +1,79 @@
+package com.msd.gin.halyard.strategy.collections;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.query.impl.MapBindingSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BindingSetPartitionsTest {
+	private static final ValueFactory VF = SimpleValueFactory.getInstance();
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private static BindingSet bs(int i) {
+		MapBindingSet bs = new MapBindingSet();
+		bs.setBinding("x", VF.createLiteral(i));
+		bs.setBinding("y", VF.createIRI("http://whatever/", Integer.toString(i)));
+		return bs;
+	}
+
+	private static long fileCount(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.count();
+		}
+	}
+
+	@Test
+	public void testWriteAndRead() throws Exception {
+		Path dir = tempFolder.getRoot().toPath();
+		try (BindingSetPartitions partitions = new BindingSetPartitions(4, dir, VF)) {
+			for (int i = 0; i < 100; i++) {
+				partitions.add(i % 3, bs(i));
+			}
+			partitions.finish();
+			assertEquals(3, fileCount(dir));
+			assertEquals(34, partitions.size(0));
+			assertEquals(0, partitions.size(3));
+			List<BindingSet> actual = new ArrayList<>();
+			assertTrue(partitions.read(1, actual::add));
+			assertEquals(33, actual.size());
+			for (int i = 0; i < actual.size(); i++) {
+				assertEquals(bs(3 * i + 1), actual.get(i));
+			}
+			assertTrue(partitions.read(3, bs -> false));
+			assertFalse(partitions.read(2, bs -> false));
+		}
+		assertEquals(0, fileCount(dir));
+	}
+
+	@Test(expected = IOException.class)
+	public void testFailAddAfterFinish() throws Exception {
+		try (BindingSetPartitions partitions = new BindingSetPartitions(2, tempFolder.getRoot().toPath(), VF)) {
+			partitions.finish();
+			partitions.add(0, bs(0));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testFailReadBeforeFinish() throws Exception {
+		try (BindingSetPartitions partitions = new BindingSetPartitions(2, tempFolder.getRoot().toPath(), VF)) {
+			partitions.add(0, bs(0));
+			partitions.read(0, bs -> true);
+		}
+	}
+}
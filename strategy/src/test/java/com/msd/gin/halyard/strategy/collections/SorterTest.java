@@ -98,6 +98,52 @@ public class SorterTest {
         s.close();
     }
 
+    @Test
+    public void testSpillNoLimitNoDistinct() throws Exception {
+        Sorter<Integer> s = new Sorter<>(Long.MAX_VALUE, false, 5);
+        for (int i = 99; i >= 0; i--) {
+            s.add(i % 50);
+        }
+        Iterator<Entry<Integer, Long>> it = s.iterator();
+        for (int i = 0; i < 50; i++) {
+            Entry<Integer, Long> e = it.next();
+            Assert.assertEquals(i, e.getKey().intValue());
+            Assert.assertEquals(2L, e.getValue().longValue());
+        }
+        Assert.assertFalse(it.hasNext());
+        s.close();
+    }
+
+    @Test
+    public void testSpillLimitDistinct() throws Exception {
+        Sorter<Integer> s = new Sorter<>(7, true, 5);
+        for (int i = 99; i >= 0; i--) {
+            s.add(i % 50);
+        }
+        Iterator<Entry<Integer, Long>> it = s.iterator();
+        for (int i = 0; i < 7; i++) {
+            Entry<Integer, Long> e = it.next();
+            Assert.assertEquals(i, e.getKey().intValue());
+            Assert.assertEquals(1L, e.getValue().longValue());
+        }
+        Assert.assertFalse(it.hasNext());
+        s.close();
+    }
+
+    @Test
+    public void testSpillLimitNoDistinct() throws Exception {
+        Sorter<Integer> s = new Sorter<>(5, false, 3);
+        for (int i = 0; i < 20; i++) {
+            s.add(i % 2);
+        }
+        Iterator<Entry<Integer, Long>> it = s.iterator();
+        Entry<Integer, Long> e = it.next();
+        Assert.assertEquals(0, e.getKey().intValue());
+        Assert.assertEquals(5L, e.getValue().longValue());
+        Assert.assertFalse(it.hasNext());
+        s.close();
+    }
+
     private static void assertEquals(String s, long l, Entry<String, Long> e) {
         Assert.assertEquals(s, e.getKey());
         Assert.assertEquals(s, l, (long)e.getValue());
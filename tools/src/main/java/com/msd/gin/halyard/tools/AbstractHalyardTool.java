@@ -445,7 +445,7 @@ public abstract class AbstractHalyardTool implements Tool {
             keyspaceConn = keyspace.getConnection();
             rdfFactory = RDFFactory.create(keyspaceConn);
             vf = new IdValueFactory(rdfFactory);
-            stmtIndices = new StatementIndices(conf, rdfFactory);
+            stmtIndices = new StatementIndices(conf, rdfFactory, keyspaceConn);
         }
 
         protected void closeKeyspace() throws IOException {
@@ -473,7 +473,7 @@ public abstract class AbstractHalyardTool implements Tool {
             keyspaceConn = keyspace.getConnection();
             rdfFactory = RDFFactory.create(keyspaceConn);
             vf = new IdValueFactory(rdfFactory);
-            stmtIndices = new StatementIndices(conf, rdfFactory);
+            stmtIndices = new StatementIndices(conf, rdfFactory, keyspaceConn);
         }
 
         protected void closeKeyspace() throws IOException {
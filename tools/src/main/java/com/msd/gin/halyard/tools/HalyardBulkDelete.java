@@ -160,6 +160,17 @@ public final class HalyardBulkDelete extends AbstractHalyardTool {
             outRowKey.set(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength());
             output.write(outRowKey, kv);
             deletedKvs++;
+            byte[] rangeRow = stmtIndices.getLiteralRangeRow(c, st.getObject());
+            if (rangeRow != null) {
+                KeyValue rangeKv = new KeyValue(rangeRow, 0, rangeRow.length,
+                    c.getFamilyArray(), c.getFamilyOffset(), (int) c.getFamilyLength(),
+                    c.getQualifierArray(), c.getQualifierOffset(), c.getQualifierLength(),
+                    htimestamp, KeyValue.Type.DeleteColumn, c.getValueArray(), c.getValueOffset(),
+                    c.getValueLength());
+                outRowKey.set(rangeKv.getRowArray(), rangeKv.getRowOffset(), rangeKv.getRowLength());
+                output.write(outRowKey, rangeKv);
+                deletedKvs++;
+            }
             if (st.getSubject().isTriple() || st.getObject().isTriple()) {
                 deletedTripledKvs++;
             }
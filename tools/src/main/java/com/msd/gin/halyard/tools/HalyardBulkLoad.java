@@ -27,19 +27,28 @@ import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.rio.TriGStarParser;
 import com.msd.gin.halyard.util.LRUCache;
 
+import java.io.BufferedReader;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 
 import org.apache.commons.cli.CommandLine;
@@ -50,6 +59,8 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.Seekable;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.TableName;
@@ -60,6 +71,7 @@ import org.apache.hadoop.hbase.client.TableDescriptor;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.HFileOutputFormat2;
 import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
+import org.apache.hadoop.hbase.util.MapReduceExtendedCell;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.compress.CodecPool;
 import org.apache.hadoop.io.compress.CompressionCodec;
@@ -69,6 +81,7 @@ import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
@@ -128,6 +141,16 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
     public static final String VALUE_CACHE_SIZE_PROPERTY = confProperty(TOOL_NAME, "value-cache.size");
     public static final String HIDDEN_CONTEXT_PROPERTY = confProperty(TOOL_NAME, "context.hidden");
 
+    /**
+     * Boolean property enabling removal of duplicate KeyValues across all mappers before the HFiles are written
+     */
+    public static final String GLOBAL_DEDUP_PROPERTY = confProperty(TOOL_NAME, "global-dedup");
+
+    /**
+     * Boolean property enabling a sampling pass to pre-split the target table (only applies if the table does not exist)
+     */
+    public static final String PRESPLIT_PROPERTY = confProperty(TOOL_NAME, "presplit");
+
     /**
      * Boolean property ignoring RDF parsing errors
      */
@@ -155,6 +178,11 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
 
     public static final String PARSER_QUEUE_SIZE_PROPERTY = confProperty("parser", "queue.size");
 
+    /**
+     * Property defining number of threads used to parse each line-based (N-Triples, N-Quads) file
+     */
+    public static final String PARSER_THREADS_PROPERTY = confProperty("parser", "threads");
+
     /**
      * Multiplier limiting maximum single file size in relation to the maximum split size, before it is processed in parallel (10x maximum split size)
      */
@@ -162,13 +190,16 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
     private static final int DEFAULT_SPLIT_BITS = 3;
     private static final long DEFAULT_SPLIT_MAXSIZE = 200000000l;
     private static final int DEFAULT_PARSER_QUEUE_SIZE = 50000;
+    private static final int DEFAULT_PARSER_THREADS = 1;
+    private static final int PARSER_CHUNK_LINES = 10000;
     static final int DEFAULT_STATEMENT_DEDUP_CACHE_SIZE = 2000;
     private static final int DEFAULT_VALUE_CACHE_SIZE = 2000;
 
     enum Counters {
 		ADDED_KVS,
 		ADDED_STATEMENTS,
-    	TOTAL_STATEMENTS_READ
+    	TOTAL_STATEMENTS_READ,
+    	DUPLICATE_KVS_REMOVED
 	}
 
     static void replaceParser(RDFFormat format, RDFParserFactory newpf) {
@@ -299,6 +330,50 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         }
     }
 
+    /**
+     * Sorts the KeyValues of a row, dropping exact duplicates (same row, column, timestamp and type).
+     * @return the number of duplicates dropped
+     */
+    static int sortDistinct(Iterable<? extends Cell> kvs, Set<Cell> sorted) {
+        int duplicates = 0;
+        for (Cell kv : kvs) {
+            if (!sorted.add(kv)) {
+                duplicates++;
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * Combiner dropping duplicate KeyValues on the map side to reduce shuffle volume
+     */
+    public static final class DedupCombiner extends Reducer<ImmutableBytesWritable, KeyValue, ImmutableBytesWritable, KeyValue> {
+        @Override
+        protected void reduce(ImmutableBytesWritable rowKey, Iterable<KeyValue> kvs, Context output) throws IOException, InterruptedException {
+            Set<Cell> sorted = new TreeSet<>(CellComparator.getInstance());
+            int duplicates = sortDistinct(kvs, sorted);
+            for (Cell kv : sorted) {
+                output.write(rowKey, (KeyValue) kv);
+            }
+            output.getCounter(Counters.DUPLICATE_KVS_REMOVED).increment(duplicates);
+        }
+    }
+
+    /**
+     * Replacement for HBase CellSortReducer that also drops (and counts) duplicate KeyValues from different mappers
+     */
+    public static final class DedupCellSortReducer extends Reducer<ImmutableBytesWritable, Cell, ImmutableBytesWritable, Cell> {
+        @Override
+        protected void reduce(ImmutableBytesWritable rowKey, Iterable<Cell> kvs, Context output) throws IOException, InterruptedException {
+            Set<Cell> sorted = new TreeSet<>(CellComparator.getInstance());
+            int duplicates = sortDistinct(kvs, sorted);
+            for (Cell kv : sorted) {
+                output.write(rowKey, new MapReduceExtendedCell(kv));
+            }
+            output.getCounter(Counters.DUPLICATE_KVS_REMOVED).increment(duplicates);
+        }
+    }
+
     /**
      * MapReduce FileInputFormat reading and parsing any RDF4J RIO supported RDF format into Statements
      */
@@ -437,6 +512,8 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         private final String defaultRdfContextPattern;
         private final boolean overrideRdfContext;
         private final long maxSize;
+        private final int parserThreads;
+        private final int valueCacheSize;
         private volatile String baseUri;
         private volatile Exception ex;
         private long finishedSize = 0L;
@@ -454,13 +531,15 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
             Configuration conf = context.getConfiguration();
             this.queue = new LinkedBlockingQueue<>(conf.getInt(PARSER_QUEUE_SIZE_PROPERTY, DEFAULT_PARSER_QUEUE_SIZE));
             this.idValueFactory = new IdValueFactory(RDFFactory.create(conf));
-            this.valueFactory = new CachingValueFactory(idValueFactory, conf.getInt(VALUE_CACHE_SIZE_PROPERTY, DEFAULT_VALUE_CACHE_SIZE));
+            this.valueCacheSize = conf.getInt(VALUE_CACHE_SIZE_PROPERTY, DEFAULT_VALUE_CACHE_SIZE);
+            this.valueFactory = new CachingValueFactory(idValueFactory, valueCacheSize);
             this.allowInvalidIris = conf.getBoolean(ALLOW_INVALID_IRIS_PROPERTY, false);
             this.skipInvalidLines = conf.getBoolean(SKIP_INVALID_LINES_PROPERTY, false);
             this.verifyDataTypeValues = conf.getBoolean(VERIFY_DATATYPE_VALUES_PROPERTY, false);
             this.overrideRdfContext = conf.getBoolean(OVERRIDE_CONTEXT_PROPERTY, false);
             this.defaultRdfContextPattern = conf.get(DEFAULT_CONTEXT_PROPERTY);
             this.maxSize = MAX_SINGLE_FILE_MULTIPLIER * conf.getLong(FileInputFormat.SPLIT_MAXSIZE, 0);
+            this.parserThreads = conf.getInt(PARSER_THREADS_PROPERTY, DEFAULT_PARSER_THREADS);
         }
 
         public Statement getNext() throws IOException, InterruptedException {
@@ -525,31 +604,21 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
 		                    synchronized (this) {
 		                        this.inStream = localStream; //synchronised parameters must be set inside a sync block
 		                    }
-		                    RDFParser parser = Rio.createParser(rdfFormat);
-		                    parser.setRDFHandler(this);
-		                    parser.setParseErrorListener(this);
-		                    parser.set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
-		                    parser.set(BasicParserSettings.VERIFY_URI_SYNTAX, !allowInvalidIris);
-		                    parser.set(BasicParserSettings.VERIFY_RELATIVE_URIS, !allowInvalidIris);
-		                    if (skipInvalidLines) {
-		                        parser.set(NTriplesParserSettings.FAIL_ON_INVALID_LINES, false);
-		                        parser.getParserConfig().addNonFatalError(NTriplesParserSettings.FAIL_ON_INVALID_LINES);
-		                    }
-		                   	parser.set(BasicParserSettings.VERIFY_DATATYPE_VALUES, verifyDataTypeValues);
-		                    parser.set(BasicParserSettings.VERIFY_LANGUAGE_TAGS, verifyDataTypeValues);
+		                    IRI defaultRdfContext = null;
 		                    if (defaultRdfContextPattern != null || overrideRdfContext) {
-		                        IRI defaultRdfContext;
 		                        if (defaultRdfContextPattern != null) {
 		                            String context = MessageFormat.format(defaultRdfContextPattern, localBaseUri, file.toUri().getPath(), file.getName());
 		                            validateIRIs(context);
 		                            defaultRdfContext = valueFactory.createIRI(context);
-		                        } else {
-		                            defaultRdfContext = null;
 		                        }
 		                        valueFactory.setDefaultContext(defaultRdfContext, overrideRdfContext);
 		                    }
-		                    parser.setValueFactory(valueFactory);
-		                    parser.parse(localStream, localBaseUri);
+		                    if (parserThreads > 1 && isLineBased(rdfFormat)) {
+		                        parseInParallel(localStream, rdfFormat, localBaseUri, defaultRdfContext);
+		                    } else {
+		                        RDFParser parser = createParser(rdfFormat, valueFactory);
+		                        parser.parse(localStream, localBaseUri);
+		                    }
 		                } catch (Exception e) {
 		                    if (allowInvalidIris && skipInvalidLines && !verifyDataTypeValues) {
 		                        LOG.warn("Exception while parsing RDF", e);
@@ -570,6 +639,82 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
             }
         }
 
+        private RDFParser createParser(RDFFormat rdfFormat, ValueFactory vf) {
+            RDFParser parser = Rio.createParser(rdfFormat);
+            parser.setRDFHandler(this);
+            parser.setParseErrorListener(this);
+            parser.set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+            parser.set(BasicParserSettings.VERIFY_URI_SYNTAX, !allowInvalidIris);
+            parser.set(BasicParserSettings.VERIFY_RELATIVE_URIS, !allowInvalidIris);
+            if (skipInvalidLines) {
+                parser.set(NTriplesParserSettings.FAIL_ON_INVALID_LINES, false);
+                parser.getParserConfig().addNonFatalError(NTriplesParserSettings.FAIL_ON_INVALID_LINES);
+            }
+           	parser.set(BasicParserSettings.VERIFY_DATATYPE_VALUES, verifyDataTypeValues);
+            parser.set(BasicParserSettings.VERIFY_LANGUAGE_TAGS, verifyDataTypeValues);
+            parser.setValueFactory(vf);
+            return parser;
+        }
+
+        private static boolean isLineBased(RDFFormat rdfFormat) {
+            return RDFFormat.NTRIPLES.equals(rdfFormat) || RDFFormat.NQUADS.equals(rdfFormat);
+        }
+
+        /**
+         * Splits a line-based file into chunks at line boundaries and parses them on several threads.
+         * Each thread has its own parser and value cache, statements are handed to the shared queue.
+         */
+        private void parseInParallel(InputStream in, RDFFormat rdfFormat, String localBaseUri, IRI defaultRdfContext) throws Exception {
+            AtomicReference<Exception> parseError = new AtomicReference<>();
+            ThreadLocal<RDFParser> parsers = ThreadLocal.withInitial(() -> {
+                CachingValueFactory vf = new CachingValueFactory(idValueFactory, valueCacheSize);
+                if (defaultRdfContextPattern != null || overrideRdfContext) {
+                    vf.setDefaultContext(defaultRdfContext, overrideRdfContext);
+                }
+                return createParser(rdfFormat, vf);
+            });
+            // bounded work queue, the reading thread parses chunks itself when the workers are busy
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(parserThreads - 1, parserThreads - 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(parserThreads), new ThreadPoolExecutor.CallerRunsPolicy());
+            try {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+                StringBuilder chunk = new StringBuilder();
+                int lines = 0;
+                String line;
+                while ((line = reader.readLine()) != null && parseError.get() == null) {
+                    chunk.append(line).append('\n');
+                    if (++lines == PARSER_CHUNK_LINES) {
+                        submitChunk(executor, parsers, chunk.toString(), localBaseUri, parseError);
+                        chunk.setLength(0);
+                        lines = 0;
+                    }
+                }
+                if (lines > 0) {
+                    submitChunk(executor, parsers, chunk.toString(), localBaseUri, parseError);
+                }
+                executor.shutdown();
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } finally {
+                executor.shutdownNow();
+            }
+            if (parseError.get() != null) {
+                throw parseError.get();
+            }
+        }
+
+        private void submitChunk(ExecutorService executor, ThreadLocal<RDFParser> parsers, String chunk, String localBaseUri, AtomicReference<Exception> parseError) {
+            executor.execute(() -> {
+                try {
+                    parsers.get().parse(new StringReader(chunk), localBaseUri);
+                } catch (Exception e) {
+                    if (allowInvalidIris && skipInvalidLines && !verifyDataTypeValues) {
+                        LOG.warn("Exception while parsing RDF", e);
+                    } else {
+                        parseError.compareAndSet(null, e);
+                    }
+                }
+            });
+        }
+
         @Override
         public void handleStatement(Statement st) {
             if (count == 1 || Math.floorMod(st.hashCode(), count) == offset) {
@@ -673,6 +818,9 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         addOption("m", "max-split-size", "size_in_bytes", FileInputFormat.SPLIT_MAXSIZE, "Optionally override maximum input split size, where significantly larger single files will be processed in parallel (0 means no limit, default is 200000000)", false, true);
         addOption(null, "dry-run", null, DRY_RUN_PROPERTY, "Skip loading of HFiles", false, true);
         addOption(null, "hidden-graph", null, HIDDEN_CONTEXT_PROPERTY, "Load into a hidden named graph (can only be used in conjunction with -g)", false, true);
+        addOption("p", "parser-threads", "threads", PARSER_THREADS_PROPERTY, "Optionally specify number of threads used to parse each N-Triples or N-Quads file (default is 1)", false, true);
+        addOption(null, "presplit", null, PRESPLIT_PROPERTY, "Sample the source files first to create the target table with optimal region pre-splits (only if the target table does not exist, overrides -b)", false, false);
+        addOption(null, "global-dedup", null, GLOBAL_DEDUP_PROPERTY, "Remove duplicate statements across all source files before writing HFiles (reduces shuffle volume and HFile size for data with many duplicates)", false, false);
     }
 
     @Override
@@ -689,8 +837,11 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
         configureBoolean(cmd, 'o');
         configureLong(cmd, 'e', System.currentTimeMillis());
         configureLong(cmd, 'm', DEFAULT_SPLIT_MAXSIZE);
+        configureInt(cmd, 'p', DEFAULT_PARSER_THREADS);
         configureBoolean(cmd, "dry-run");
         configureBoolean(cmd, "hidden-graph");
+        configureBoolean(cmd, "global-dedup");
+        configureBoolean(cmd, "presplit");
         if (getConf().get(DEFAULT_CONTEXT_PROPERTY) == null && getConf().get(HIDDEN_CONTEXT_PROPERTY) != null) {
         	throw new MissingOptionException("Missing -g with --hidden-graph");
         }
@@ -699,6 +850,24 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
 
         HBaseConfiguration.addHbaseResources(getConf());
 
+        if (getConf().getBoolean(PRESPLIT_PROPERTY, false)) {
+        	boolean tableExists;
+    		try (Connection conn = HalyardTableUtils.getConnection(getConf())) {
+    			tableExists = HalyardTableUtils.tableExists(conn, TableName.valueOf(target));
+    		}
+    		if (tableExists) {
+    			LOG.warn("Target table {} already exists, skipping pre-split", target);
+    		} else {
+    			addRioDependencies(getConf());
+    			Job preSplitJob = HalyardPreSplit.createJob(getConf(), target);
+    			if (!preSplitJob.waitForCompletion(true)) {
+    				LOG.error("PreSplit failed to complete.");
+    				return -1;
+    			}
+    			LOG.info("PreSplit Calculation completed.");
+    		}
+        }
+
         Job job = Job.getInstance(getConf(), "HalyardBulkLoad -> " + workdir + " -> " + target);
         job.setJarByClass(HalyardBulkLoad.class);
         job.setMapperClass(RDFMapper.class);
@@ -717,6 +886,10 @@ public class HalyardBulkLoad extends AbstractHalyardTool {
 				tableDesc = hTable.getDescriptor();
 				RegionLocator regionLocator = conn.getRegionLocator(tableDesc.getTableName());
 				HFileOutputFormat2.configureIncrementalLoad(job, tableDesc, regionLocator);
+				if (getConf().getBoolean(GLOBAL_DEDUP_PROPERTY, false)) {
+					job.setCombinerClass(DedupCombiner.class);
+					job.setReducerClass(DedupCellSortReducer.class);
+				}
 		        addRioDependencies(job.getConfiguration());
 	        }
             try (Keyspace keyspace = HalyardTableUtils.getKeyspace(getConf(), conn, tableDesc.getTableName(), null, null)) {
@@ -21,10 +21,13 @@ import static com.msd.gin.halyard.tools.HalyardBulkLoad.*;
 import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.common.RDFFactory;
 import com.msd.gin.halyard.common.StatementIndices;
+import com.msd.gin.halyard.common.TableConfig;
+import com.msd.gin.halyard.common.ValueIO;
 import com.msd.gin.halyard.tools.HalyardBulkLoad.RioFileInputFormat;
 import com.msd.gin.halyard.util.LRUCache;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -49,7 +52,9 @@ import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.base.CoreDatatype;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,13 +68,20 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
 
     private static final String TOOL_NAME = "presplit";
     private static final String TABLE_PROPERTY = confProperty(TOOL_NAME, "table");
-    private static final String SPLIT_LIMIT_PROPERTY = confProperty(TOOL_NAME, "limit");
-    private static final String DECIMATION_FACTOR_PROPERTY = confProperty(TOOL_NAME, "decimation-factor");
+    static final String SPLIT_LIMIT_PROPERTY = confProperty(TOOL_NAME, "limit");
+    static final String DECIMATION_FACTOR_PROPERTY = confProperty(TOOL_NAME, "decimation-factor");
     private static final String OVERWRITE_PROPERTY = confProperty(TOOL_NAME, "overwrite");
+    static final String STRING_DICTIONARY_SIZE_PROPERTY = confProperty(TOOL_NAME, "string-dictionary-size");
 
     private static final long DEFAULT_SPLIT_LIMIT = 55000000000l;
     private static final int DEFAULT_DECIMATION_FACTOR = 1000;
     private static final String NULL_TABLE = "-";
+    // sorts after all the index prefixes
+    private static final byte STRING_SAMPLE_MARKER = (byte) 0xFF;
+    // recommended ratio of sample size to dictionary size
+    private static final int SAMPLE_BYTES_PER_DICTIONARY_BYTE = 100;
+    // used to size the per-mapper string reservoir so that a single mapper can supply all the sample bytes
+    private static final int ASSUMED_MEAN_STRING_BYTES = 32;
 
     enum Counters {
     	SAMPLED_STATEMENTS,
@@ -89,6 +101,9 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
         private Set<Statement> stmtDedup;
         private StatementIndices stmtIndices;
         private int decimationFactor;
+        private List<byte[]> stringReservoir;
+        private int stringReservoirSize;
+        private long stringsSeen = 0L;
         private long sampledStmts = 0L;
         private long totalStmts = 0L;
         private long totalStmtsRead = 0L;
@@ -101,6 +116,11 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
             stmtDedup = Collections.newSetFromMap(new LRUCache<>(conf.getInt(STATEMENT_DEDUP_CACHE_SIZE_PROPERTY, DEFAULT_STATEMENT_DEDUP_CACHE_SIZE)));
             stmtIndices = new StatementIndices(conf, rdfFactory);
             decimationFactor = conf.getInt(DECIMATION_FACTOR_PROPERTY, DEFAULT_DECIMATION_FACTOR);
+            int stringDictionarySize = conf.getInt(STRING_DICTIONARY_SIZE_PROPERTY, 0);
+            if (stringDictionarySize > 0) {
+            	stringReservoirSize = (int) Math.min(Integer.MAX_VALUE - 8, (long) SAMPLE_BYTES_PER_DICTIONARY_BYTE * stringDictionarySize / ASSUMED_MEAN_STRING_BYTES);
+            	stringReservoir = new ArrayList<>();
+            }
         }
 
         @Override
@@ -120,13 +140,53 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
 	                }
 	        		sampledStmts++;
 	            }
+	            if (stringReservoir != null && stmt.getObject().isLiteral()) {
+	            	sampleString((Literal) stmt.getObject());
+	            }
 	            totalStmts++;
         	}
         	totalStmtsRead++;
         }
 
+        /**
+         * Reservoir samples the string literals, so that common strings are proportionately represented.
+         */
+        private void sampleString(Literal l) {
+        	CoreDatatype dt = l.getCoreDatatype();
+        	if (dt == CoreDatatype.XSD.STRING || dt == CoreDatatype.RDF.LANGSTRING) {
+        		stringsSeen++;
+        		if (stringReservoir.size() < stringReservoirSize) {
+        			stringReservoir.add(l.getLabel().getBytes(StandardCharsets.UTF_8));
+        		} else {
+        			long i = random.nextLong(stringsSeen);
+        			if (i < stringReservoirSize) {
+        				stringReservoir.set((int) i, l.getLabel().getBytes(StandardCharsets.UTF_8));
+        			}
+        		}
+        	}
+        }
+
+        /**
+         * Writes the sampled strings under random keys, so that the reducer receives them in random order and without duplicates being merged.
+         */
+        private void writeStringSamples(Context context) throws IOException, InterruptedException {
+        	keyValueLength.set(0L);
+        	for (byte[] label : stringReservoir) {
+        		byte[] sampleKey = new byte[1 + Long.BYTES + label.length];
+        		sampleKey[0] = STRING_SAMPLE_MARKER;
+        		Bytes.putLong(sampleKey, 1, random.nextLong());
+        		System.arraycopy(label, 0, sampleKey, 1 + Long.BYTES, label.length);
+        		rowKey.set(sampleKey);
+        		context.write(rowKey, keyValueLength);
+        	}
+        	stringReservoir = null;
+        }
+
         @Override
         protected void cleanup(Context context) throws IOException, InterruptedException {
+        	if (stringReservoir != null) {
+        		writeStringSamples(context);
+        	}
         	context.getCounter(Counters.SAMPLED_STATEMENTS).increment(sampledStmts);
         	context.getCounter(Counters.TOTAL_STATEMENTS).increment(totalStmts);
         	context.getCounter(Counters.TOTAL_STATEMENTS_READ).increment(totalStmtsRead);
@@ -146,17 +206,32 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
         private long maxValueSize = 0;
         private byte[] maxCountKey;
         private byte[] maxSizeKey;
+        private final List<String> stringSamples = new ArrayList<>();
+        private long stringSampleBytes = 0L;
+        private int stringDictionarySize;
 
         @Override
         protected void setup(Context context) throws IOException, InterruptedException {
             splitLimit = context.getConfiguration().getLong(SPLIT_LIMIT_PROPERTY, DEFAULT_SPLIT_LIMIT);
             decimationFactor = context.getConfiguration().getInt(DECIMATION_FACTOR_PROPERTY, DEFAULT_DECIMATION_FACTOR);
+            stringDictionarySize = context.getConfiguration().getInt(STRING_DICTIONARY_SIZE_PROPERTY, 0);
             logger.info("NB: results may be affected by duplicate statements");
         }
 
         @Override
         public void reduce(ImmutableBytesWritable key, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
             final byte region = key.get()[key.getOffset()];
+            if (region == STRING_SAMPLE_MARKER) {
+            	// random keys, so the first samples are a random subset of all the mapper samples
+            	int labelOffset = 1 + Long.BYTES;
+            	for (LongWritable ignore : values) {
+            		if (stringSampleBytes < (long) SAMPLE_BYTES_PER_DICTIONARY_BYTE * stringDictionarySize) {
+            			stringSamples.add(Bytes.toString(key.get(), key.getOffset() + labelOffset, key.getLength() - labelOffset));
+            			stringSampleBytes += key.getLength() - labelOffset;
+            		}
+            	}
+            	return;
+            }
             boolean isNewRegion = (lastRegion != region);
             final long splitSize = valueSize * decimationFactor;
             if (isNewRegion || splitSize > splitLimit) {
@@ -198,6 +273,11 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
         protected void cleanup(Context context) throws IOException, InterruptedException {
         	context.getCounter(Counters.TOTAL_SPLITS).setValue(splits.size());
             Configuration conf = context.getConfiguration();
+            String stringDictionary = trainStringDictionary();
+            if (stringDictionary != null) {
+            	conf = new Configuration(conf);
+            	conf.set(TableConfig.STRING_DICTIONARY, stringDictionary);
+            }
             String target = conf.get(TABLE_PROPERTY);
             if (!NULL_TABLE.equals(target)) {
 	            TableName tableName = TableName.valueOf(target);
@@ -215,6 +295,20 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
 	            }
             }
         }
+
+        private String trainStringDictionary() {
+        	if (stringSamples.isEmpty()) {
+        		return null;
+        	}
+        	try {
+        		String dict = ValueIO.trainStringDictionary(stringSamples, stringDictionarySize);
+        		logger.info("Trained string dictionary from {} samples ({} bytes)", stringSamples.size(), stringSampleBytes);
+        		return dict;
+        	} catch (IllegalArgumentException e) {
+        		logger.warn("Not using a string dictionary: {}", e.getMessage());
+        		return null;
+        	}
+        }
     }
 
     public HalyardPreSplit() {
@@ -236,6 +330,7 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
         addOption("d", "decimation-factor", "decimation_factor", DECIMATION_FACTOR_PROPERTY, String.format("Optionally overide pre-split random decimation factor (default is %d)", DEFAULT_DECIMATION_FACTOR), false, true);
         addOption("l", "split-limit-splitSize", "splitSize", SPLIT_LIMIT_PROPERTY, String.format("Optionally override calculated split splitSize (default is %d)", DEFAULT_SPLIT_LIMIT), false, true);
         addOption("f", "force", null, OVERWRITE_PROPERTY, "Overwrite existing table", false, false);
+        addOption("z", "string-dictionary-size", "size", STRING_DICTIONARY_SIZE_PROPERTY, "Optionally train a compression dictionary of the given maximum size in bytes for string literals from the sample and store it with the table", false, true);
     }
 
     @Override
@@ -264,10 +359,40 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
             }
         });
         configureLong(cmd, 'l', DEFAULT_SPLIT_LIMIT);
-        String sourcePaths = getConf().get(SOURCE_PATHS_PROPERTY);
+        configureInt(cmd, 'z', 0, v -> {
+            if (v < 0) {
+            	throw new IllegalArgumentException("String dictionary size must be greater than or equal to zero");
+            }
+        });
         addRioDependencies(getConf());
         HBaseConfiguration.addHbaseResources(getConf());
-        Job job = Job.getInstance(getConf(), "HalyardPreSplit -> " + target);
+        Job job = createJob(getConf());
+        if (job.waitForCompletion(true)) {
+            LOG.info("PreSplit Calculation completed.");
+            return 0;
+        } else {
+    		LOG.error("PreSplit failed to complete.");
+            return -1;
+        }
+    }
+
+    /**
+     * Creates the sampling job that creates the pre-split target table.
+     * @param conf job configuration, containing the source paths and parser settings.
+     * @param target table to create.
+     * @return job
+     * @throws IOException
+     */
+    static Job createJob(Configuration conf, String target) throws IOException {
+        Configuration jobConf = new Configuration(conf);
+        jobConf.set(TABLE_PROPERTY, target);
+        return createJob(jobConf);
+    }
+
+    private static Job createJob(Configuration conf) throws IOException {
+        String target = conf.get(TABLE_PROPERTY);
+        String sourcePaths = conf.get(SOURCE_PATHS_PROPERTY);
+        Job job = Job.getInstance(conf, "HalyardPreSplit -> " + target);
         job.setJarByClass(HalyardPreSplit.class);
         job.setMapperClass(RDFDecimatingMapper.class);
         job.setMapOutputKeyClass(ImmutableBytesWritable.class);
@@ -280,12 +405,6 @@ public final class HalyardPreSplit extends AbstractHalyardTool {
         job.setReducerClass(PreSplitReducer.class);
         job.setNumReduceTasks(1);
         job.setOutputFormatClass(NullOutputFormat.class);
-        if (job.waitForCompletion(true)) {
-            LOG.info("PreSplit Calculation completed.");
-            return 0;
-        } else {
-    		LOG.error("PreSplit failed to complete.");
-            return -1;
-        }
+        return job;
     }
 }
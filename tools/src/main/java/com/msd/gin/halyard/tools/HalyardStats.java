@@ -24,6 +24,7 @@ import com.msd.gin.halyard.common.RDFContext;
 import com.msd.gin.halyard.common.RDFFactory;
 import com.msd.gin.halyard.common.StatementIndex;
 import com.msd.gin.halyard.common.StatementIndices;
+import com.msd.gin.halyard.common.StatisticsDeltas;
 import com.msd.gin.halyard.common.ValueIO;
 import com.msd.gin.halyard.model.TermRole;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
@@ -32,8 +33,11 @@ import com.msd.gin.halyard.repository.HBaseRepositoryConnection;
 import com.msd.gin.halyard.sail.HBaseSail;
 import com.msd.gin.halyard.sail.HBaseSailConnection;
 import com.msd.gin.halyard.sail.HalyardStatsBasedStatementPatternCardinalityCalculator;
+import com.msd.gin.halyard.util.HyperLogLog;
 import com.msd.gin.halyard.vocab.VOID_EXT;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
@@ -41,6 +45,7 @@ import java.nio.ByteBuffer;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -49,16 +54,20 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.MissingOptionException;
 import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
@@ -66,12 +75,13 @@ import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
 import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
 import org.apache.hadoop.hbase.protobuf.generated.AuthenticationProtos;
 import org.apache.hadoop.hbase.util.CommonFSUtils;
-import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Partitioner;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.hadoop.mapreduce.lib.output.NullOutputFormat;
+import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.IRI;
 import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Resource;
@@ -82,6 +92,7 @@ import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.SD;
 import org.eclipse.rdf4j.model.vocabulary.VOID;
+import org.eclipse.rdf4j.model.vocabulary.XSD;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.GraphQuery;
 import org.eclipse.rdf4j.query.GraphQueryResult;
@@ -115,9 +126,12 @@ public final class HalyardStats extends AbstractHalyardTool {
     private static final String PROPERTY_PARTITION_THRESHOLD = confProperty(TOOL_NAME, "property-partition-threshold");
     private static final String OBJECT_PARTITION_THRESHOLD = confProperty(TOOL_NAME, "object-partition-threshold");
     private static final String CLASS_PARTITION_THRESHOLD = confProperty(TOOL_NAME, "class-partition-threshold");
+    private static final String CHARACTERISTIC_SET_THRESHOLD = confProperty(TOOL_NAME, "characteristic-set-threshold");
     private static final String STATS_GRAPH = confProperty(TOOL_NAME, "stats-graph");
     private static final String NAMED_GRAPH_PROPERTY = confProperty(TOOL_NAME, "named-graph");
     private static final String TIMESTAMP_PROPERTY = confProperty(TOOL_NAME, "timestamp");
+    private static final String SKETCHES_PROPERTY = confProperty(TOOL_NAME, "sketches");
+    private static final String JOIN_STATISTICS_PROPERTY = confProperty(TOOL_NAME, "join-statistics");
 
     private static final long DEFAULT_GRAPH_THRESHOLD = 1000;
     private static final long DEFAULT_PARTITION_THRESHOLD = 5000;
@@ -160,12 +174,107 @@ public final class HalyardStats extends AbstractHalyardTool {
 		}
     }
 
-    static final class StatsMapper extends RdfTableMapper<ImmutableBytesWritable, LongWritable>  {
+    /**
+     * Map output value - either a count, a distinct count sketch or a vector of counts.
+     */
+    static final class StatsValue implements Writable {
+        private static final byte COUNT_TYPE = 0;
+        private static final byte SKETCH_TYPE = 1;
+        private static final byte COUNTS_TYPE = 2;
+
+        long count;
+        HyperLogLog sketch;
+        long[] counts;
+
+        void set(long count) {
+            this.count = count;
+            this.sketch = null;
+            this.counts = null;
+        }
+
+        void set(HyperLogLog sketch) {
+            set(0L);
+            this.sketch = sketch;
+        }
+
+        void set(long[] counts) {
+            set(0L);
+            this.counts = counts;
+        }
+
+        /**
+         * Sums counts and merges sketches.
+         */
+        void add(StatsValue other) {
+            if (other.sketch != null) {
+                if (sketch == null) {
+                    sketch = new HyperLogLog(other.sketch.getPrecision());
+                }
+                sketch.merge(other.sketch);
+            } else if (other.counts != null) {
+                if (counts == null) {
+                    counts = new long[other.counts.length];
+                }
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += other.counts[i];
+                }
+            } else {
+                count += other.count;
+            }
+        }
+
+        @Override
+        public void write(DataOutput out) throws IOException {
+            if (sketch != null) {
+                out.writeByte(SKETCH_TYPE);
+                byte[] b = sketch.toBytes();
+                out.writeInt(b.length);
+                out.write(b);
+            } else if (counts != null) {
+                out.writeByte(COUNTS_TYPE);
+                out.writeInt(counts.length);
+                for (long c : counts) {
+                    out.writeLong(c);
+                }
+            } else {
+                out.writeByte(COUNT_TYPE);
+                out.writeLong(count);
+            }
+        }
+
+        @Override
+        public void readFields(DataInput in) throws IOException {
+            byte type = in.readByte();
+            switch (type) {
+                case SKETCH_TYPE:
+                    byte[] b = new byte[in.readInt()];
+                    in.readFully(b);
+                    set(HyperLogLog.fromBytes(b));
+                    break;
+                case COUNTS_TYPE:
+                    long[] arr = new long[in.readInt()];
+                    for (int i = 0; i < arr.length; i++) {
+                        arr[i] = in.readLong();
+                    }
+                    set(arr);
+                    break;
+                case COUNT_TYPE:
+                    set(in.readLong());
+                    break;
+                default:
+                    throw new IOException("Unknown value type: " + type);
+            }
+        }
+    }
+
+    static final class StatsMapper extends RdfTableMapper<ImmutableBytesWritable, StatsValue>  {
         private static final long STATUS_UPDATE_INTERVAL = 100000L;
         private static final IRI DEFAULT_GRAPH_NODE = HALYARD.STATS_ROOT_NODE;
+        private static final int MOST_COMMON_OBJECTS = 16;
+        private static final int CHARACTERISTIC_SET_BUFFER_SIZE = 10000;
 
         final ImmutableBytesWritable outputKey = new ImmutableBytesWritable();
-        final LongWritable outputValue = new LongWritable();
+        final StatsValue outputValue = new StatsValue();
         ByteBuffer bb = ByteBuffer.allocate(ValueIO.DEFAULT_BUFFER_SIZE);
         HalyardStatsBasedStatementPatternCardinalityCalculator.PartitionIriTransformer partitionIriTransformer;
         IRI statsContext;
@@ -192,6 +301,14 @@ public final class HalyardStats extends AbstractHalyardTool {
         long setThreshold, setCounter, subsetThreshold, subsetCounter;
         long instanceOfCounter, classPartitionThreshold;
 		Map<IRI,Long> partitionThresholds;
+		boolean sketches, mergeSketches;
+		HyperLogLog subjectsSketch, objectsSketch, subsetSubjectsSketch, subsetObjectsSketch;
+		boolean joinStats;
+		Value lastObject;
+		long lastObjectCount;
+		PriorityQueue<Pair<Value,Long>> mostCommonObjects = new PriorityQueue<>((x, y) -> Long.compare(x.getRight(), y.getRight()));
+		Map<IRI,Long> subjectPredicates = new HashMap<>();
+		Map<String,long[]> characteristicSets = new HashMap<>();
         HBaseSail sail;
 		HBaseSailConnection sailConn;
 
@@ -213,6 +330,10 @@ public final class HalyardStats extends AbstractHalyardTool {
 	            	namedGraphContexts.add(g);
 	            }
             }
+            sketches = conf.getBoolean(SKETCHES_PROPERTY, false);
+            // named graph sketches are merged into the existing default graph sketches
+            mergeSketches = sketches && update && (namedGraphContexts != null);
+            joinStats = conf.getBoolean(JOIN_STATISTICS_PROPERTY, false);
         }
 
         private HBaseSailConnection getConnection(Context output) {
@@ -318,11 +439,17 @@ public final class HalyardStats extends AbstractHalyardTool {
 			                            distinctBlankNodeSubjects++;
 			                        }
 			                        subsetId = subj;
+			                        if (sketches) {
+			                        	subjectsSketch = addToSketch(subjectsSketch, subj);
+			                        }
 		                        }
 	                			IRI pred = stmt.getPredicate();
 	                			if (lastSubsetDistincts.add(pred)) {
 	                				subsetDistincts++;
 	                			}
+	                			if (joinStats) {
+	                				subjectPredicates.merge(pred, 1L, Long::sum);
+	                			}
 		                		triples++;
 		                	}
 		                    break;
@@ -338,6 +465,19 @@ public final class HalyardStats extends AbstractHalyardTool {
                     			Value obj = stmt.getObject();
 	                			if (lastSubsetDistincts.add(obj)) {
 	                				subsetDistincts++;
+	                				if (sketches) {
+	                					subsetObjectsSketch = addToSketch(subsetObjectsSketch, obj);
+	                				}
+	                			}
+	                			if (sketches) {
+	                				subsetSubjectsSketch = addToSketch(subsetSubjectsSketch, stmt.getSubject());
+	                			}
+	                			if (joinStats) {
+	                				if (!obj.equals(lastObject)) {
+	                					offerMostCommonObject();
+	                					lastObject = obj;
+	                				}
+	                				lastObjectCount++;
 	                			}
 	                    		if (RDF.TYPE.equals(pred)) {
 	                    			if (!obj.equals(rdfClass)) {
@@ -366,6 +506,9 @@ public final class HalyardStats extends AbstractHalyardTool {
 			                            distinctLiterals++;
 			                        }
 			                        subsetId = obj;
+			                        if (sketches) {
+			                        	objectsSketch = addToSketch(objectsSketch, obj);
+			                        }
 		                        }
                     			Value subj = stmt.getSubject();
 	                			if (lastSubsetDistincts.add(subj)) {
@@ -388,6 +531,66 @@ public final class HalyardStats extends AbstractHalyardTool {
             }
         }
 
+        private void offerMostCommonObject() {
+        	if (lastObject != null) {
+        		if (mostCommonObjects.size() < MOST_COMMON_OBJECTS) {
+        			mostCommonObjects.add(Pair.of(lastObject, lastObjectCount));
+        		} else if (lastObjectCount > mostCommonObjects.peek().getRight()) {
+        			mostCommonObjects.poll();
+        			mostCommonObjects.add(Pair.of(lastObject, lastObjectCount));
+        		}
+        	}
+        	lastObject = null;
+        	lastObjectCount = 0;
+        }
+
+        /**
+         * Counts the subject (and the occurrences of each property) of the last subject's characteristic set (i.e. its set of properties).
+         * NB: the statements of a subject can span more than one input split, in which case each mapper only sees a partial characteristic set,
+         * and the subject is counted once per split.
+         */
+        private void addCharacteristicSet(Context output) throws IOException, InterruptedException {
+        	if (!subjectPredicates.isEmpty()) {
+        		List<IRI> preds = new ArrayList<>(subjectPredicates.keySet());
+        		preds.sort((x, y) -> x.stringValue().compareTo(y.stringValue()));
+        		StringBuilder cs = new StringBuilder();
+        		for (IRI pred : preds) {
+        			if (cs.length() > 0) {
+        				cs.append(' ');
+        			}
+        			cs.append(pred.stringValue());
+        		}
+        		long[] csCounts = characteristicSets.computeIfAbsent(cs.toString(), k -> new long[1 + preds.size()]);
+        		csCounts[0]++;
+        		for (int i = 0; i < preds.size(); i++) {
+        			csCounts[i + 1] += subjectPredicates.get(preds.get(i));
+        		}
+        		subjectPredicates.clear();
+        		if (characteristicSets.size() >= CHARACTERISTIC_SET_BUFFER_SIZE) {
+        			flushCharacteristicSets(output, true);
+        		}
+        	}
+        }
+
+        private void flushCharacteristicSets(Context output, boolean report) throws IOException, InterruptedException {
+        	if (report && isIncludedGraphContext(graph.stringValue())) {
+        		for (Map.Entry<String,long[]> entry : characteristicSets.entrySet()) {
+        			setOutputKey(graph, VOID_EXT.CHARACTERISTIC_SET, vf.createLiteral(entry.getKey()), VOID.ENTITIES);
+        			outputValue.set(entry.getValue());
+        			output.write(outputKey, outputValue);
+        		}
+        	}
+        	characteristicSets.clear();
+        }
+
+        private HyperLogLog addToSketch(HyperLogLog sketch, Value v) {
+        	if (sketch == null) {
+        		sketch = new HyperLogLog();
+        	}
+        	sketch.add(rdfFactory.id(v).asReadOnlyBuffer());
+        	return sketch;
+        }
+
         private void report(Context output, IRI property, long count) throws IOException, InterruptedException {
         	report(output, property, null, null, count);
         }
@@ -404,11 +607,37 @@ public final class HalyardStats extends AbstractHalyardTool {
          */
         private void report(Context output, IRI property, Value partitionId, IRI subsetProperty, long count) throws IOException, InterruptedException {
             if (count > 0 && isIncludedGraphContext(graph.stringValue())) {
-            	writeStat(output, graph, property, partitionId, subsetProperty, count);
+            	setOutputKey(graph, property, partitionId, subsetProperty);
+                outputValue.set(count);
+                output.write(outputKey, outputValue);
+            }
+        }
+
+        /**
+         * Reports a distinct count sketch.
+         */
+        private void report(Context output, IRI property, Value partitionId, IRI subsetProperty, HyperLogLog sketch) throws IOException, InterruptedException {
+            if (sketch != null && isIncludedGraphContext(graph.stringValue())) {
+            	writeStat(output, graph, property, partitionId, subsetProperty, sketch);
             }
         }
 
-        private void writeStat(Context output, Resource graph, IRI property, Value partitionId, IRI subsetProperty, long count) throws IOException, InterruptedException {
+        /**
+         * Contributes a named graph sketch (irrespective of any threshold) to the default graph.
+         */
+        private void mergeIntoDefaultGraph(Context output, IRI property, Value partitionId, IRI subsetProperty, HyperLogLog sketch) throws IOException, InterruptedException {
+            if (mergeSketches && sketch != null && isIncludedGraphContext(graph.stringValue())) {
+            	writeStat(output, DEFAULT_GRAPH_NODE, property, partitionId, subsetProperty, sketch);
+            }
+        }
+
+        private void writeStat(Context output, Resource graph, IRI property, Value partitionId, IRI subsetProperty, HyperLogLog sketch) throws IOException, InterruptedException {
+        	setOutputKey(graph, property, partitionId, subsetProperty);
+            outputValue.set(sketch);
+            output.write(outputKey, outputValue);
+        }
+
+        private void setOutputKey(Resource graph, IRI property, Value partitionId, IRI subsetProperty) {
         	ValueIO.Writer writer = rdfFactory.valueWriter;
         	bb.clear();
         	bb = writer.writeValueWithSizeHeader(graph, bb, Short.BYTES);
@@ -423,11 +652,10 @@ public final class HalyardStats extends AbstractHalyardTool {
         	}
 			bb.flip();
             outputKey.set(bb.array(), bb.arrayOffset(), bb.limit());
-            outputValue.set(count);
-            output.write(outputKey, outputValue);
         }
 
         private void reset(Context output) throws IOException, InterruptedException {
+        	boolean reportGraph = (graph == DEFAULT_GRAPH_NODE || setCounter >= setThreshold);
 			assert setCounter <= triples;
 			assert distinctSubjects <= triples;
 			assert properties <= triples;
@@ -440,7 +668,7 @@ public final class HalyardStats extends AbstractHalyardTool {
 			assert distinctLiterals < distinctObjects;
 			assert distinctTripleObjects < distinctObjects;
 			assert distinctTripleSubjects < distinctSubjects;
-            if (graph == DEFAULT_GRAPH_NODE || setCounter >= setThreshold) {
+            if (reportGraph) {
                 report(output, VOID.TRIPLES, triples);
                 report(output, VOID.DISTINCT_SUBJECTS, distinctSubjects);
                 report(output, VOID.PROPERTIES, properties);
@@ -453,9 +681,13 @@ public final class HalyardStats extends AbstractHalyardTool {
                 report(output, VOID_EXT.DISTINCT_LITERALS, distinctLiterals);
                 report(output, VOID_EXT.DISTINCT_TRIPLE_OBJECTS, distinctTripleObjects);
                 report(output, VOID_EXT.DISTINCT_TRIPLE_SUBJECTS, distinctTripleSubjects);
+                report(output, VOID_EXT.DISTINCT_SUBJECTS_SKETCH, null, null, subjectsSketch);
+                report(output, VOID_EXT.DISTINCT_OBJECTS_SKETCH, null, null, objectsSketch);
             } else {
                 report(output, SD.NAMED_GRAPH_PROPERTY, 1L);
             }
+            mergeIntoDefaultGraph(output, VOID_EXT.DISTINCT_SUBJECTS_SKETCH, null, null, subjectsSketch);
+            mergeIntoDefaultGraph(output, VOID_EXT.DISTINCT_OBJECTS_SKETCH, null, null, objectsSketch);
 
 			if (graph == DEFAULT_GRAPH_NODE) {
 				output.getCounter(DefaultGraphCounters.TRIPLES).increment(triples);
@@ -478,15 +710,38 @@ public final class HalyardStats extends AbstractHalyardTool {
             distinctLiterals = 0;
             distinctTripleObjects = 0;
             distinctTripleSubjects = 0;
+            subjectsSketch = null;
+            objectsSketch = null;
             resetSubset(output);
+            flushCharacteristicSets(output, reportGraph);
 		}
 
 		private void resetSubset(Context output) throws IOException, InterruptedException {
 			assert subsetDistincts <= subsetCounter;
+			if (joinStats) {
+				addCharacteristicSet(output);
+				offerMostCommonObject();
+			}
             if (subsetCounter >= subsetThreshold) {
                 report(output, subsetType, subsetId, VOID.TRIPLES, subsetCounter);
                 report(output, subsetType, subsetId, subsetDistinctType, subsetDistincts);
+                report(output, subsetType, subsetId, VOID_EXT.DISTINCT_SUBJECTS_SKETCH, subsetSubjectsSketch);
+                report(output, subsetType, subsetId, VOID_EXT.DISTINCT_OBJECTS_SKETCH, subsetObjectsSketch);
+                if (!mostCommonObjects.isEmpty() && isIncludedGraphContext(graph.stringValue())) {
+                	// nested object partitions of the property partition
+                	IRI propertyPartition = vf.createIRI(partitionIriTransformer.apply((IRI) graph, subsetType, subsetId));
+                	for (Pair<Value,Long> mostCommonObject : mostCommonObjects) {
+                		setOutputKey(propertyPartition, VOID_EXT.OBJECT, mostCommonObject.getLeft(), VOID.TRIPLES);
+                		outputValue.set(mostCommonObject.getRight());
+                		output.write(outputKey, outputValue);
+                	}
+                }
             }
+            mostCommonObjects.clear();
+            mergeIntoDefaultGraph(output, subsetType, subsetId, VOID_EXT.DISTINCT_SUBJECTS_SKETCH, subsetSubjectsSketch);
+            mergeIntoDefaultGraph(output, subsetType, subsetId, VOID_EXT.DISTINCT_OBJECTS_SKETCH, subsetObjectsSketch);
+            subsetSubjectsSketch = null;
+            subsetObjectsSketch = null;
             subsetCounter = 0;
             subsetDistincts = 0;
             lastSubsetDistincts = new HashSet<>();
@@ -518,24 +773,23 @@ public final class HalyardStats extends AbstractHalyardTool {
         }
 	}
 
-    static final class StatsCombiner extends Reducer<ImmutableBytesWritable, LongWritable, ImmutableBytesWritable, LongWritable> {
-        final LongWritable outputValue = new LongWritable();
+    static final class StatsCombiner extends Reducer<ImmutableBytesWritable, StatsValue, ImmutableBytesWritable, StatsValue> {
+        final StatsValue outputValue = new StatsValue();
 
         @Override
-        public void reduce(ImmutableBytesWritable key, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
-            long count = 0;
-            for (LongWritable val : values) {
-                count += val.get();
+        public void reduce(ImmutableBytesWritable key, Iterable<StatsValue> values, Context context) throws IOException, InterruptedException {
+            outputValue.set(0L);
+            for (StatsValue val : values) {
+                outputValue.add(val);
             }
-            outputValue.set(count);
             context.write(key, outputValue);
         }
     }
 
-    static final class StatsPartitioner extends Partitioner<ImmutableBytesWritable, LongWritable> {
+    static final class StatsPartitioner extends Partitioner<ImmutableBytesWritable, StatsValue> {
 
     	@Override
-        public int getPartition(ImmutableBytesWritable key, LongWritable value, int numPartitions) {
+        public int getPartition(ImmutableBytesWritable key, StatsValue value, int numPartitions) {
         	ByteBuffer buf = ByteBuffer.wrap(key.get(), key.getOffset(), key.getLength());
         	int graphBytesLen = buf.getShort();
         	byte[] graphBytes = new byte[graphBytesLen];
@@ -545,10 +799,11 @@ public final class HalyardStats extends AbstractHalyardTool {
         }
     }
 
-    static final class StatsReducer extends RdfReducer<ImmutableBytesWritable, LongWritable, NullWritable, NullWritable> {
+    static final class StatsReducer extends RdfReducer<ImmutableBytesWritable, StatsValue, NullWritable, NullWritable> {
         private static final long STATUS_UPDATE_INTERVAL = 1000L;
 
         final Map<IRI,IRI> partitionPredicates = HalyardStatsBasedStatementPatternCardinalityCalculator.createPartitionPredicateMapping();
+        final StatsValue value = new StatsValue();
         OutputStream out;
         RDFWriter writer;
         IRI statsGraphContext;
@@ -558,6 +813,8 @@ public final class HalyardStats extends AbstractHalyardTool {
         long removed = 0, added = 0;
         HalyardStatsBasedStatementPatternCardinalityCalculator.PartitionIriTransformer partitionIriTransformer;
         IRI datePredicate;
+        boolean mergeSketches;
+        long characteristicSetThreshold;
 
         @Override
         protected void setup(Context context) throws IOException, InterruptedException {
@@ -606,6 +863,9 @@ public final class HalyardStats extends AbstractHalyardTool {
 				datePredicate = DCTERMS.CREATED;
             }
 
+            mergeSketches = conf.getBoolean(SKETCHES_PROPERTY, false) && (conn != null) && (conf.get(NAMED_GRAPH_PROPERTY) != null);
+            characteristicSetThreshold = getPartitionThresholds(conf).get(VOID_EXT.CHARACTERISTIC_SET);
+
             if (conf.get(NAMED_GRAPH_PROPERTY) == null) {
                 writeStatement(HALYARD.STATS_ROOT_NODE, RDF.TYPE, VOID.DATASET);
                 writeStatement(HALYARD.STATS_ROOT_NODE, RDF.TYPE, SD.DATASET);
@@ -623,20 +883,36 @@ public final class HalyardStats extends AbstractHalyardTool {
         }
 
         @Override
-        public void reduce(ImmutableBytesWritable key, Iterable<LongWritable> values, Context context) throws IOException, InterruptedException {
-            long count = 0;
-            for (LongWritable val : values) {
-                count += val.get();
+        public void reduce(ImmutableBytesWritable key, Iterable<StatsValue> values, Context context) throws IOException, InterruptedException {
+            value.set(0L);
+            for (StatsValue val : values) {
+                value.add(val);
             }
+            long count = value.count;
 
         	ValueIO.Reader reader = rdfFactory.valueReader;
         	ByteBuffer bb = ByteBuffer.wrap(key.get(), key.getOffset(), key.getLength());
         	IRI graph = (IRI) reader.readValueWithSizeHeader(bb, vf, Short.BYTES);
         	IRI predicate = bb.hasRemaining() ? (IRI) reader.readValueWithSizeHeader(bb, vf, Short.BYTES) : VOID.TRIPLES;
             Value partitionId = bb.hasRemaining() ? reader.readValueWithSizeHeader(bb, vf, Short.BYTES) : null;
-            IRI subsetPredicate = bb.hasRemaining() ? (IRI) reader.readValue(bb, vf) : (VOID.CLASS.equals(predicate) ? VOID.ENTITIES : VOID.TRIPLES);
+            IRI subsetPredicate = bb.hasRemaining() ? (IRI) reader.readValue(bb, vf) : ((VOID.CLASS.equals(predicate) || VOID_EXT.CHARACTERISTIC_SET.equals(predicate)) ? VOID.ENTITIES : VOID.TRIPLES);
+
+            long[] csCounts = value.counts;
+            if (csCounts != null) {
+                // characteristic set: number of subjects followed by the occurrences of each property
+                if (csCounts[0] < characteristicSetThreshold) {
+                    return;
+                }
+                count = csCounts[0];
+            }
 
-            if (SD.NAMED_GRAPH_PROPERTY.equals(predicate)) { //workaround to at least count all small named graph that are below the threshold
+            if (value.sketch != null) {
+                if (partitionId != null) {
+                    writeSketch(graph, vf.createIRI(partitionIriTransformer.apply(graph, predicate, partitionId)), subsetPredicate, value.sketch);
+                } else {
+                    writeSketch(graph, graph, predicate, value.sketch);
+                }
+            } else if (SD.NAMED_GRAPH_PROPERTY.equals(predicate)) { //workaround to at least count all small named graph that are below the threshold
                 writeStatement(HALYARD.STATS_ROOT_NODE, SD.NAMED_GRAPH_PROPERTY, graph);
             } else {
                 IRI statsNode = graph;
@@ -660,6 +936,17 @@ public final class HalyardStats extends AbstractHalyardTool {
 						writeStatement(subsetNode, predicate, partitionId);
 					}
                     writeStatement(subsetNode, subsetPredicate, countLiteral);
+                    if (csCounts != null) {
+                        String[] csPredicates = partitionId.stringValue().split(" ");
+                        for (int i = 0; i < csPredicates.length; i++) {
+                            IRI csPredicate = vf.createIRI(csPredicates[i]);
+                            IRI csPropertyNode = vf.createIRI(partitionIriTransformer.apply(subsetNode, VOID.PROPERTY, csPredicate));
+                            writeStatement(subsetNode, VOID.PROPERTY_PARTITION, csPropertyNode);
+                            writeStatement(csPropertyNode, RDF.TYPE, VOID.DATASET);
+                            writeStatement(csPropertyNode, VOID.PROPERTY, csPredicate);
+                            writeStatement(csPropertyNode, VOID.TRIPLES, vf.createLiteral(csCounts[i + 1]));
+                        }
+                    }
                 } else {
                     writeStatement(statsNode, predicate, countLiteral);
                 }
@@ -669,6 +956,73 @@ public final class HalyardStats extends AbstractHalyardTool {
             }
         }
 
+        /**
+         * Writes a sketch and, where there is no exact count, its estimate.
+         * Sketches for the default graph from a named graph update are merged with the existing ones instead.
+         */
+        private void writeSketch(IRI graph, IRI statsNode, IRI sketchPredicate, HyperLogLog sketch) {
+            IRI countPredicate = VOID_EXT.DISTINCT_SUBJECTS_SKETCH.equals(sketchPredicate) ? VOID.DISTINCT_SUBJECTS : VOID.DISTINCT_OBJECTS;
+            if (mergeSketches && HALYARD.STATS_ROOT_NODE.equals(graph)) {
+                HyperLogLog prevSketch = null;
+                try (CloseableIteration<? extends Statement> iter = conn.getSailConnection().getStatements(statsNode, sketchPredicate, null, true, statsGraphContext)) {
+                    if (iter.hasNext()) {
+                        prevSketch = parseSketch(iter.next().getObject());
+                    }
+                }
+                if (prevSketch == null) {
+                    LOG.warn("No previous {} for {} to merge with - run full statistics with sketches to recalculate", sketchPredicate, statsNode);
+                    return;
+                }
+                sketch.merge(prevSketch);
+                replaceStatement(statsNode, sketchPredicate, toLiteral(sketch));
+                replaceStatement(statsNode, countPredicate, vf.createLiteral(sketch.estimate()));
+            } else {
+                writeStatement(statsNode, sketchPredicate, toLiteral(sketch));
+                if (!statsNode.equals(graph) && VOID.DISTINCT_SUBJECTS.equals(countPredicate)) {
+                    // property partitions only have an exact distinct object count
+                    writeStatement(statsNode, countPredicate, vf.createLiteral(sketch.estimate()));
+                }
+            }
+        }
+
+        private Literal toLiteral(HyperLogLog sketch) {
+            return vf.createLiteral(Base64.getEncoder().encodeToString(sketch.toBytes()), XSD.BASE64BINARY);
+        }
+
+        private HyperLogLog parseSketch(Value v) {
+            if (v.isLiteral()) {
+                try {
+                    return HyperLogLog.fromBytes(Base64.getDecoder().decode(v.stringValue()));
+                } catch (IllegalArgumentException e) {
+                    LOG.warn("Invalid sketch: {}", v, e);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Replaces any existing values of a statistic (of the update mode).
+         */
+        private void replaceStatement(IRI subj, IRI pred, Value obj) {
+            HBaseSailConnection sailConn = (HBaseSailConnection) conn.getSailConnection();
+            boolean exists = false;
+            try (CloseableIteration<? extends Statement> iter = sailConn.getStatements(subj, pred, null, true, statsGraphContext)) {
+                while (iter.hasNext()) {
+                    Statement st = iter.next();
+                    if (obj.equals(st.getObject())) {
+                        // deleting and re-adding with the same timestamp would mask it
+                        exists = true;
+                    } else {
+                        sailConn.removeSystemStatement(st.getSubject(), st.getPredicate(), st.getObject(), st.getContext(), timestamp);
+                        removed++;
+                    }
+                }
+            }
+            if (!exists) {
+                writeStatement(subj, pred, obj);
+            }
+        }
+
         private void writeStatement(Resource subj, IRI pred, Value obj) {
             if (conn != null) {
                 ((HBaseSailConnection) conn.getSailConnection()).addSystemStatement(subj, pred, obj, statsGraphContext, timestamp);
@@ -751,6 +1105,7 @@ public final class HalyardStats extends AbstractHalyardTool {
         thresholds.put(VOID.PROPERTY, conf.getLong(PROPERTY_PARTITION_THRESHOLD, defaultSubsetThreshold));
         thresholds.put(VOID_EXT.OBJECT, conf.getLong(OBJECT_PARTITION_THRESHOLD, defaultSubsetThreshold));
         thresholds.put(VOID.CLASS, conf.getLong(CLASS_PARTITION_THRESHOLD, defaultSubsetThreshold));
+        thresholds.put(VOID_EXT.CHARACTERISTIC_SET, conf.getLong(CHARACTERISTIC_SET_THRESHOLD, defaultSubsetThreshold));
         return thresholds;
     }
 
@@ -768,6 +1123,8 @@ public final class HalyardStats extends AbstractHalyardTool {
         addOption("o", "stats-named-graph", "target_graph", STATS_GRAPH, "Optional target named graph of the exported statistics (default value is '" + HALYARD.STATS_GRAPH_CONTEXT.stringValue() + "'), modification is recomended only for external export as internal Halyard optimizers expect the default value", false, true);
         addOption("u", "restore-dir", "restore_folder", SNAPSHOT_PATH_PROPERTY, "If specified then -s is a snapshot name and this is the restore folder on HDFS", false, true);
         addOption("e", "target-timestamp", "timestamp", TIMESTAMP_PROPERTY, "Optionally specify timestamp of stat statements (default is actual time of the operation)", false, true);
+        addOption(null, "join-statistics", null, JOIN_STATISTICS_PROPERTY, "Optionally calculate the most common objects of each property partition and the characteristic sets (sets of properties) of subjects, used to estimate join selectivities", false, false);
+        addOption(null, "sketches", null, SKETCHES_PROPERTY, "Optionally calculate mergeable HyperLogLog sketches of the distinct subjects and objects of graphs and property partitions, these also provide the distinct subject counts of property partitions and are merged into the default graph statistics when updating named graphs", false, false);
     }
 
     @Override
@@ -783,6 +1140,8 @@ public final class HalyardStats extends AbstractHalyardTool {
         configureLong(cmd, 'R', DEFAULT_GRAPH_THRESHOLD);
         configureLong(cmd, 'r', DEFAULT_PARTITION_THRESHOLD);
         configureLong(cmd, 'e', System.currentTimeMillis());
+        configureBoolean(cmd, "sketches");
+        configureBoolean(cmd, "join-statistics");
         return run(getConf());
     }
 
@@ -865,7 +1224,7 @@ public final class HalyardStats extends AbstractHalyardTool {
 	        scans,
 	        StatsMapper.class,
 	        ImmutableBytesWritable.class,
-	        LongWritable.class,
+	        StatsValue.class,
 	        job);
         // if writing to files then partition a graph per file
         if (target != null) {
@@ -877,6 +1236,13 @@ public final class HalyardStats extends AbstractHalyardTool {
         try {
 	        if (job.waitForCompletion(true)) {
 	            LOG.info("Stats Generation completed.");
+	            boolean defaultStatsGraph = (statsGraph == null || HALYARD.STATS_GRAPH_CONTEXT.stringValue().equals(statsGraph));
+	            if (target == null && snapshotPath == null && namedGraphs.isEmpty() && defaultStatsGraph) {
+	            	// the full stats now include any incremental changes
+	            	try (Connection conn = HalyardTableUtils.getConnection(conf); Table table = conn.getTable(TableName.valueOf(source))) {
+	            		StatisticsDeltas.clear(table);
+	            	}
+	            }
 	            return 0;
 	        } else {
 	    		LOG.error("Stats Generation failed to complete.");
@@ -24,6 +24,7 @@ import com.msd.gin.halyard.sail.ElasticSettings;
 import com.msd.gin.halyard.sail.HBaseSail;
 import com.msd.gin.halyard.sail.HBaseSailConnection;
 import com.msd.gin.halyard.sail.ResultTrackingSailConnection;
+import com.msd.gin.halyard.sail.StreamingIngester;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -128,6 +129,7 @@ import org.eclipse.rdf4j.rio.ParserConfig;
 import org.eclipse.rdf4j.rio.RDFFormat;
 import org.eclipse.rdf4j.rio.RDFHandler;
 import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.RDFParser;
 import org.eclipse.rdf4j.rio.RDFParserRegistry;
 import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.RDFWriterFactory;
@@ -894,15 +896,29 @@ public final class HttpSparqlHandler implements HttpHandler {
     	IRI graph = graphLoad.getGraph();
     	String graphName = (graph != null) ? graph.stringValue() : "default graph";
        	LOGGER.info("Loading data into {}", graphName);
-    	try(SailRepositoryConnection connection = repository.getConnection()) {
-    		connection.setParserConfig(parserConfig);
-    		connection.begin();
-    		try (InputStream in = exchange.getRequestBody()) {
-    			connection.add(in, graphLoad.getGraphFormat(), graphLoad.getContexts());
-    		}
-    		connection.commit();
-    	}
-       	LOGGER.info("Load successful");
+       	if (repository.getSail() instanceof HBaseSail && ((HBaseSail) repository.getSail()).getEvaluationConfig().ingestGraphStore) {
+       		// stream directly into HBase using multiple threads (not transactional)
+       		HBaseSail sail = (HBaseSail) repository.getSail();
+       		RDFParser parser = Rio.createParser(graphLoad.getGraphFormat(), sail.getValueFactory());
+       		parser.setParserConfig(parserConfig);
+       		try (StreamingIngester ingester = sail.createIngester(graphLoad.getContexts())) {
+       			parser.setRDFHandler(ingester);
+	    		try (InputStream in = exchange.getRequestBody()) {
+	    			parser.parse(in);
+	    		}
+	           	LOGGER.info("Load successful ({} statements)", ingester.getStatementCount());
+       		}
+       	} else {
+	    	try(SailRepositoryConnection connection = repository.getConnection()) {
+	    		connection.setParserConfig(parserConfig);
+	    		connection.begin();
+	    		try (InputStream in = exchange.getRequestBody()) {
+	    			connection.add(in, graphLoad.getGraphFormat(), graphLoad.getContexts());
+	    		}
+	    		connection.commit();
+	    	}
+	       	LOGGER.info("Load successful");
+       	}
     	exchange.sendResponseHeaders(HttpURLConnection.HTTP_NO_CONTENT, -1);
     }
 
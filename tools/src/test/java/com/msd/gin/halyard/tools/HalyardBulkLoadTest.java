@@ -17,14 +17,27 @@
 package com.msd.gin.halyard.tools;
 
 import com.msd.gin.halyard.common.HBaseServerTestInstance;
+import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.repository.HBaseRepository;
 import com.msd.gin.halyard.sail.HBaseSail;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.zip.GZIPOutputStream;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.util.ToolRunner;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
 import org.eclipse.rdf4j.model.Literal;
@@ -193,6 +206,98 @@ public class HalyardBulkLoadTest extends AbstractHalyardToolTest {
         sail.shutDown();
     }
 
+    @Test
+    public void testSortDistinct() {
+        byte[] cf = Bytes.toBytes("e");
+        KeyValue kv1 = new KeyValue(Bytes.toBytes("row1"), cf, Bytes.toBytes("q1"), 1L, Bytes.toBytes("v1"));
+        KeyValue kv2 = new KeyValue(Bytes.toBytes("row1"), cf, Bytes.toBytes("q2"), 1L, Bytes.toBytes("v2"));
+        KeyValue kv2Dup = new KeyValue(Bytes.toBytes("row1"), cf, Bytes.toBytes("q2"), 1L, Bytes.toBytes("v2"));
+        KeyValue kv2Older = new KeyValue(Bytes.toBytes("row1"), cf, Bytes.toBytes("q2"), 0L, Bytes.toBytes("v2"));
+        Set<Cell> sorted = new TreeSet<>(CellComparator.getInstance());
+        assertEquals(2, HalyardBulkLoad.sortDistinct(Arrays.asList(kv2, kv1, kv2Dup, kv2Older, kv1), sorted));
+        assertEquals(Arrays.asList(kv1, kv2, kv2Older), new ArrayList<>(sorted));
+    }
+
+    @Test
+    public void testGlobalDedupBulkLoad() throws Exception {
+        File root = createTempDir("test_dedup");
+        for (int f = 0; f < 3; f++) {
+            File file = new File(root, "test_dedup" + f + ".nt");
+            try (PrintStream ps = new PrintStream(file)) {
+                for (int i = 0; i < 100; i++) {
+                    ps.println("<http://whatever/subj> <http://whatever/pred" + i + "> \"duplicate value" + i + "\" .");
+                }
+            }
+        }
+        File htableDir = getTempHTableDir("test_htable");
+
+        assertEquals(0, run(new String[]{"-b", NO_SPLITS, "-s", root.toURI().toURL().toString(), "-w", htableDir.toURI().toURL().toString(), "-t", "bulkLoadTableDedup", "--global-dedup", "-m", "1000"}));
+
+        HBaseSail sail = new HBaseSail(HBaseServerTestInstance.getInstanceConfig(), "bulkLoadTableDedup", false, 0, true, 30, null, null);
+        sail.init();
+        try (SailConnection conn = sail.getConnection()) {
+            assertEquals(100, conn.size());
+        }
+        sail.shutDown();
+    }
+
+    @Test
+    public void testPreSplitBulkLoad() throws Exception {
+        File root = createTempDir("test_presplit");
+        File file = new File(root, "test_presplit.nq");
+        try (PrintStream ps = new PrintStream(file)) {
+            for (int i = 0; i < 100; i++) {
+                ps.println("<http://whatever/NTsubj" + i + "> <http://whatever/NTpred> \"whatever NT value" + i + "\" <http://whatever/ctx" + (i % 3) + "> .");
+            }
+        }
+        File htableDir = getTempHTableDir("test_htable");
+
+        Configuration conf = new Configuration(HBaseServerTestInstance.getInstanceConfig());
+        conf.setInt(HalyardPreSplit.DECIMATION_FACTOR_PROPERTY, 1);
+        conf.setLong(HalyardPreSplit.SPLIT_LIMIT_PROPERTY, 0);
+        assertEquals(0, run(conf, new String[]{"-s", root.toURI().toURL().toString(), "-w", htableDir.toURI().toURL().toString(), "-t", "bulkLoadTablePreSplit", "--presplit"}));
+
+        try (Connection conn = HalyardTableUtils.getConnection(conf)) {
+            try (RegionLocator locator = conn.getRegionLocator(TableName.valueOf("bulkLoadTablePreSplit"))) {
+                assertTrue(locator.getStartKeys().length > 1);
+            }
+        }
+        HBaseSail sail = new HBaseSail(conf, "bulkLoadTablePreSplit", false, 0, true, 30, null, null);
+        sail.init();
+        try (SailConnection conn = sail.getConnection()) {
+            assertEquals(100, conn.size());
+        }
+        sail.shutDown();
+    }
+
+    @Test
+    public void testParallelParsingBulkLoad() throws Exception {
+        File root = createTempDir("test_parallel");
+        File file1 = new File(root, "test_parallel.nt.gz");
+        try (PrintStream ps = new PrintStream(new GZIPOutputStream(new FileOutputStream(file1)))) {
+            for (int i = 0; i < 25000; i++) {
+                ps.println("<http://whatever/NTsubj" + (i % 100) + "> <http://whatever/NTpred> \"whatever NT value" + i + "\" .");
+            }
+        }
+        File file2 = new File(root, "test_parallel.nq");
+        try (PrintStream ps = new PrintStream(file2)) {
+            for (int i = 0; i < 15000; i++) {
+                ps.println("_:bnode" + (i % 10) + " <http://whatever/NQpred> \"whatever NQ value" + i + "\" <http://whatever/graph> .");
+            }
+        }
+        File htableDir = getTempHTableDir("test_htable");
+
+        assertEquals(0, run(new String[]{"-b", NO_SPLITS, "-s", root.toURI().toURL().toString(), "-w", htableDir.toURI().toURL().toString(), "-t", "bulkLoadTableParallel", "-p", "4"}));
+
+        HBaseSail sail = new HBaseSail(HBaseServerTestInstance.getInstanceConfig(), "bulkLoadTableParallel", false, 0, true, 30, null, null);
+        HBaseRepository rep = new HBaseRepository(sail);
+        rep.init();
+        assertCount(rep, "select (count(*) as ?c) where {?s <http://whatever/NTpred> ?o}", 25000);
+        assertCount(rep, "select (count(*) as ?c) where {graph <http://whatever/graph> {?s ?p ?o}}", 15000);
+        assertCount(rep, "select (count(distinct ?s) as ?c) where {graph <http://whatever/graph> {?s ?p ?o}}", 10);
+        rep.shutDown();
+    }
+
     private void assertCount(SailRepository rep, String query, int count) {
         TupleQuery q = rep.getConnection().prepareTupleQuery(QueryLanguage.SPARQL, query);
         TupleQueryResult res = q.evaluate();
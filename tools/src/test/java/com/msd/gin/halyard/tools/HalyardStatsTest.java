@@ -21,6 +21,7 @@ import com.msd.gin.halyard.common.HalyardTableUtils;
 import com.msd.gin.halyard.common.TableConfig;
 import com.msd.gin.halyard.model.vocabulary.HALYARD;
 import com.msd.gin.halyard.sail.HBaseSail;
+import com.msd.gin.halyard.util.HyperLogLog;
 import com.msd.gin.halyard.vocab.VOID_EXT;
 
 import java.io.ByteArrayOutputStream;
@@ -28,6 +29,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Base64;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -36,10 +38,13 @@ import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Admin;
 import org.apache.hadoop.hbase.client.Connection;
 import org.eclipse.rdf4j.common.iteration.CloseableIteration;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
 import org.eclipse.rdf4j.model.vocabulary.SD;
 import org.eclipse.rdf4j.model.vocabulary.VOID;
@@ -298,6 +303,84 @@ public class HalyardStatsTest extends AbstractHalyardToolTest {
         }
     }
 
+    @Test
+    public void testStatsTarget_sketches() throws Exception {
+		Configuration conf = HBaseServerTestInstance.getInstanceConfig();
+        Sail sail = createData("statsTableSketches", conf);
+		sail.shutDown();
+
+        File root = createTempDir("test_stats");
+
+        assertEquals(0, run(new String[]{"-s", "statsTableSketches", "-t", root.toURI().toURL().toString() + "stats{0}.trig", "-R", "100", "-r", "100", "-o", "http://whatever/myStats", "--sketches", "-e", TIMESTAMP_ARG}));
+
+        File stats = new File(root, "stats0.trig");
+        assertTrue(stats.isFile());
+        try (InputStream statsStream = new FileInputStream(stats)) {
+            Model statsM = Rio.parse(statsStream, "", RDFFormat.TRIG, new ParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true), vf, new ParseErrorLogger());
+            // graph sketches agree with the exact counts
+            long distinctSubjects = Models.objectLiteral(statsM.filter(HALYARD.STATS_ROOT_NODE, VOID.DISTINCT_SUBJECTS, null)).get().longValue();
+            HyperLogLog subjectsSketch = toSketch(Models.objectLiteral(statsM.filter(HALYARD.STATS_ROOT_NODE, VOID_EXT.DISTINCT_SUBJECTS_SKETCH, null)).get());
+            assertEquals(distinctSubjects, subjectsSketch.estimate(), 0.05 * distinctSubjects);
+            long distinctObjects = Models.objectLiteral(statsM.filter(HALYARD.STATS_ROOT_NODE, VOID.DISTINCT_OBJECTS, null)).get().longValue();
+            HyperLogLog objectsSketch = toSketch(Models.objectLiteral(statsM.filter(HALYARD.STATS_ROOT_NODE, VOID_EXT.DISTINCT_OBJECTS_SKETCH, null)).get());
+            assertEquals(distinctObjects, objectsSketch.estimate(), 0.05 * distinctObjects);
+            // property partitions get distinct subject estimates
+            Set<Resource> propertyPartitions = Models.objectResources(statsM.filter(HALYARD.STATS_ROOT_NODE, VOID.PROPERTY_PARTITION, null));
+            assertFalse(propertyPartitions.isEmpty());
+            for (Resource partition : propertyPartitions) {
+                HyperLogLog partitionSketch = toSketch(Models.objectLiteral(statsM.filter(partition, VOID_EXT.DISTINCT_SUBJECTS_SKETCH, null)).get());
+                assertEquals(partitionSketch.estimate(), Models.objectLiteral(statsM.filter(partition, VOID.DISTINCT_SUBJECTS, null)).get().longValue());
+                assertTrue(statsM.contains(partition, VOID_EXT.DISTINCT_OBJECTS_SKETCH, null));
+            }
+        }
+    }
+
+    @Test
+    public void testStatsTarget_joinStatistics() throws Exception {
+		Configuration conf = HBaseServerTestInstance.getInstanceConfig();
+        Sail sail = createData("statsTableJoinStats", conf);
+		sail.shutDown();
+
+        File root = createTempDir("test_stats");
+
+        assertEquals(0, run(new String[]{"-D", "halyard-tools.stats.characteristic-set-threshold=1", "-s", "statsTableJoinStats", "-t", root.toURI().toURL().toString() + "stats{0}.trig", "-R", "100", "-r", "100", "-o", "http://whatever/myStats", "--join-statistics", "-e", TIMESTAMP_ARG}));
+
+        File stats = new File(root, "stats0.trig");
+        assertTrue(stats.isFile());
+        try (InputStream statsStream = new FileInputStream(stats)) {
+            Model statsM = Rio.parse(statsStream, "", RDFFormat.TRIG, new ParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true), vf, new ParseErrorLogger());
+            // every subject belongs to exactly one characteristic set
+            long distinctSubjects = Models.objectLiteral(statsM.filter(HALYARD.STATS_ROOT_NODE, VOID.DISTINCT_SUBJECTS, null)).get().longValue();
+            Set<Resource> characteristicSets = Models.objectResources(statsM.filter(HALYARD.STATS_ROOT_NODE, VOID_EXT.CHARACTERISTIC_SET_PARTITION, null));
+            long csSubjects = 0L;
+            for (Resource cs : characteristicSets) {
+                csSubjects += Models.objectLiteral(statsM.filter(cs, VOID.ENTITIES, null)).get().longValue();
+                String properties = Models.objectLiteral(statsM.filter(cs, VOID_EXT.CHARACTERISTIC_SET, null)).get().getLabel();
+                assertEquals(properties.split(" ").length, statsM.filter(cs, VOID.PROPERTY_PARTITION, null).size());
+            }
+            assertEquals(distinctSubjects, csSubjects);
+            // most common objects of property partitions
+            Set<Resource> propertyPartitions = Models.objectResources(statsM.filter(HALYARD.STATS_ROOT_NODE, VOID.PROPERTY_PARTITION, null));
+            assertFalse(propertyPartitions.isEmpty());
+            for (Resource partition : propertyPartitions) {
+                long triples = Models.objectLiteral(statsM.filter(partition, VOID.TRIPLES, null)).get().longValue();
+                Set<Resource> objectPartitions = Models.objectResources(statsM.filter(partition, VOID_EXT.OBJECT_PARTITION, null));
+                assertFalse(objectPartitions.isEmpty());
+                long mostCommonTriples = 0L;
+                for (Resource objectPartition : objectPartitions) {
+                    assertTrue(statsM.contains(objectPartition, VOID_EXT.OBJECT, null));
+                    mostCommonTriples += Models.objectLiteral(statsM.filter(objectPartition, VOID.TRIPLES, null)).get().longValue();
+                }
+                assertTrue(mostCommonTriples <= triples);
+            }
+        }
+    }
+
+    private static HyperLogLog toSketch(Literal l) {
+        assertEquals(XSD.BASE64BINARY, l.getDatatype());
+        return HyperLogLog.fromBytes(Base64.getDecoder().decode(l.getLabel()));
+    }
+
 	@Test
     public void testStatsTarget_snapshot() throws Exception {
 		Configuration conf = HBaseServerTestInstance.getInstanceConfig();